@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.cache.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * redis缓存热点key探测配置.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+@Setter
+@Getter
+public class HotKeyConfig {
+    /**
+     * 是否开启热点key探测
+     */
+    private boolean enabled = false;
+    /**
+     * 统计窗口(单位:毫秒)
+     */
+    private long window = 1000;
+    /**
+     * 一个统计窗口内访问次数达到该值即认为是热点key
+     */
+    private int threshold = 500;
+    /**
+     * 采样率(0, 1]，1表示统计每一次访问
+     */
+    private double sampleRate = 0.1;
+    /**
+     * 每个cache最多保留的热点key个数
+     */
+    private int maxHotKeys = 100;
+    /**
+     * 热点key在本地缓存的时间(单位:毫秒)
+     */
+    private long localTtl = 1000;
+}
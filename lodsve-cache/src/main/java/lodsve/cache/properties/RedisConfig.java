@@ -31,4 +31,8 @@ import lombok.Setter;
 @Getter
 public class RedisConfig {
     private String cacheNames = StringUtils.EMPTY;
+    /**
+     * 热点key探测，探测到的热点key会在本地缓存很短的时间
+     */
+    private HotKeyConfig hotKey = new HotKeyConfig();
 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.cache.redis;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Count-Min Sketch，使用固定大小的内存估算每个key的访问次数(只会多估，不会少估).
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+final class CountMinSketch {
+    private static final int[] SEEDS = {0x5bd1e995, 0x1b873593, 0xcc9e2d51, 0x85ebca6b};
+
+    private final int depth;
+    private final int mask;
+    private final AtomicIntegerArray table;
+
+    /**
+     * @param width 每行的计数器个数，会向上取整为2的幂
+     */
+    CountMinSketch(int width) {
+        int realWidth = Integer.highestOneBit(Math.max(2, width) - 1) << 1;
+        this.depth = SEEDS.length;
+        this.mask = realWidth - 1;
+        this.table = new AtomicIntegerArray(depth * realWidth);
+    }
+
+    /**
+     * 计数加一
+     *
+     * @param key key
+     * @return 加一后估算的次数
+     */
+    int increment(Object key) {
+        int hash = key.hashCode();
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            int count = table.incrementAndGet(index(hash, i));
+            if (count < min) {
+                min = count;
+            }
+        }
+        return min;
+    }
+
+    private int index(int hash, int row) {
+        int h = hash * SEEDS[row];
+        h ^= h >>> 16;
+        h *= 0x7feb352d;
+        h ^= h >>> 15;
+        return row * (mask + 1) + (h & mask);
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.cache.redis;
+
+import lodsve.cache.properties.HotKeyConfig;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 热点key探测.<br/>
+ * 按配置的采样率对key的访问采样，每个统计窗口使用一个{@link CountMinSketch}估算访问次数，
+ * 估算次数达到阈值的key在当前窗口和下一个窗口内被认为是热点key.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class HotKeyDetector {
+    private static final int SKETCH_WIDTH = 2048;
+
+    private final long window;
+    private final int threshold;
+    private final double sampleRate;
+    private final int maxHotKeys;
+
+    private volatile long windowStart;
+    private volatile CountMinSketch sketch;
+    /**
+     * 热点key -> 统计信息
+     */
+    private final ConcurrentMap<Object, HotKey> hotKeys = new ConcurrentHashMap<>(16);
+
+    public HotKeyDetector(HotKeyConfig config) {
+        Assert.isTrue(config.getWindow() > 0, "window must be positive!");
+        Assert.isTrue(config.getSampleRate() > 0 && config.getSampleRate() <= 1, "sampleRate must be in (0, 1]!");
+
+        this.window = config.getWindow();
+        this.threshold = Math.max(1, config.getThreshold());
+        this.sampleRate = config.getSampleRate();
+        this.maxHotKeys = config.getMaxHotKeys();
+        this.windowStart = System.currentTimeMillis();
+        this.sketch = new CountMinSketch(SKETCH_WIDTH);
+    }
+
+    /**
+     * 记录一次访问
+     *
+     * @param key key
+     * @return 是否为热点key
+     */
+    public boolean record(Object key) {
+        long now = System.currentTimeMillis();
+        if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return isHot(key, now);
+        }
+
+        if (now - windowStart >= window) {
+            rollWindow(now);
+        }
+
+        long estimated = (long) (sketch.increment(key) / sampleRate);
+        if (estimated < threshold) {
+            return isHot(key, now);
+        }
+
+        HotKey hotKey = hotKeys.get(key);
+        if (hotKey == null) {
+            if (hotKeys.size() >= maxHotKeys) {
+                return false;
+            }
+            hotKey = new HotKey(key);
+            HotKey exists = hotKeys.putIfAbsent(key, hotKey);
+            hotKey = exists != null ? exists : hotKey;
+        }
+        hotKey.estimatedCount = estimated;
+        hotKey.expireAt = windowStart + 2 * window;
+        return true;
+    }
+
+    /**
+     * 是否为热点key
+     *
+     * @param key key
+     * @return 是否为热点key
+     */
+    public boolean isHot(Object key) {
+        return isHot(key, System.currentTimeMillis());
+    }
+
+    /**
+     * 当前的热点key，按估算的访问次数倒序排列
+     *
+     * @return 热点key
+     */
+    public List<HotKey> getHotKeys() {
+        long now = System.currentTimeMillis();
+        List<HotKey> result = new ArrayList<>(hotKeys.size());
+        for (HotKey hotKey : hotKeys.values()) {
+            if (hotKey.expireAt > now) {
+                result.add(hotKey);
+            }
+        }
+        Collections.sort(result, new Comparator<HotKey>() {
+            @Override
+            public int compare(HotKey o1, HotKey o2) {
+                return Long.compare(o2.estimatedCount, o1.estimatedCount);
+            }
+        });
+        return result;
+    }
+
+    private boolean isHot(Object key, long now) {
+        HotKey hotKey = hotKeys.get(key);
+        if (hotKey == null) {
+            return false;
+        }
+        if (hotKey.expireAt <= now) {
+            hotKeys.remove(key, hotKey);
+            return false;
+        }
+        return true;
+    }
+
+    private synchronized void rollWindow(long now) {
+        if (now - windowStart < window) {
+            return;
+        }
+
+        sketch = new CountMinSketch(SKETCH_WIDTH);
+        windowStart = now;
+
+        Iterator<HotKey> iterator = hotKeys.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().expireAt <= now) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 热点key信息
+     */
+    public static class HotKey {
+        private final Object key;
+        private volatile long estimatedCount;
+        private volatile long expireAt;
+
+        private HotKey(Object key) {
+            this.key = key;
+        }
+
+        public Object getKey() {
+            return key;
+        }
+
+        /**
+         * @return 最近一个窗口内估算的访问次数
+         */
+        public long getEstimatedCount() {
+            return estimatedCount;
+        }
+
+        @Override
+        public String toString() {
+            return key + "(" + estimatedCount + ")";
+        }
+    }
+}
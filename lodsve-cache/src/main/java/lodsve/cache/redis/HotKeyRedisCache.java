@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.cache.redis;
+
+import lodsve.cache.properties.HotKeyConfig;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.lang.NonNull;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 带热点key探测的redis缓存.<br/>
+ * 探测到的热点key在本地缓存{@link HotKeyConfig#getLocalTtl()}毫秒，期间的读取不再访问redis.
+ * 本节点的写入会使本地缓存失效，其他节点的写入最多在本地缓存过期后可见.<br/>
+ * 每次写入后递增版本号，从redis读取期间版本号有变化(有并发的写入)时不写入本地缓存，避免读到的旧值覆盖写入后的失效.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class HotKeyRedisCache implements Cache {
+    private final Cache delegate;
+    private final HotKeyDetector detector;
+    private final long localTtl;
+    private final int maxLocalSize;
+    private final Map<Object, LocalValue> localCache = new ConcurrentHashMap<>(16);
+    /**
+     * 写入版本号，每次写入redis后加一
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    public HotKeyRedisCache(Cache delegate, HotKeyConfig config) {
+        this.delegate = delegate;
+        this.detector = new HotKeyDetector(config);
+        this.localTtl = config.getLocalTtl();
+        this.maxLocalSize = Math.max(1, config.getMaxHotKeys());
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        boolean hot = detector.record(key);
+        if (!hot) {
+            return delegate.get(key);
+        }
+
+        ValueWrapper local = getLocal(key);
+        if (local != null) {
+            return local;
+        }
+
+        long readVersion = version.get();
+        ValueWrapper value = delegate.get(key);
+        if (value != null) {
+            putLocal(key, value, readVersion);
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(@NonNull Object key, @NonNull Callable<T> valueLoader) {
+        boolean hot = detector.record(key);
+        if (!hot) {
+            return delegate.get(key, valueLoader);
+        }
+
+        ValueWrapper local = getLocal(key);
+        if (local != null) {
+            return (T) local.get();
+        }
+
+        long readVersion = version.get();
+        T value = delegate.get(key, valueLoader);
+        putLocal(key, new SimpleValueWrapper(value), readVersion);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        try {
+            delegate.put(key, value);
+        } finally {
+            invalidateLocal(key);
+        }
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        try {
+            return delegate.putIfAbsent(key, value);
+        } finally {
+            invalidateLocal(key);
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        try {
+            delegate.evict(key);
+        } finally {
+            invalidateLocal(key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        try {
+            delegate.clear();
+        } finally {
+            version.incrementAndGet();
+            localCache.clear();
+        }
+    }
+
+    /**
+     * 当前的热点key
+     *
+     * @return 热点key，按估算的访问次数倒序排列
+     */
+    public List<HotKeyDetector.HotKey> getHotKeys() {
+        return detector.getHotKeys();
+    }
+
+    private ValueWrapper getLocal(Object key) {
+        LocalValue local = localCache.get(key);
+        if (local == null) {
+            return null;
+        }
+        if (local.expireAt <= System.currentTimeMillis()) {
+            localCache.remove(key, local);
+            return null;
+        }
+        return local.value;
+    }
+
+    /**
+     * 先递增版本号再删除，与{@link #putLocal}中的检查在同一个key上互斥：
+     * 检查在删除之前则写入的旧值会被删除，在删除之后则一定能看到新的版本号
+     */
+    private void invalidateLocal(Object key) {
+        version.incrementAndGet();
+        localCache.remove(key);
+    }
+
+    private void putLocal(Object key, ValueWrapper value, long readVersion) {
+        long now = System.currentTimeMillis();
+        if (localCache.size() >= maxLocalSize) {
+            Iterator<LocalValue> iterator = localCache.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().expireAt <= now) {
+                    iterator.remove();
+                }
+            }
+            if (localCache.size() >= maxLocalSize) {
+                return;
+            }
+        }
+        LocalValue local = new LocalValue(value, now + localTtl);
+        localCache.compute(key, (k, current) -> version.get() == readVersion ? local : current);
+    }
+
+    private static class LocalValue {
+        private final ValueWrapper value;
+        private final long expireAt;
+
+        private LocalValue(ValueWrapper value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.cache.redis;
+
+import lodsve.cache.properties.HotKeyConfig;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.core.RedisOperations;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 带热点key探测的RedisCacheManager，每个cache都会包装为{@link HotKeyRedisCache}.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class HotKeyRedisCacheManager extends RedisCacheManager {
+    private final HotKeyConfig hotKeyConfig;
+    private final Map<String, HotKeyRedisCache> hotKeyCaches = new HashMap<>(16);
+
+    public HotKeyRedisCacheManager(RedisOperations redisOperations, HotKeyConfig hotKeyConfig) {
+        super(redisOperations);
+        this.hotKeyConfig = hotKeyConfig;
+    }
+
+    @Override
+    protected Cache decorateCache(Cache cache) {
+        if (cache instanceof HotKeyRedisCache || isCacheAlreadyDecorated(cache)) {
+            return super.decorateCache(cache);
+        }
+
+        HotKeyRedisCache hotKeyCache = new HotKeyRedisCache(cache, hotKeyConfig);
+        synchronized (hotKeyCaches) {
+            hotKeyCaches.put(cache.getName(), hotKeyCache);
+        }
+        return super.decorateCache(hotKeyCache);
+    }
+
+    /**
+     * 所有cache当前的热点key
+     *
+     * @return cache名称 -> 热点key
+     */
+    public Map<String, List<HotKeyDetector.HotKey>> getHotKeys() {
+        Map<String, List<HotKeyDetector.HotKey>> result = new HashMap<>(16);
+        synchronized (hotKeyCaches) {
+            for (Map.Entry<String, HotKeyRedisCache> entry : hotKeyCaches.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().getHotKeys());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 某个cache当前的热点key
+     *
+     * @param cacheName cache名称
+     * @return 热点key
+     */
+    public List<HotKeyDetector.HotKey> getHotKeys(String cacheName) {
+        HotKeyRedisCache cache;
+        synchronized (hotKeyCaches) {
+            cache = hotKeyCaches.get(cacheName);
+        }
+        return cache != null ? cache.getHotKeys() : Collections.<HotKeyDetector.HotKey>emptyList();
+    }
+}
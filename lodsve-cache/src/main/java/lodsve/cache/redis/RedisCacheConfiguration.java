@@ -21,10 +21,10 @@ import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lodsve.cache.properties.CacheProperties;
+import lodsve.cache.properties.RedisConfig;
 import lodsve.core.properties.relaxedbind.annotations.EnableConfigurationProperties;
 import lodsve.core.utils.StringUtils;
 import lodsve.redis.core.annotations.EnableRedis;
-import lodsve.redis.core.connection.LodsveRedisConnectionFactory;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -34,6 +34,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 
@@ -66,8 +67,10 @@ public class RedisCacheConfiguration {
 
         @Bean
         public CacheManager cacheManager() {
-            RedisCacheManager cacheManager = new RedisCacheManager(redisTemplate);
-            String cacheNames = cacheProperties.getRedis().getCacheNames();
+            RedisConfig redisConfig = cacheProperties.getRedis();
+            RedisCacheManager cacheManager = redisConfig.getHotKey().isEnabled() ?
+                    new HotKeyRedisCacheManager(redisTemplate, redisConfig.getHotKey()) : new RedisCacheManager(redisTemplate);
+            String cacheNames = redisConfig.getCacheNames();
             List<String> cacheNameList = Arrays.asList(StringUtils.split(cacheNames));
 
             if (!cacheNameList.isEmpty()) {
@@ -81,9 +84,9 @@ public class RedisCacheConfiguration {
     @Configuration
     @EnableRedis(name = "cache")
     public static class RedisCacheBasicConfiguration {
-        private final LodsveRedisConnectionFactory connectionFactory;
+        private final RedisConnectionFactory connectionFactory;
 
-        public RedisCacheBasicConfiguration(@Qualifier("cache") ObjectProvider<LodsveRedisConnectionFactory> connectionFactory) {
+        public RedisCacheBasicConfiguration(@Qualifier("cache") ObjectProvider<RedisConnectionFactory> connectionFactory) {
             this.connectionFactory = connectionFactory.getIfAvailable();
         }
 
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.cache.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * .
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class CountMinSketchTest {
+    @Test
+    public void testIncrement() {
+        CountMinSketch sketch = new CountMinSketch(64);
+        for (int i = 1; i <= 5; i++) {
+            Assert.assertEquals(i, sketch.increment("hot"));
+        }
+        Assert.assertEquals(1, sketch.increment("cold"));
+    }
+
+    @Test
+    public void testNeverUnderestimate() {
+        // 计数器远少于key的个数，必然有冲突
+        CountMinSketch sketch = new CountMinSketch(16);
+        int keys = 500;
+        for (int i = 0; i < keys; i++) {
+            for (int j = 0; j < i % 7; j++) {
+                sketch.increment("key" + i);
+            }
+        }
+
+        for (int i = 0; i < keys; i++) {
+            Assert.assertTrue(sketch.increment("key" + i) >= i % 7 + 1);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.cache.redis;
+
+import lodsve.cache.properties.HotKeyConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * .
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class HotKeyDetectorTest {
+    @Test
+    public void testThreshold() {
+        HotKeyDetector detector = new HotKeyDetector(config(10000, 3, 10));
+
+        Assert.assertFalse(detector.record("a"));
+        Assert.assertFalse(detector.record("a"));
+        Assert.assertTrue(detector.record("a"));
+        Assert.assertTrue(detector.isHot("a"));
+        Assert.assertFalse(detector.isHot("b"));
+
+        for (int i = 0; i < 5; i++) {
+            detector.record("b");
+        }
+        List<HotKeyDetector.HotKey> hotKeys = detector.getHotKeys();
+        Assert.assertEquals(2, hotKeys.size());
+        Assert.assertEquals("b", hotKeys.get(0).getKey());
+        Assert.assertEquals(5, hotKeys.get(0).getEstimatedCount());
+        Assert.assertEquals("a", hotKeys.get(1).getKey());
+    }
+
+    @Test
+    public void testMaxHotKeys() {
+        HotKeyDetector detector = new HotKeyDetector(config(10000, 1, 1));
+
+        Assert.assertTrue(detector.record("a"));
+        // 热点key已满
+        Assert.assertFalse(detector.record("b"));
+        Assert.assertFalse(detector.isHot("b"));
+        Assert.assertEquals(1, detector.getHotKeys().size());
+    }
+
+    @Test
+    public void testDecay() throws Exception {
+        HotKeyDetector detector = new HotKeyDetector(config(300, 3, 10));
+        for (int i = 0; i < 3; i++) {
+            detector.record("a");
+        }
+        Assert.assertTrue(detector.isHot("a"));
+
+        // 热点key在当前窗口和下一个窗口内有效
+        Thread.sleep(350);
+        Assert.assertTrue(detector.isHot("a"));
+        Thread.sleep(350);
+        Assert.assertFalse(detector.isHot("a"));
+        Assert.assertTrue(detector.getHotKeys().isEmpty());
+
+        // 新的窗口重新计数
+        Assert.assertFalse(detector.record("a"));
+        Assert.assertFalse(detector.record("a"));
+        Assert.assertTrue(detector.record("a"));
+    }
+
+    private HotKeyConfig config(long window, int threshold, int maxHotKeys) {
+        HotKeyConfig config = new HotKeyConfig();
+        config.setWindow(window);
+        config.setThreshold(threshold);
+        config.setSampleRate(1);
+        config.setMaxHotKeys(maxHotKeys);
+        return config;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.cache.redis;
+
+import lodsve.cache.properties.HotKeyConfig;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * .
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class HotKeyRedisCacheTest {
+    @Test
+    public void testPromotion() {
+        CountingCache delegate = new CountingCache();
+        HotKeyRedisCache cache = new HotKeyRedisCache(delegate, config(10000));
+        cache.put("k", "v");
+
+        // 达到阈值之前每次都读取redis，成为热点key后从本地读取
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals("v", cache.get("k", String.class));
+        }
+        Assert.assertEquals(3, delegate.reads.get());
+        Assert.assertEquals("k", cache.getHotKeys().get(0).getKey());
+
+        // 本节点的写入使本地缓存失效
+        cache.put("k", "v2");
+        Assert.assertEquals("v2", cache.get("k", String.class));
+        Assert.assertEquals(4, delegate.reads.get());
+        Assert.assertEquals("v2", cache.get("k", String.class));
+        Assert.assertEquals(4, delegate.reads.get());
+
+        cache.evict("k");
+        Assert.assertNull(cache.get("k"));
+    }
+
+    @Test
+    public void testLocalExpire() throws Exception {
+        CountingCache delegate = new CountingCache();
+        HotKeyRedisCache cache = new HotKeyRedisCache(delegate, config(100));
+        cache.put("k", "v");
+        for (int i = 0; i < 4; i++) {
+            cache.get("k");
+        }
+        Assert.assertEquals(3, delegate.reads.get());
+
+        // 本地缓存过期后重新读取redis，其他节点的写入可见
+        delegate.put("k", "other");
+        Thread.sleep(150);
+        Assert.assertEquals("other", cache.get("k", String.class));
+        Assert.assertEquals(4, delegate.reads.get());
+    }
+
+    @Test
+    public void testConcurrentWrite() {
+        CountingCache delegate = new CountingCache();
+        HotKeyRedisCache cache = new HotKeyRedisCache(delegate, config(10000));
+        cache.put("k", "old");
+        cache.get("k");
+        cache.get("k");
+
+        // 从redis读到旧值之后、写入本地缓存之前，有并发的写入
+        delegate.afterRead = () -> cache.put("k", "new");
+        Assert.assertEquals("old", cache.get("k", String.class));
+        Assert.assertEquals("new", cache.get("k", String.class));
+
+        cache.put("k", "new");
+        delegate.afterRead = () -> cache.evict("k");
+        Assert.assertEquals("new", cache.get("k", String.class));
+        Assert.assertNull(cache.get("k"));
+    }
+
+    private HotKeyConfig config(long localTtl) {
+        HotKeyConfig config = new HotKeyConfig();
+        config.setThreshold(3);
+        config.setSampleRate(1);
+        config.setWindow(10000);
+        config.setLocalTtl(localTtl);
+        return config;
+    }
+
+    private static class CountingCache extends ConcurrentMapCache {
+        private final AtomicInteger reads = new AtomicInteger();
+        private Runnable afterRead;
+
+        CountingCache() {
+            super("test");
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            reads.incrementAndGet();
+            ValueWrapper value = super.get(key);
+
+            Runnable action = afterRead;
+            afterRead = null;
+            if (action != null) {
+                action.run();
+            }
+            return value;
+        }
+    }
+}
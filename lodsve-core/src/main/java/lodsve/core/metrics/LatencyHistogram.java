@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.core.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的耗时直方图.<br/>
+ * 按微秒以2的幂次划分桶(1us, 2us, 4us ... 约35分钟)，记录只做一次计数累加，适合在热点路径上常开；
+ * 百分位数返回所在桶的上界，误差不超过一倍.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class LatencyHistogram {
+    private static final int BUCKET_COUNT = 32;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos 耗时(单位:纳秒)
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        buckets[indexOf(nanos)].increment();
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * 记录次数
+     *
+     * @return 次数
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * 总耗时
+     *
+     * @return 总耗时(单位:纳秒)
+     */
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * 最大耗时
+     *
+     * @return 最大耗时(单位:纳秒)
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * 平均耗时
+     *
+     * @return 平均耗时(单位:纳秒)
+     */
+    public long getMeanNanos() {
+        long c = getCount();
+        return c == 0 ? 0 : getTotalNanos() / c;
+    }
+
+    /**
+     * 获取百分位耗时
+     *
+     * @param percentile 百分位,取值(0, 100]
+     * @return 耗时上界(单位:纳秒)
+     */
+    public long getPercentileNanos(double percentile) {
+        long[] counts = getBucketCounts();
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long threshold = (long) Math.ceil(total * Math.min(percentile, 100D) / 100D);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(threshold, 1)) {
+                return Math.min(upperBoundNanos(i), getMaxNanos());
+            }
+        }
+
+        return getMaxNanos();
+    }
+
+    /**
+     * 每个桶内的记录次数，第i个桶的上界为{@code 2^i}微秒
+     *
+     * @return 每个桶的记录次数
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets[i].sum();
+        }
+
+        return counts;
+    }
+
+    /**
+     * 清空统计
+     */
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%dus, p50=%dus, p99=%dus, max=%dus", getCount(),
+                TimeUnit.NANOSECONDS.toMicros(getMeanNanos()), TimeUnit.NANOSECONDS.toMicros(getPercentileNanos(50)),
+                TimeUnit.NANOSECONDS.toMicros(getPercentileNanos(99)), TimeUnit.NANOSECONDS.toMicros(getMaxNanos()));
+    }
+
+    private static int indexOf(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        if (micros <= 1) {
+            return 0;
+        }
+
+        int index = 64 - Long.numberOfLeadingZeros(micros - 1);
+        return Math.min(index, BUCKET_COUNT - 1);
+    }
+
+    private static long upperBoundNanos(int index) {
+        return TimeUnit.MICROSECONDS.toNanos(1L << index);
+    }
+}
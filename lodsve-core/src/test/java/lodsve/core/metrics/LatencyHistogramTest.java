@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.core.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LatencyHistogram Test.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class LatencyHistogramTest {
+    @Test
+    public void testRecord() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+
+        Assert.assertEquals(100, histogram.getCount());
+        Assert.assertEquals(TimeUnit.MICROSECONDS.toNanos(100), histogram.getMaxNanos());
+        Assert.assertEquals(TimeUnit.MICROSECONDS.toNanos(50) + 500, histogram.getMeanNanos());
+        // 50us落在(32us, 64us]的桶中
+        Assert.assertEquals(TimeUnit.MICROSECONDS.toNanos(64), histogram.getPercentileNanos(50));
+        // 上界不会超过最大值
+        Assert.assertEquals(TimeUnit.MICROSECONDS.toNanos(100), histogram.getPercentileNanos(99));
+    }
+
+    @Test
+    public void testReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        histogram.reset();
+
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getPercentileNanos(99));
+    }
+}
@@ -74,4 +74,25 @@ public @interface EnableMyBatis {
      * @return 数据库，默认MySQL
      */
     DbType type() default DbType.DB_MYSQL;
+
+    /**
+     * 分页总数缓存时间(单位:毫秒)，key为count语句和参数值，小于等于0表示不缓存
+     *
+     * @return 分页总数缓存时间
+     */
+    long totalCountCacheTtl() default 0;
+
+    /**
+     * batchSave/batchUpdate使用JDBC批处理时，每多少条提交一次
+     *
+     * @return 批处理提交条数
+     */
+    int batchFlushSize() default 1000;
+
+    /**
+     * 游标查询(返回{@link org.apache.ibatis.cursor.Cursor})没有指定fetchSize时，每次从数据库读取的条数；MySQL会使用流式读取
+     *
+     * @return 游标查询fetchSize
+     */
+    int cursorFetchSize() default 1000;
 }
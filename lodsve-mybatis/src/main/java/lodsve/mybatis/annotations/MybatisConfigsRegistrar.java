@@ -50,6 +50,9 @@ public class MybatisConfigsRegistrar implements ImportBeanDefinitionRegistrar, R
     private static final String KEY_ENUMS_LOCATIONS = "enumsLocations";
     private static final String BEAN_NAME_CONFIGURATION_CUSTOMIZER = "configurationCustomizerBean";
     private static final String KEY_DB_TYPE = "type";
+    private static final String KEY_TOTAL_COUNT_CACHE_TTL = "totalCountCacheTtl";
+    private static final String KEY_BATCH_FLUSH_SIZE = "batchFlushSize";
+    private static final String KEY_CURSOR_FETCH_SIZE = "cursorFetchSize";
 
     private ResourceLoader resourceLoader;
 
@@ -85,10 +88,16 @@ public class MybatisConfigsRegistrar implements ImportBeanDefinitionRegistrar, R
         // 处理自定义的
         boolean mapUnderscoreToCamelCase = attributes.getBoolean(KEY_MAP_UNDERSCORE_TO_CAMEL_CASE);
         String[] enumsLocations = attributes.getStringArray(KEY_ENUMS_LOCATIONS);
+        long totalCountCacheTtl = attributes.getNumber(KEY_TOTAL_COUNT_CACHE_TTL).longValue();
+        int batchFlushSize = attributes.getNumber(KEY_BATCH_FLUSH_SIZE).intValue();
+        int cursorFetchSize = attributes.getNumber(KEY_CURSOR_FETCH_SIZE).intValue();
 
         BeanDefinitionBuilder xnyConfigurationCustomizerBean = BeanDefinitionBuilder.genericBeanDefinition(LodsveConfigurationCustomizer.class);
         xnyConfigurationCustomizerBean.addConstructorArgValue(mapUnderscoreToCamelCase);
         xnyConfigurationCustomizerBean.addConstructorArgValue(enumsLocations);
+        xnyConfigurationCustomizerBean.addConstructorArgValue(totalCountCacheTtl);
+        xnyConfigurationCustomizerBean.addConstructorArgValue(batchFlushSize);
+        xnyConfigurationCustomizerBean.addConstructorArgValue(cursorFetchSize);
 
         registry.registerBeanDefinition(BEAN_NAME_CONFIGURATION_CUSTOMIZER, xnyConfigurationCustomizerBean.getBeanDefinition());
 
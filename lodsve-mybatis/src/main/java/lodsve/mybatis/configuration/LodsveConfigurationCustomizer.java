@@ -39,18 +39,36 @@ import java.util.Arrays;
 public class LodsveConfigurationCustomizer implements ConfigurationCustomizer {
     private boolean mapUnderscoreToCamelCase;
     private String[] enumsLocations;
+    private long totalCountCacheTtl;
+    private int batchFlushSize;
+    private int cursorFetchSize;
 
     public LodsveConfigurationCustomizer(boolean mapUnderscoreToCamelCase, String[] enumsLocations) {
+        this(mapUnderscoreToCamelCase, enumsLocations, 0);
+    }
+
+    public LodsveConfigurationCustomizer(boolean mapUnderscoreToCamelCase, String[] enumsLocations, long totalCountCacheTtl) {
+        this(mapUnderscoreToCamelCase, enumsLocations, totalCountCacheTtl, BaseRepositoryInterceptor.DEFAULT_BATCH_FLUSH_SIZE);
+    }
+
+    public LodsveConfigurationCustomizer(boolean mapUnderscoreToCamelCase, String[] enumsLocations, long totalCountCacheTtl, int batchFlushSize) {
+        this(mapUnderscoreToCamelCase, enumsLocations, totalCountCacheTtl, batchFlushSize, BaseRepositoryInterceptor.DEFAULT_CURSOR_FETCH_SIZE);
+    }
+
+    public LodsveConfigurationCustomizer(boolean mapUnderscoreToCamelCase, String[] enumsLocations, long totalCountCacheTtl, int batchFlushSize, int cursorFetchSize) {
         this.mapUnderscoreToCamelCase = mapUnderscoreToCamelCase;
         this.enumsLocations = enumsLocations;
+        this.totalCountCacheTtl = totalCountCacheTtl;
+        this.batchFlushSize = batchFlushSize;
+        this.cursorFetchSize = cursorFetchSize;
     }
 
     @Override
     public void customize(Configuration configuration) {
         configuration.setMapUnderscoreToCamelCase(mapUnderscoreToCamelCase);
 
-        configuration.addInterceptor(new PaginationInterceptor());
-        configuration.addInterceptor(new BaseRepositoryInterceptor());
+        configuration.addInterceptor(new PaginationInterceptor(totalCountCacheTtl));
+        configuration.addInterceptor(new BaseRepositoryInterceptor(batchFlushSize, cursorFetchSize));
 
         if (ArrayUtils.isNotEmpty(enumsLocations)) {
             TypeHandler<?>[] handlers = new TypeHandlerScanner().find(enumsLocations);
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.mybatis.configuration;
+
+import lodsve.mybatis.repository.helper.EntityHelper;
+import lodsve.mybatis.repository.helper.MapperHelper;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+
+/**
+ * 所有Mapper注册完成后，注册Mapper对应的实体信息并为通用Mapper方法生成SqlSource，避免在第一次调用时生成.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ * @see EntityHelper#registerEntities(org.apache.ibatis.session.Configuration)
+ * @see MapperHelper#resolveSqlSources(org.apache.ibatis.session.Configuration)
+ */
+public class MapperSqlSourceInitializer implements SmartInitializingSingleton {
+    private final SqlSessionFactory sqlSessionFactory;
+
+    public MapperSqlSourceInitializer(SqlSessionFactory sqlSessionFactory) {
+        this.sqlSessionFactory = sqlSessionFactory;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        EntityHelper.registerEntities(sqlSessionFactory.getConfiguration());
+        MapperHelper.resolveSqlSources(sqlSessionFactory.getConfiguration());
+    }
+}
@@ -66,4 +66,9 @@ public class MyBatisConfiguration {
     public SqlSessionTemplate sqlSessionTemplate(SqlSessionFactory sqlSessionFactory) {
         return new SqlSessionTemplate(sqlSessionFactory);
     }
+
+    @Bean
+    public MapperSqlSourceInitializer mapperSqlSourceInitializer(SqlSessionFactory sqlSessionFactory) {
+        return new MapperSqlSourceInitializer(sqlSessionFactory);
+    }
 }
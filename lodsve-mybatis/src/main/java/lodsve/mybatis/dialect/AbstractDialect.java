@@ -18,10 +18,16 @@
 package lodsve.mybatis.dialect;
 
 import lodsve.mybatis.query.NativeSqlQuery;
+import lodsve.mybatis.utils.PaginationUtils;
 import lodsve.mybatis.utils.SqlUtils;
+import org.springframework.data.domain.Sort;
 import org.springframework.util.Assert;
 
 import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * 公用部分.
@@ -35,6 +41,76 @@ public abstract class AbstractDialect implements Dialect {
         return SqlUtils.getSingleLineCountSql(sql);
     }
 
+    @Override
+    public PageSql getParameterizedPageSql(String sql, int offset, int limit) {
+        return new PageSql(getPageSql(sql, offset, limit), Collections.emptyList());
+    }
+
+    @Override
+    public KeysetSql getKeysetPageSql(String sql, Sort sort, boolean seek, int limit) {
+        Assert.hasText(sql, "sql is required!");
+        Assert.isTrue(sort != null && sort.iterator().hasNext(), "keyset pagination requires sort!");
+
+        List<Sort.Order> orders = new ArrayList<>();
+        sort.forEach(orders::add);
+        List<Integer> keyIndexes = new ArrayList<>();
+
+        // 条件和排序直接加在原sql上，才能使用原sql中表上的索引
+        String keysetSql = SqlUtils.addConditionAndOrderBy(sql, seek ? getKeysetCondition(orders, keyIndexes) : null, PaginationUtils.getOrderBySql(sort));
+        if (keysetSql == null) {
+            keysetSql = getWrappedKeysetSql(sql, orders, seek, keyIndexes);
+        }
+
+        return new KeysetSql(getPageSql(keysetSql, 0, limit), keyIndexes);
+    }
+
+    /**
+     * 原sql无法直接改写(集合运算、GROUP BY、已有分页等)时，包装为派生表后再定位.<br/>
+     * 派生表外不能使用原sql中的表别名，所以排序字段会去掉限定名(u.id -> id)，这时排序字段必须在查询结果中
+     *
+     * @param sql        原sql
+     * @param orders     排序字段
+     * @param seek       是否按上一页的值定位
+     * @param keyIndexes 每个占位符对应的排序字段下标
+     * @return keyset分页的sql(不含分页)
+     */
+    String getWrappedKeysetSql(String sql, List<Sort.Order> orders, boolean seek, List<Integer> keyIndexes) {
+        keyIndexes.clear();
+        List<Sort.Order> unqualified = orders.stream().map(o -> o.withProperty(o.getProperty().substring(o.getProperty().lastIndexOf('.') + 1)))
+                .collect(Collectors.toList());
+
+        StringBuilder builder = new StringBuilder("SELECT * FROM (").append(sql).append(") keyset_t");
+        if (seek) {
+            builder.append(" WHERE ").append(getKeysetCondition(unqualified, keyIndexes));
+        }
+        return builder.append(" ORDER BY ").append(PaginationUtils.getOrderBySql(new Sort(unqualified))).toString();
+    }
+
+    /**
+     * keyset分页的条件，通用写法为：k1 > ? OR (k1 = ? AND k2 > ?)，支持不同的排序方向
+     *
+     * @param orders     排序字段
+     * @param keyIndexes 每个占位符对应的排序字段下标
+     * @return 条件
+     */
+    String getKeysetCondition(List<Sort.Order> orders, List<Integer> keyIndexes) {
+        StringBuilder condition = new StringBuilder("(");
+        for (int i = 0; i < orders.size(); i++) {
+            if (i > 0) {
+                condition.append(" OR ");
+            }
+            condition.append("(");
+            for (int j = 0; j < i; j++) {
+                condition.append(PaginationUtils.getSortExpression(orders.get(j))).append(" = ? AND ");
+                keyIndexes.add(j);
+            }
+            Sort.Order order = orders.get(i);
+            condition.append(PaginationUtils.getSortExpression(order)).append(order.isAscending() ? " > ?" : " < ?").append(")");
+            keyIndexes.add(i);
+        }
+        return condition.append(")").toString();
+    }
+
     @Override
     public boolean existTable(String tableName, DataSource dataSource) throws Exception {
         Assert.notNull(dataSource, "dataSource must be non-null!");
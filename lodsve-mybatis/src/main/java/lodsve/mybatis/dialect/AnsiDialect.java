@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.mybatis.dialect;
+
+import java.util.Arrays;
+
+/**
+ * SQL:2008标准分页(OFFSET ... ROWS FETCH NEXT ... ROWS ONLY)，适用于PostgreSQL、H2等数据库.<br/>
+ * 偏移量和数量作为参数绑定，所有页共用同一个执行计划.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class AnsiDialect extends AbstractDialect {
+    @Override
+    public String getPageSql(String sql, int offset, int limit) {
+        return prepareOffsetSql(sql) + " OFFSET " + Math.max(offset, 0) + " ROWS FETCH NEXT " + limit + " ROWS ONLY";
+    }
+
+    @Override
+    public PageSql getParameterizedPageSql(String sql, int offset, int limit) {
+        return new PageSql(prepareOffsetSql(sql) + " OFFSET ? ROWS FETCH NEXT ? ROWS ONLY", Arrays.asList(Math.max(offset, 0), limit));
+    }
+
+    /**
+     * 追加OFFSET之前对原sql的处理，由子类按需覆盖
+     *
+     * @param sql 原sql
+     * @return 处理后的sql
+     */
+    String prepareOffsetSql(String sql) {
+        return sql;
+    }
+
+    @Override
+    String existTableSql(String schema, String tableName) {
+        String sql = "SELECT COUNT(TABLE_NAME) FROM INFORMATION_SCHEMA.TABLES WHERE UPPER(TABLE_NAME) = '%s'";
+        return String.format(sql, tableName.toUpperCase());
+    }
+}
@@ -17,6 +17,8 @@
 
 package lodsve.mybatis.dialect;
 
+import org.springframework.data.domain.Sort;
+
 import javax.sql.DataSource;
 
 /**
@@ -45,6 +47,32 @@ public interface Dialect {
      */
     String getPageSql(String sql, int offset, int limit);
 
+    /**
+     * 获得使用占位符的分页sql，偏移量和数量作为参数绑定，翻页时sql不变，数据库可以复用执行计划<br/>
+     * 不支持的数据库返回与{@link #getPageSql(String, int, int)}相同的sql，不追加参数
+     *
+     * @param sql    原sql
+     * @param offset 偏移量
+     * @param limit  数量
+     * @return 分页的sql及追加的参数
+     */
+    PageSql getParameterizedPageSql(String sql, int offset, int limit);
+
+    /**
+     * 获得keyset(seek)分页的sql，按排序字段的值定位，而不是跳过offset条记录，翻页越深性能不会下降
+     * <pre>
+     *     SELECT * FROM (原sql) WHERE (k1, k2) > (?, ?) ORDER BY k1, k2 LIMIT n
+     * </pre>
+     * 排序字段必须是原sql查询结果中的列，并且组合起来唯一
+     *
+     * @param sql   原sql
+     * @param sort  排序字段
+     * @param seek  是否从上一页最后一条记录之后开始查询，为false表示查询第一页
+     * @param limit 数量
+     * @return 分页的sql及占位符对应的排序字段
+     */
+    KeysetSql getKeysetPageSql(String sql, Sort sort, boolean seek, int limit);
+
     /**
      * 判断数据库中是否含有给定的表
      *
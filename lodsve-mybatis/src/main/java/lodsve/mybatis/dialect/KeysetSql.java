@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.mybatis.dialect;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * keyset分页的sql.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ * @see Dialect#getKeysetPageSql(String, org.springframework.data.domain.Sort, boolean, int)
+ */
+public class KeysetSql {
+    private final String sql;
+    private final List<Integer> keyIndexes;
+
+    public KeysetSql(String sql, List<Integer> keyIndexes) {
+        this.sql = sql;
+        this.keyIndexes = Collections.unmodifiableList(keyIndexes);
+    }
+
+    /**
+     * @return 分页的sql
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return sql中追加的每个占位符(?)依次对应的排序字段下标
+     */
+    public List<Integer> getKeyIndexes() {
+        return keyIndexes;
+    }
+}
@@ -17,6 +17,12 @@
 
 package lodsve.mybatis.dialect;
 
+import lodsve.mybatis.utils.PaginationUtils;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
 /**
  * mysql数据库方言.
  *
@@ -34,6 +40,25 @@ public class MySqlDialect extends AbstractDialect {
         return sqlBuilder.append(" limit ").append(offset).append(",").append(limit).toString();
     }
 
+    /**
+     * 排序方向一致时使用行比较：(k1, k2) > (?, ?)
+     */
+    @Override
+    String getKeysetCondition(List<Sort.Order> orders, List<Integer> keyIndexes) {
+        boolean ascending = orders.get(0).isAscending();
+        if (orders.size() == 1 || orders.stream().anyMatch(o -> o.isAscending() != ascending)) {
+            return super.getKeysetCondition(orders, keyIndexes);
+        }
+
+        String columns = orders.stream().map(PaginationUtils::getSortExpression).collect(Collectors.joining(", "));
+        String placeholders = orders.stream().map(o -> "?").collect(Collectors.joining(", "));
+        for (int i = 0; i < orders.size(); i++) {
+            keyIndexes.add(i);
+        }
+
+        return String.format("(%s) %s (%s)", columns, ascending ? ">" : "<", placeholders);
+    }
+
     @Override
     String existTableSql(String schema, String tableName) {
         String sql = "SELECT count(TABLE_NAME) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA='%s' and TABLE_NAME = '%s'";
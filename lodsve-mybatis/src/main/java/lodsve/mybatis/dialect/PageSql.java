@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.mybatis.dialect;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 使用占位符的分页sql.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ * @see Dialect#getParameterizedPageSql(String, int, int)
+ */
+public class PageSql {
+    private final String sql;
+    private final List<Object> parameters;
+
+    public PageSql(String sql, List<Object> parameters) {
+        this.sql = sql;
+        this.parameters = Collections.unmodifiableList(parameters);
+    }
+
+    /**
+     * @return 分页的sql
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return sql中追加的每个占位符(?)依次对应的参数值
+     */
+    public List<Object> getParameters() {
+        return parameters;
+    }
+}
@@ -14,22 +14,45 @@
  * You should have received a copy of the GNU General Public License
  * along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
+
 package lodsve.mybatis.dialect;
 
+import lodsve.mybatis.exception.MyBatisException;
+import lodsve.mybatis.utils.SqlUtils;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
 /**
- * microsoft sql server.
+ * microsoft sql server(2012及以上).<br/>
+ * OFFSET/FETCH必须跟在ORDER BY之后，最外层没有排序时(子查询、开窗函数中的排序不算)使用ORDER BY (SELECT NULL)；派生表(子查询)中不允许ORDER BY，
+ * 所以count和包装为派生表的keyset分页会先去掉原sql中的排序；排序中含有参数或者sql无法解析时排序无法去掉，直接抛出异常.
  *
  * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
  */
-public class SqlServerDialect extends AbstractDialect {
+public class SqlServerDialect extends AnsiDialect {
+    @Override
+    public String getCountSql(String sql) {
+        return super.getCountSql(removeOrderBy(sql));
+    }
 
     @Override
-    String existTableSql(String schema, String tableName) {
-        return null;
+    String getWrappedKeysetSql(String sql, List<Sort.Order> orders, boolean seek, List<Integer> keyIndexes) {
+        return super.getWrappedKeysetSql(removeOrderBy(sql), orders, seek, keyIndexes);
     }
 
     @Override
-    public String getPageSql(String sql, int offset, int limit) {
-        return null;
+    String prepareOffsetSql(String sql) {
+        return SqlUtils.hasOrderBy(sql) ? sql : sql + " ORDER BY (SELECT NULL)";
+    }
+
+    private String removeOrderBy(String sql) {
+        String removed = SqlUtils.removeOrderBy(sql);
+        if (!sql.startsWith(SqlUtils.KEEP_ORDER_BY) && SqlUtils.hasOrderBy(removed)) {
+            // 去掉排序会使占位符与参数对不上，保留排序则sql server会拒绝派生表中的ORDER BY
+            throw new MyBatisException(102006, "can't remove the ORDER BY of sql for sql server, it has parameters or can't be parsed: " + sql, sql);
+        }
+
+        return removed;
     }
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.mybatis.exception;
+
+/**
+ * 乐观锁冲突，按主键和版本号更新时没有更新到记录.<br/>
+ * 继承自{@link javax.persistence.OptimisticLockException}，原有的捕获方式依然有效.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class OptimisticLockException extends javax.persistence.OptimisticLockException {
+    private final Class<?> entityType;
+    private final Object id;
+    private final Object version;
+    private final int affectedRows;
+
+    public OptimisticLockException(Class<?> entityType, Object id, Object version, int affectedRows, Object entity) {
+        super(String.format("[%s#%s] version %s is out of date, %d rows updated!", entityType.getName(), id, version, affectedRows), null, entity);
+        this.entityType = entityType;
+        this.id = id;
+        this.version = version;
+        this.affectedRows = affectedRows;
+    }
+
+    /**
+     * @return 实体类型
+     */
+    public Class<?> getEntityType() {
+        return entityType;
+    }
+
+    /**
+     * @return 主键值
+     */
+    public Object getId() {
+        return id;
+    }
+
+    /**
+     * @return 更新时使用的版本号
+     */
+    public Object getVersion() {
+        return version;
+    }
+
+    /**
+     * @return 实际更新的记录数
+     */
+    public int getAffectedRows() {
+        return affectedRows;
+    }
+}
@@ -17,117 +17,214 @@
 
 package lodsve.mybatis.plugins.monitor;
 
+import lodsve.core.utils.StringUtils;
 import lodsve.mybatis.exception.MyBatisException;
-import lodsve.mybatis.utils.MyBatisUtils;
 import lodsve.mybatis.utils.SqlUtils;
-import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.plugin.*;
-import org.apache.ibatis.reflection.SystemMetaObject;
 import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Proxy;
-import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
- * mybatis性能监控.
+ * mybatis性能监控.<br/>
+ * 按MappedStatement的id记录纳秒级耗时直方图，可在进程内查询；只有超过阈值或被采样到的语句才会格式化SQL并输出日志，
+ * 适合在生产环境常开.<br/>
+ * 批处理等在被拦截的方法内部再次经过执行器的语句，耗时已计入外层调用，只记录一次.
  *
  * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
  * @date 2017/6/12 下午8:23
  */
-@Intercepts({@Signature(type = StatementHandler.class, method = "query", args = {Statement.class, ResultHandler.class}),
-        @Signature(type = StatementHandler.class, method = "update", args = {Statement.class}),
-        @Signature(type = StatementHandler.class, method = "batch", args = {Statement.class})})
+@Intercepts({
+        @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class})
+})
 public class MonitorInterceptor implements Interceptor {
     private static final Logger logger = LoggerFactory.getLogger(MonitorInterceptor.class);
+    private static final String PROPERTY_MAX_TIME = "maxTime";
+    private static final String PROPERTY_SAMPLE_RATE = "sampleRate";
+    private static final String PROPERTY_FORMAT = "format";
+    private static final String PROPERTY_THROW_ON_SLOW = "throwOnSlow";
+    private static final String PROPERTY_WRITE_IN_LOG = "writeInLog";
+    private static final int BOUND_SQL_INDEX = 5;
+
+    private final ConcurrentMap<String, SqlStatistics> statistics = new ConcurrentHashMap<>();
+    private final ThreadLocal<Boolean> intercepting = new ThreadLocal<>();
+
     /**
-     * SQL 执行最大时长，超过自动停止运行，有助于发现问题。
+     * 慢SQL阈值(单位:毫秒)，超过则输出warn日志，小于等于0表示不判断慢SQL
      */
     private long maxTime = 0;
 
+    /**
+     * 未超过阈值的SQL按此比例采样输出debug日志，取值[0, 1]
+     */
+    private double sampleRate = 0;
+
     /**
      * SQL 是否格式化
      */
     private boolean format = false;
 
     /**
-     * 是否写入日志文件<br>
-     * true 写入日志文件，不阻断程序执行！<br>
-     * 超过设定的最大执行时长异常提示！
+     * 慢SQL是否抛出异常(执行结果会被丢弃)，用于在开发、测试环境及时发现问题
      */
-    private boolean writeInLog = false;
+    private boolean throwOnSlow = false;
 
     @Override
     public Object intercept(Invocation invocation) throws Throwable {
-        Statement statement;
-        Object firstArg = invocation.getArgs()[0];
-        if (Proxy.isProxyClass(firstArg.getClass())) {
-            statement = (Statement) SystemMetaObject.forObject(firstArg).getValue("h.statement");
-        } else {
-            statement = (Statement) firstArg;
-        }
-        try {
-            statement.getClass().getDeclaredField("stmt");
-            statement = (Statement) SystemMetaObject.forObject(statement).getValue("stmt.statement");
-        } catch (Exception e) {
-            // do nothing
+        if (intercepting.get() != null) {
+            return invocation.proceed();
         }
 
-        // 获取执行 SQL
-        String originalSql = statement.toString();
-        int index = originalSql.indexOf(':');
-        if (index > 0) {
-            originalSql = originalSql.substring(index + 1);
+        intercepting.set(Boolean.TRUE);
+        long start = System.nanoTime();
+        Object result;
+        boolean slow;
+        try {
+            result = invocation.proceed();
+        } finally {
+            intercepting.remove();
+            slow = record(invocation.getArgs(), System.nanoTime() - start);
         }
 
-        // 计算执行 SQL 耗时
-        long start = System.currentTimeMillis();
-        Object result = invocation.proceed();
-        long timing = System.currentTimeMillis() - start;
-
-        // 格式化 SQL 打印执行结果
-        Object target = MyBatisUtils.processTarget(invocation.getTarget());
-        MappedStatement ms = MyBatisUtils.getValue(target, "delegate.mappedStatement");
-        StringBuilder formatSql = new StringBuilder();
-        formatSql.append(" Time：").append(timing);
-        formatSql.append(" ms - ID：").append(ms.getId());
-        formatSql.append("\n Execute SQL：").append(SqlUtils.sqlFormat(originalSql, format)).append("\n");
-        if (writeInLog) {
-            if (maxTime >= 1 && timing > maxTime) {
-                logger.error(formatSql.toString());
-            } else {
-                logger.debug(formatSql.toString());
-            }
-        } else {
-            System.err.println(formatSql.toString());
-            if (maxTime >= 1 && timing > maxTime) {
-                throw new MyBatisException(" The SQL execution time is too large, please optimize ! ");
-            }
+        if (slow && throwOnSlow) {
+            throw new MyBatisException("The SQL execution time is too large, please optimize !");
         }
         return result;
     }
 
     @Override
     public Object plugin(Object target) {
-        return Plugin.wrap(target, this);
+        if (target instanceof Executor) {
+            return Plugin.wrap(target, this);
+        } else {
+            return target;
+        }
     }
 
     @Override
     public void setProperties(Properties prop) {
+        String maxTime = prop.getProperty(PROPERTY_MAX_TIME);
+        if (StringUtils.isNotBlank(maxTime)) {
+            setMaxTime(Long.parseLong(maxTime.trim()));
+        }
+        String sampleRate = prop.getProperty(PROPERTY_SAMPLE_RATE);
+        if (StringUtils.isNotBlank(sampleRate)) {
+            setSampleRate(Double.parseDouble(sampleRate.trim()));
+        }
+        String format = prop.getProperty(PROPERTY_FORMAT);
+        if (StringUtils.isNotBlank(format)) {
+            setFormat(Boolean.parseBoolean(format.trim()));
+        }
+        String writeInLog = prop.getProperty(PROPERTY_WRITE_IN_LOG);
+        if (StringUtils.isNotBlank(writeInLog)) {
+            setWriteInLog(Boolean.parseBoolean(writeInLog.trim()));
+        }
+        String throwOnSlow = prop.getProperty(PROPERTY_THROW_ON_SLOW);
+        if (StringUtils.isNotBlank(throwOnSlow)) {
+            setThrowOnSlow(Boolean.parseBoolean(throwOnSlow.trim()));
+        }
+    }
+
+    /**
+     * 获取某个MappedStatement的耗时统计
+     *
+     * @param id MappedStatement的id
+     * @return 耗时统计，没有执行过则返回null
+     */
+    public SqlStatistics getStatistics(String id) {
+        return statistics.get(id);
+    }
+
+    /**
+     * 获取所有MappedStatement的耗时统计
+     *
+     * @return 耗时统计
+     */
+    public Collection<SqlStatistics> getStatistics() {
+        return Collections.unmodifiableCollection(statistics.values());
+    }
+
+    /**
+     * 获取最慢的前N条语句，按p99耗时倒序
+     *
+     * @param topN 条数
+     * @return 最慢的语句统计
+     */
+    public List<SqlStatistics> getSlowestStatements(int topN) {
+        List<SqlStatistics> all = new ArrayList<>(statistics.values());
+        all.sort(SqlStatistics.SLOWEST_FIRST);
+
+        return all.subList(0, Math.min(Math.max(topN, 0), all.size()));
+    }
+
+    /**
+     * 清空统计
+     */
+    public void reset() {
+        statistics.clear();
     }
 
     public void setMaxTime(long maxTime) {
         this.maxTime = maxTime;
     }
 
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = Math.max(0, Math.min(sampleRate, 1));
+    }
+
     public void setFormat(boolean format) {
         this.format = format;
     }
 
+    public void setThrowOnSlow(boolean throwOnSlow) {
+        this.throwOnSlow = throwOnSlow;
+    }
+
+    /**
+     * 是否只写入日志文件，false表示慢SQL抛出异常
+     *
+     * @param writeInLog 是否只写入日志文件
+     * @deprecated 日志总是通过slf4j输出，使用{@link #setThrowOnSlow(boolean)}
+     */
+    @Deprecated
     public void setWriteInLog(boolean writeInLog) {
-        this.writeInLog = writeInLog;
+        setThrowOnSlow(!writeInLog);
+    }
+
+    private boolean record(Object[] args, long nanos) {
+        MappedStatement ms = (MappedStatement) args[0];
+        statistics.computeIfAbsent(ms.getId(), SqlStatistics::new).getHistogram().record(nanos);
+
+        boolean slow = maxTime > 0 && nanos > TimeUnit.MILLISECONDS.toNanos(maxTime);
+        if (slow) {
+            logger.warn(buildMessage(ms, args, nanos));
+        } else if (sampleRate > 0 && logger.isDebugEnabled() && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            logger.debug(buildMessage(ms, args, nanos));
+        }
+        return slow;
+    }
+
+    private String buildMessage(MappedStatement ms, Object[] args, long nanos) {
+        BoundSql boundSql = args.length > BOUND_SQL_INDEX ? (BoundSql) args[BOUND_SQL_INDEX] : ms.getBoundSql(args[1]);
+
+        return " Time：" + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms - ID：" + ms.getId() +
+                "\n Execute SQL：" + SqlUtils.sqlFormat(boundSql.getSql(), format) + "\n";
     }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.mybatis.plugins.monitor;
+
+import lodsve.core.metrics.LatencyHistogram;
+
+import java.util.Comparator;
+
+/**
+ * 单个MappedStatement的执行耗时统计.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class SqlStatistics {
+    /**
+     * 按p99耗时倒序，p99相同时按最大耗时倒序
+     */
+    static final Comparator<SqlStatistics> SLOWEST_FIRST = Comparator.comparingLong((SqlStatistics s) -> s.getHistogram().getPercentileNanos(99))
+            .thenComparingLong(s -> s.getHistogram().getMaxNanos()).reversed();
+
+    private final String id;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    SqlStatistics(String id) {
+        this.id = id;
+    }
+
+    /**
+     * MappedStatement的id
+     *
+     * @return id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * 耗时直方图
+     *
+     * @return 耗时直方图
+     */
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    @Override
+    public String toString() {
+        return id + ": " + histogram;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.mybatis.plugins.pagination;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.Assert;
+
+import java.util.Arrays;
+
+/**
+ * keyset(seek)分页请求.<br/>
+ * 按排序字段的值定位下一页，而不是跳过offset条记录，适合导出、无限滚动等需要深度翻页的场景.
+ * 排序字段必须是查询结果中的列，并且组合起来唯一(通常最后一个为主键)，与{@link NoCountPageRequest}一样不查询总数.
+ * <pre>
+ *     KeysetPageRequest request = new KeysetPageRequest(100, new Sort(Sort.Direction.ASC, "create_time", "id"));
+ *     Page&lt;Demo&gt; page = demoMapper.list(request);
+ *     while (page.hasNext()) {
+ *         Demo last = page.getContent().get(page.getNumberOfElements() - 1);
+ *         request = request.next(last.getCreateTime(), last.getId());
+ *         page = demoMapper.list(request);
+ *     }
+ * </pre>
+ * 分页插件返回的Page中记录了当前页最后一条记录的排序字段值，也可以直接使用{@code page.nextPageable()}获取下一页.<br/>
+ * 排序以此请求中的为准，查询时再传入不同的{@link Sort}参数会抛出异常.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class KeysetPageRequest extends NoCountPageRequest {
+    private static final long serialVersionUID = 4290913470412473577L;
+
+    private final Object[] lastValues;
+    /**
+     * 当前页最后一条记录的排序字段值，由分页插件设置，用于{@link #next()}
+     */
+    private Object[] nextValues;
+
+    /**
+     * 第一页
+     *
+     * @param size 每页条数
+     * @param sort 排序字段
+     */
+    public KeysetPageRequest(int size, Sort sort) {
+        this(size, sort, (Object[]) null);
+    }
+
+    /**
+     * @param size       每页条数
+     * @param sort       排序字段
+     * @param lastValues 上一页最后一条记录的排序字段值，顺序与排序字段一致，为空表示第一页
+     */
+    public KeysetPageRequest(int size, Sort sort, Object... lastValues) {
+        super(0, size, sort);
+        Assert.notNull(sort, "keyset pagination requires sort!");
+
+        int keys = 0;
+        for (Sort.Order ignored : sort) {
+            keys++;
+        }
+        Assert.isTrue(keys > 0, "keyset pagination requires sort!");
+        Assert.isTrue(lastValues == null || lastValues.length == 0 || lastValues.length == keys,
+                "lastValues must match the sort properties!");
+
+        this.lastValues = lastValues == null || lastValues.length == 0 ? null : lastValues.clone();
+    }
+
+    /**
+     * 下一页
+     *
+     * @param lastValues 当前页最后一条记录的排序字段值
+     * @return 下一页的请求
+     */
+    public KeysetPageRequest next(Object... lastValues) {
+        return new KeysetPageRequest(getPageSize(), getSort(), lastValues);
+    }
+
+    /**
+     * 下一页，分页插件返回的Page中的请求使用当前页最后一条记录的排序字段值；无法确定下一页的位置(当前页为空或不是查询返回的请求)时返回当前请求
+     *
+     * @return 下一页的请求
+     */
+    @Override
+    public Pageable next() {
+        return nextValues == null ? this : next(nextValues);
+    }
+
+    /**
+     * 记录当前页最后一条记录的排序字段值
+     *
+     * @param nextValues 当前页最后一条记录的排序字段值，为null表示无法确定
+     * @return 新的请求，与当前请求相等
+     */
+    KeysetPageRequest withNextValues(Object[] nextValues) {
+        KeysetPageRequest request = new KeysetPageRequest(getPageSize(), getSort(), lastValues);
+        request.nextValues = nextValues;
+        return request;
+    }
+
+    @Override
+    public Pageable first() {
+        return new KeysetPageRequest(getPageSize(), getSort());
+    }
+
+    /**
+     * @return 是否从上一页最后一条记录之后开始查询
+     */
+    public boolean isSeek() {
+        return lastValues != null;
+    }
+
+    /**
+     * @param index 排序字段下标
+     * @return 上一页最后一条记录的排序字段值
+     */
+    public Object getLastValue(int index) {
+        return lastValues[index];
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof KeysetPageRequest && super.equals(obj) && Arrays.equals(lastValues, ((KeysetPageRequest) obj).lastValues);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + Arrays.hashCode(lastValues);
+    }
+}
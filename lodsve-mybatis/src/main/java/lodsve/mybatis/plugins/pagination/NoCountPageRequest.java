@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.mybatis.plugins.pagination;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+/**
+ * 不查询总数的分页请求.<br/>
+ * 分页时多查询一条记录，用来判断是否有下一页，不再执行count语句.
+ * 返回的{@link org.springframework.data.domain.Page#getTotalElements()}只是一个下限，只应使用{@code hasNext()}/{@code hasContent()}等方法.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class NoCountPageRequest extends PageRequest {
+    private static final long serialVersionUID = -2456474926138718233L;
+
+    public NoCountPageRequest(int page, int size) {
+        super(page, size);
+    }
+
+    public NoCountPageRequest(int page, int size, Sort.Direction direction, String... properties) {
+        super(page, size, direction, properties);
+    }
+
+    public NoCountPageRequest(int page, int size, Sort sort) {
+        super(page, size, sort);
+    }
+
+    @Override
+    public Pageable next() {
+        return new NoCountPageRequest(getPageNumber() + 1, getPageSize(), getSort());
+    }
+
+    @Override
+    public PageRequest previous() {
+        return getPageNumber() == 0 ? this : new NoCountPageRequest(getPageNumber() - 1, getPageSize(), getSort());
+    }
+
+    @Override
+    public Pageable first() {
+        return new NoCountPageRequest(0, getPageSize(), getSort());
+    }
+}
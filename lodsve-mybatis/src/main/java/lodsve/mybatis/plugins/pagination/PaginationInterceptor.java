@@ -17,11 +17,15 @@
 
 package lodsve.mybatis.plugins.pagination;
 
+import lodsve.mybatis.dialect.KeysetSql;
+import lodsve.mybatis.dialect.PageSql;
+import lodsve.mybatis.exception.MyBatisException;
 import lodsve.mybatis.utils.PaginationUtils;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.plugin.*;
+import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.springframework.data.domain.Page;
@@ -31,10 +35,19 @@ import org.springframework.data.domain.Sort;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.stream.Collectors;
 
 /**
  * mybatis分页使用的拦截器.
+ * <ul>
+ * <li>count语句按原始sql缓存，同一条sql只解析一次；</li>
+ * <li>查询结果不足一页时直接算出总数，不再执行count语句；</li>
+ * <li>使用{@link NoCountPageRequest}时不执行count语句，多查询一条判断是否有下一页；</li>
+ * <li>可选的分页总数缓存，key为count语句和参数值；</li>
+ * <li>使用{@link KeysetPageRequest}时按排序字段的值定位(keyset分页)，返回的Page可以通过nextPageable()获取下一页.</li>
+ * </ul>
  *
  * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
  * @date 15/6/25 下午7:28
@@ -47,6 +60,22 @@ import java.util.Properties;
 public class PaginationInterceptor implements Interceptor {
     private static final Integer MAPPED_STATEMENT_INDEX = 0;
     private static final Integer PARAMETER_INDEX = 1;
+    private static final String PROPERTY_TOTAL_COUNT_CACHE_TTL = "totalCountCacheTtl";
+
+    /**
+     * 总数缓存，为null表示不缓存
+     */
+    private TotalCountCache totalCountCache;
+
+    public PaginationInterceptor() {
+    }
+
+    /**
+     * @param totalCountCacheTtl 分页总数缓存时间(单位:毫秒)，小于等于0表示不缓存
+     */
+    public PaginationInterceptor(long totalCountCacheTtl) {
+        setTotalCountCacheTtl(totalCountCacheTtl);
+    }
 
     @Override
     public Object intercept(Invocation invocation) throws Throwable {
@@ -73,7 +102,8 @@ public class PaginationInterceptor implements Interceptor {
             return invocation.proceed();
         }
 
-        int total = PaginationUtils.queryForTotal(sql, ms, boundSql);
+        String originalSql = sql;
+        Sort sortParameter = sort;
 
         //参数sort优先于pageable中的sort
         if (sort == null && pageable.getSort() != null) {
@@ -83,14 +113,51 @@ public class PaginationInterceptor implements Interceptor {
             sql = PaginationUtils.applySortSql(sql, sort);
         }
 
-        //分页语句
-        String pageSql = PaginationUtils.getPageSql(sql, pageable.getOffset(), pageable.getPageSize());
-
-        queryArgs[MAPPED_STATEMENT_INDEX] = PaginationUtils.copyFromNewSql(ms, boundSql, pageSql);
+        // 不查询总数时，多查一条用来判断是否有下一页
+        boolean noCount = pageable instanceof NoCountPageRequest;
+        int pageSize = pageable.getPageSize();
+        int offset = pageable.getOffset();
+
+        if (pageable instanceof KeysetPageRequest) {
+            // keyset分页，按上一页最后一条记录的排序字段值定位
+            KeysetPageRequest keyset = (KeysetPageRequest) pageable;
+            if (sortParameter != null && !sortParameter.equals(keyset.getSort())) {
+                throw new MyBatisException(102005, "keyset pagination is sorted by the KeysetPageRequest, a different Sort parameter is not allowed!");
+            }
+            KeysetSql keysetSql = PaginationUtils.getKeysetPageSql(originalSql, keyset.getSort(), keyset.isSeek(), pageSize + 1);
+            List<Object> lastValues = keysetSql.getKeyIndexes().stream().map(keyset::getLastValue).collect(Collectors.toList());
+
+            queryArgs[MAPPED_STATEMENT_INDEX] = PaginationUtils.copyFromNewSql(ms, boundSql, keysetSql.getSql(), lastValues);
+        } else {
+            //分页语句
+            PageSql pageSql = PaginationUtils.getParameterizedPageSql(sql, offset, noCount ? pageSize + 1 : pageSize);
+
+            queryArgs[MAPPED_STATEMENT_INDEX] = PaginationUtils.copyFromNewSql(ms, boundSql, pageSql.getSql(), pageSql.getParameters());
+        }
         queryArgs[2] = new RowBounds(RowBounds.NO_ROW_OFFSET, RowBounds.NO_ROW_LIMIT);
 
-        Object ret = invocation.proceed();
-        Page<?> pi = new PageImpl<>((List<?>) ret, pageable, total);
+        List<?> content = (List<?>) invocation.proceed();
+        int total;
+        if (noCount) {
+            boolean hasNext = content.size() > pageSize;
+            if (hasNext) {
+                content = new ArrayList<>(content.subList(0, pageSize));
+            }
+            total = offset + content.size() + (hasNext ? 1 : 0);
+        } else if (content.size() < pageSize && (offset == 0 || !content.isEmpty())) {
+            // 最后一页，总数可以直接算出来，无需count
+            total = offset + content.size();
+        } else {
+            total = PaginationUtils.queryForTotal(originalSql, ms, boundSql, totalCountCache);
+        }
+
+        if (pageable instanceof KeysetPageRequest) {
+            // 记录最后一条记录的排序字段值，Page.nextPageable()可以直接得到下一页
+            KeysetPageRequest keyset = (KeysetPageRequest) pageable;
+            pageable = keyset.withNextValues(content.isEmpty() ? null : getKeyValues(content.get(content.size() - 1), keyset.getSort(), ms));
+        }
+
+        Page<?> pi = new PageImpl<>(content, pageable, total);
 
         List<Page<?>> result = new ArrayList<>(1);
         result.add(pi);
@@ -98,6 +165,43 @@ public class PaginationInterceptor implements Interceptor {
         return result;
     }
 
+    /**
+     * 获取记录中排序字段的值，排序字段为列名，实体按驼峰属性匹配，Map不区分大小写
+     *
+     * @param row  记录
+     * @param sort 排序字段
+     * @param ms   MappedStatement
+     * @return 排序字段的值，有字段无法获取时返回null
+     */
+    private Object[] getKeyValues(Object row, Sort sort, MappedStatement ms) {
+        if (row == null) {
+            return null;
+        }
+
+        MetaObject metaObject = ms.getConfiguration().newMetaObject(row);
+        List<Object> values = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            String column = order.getProperty().substring(order.getProperty().lastIndexOf('.') + 1);
+
+            if (row instanceof Map) {
+                Map.Entry<?, ?> entry = ((Map<?, ?>) row).entrySet().stream().filter(e -> column.equalsIgnoreCase(String.valueOf(e.getKey()))).findFirst().orElse(null);
+                if (entry == null) {
+                    return null;
+                }
+                values.add(entry.getValue());
+                continue;
+            }
+
+            String property = metaObject.findProperty(column, true);
+            if (property == null || !metaObject.hasGetter(property)) {
+                return null;
+            }
+            values.add(metaObject.getValue(property));
+        }
+
+        return values.toArray();
+    }
+
     @Override
     public Object plugin(Object target) {
         return Plugin.wrap(target, this);
@@ -105,5 +209,13 @@ public class PaginationInterceptor implements Interceptor {
 
     @Override
     public void setProperties(Properties properties) {
+        String ttl = properties.getProperty(PROPERTY_TOTAL_COUNT_CACHE_TTL);
+        if (ttl != null) {
+            setTotalCountCacheTtl(Long.parseLong(ttl.trim()));
+        }
+    }
+
+    private void setTotalCountCacheTtl(long totalCountCacheTtl) {
+        this.totalCountCache = totalCountCacheTtl > 0 ? new TotalCountCache(totalCountCacheTtl) : null;
     }
 }
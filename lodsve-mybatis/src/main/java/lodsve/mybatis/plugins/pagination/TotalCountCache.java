@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.mybatis.plugins.pagination;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分页总数的本地缓存，key为count语句和绑定的参数值.<br/>
+ * 缓存时间应该很短，缓存期间新增、删除的数据不会反映在总数中.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class TotalCountCache {
+    private static final int MAXIMUM_SIZE = 10000;
+
+    private final Cache<List<Object>, Integer> cache;
+
+    /**
+     * @param ttl 缓存时间(单位:毫秒)
+     */
+    public TotalCountCache(long ttl) {
+        this.cache = CacheBuilder.newBuilder().expireAfterWrite(ttl, TimeUnit.MILLISECONDS).maximumSize(MAXIMUM_SIZE).build();
+    }
+
+    /**
+     * 获取缓存的总数
+     *
+     * @param key count语句和参数值
+     * @return 总数，未缓存返回null
+     */
+    public Integer get(List<Object> key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * 缓存总数
+     *
+     * @param key   count语句和参数值
+     * @param total 总数
+     */
+    public void put(List<Object> key, int total) {
+        cache.put(key, total);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+}
@@ -17,38 +17,89 @@
 
 package lodsve.mybatis.plugins.repository;
 
+import com.google.common.collect.Sets;
 import lodsve.mybatis.repository.BaseRepository;
 import lodsve.mybatis.repository.bean.*;
 import lodsve.mybatis.repository.helper.EntityHelper;
 import lodsve.mybatis.repository.helper.MapperHelper;
 import lodsve.mybatis.repository.provider.BaseMapperProvider;
 import lodsve.mybatis.repository.provider.ExternalProvider;
+import lodsve.mybatis.utils.MyBatisUtils;
+import lodsve.mybatis.utils.PaginationUtils;
 import org.apache.ibatis.binding.MapperMethod.ParamMap;
-import org.apache.ibatis.builder.annotation.ProviderSqlSource;
+import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.plugin.*;
+import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.util.Assert;
 
+import java.sql.SQLException;
 import java.sql.SQLSyntaxErrorException;
+import java.sql.Statement;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.ServiceLoader;
+import java.util.Set;
 
 /**
- * 通用Mapper拦截器.
+ * 通用Mapper拦截器.<br/>
+ * batchSave/batchUpdate使用{@link ExecutorType#BATCH}执行器(经过所有Executor插件)逐条执行同一条语句，每batchFlushSize条提交一次；
+ * 游标查询没有指定fetchSize(包括全局的defaultFetchSize)时按cursorFetchSize分批读取，MySQL使用流式读取.
  *
  * @author sunhao(sunhao.java @ gmail.com)
  * @version V1.0, 15/7/13 下午4:31
  */
 @Intercepts({
         @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
-        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class})
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "queryCursor", args = {MappedStatement.class, Object.class, RowBounds.class})
 })
 public class BaseRepositoryInterceptor implements Interceptor {
+    private static final Logger logger = LoggerFactory.getLogger(BaseRepositoryInterceptor.class);
     private final static String LOGIC_DELETE_WITH_MODIFIED_BY_MAPPED_STATEMENT_ID = "logicDeleteByIdWithModifiedBy";
+    private final static Set<String> BATCH_METHODS = Sets.newHashSet("batchSave", "batchUpdate");
+    private final static String LIST_PARAMETER_NAME = "list";
+    private final static String QUERY_CURSOR_METHOD = "queryCursor";
+    private final static String PROPERTY_BATCH_FLUSH_SIZE = "batchFlushSize";
+    private final static String PROPERTY_CURSOR_FETCH_SIZE = "cursorFetchSize";
+    public final static int DEFAULT_BATCH_FLUSH_SIZE = 1000;
+    public final static int DEFAULT_CURSOR_FETCH_SIZE = 1000;
+
+    /**
+     * 批处理每多少条提交一次
+     */
+    private int batchFlushSize = DEFAULT_BATCH_FLUSH_SIZE;
+
+    /**
+     * 游标查询每次从数据库读取的条数(MySQL使用流式读取，忽略此值)
+     */
+    private int cursorFetchSize = DEFAULT_CURSOR_FETCH_SIZE;
+
+    public BaseRepositoryInterceptor(int batchFlushSize) {
+        this(batchFlushSize, DEFAULT_CURSOR_FETCH_SIZE);
+    }
+
+    public BaseRepositoryInterceptor(int batchFlushSize, int cursorFetchSize) {
+        this();
+        setBatchFlushSize(batchFlushSize);
+        setCursorFetchSize(cursorFetchSize);
+    }
+
+    public BaseRepositoryInterceptor() {
+        // 通用Mapper只需注册一次，必须在解析MappedStatement之前注册
+        MapperHelper.registerMapper(BaseRepository.class);
+
+        ServiceLoader<ExternalProvider> serviceLoader = ServiceLoader.load(ExternalProvider.class);
+        serviceLoader.iterator().forEachRemaining(obj -> obj.provider().stream().filter(Class::isInterface).forEach(MapperHelper::registerMapper));
+    }
 
     @Override
     public Object intercept(Invocation invocation) throws Throwable {
@@ -59,12 +110,22 @@ public class BaseRepositoryInterceptor implements Interceptor {
         String msId = ms.getId();
         //不需要拦截的方法直接返回
         if (MapperHelper.isMapperMethod(msId)) {
-            // 第一次经过处理后，就不会是ProviderSqlSource了，一开始高并发时可能会执行多次，但不影响。以后就不会在执行了
-            if (ms.getSqlSource() instanceof ProviderSqlSource) {
-                MapperHelper.resetSqlSource(ms, parameter);
+            // 不依赖参数的SqlSource只生成一次，依赖参数的每次按参数生成并使用MappedStatement副本
+            ms = MapperHelper.resolveSqlSource(ms, objects[1]);
+            objects[0] = ms;
+
+            // 批处理执行器逐条执行时参数是单个实体，直接执行
+            Collection<?> entities = getBatchEntities(objects[1]);
+            if (BATCH_METHODS.contains(msId.substring(msId.lastIndexOf(MapperHelper.STRING_POINT) + 1)) && entities != null) {
+                return executeBatch((Executor) invocation.getTarget(), ms, entities);
             }
         }
 
+        // 游标查询语句和全局(defaultFetchSize)都没有指定fetchSize时，使用配置的fetchSize(MySQL使用流式读取)
+        if (QUERY_CURSOR_METHOD.equals(invocation.getMethod().getName()) && ms.getFetchSize() == null && ms.getConfiguration().getDefaultFetchSize() == null) {
+            objects[0] = PaginationUtils.copyWithFetchSize(ms, MyBatisUtils.getStreamingFetchSize(cursorFetchSize));
+        }
+
         // 要排除logicDeleteWithModifiedBy这个方法，因为这个方法每次都会修改参数，所以得每次都从这边走
         if (msId.contains(LOGIC_DELETE_WITH_MODIFIED_BY_MAPPED_STATEMENT_ID)) {
             handleParams(ms, parameter);
@@ -75,11 +136,6 @@ public class BaseRepositoryInterceptor implements Interceptor {
 
     @Override
     public Object plugin(Object target) {
-        MapperHelper.registerMapper(BaseRepository.class);
-
-        ServiceLoader<ExternalProvider> serviceLoader = ServiceLoader.load(ExternalProvider.class);
-        serviceLoader.iterator().forEachRemaining(obj -> obj.provider().stream().filter(Class::isInterface).forEach(MapperHelper::registerMapper));
-
         if (target instanceof Executor) {
             return Plugin.wrap(target, this);
         } else {
@@ -89,7 +145,98 @@ public class BaseRepositoryInterceptor implements Interceptor {
 
     @Override
     public void setProperties(Properties properties) {
+        String flushSize = properties.getProperty(PROPERTY_BATCH_FLUSH_SIZE);
+        if (flushSize != null) {
+            setBatchFlushSize(Integer.parseInt(flushSize.trim()));
+        }
+        String fetchSize = properties.getProperty(PROPERTY_CURSOR_FETCH_SIZE);
+        if (fetchSize != null) {
+            setCursorFetchSize(Integer.parseInt(fetchSize.trim()));
+        }
+    }
 
+    private void setBatchFlushSize(int batchFlushSize) {
+        Assert.isTrue(batchFlushSize > 0, "batchFlushSize must be positive!");
+        this.batchFlushSize = batchFlushSize;
+    }
+
+    private void setCursorFetchSize(int cursorFetchSize) {
+        Assert.isTrue(cursorFetchSize > 0, "cursorFetchSize must be positive!");
+        this.cursorFetchSize = cursorFetchSize;
+    }
+
+    /**
+     * 使用批处理执行器逐条执行同一条语句，与当前执行器共用同一个事务(连接).<br/>
+     * 批处理执行器由{@link org.apache.ibatis.session.Configuration#newExecutor}创建，同样会应用所有Executor插件；
+     * 执行完成后提交批处理执行器的二级缓存(不提交事务)，使Mapper的二级缓存失效
+     *
+     * @param executor 当前执行器
+     * @param ms       MappedStatement，sql为单条记录的语句
+     * @param entities 实体集合
+     * @return 影响的记录数，没有更新到记录的实体不计数
+     * @throws SQLException 执行异常
+     */
+    private int executeBatch(Executor executor, MappedStatement ms, Collection<?> entities) throws SQLException {
+        if (entities.isEmpty()) {
+            return 0;
+        }
+
+        executor.clearLocalCache();
+        Executor batchExecutor = ms.getConfiguration().newExecutor(executor.getTransaction(), ExecutorType.BATCH);
+
+        boolean completed = false;
+        try {
+            int rows = 0;
+            int pending = 0;
+            for (Object entity : entities) {
+                batchExecutor.update(ms, entity);
+                if (++pending >= batchFlushSize) {
+                    rows += countRows(ms, batchExecutor.flushStatements());
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                rows += countRows(ms, batchExecutor.flushStatements());
+            }
+
+            // 批处理执行器(CachingExecutor)的二级缓存只在commit时才会清空，事务仍由当前执行器提交
+            batchExecutor.commit(false);
+            completed = true;
+            return rows;
+        } finally {
+            if (!completed) {
+                // 丢弃并关闭还未执行的Statement，事务(连接)属于当前执行器，不回滚也不关闭
+                batchExecutor.rollback(false);
+            }
+        }
+    }
+
+    private Collection<?> getBatchEntities(Object parameter) {
+        if (parameter instanceof Collection) {
+            return (Collection<?>) parameter;
+        }
+        if (parameter instanceof Map && ((Map) parameter).containsKey(LIST_PARAMETER_NAME)) {
+            return (Collection<?>) ((Map) parameter).get(LIST_PARAMETER_NAME);
+        }
+
+        return null;
+    }
+
+    private int countRows(MappedStatement ms, List<BatchResult> results) {
+        int rows = 0;
+        int missed = 0;
+        for (BatchResult result : results) {
+            for (int count : result.getUpdateCounts()) {
+                // 驱动不返回具体条数时，按成功一条计算
+                rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+                missed += count == 0 ? 1 : 0;
+            }
+        }
+
+        if (missed > 0) {
+            logger.warn("{} of the batch statements of '{}' updated no rows!", missed, ms.getId());
+        }
+        return rows;
     }
 
     private void handleParams(MappedStatement ms, ParamMap parameter) throws SQLSyntaxErrorException {
@@ -14,178 +14,244 @@
  * You should have received a copy of the GNU General Public License
  * along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
+
 package lodsve.mybatis.plugins.version;
 
-import com.vip.vjtools.vjkit.reflect.ReflectionUtil;
 import lodsve.core.utils.GenericUtils;
 import lodsve.core.utils.StringUtils;
+import lodsve.mybatis.exception.OptimisticLockException;
 import lodsve.mybatis.repository.bean.EntityTable;
-import lodsve.mybatis.repository.bean.IdColumn;
-import lodsve.mybatis.repository.bean.VersionColumn;
 import lodsve.mybatis.repository.helper.EntityHelper;
 import lodsve.mybatis.utils.MyBatisUtils;
 import lodsve.mybatis.utils.VersionUtils;
-import org.apache.ibatis.binding.MapperMethod;
+import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.executor.Executor;
-import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.statement.BaseStatementHandler;
+import org.apache.ibatis.executor.statement.RoutingStatementHandler;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.plugin.*;
-import org.apache.ibatis.session.Configuration;
-import org.apache.ibatis.type.TypeException;
-import org.apache.ibatis.type.TypeHandler;
+import org.springframework.util.ReflectionUtils;
 
-import javax.persistence.OptimisticLockException;
-import java.io.Serializable;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
- * 乐观锁插件
+ * 乐观锁插件.<br/>
+ * 按主键更新带有{@link javax.persistence.Version}字段的实体时，SET中增加version = version + 1，WHERE中追加AND version = ?，
+ * 更新条数为0时抛出{@link OptimisticLockException}.<br/>
+ * 每个MappedStatement的每种参数类型、每种sql只用JSqlParser解析一次，版本号优先取实体中的值，没有值时才查询数据库.<br/>
+ * 批处理执行器(BATCH)在flushStatements时按每个实体的更新条数判断.
  *
  * @author sunhao
  */
 @Intercepts({
         @Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}),
-        @Signature(type = ParameterHandler.class, method = "setParameters", args = {PreparedStatement.class}),
-        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class})
+        @Signature(type = StatementHandler.class, method = "getBoundSql", args = {}),
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "flushStatements", args = {})
 })
 public class OptimisticLockInterceptor implements Interceptor {
-    private static final String PREPARE = "prepare";
-    private static final String SET_PARAMETERS = "setParameters";
     private static final String UPDATE = "update";
+    private static final String FLUSH_STATEMENTS = "flushStatements";
+    private static final String VERSION_PARAMETER = "__optimistic_lock_version";
 
-    private static final String SQL_REGEX_PREFIX = "[\\s\\S]*";
-    private static final String SQL_REGEX_SUFFIX = "\\s*=\\s*\\?[\\s\\S]*";
+    private static final Field DELEGATE_FIELD = getField(RoutingStatementHandler.class, "delegate");
+    private static final Field MAPPED_STATEMENT_FIELD = getField(BaseStatementHandler.class, "mappedStatement");
+    private static final Field SQL_FIELD = getField(BoundSql.class, "sql");
+    private static final Field PARAMETER_MAPPINGS_FIELD = getField(BoundSql.class, "parameterMappings");
 
-    private static final String DELEGATE_MAPPED_STATEMENT_KEY = "delegate.mappedStatement";
-    private static final String DELEGATE_BOUND_SQL_KEY = "delegate.boundSql";
-    private static final String DELEGATE_BOUND_SQL_SQL_KEY = "delegate.boundSql.sql";
-    private static final String BOUND_SQL = "boundSql";
-    private static final String MAPPED_STATEMENT = "mappedStatement";
+    /**
+     * 当前线程最近一次加了乐观锁的更新，用于在Executor.update之后判断更新条数
+     */
+    private static final ThreadLocal<VersionContext> CONTEXT = new ThreadLocal<>();
+
+    /**
+     * 批处理执行器 -> 还未flush的乐观锁更新
+     */
+    private final Map<Object, List<VersionContext>> batchContexts = Collections.synchronizedMap(new WeakHashMap<>(16));
+
+    /**
+     * MappedStatement id + 参数类型 -> 乐观锁信息，不需要乐观锁的缓存为{@link #NONE}
+     */
+    private final ConcurrentMap<String, Object> statements = new ConcurrentHashMap<>();
+    private static final Object NONE = new Object();
 
     @Override
-    public Object intercept(Invocation invocation) throws Exception {
-        String interceptMethod = invocation.getMethod().getName();
-        if (PREPARE.equals(interceptMethod)) {
-            return handleMethodPrepare(invocation);
-        } else if (SET_PARAMETERS.equals(interceptMethod)) {
-            return handleMethodSetParameters(invocation);
-        } else if (UPDATE.equals(interceptMethod)) {
+    public Object intercept(Invocation invocation) throws Throwable {
+        if (UPDATE.equals(invocation.getMethod().getName())) {
             return handleMethodUpdate(invocation);
         }
+        if (FLUSH_STATEMENTS.equals(invocation.getMethod().getName())) {
+            return handleMethodFlushStatements(invocation);
+        }
+
+        rewriteBoundSql((StatementHandler) invocation.getTarget());
         return invocation.proceed();
     }
 
-    private Object handleMethodPrepare(Invocation invocation) throws InvocationTargetException, IllegalAccessException {
-        StatementHandler statementHandler = (StatementHandler) MyBatisUtils.processTarget(invocation.getTarget());
-        MappedStatement mappedStatement = MyBatisUtils.getValue(statementHandler, DELEGATE_MAPPED_STATEMENT_KEY);
-        SqlCommandType sqlCommandType = mappedStatement.getSqlCommandType();
+    private Object handleMethodUpdate(Invocation invocation) throws Throwable {
+        CONTEXT.remove();
+        try {
+            Object result = invocation.proceed();
 
-        if (sqlCommandType != SqlCommandType.UPDATE) {
-            return invocation.proceed();
-        }
-        BoundSql boundSql = MyBatisUtils.getValue(statementHandler, DELEGATE_BOUND_SQL_KEY);
-        if (!checkVersion(boundSql, mappedStatement)) {
-            return invocation.proceed();
+            VersionContext context = CONTEXT.get();
+            // 本次调用没有加乐观锁(例如被其他插件改为批量执行)，不做判断
+            if (context == null || context.parameter != invocation.getArgs()[1] || !(result instanceof Integer)) {
+                return result;
+            }
+
+            int rows = (Integer) result;
+            if (rows == BatchExecutor.BATCH_UPDATE_RETURN_VALUE) {
+                // 批处理执行器在flushStatements时才知道更新条数
+                batchContexts.computeIfAbsent(invocation.getTarget(), target -> new ArrayList<>()).add(context);
+                return result;
+            }
+            checkRows(context, rows);
+
+            return result;
+        } finally {
+            CONTEXT.remove();
         }
+    }
 
-        EntityTable table = getEntityTableForLogicDelete(boundSql, mappedStatement);
-        if (table == null) {
-            return invocation.proceed();
+    private Object handleMethodFlushStatements(Invocation invocation) throws Throwable {
+        List<VersionContext> contexts = batchContexts.remove(invocation.getTarget());
+        @SuppressWarnings("unchecked")
+        List<BatchResult> results = (List<BatchResult>) invocation.proceed();
+        if (contexts == null || contexts.isEmpty()) {
+            return results;
         }
 
-        VersionColumn versionColumn = table.getVersionColumn();
-        String versionColumnName = versionColumn.getColumn();
+        Map<Object, VersionContext> parameters = new IdentityHashMap<>(contexts.size());
+        for (VersionContext context : contexts) {
+            parameters.put(context.parameter, context);
+        }
+        for (BatchResult result : results) {
+            int[] updateCounts = result.getUpdateCounts();
+            List<Object> parameterObjects = result.getParameterObjects();
+            for (int i = 0; i < updateCounts.length && i < parameterObjects.size(); i++) {
+                VersionContext context = parameters.get(parameterObjects.get(i));
+                if (context != null) {
+                    // 驱动不返回具体条数时，按成功一条计算
+                    checkRows(context, updateCounts[i] == Statement.SUCCESS_NO_INFO ? 1 : updateCounts[i]);
+                }
+            }
+        }
 
-        String originalSql = MyBatisUtils.getValue(statementHandler, DELEGATE_BOUND_SQL_SQL_KEY);
-        String sql = String.format("%s AND %s = ?", originalSql, versionColumnName);
-        String replaceSql = StringUtils.replacePattern(sql, "\\s+(?i)set\\s+", " SET " + versionColumnName + " = " + versionColumnName + " + 1, ");
-        MyBatisUtils.setValue(statementHandler, DELEGATE_BOUND_SQL_SQL_KEY, replaceSql);
-        return invocation.proceed();
+        return results;
     }
 
-    @SuppressWarnings("unchecked")
-    private Object handleMethodSetParameters(Invocation invocation) throws InvocationTargetException, IllegalAccessException, SQLException {
-        ParameterHandler parameterHandler = (ParameterHandler) MyBatisUtils.processTarget(invocation.getTarget());
-        MappedStatement mappedStatement = MyBatisUtils.getValue(parameterHandler, MAPPED_STATEMENT);
-        SqlCommandType sqlCommandType = mappedStatement.getSqlCommandType();
-        if (sqlCommandType != SqlCommandType.UPDATE) {
-            return invocation.proceed();
+    private void checkRows(VersionContext context, int rows) {
+        if (rows == 0) {
+            Object entity = context.statement.isEntity(context.parameter) ? context.parameter : null;
+            throw new OptimisticLockException(context.statement.getTable().getEntityType(), context.id, context.version, rows, entity);
         }
-        Configuration configuration = mappedStatement.getConfiguration();
-        BoundSql boundSql = MyBatisUtils.getValue(parameterHandler, BOUND_SQL);
-        if (!checkVersion(boundSql, mappedStatement)) {
-            return invocation.proceed();
+        if (rows > 0) {
+            context.statement.increaseVersion(context.parameter, context.version);
         }
+    }
 
-        EntityTable table = getEntityTableForLogicDelete(boundSql, mappedStatement);
-        if (table == null) {
-            return invocation.proceed();
+    /**
+     * 改写StatementHandler中的BoundSql，BatchExecutor会先调用getBoundSql再prepare，其他执行器直接prepare，所以两处都需要处理
+     *
+     * @param handler StatementHandler
+     * @throws SQLException 查询当前版本号出错
+     */
+    private void rewriteBoundSql(StatementHandler handler) throws SQLException {
+        BoundSql boundSql = handler.getBoundSql();
+        if (boundSql.hasAdditionalParameter(VERSION_PARAMETER)) {
+            // 已经改写过
+            return;
         }
 
-        VersionColumn versionColumn = table.getVersionColumn();
-        String versionColumnName = versionColumn.getColumn();
+        MappedStatement ms = getMappedStatement(handler);
+        if (ms == null || ms.getSqlCommandType() != SqlCommandType.UPDATE) {
+            return;
+        }
 
-        ParameterMapping parameterMapping = new ParameterMapping.Builder(configuration, versionColumnName, versionColumn.getJavaType()).build();
-        TypeHandler typeHandler = parameterMapping.getTypeHandler();
+        Object parameter = boundSql.getParameterObject();
+        String key = ms.getId() + (parameter == null ? "" : "#" + parameter.getClass().getName());
+        Object cached = statements.computeIfAbsent(key, k -> resolveStatement(ms, parameter));
+        if (cached == NONE) {
+            return;
+        }
 
-        Object currentVersion = getCurrentVersion(mappedStatement, table, boundSql.getParameterObject());
-        List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
-        try {
-            PreparedStatement ps = (PreparedStatement) invocation.getArgs()[0];
-            typeHandler.setParameter(ps, parameterMappings.size() + 1, currentVersion, parameterMapping.getJdbcType());
-        } catch (TypeException | SQLException e) {
-            throw new TypeException("Could not set parameters for mapping: " + parameterMappings + ". Cause: " + e, e);
+        VersionStatement statement = (VersionStatement) cached;
+        String sql = statement.rewrite(boundSql.getSql());
+        Object id = statement.getId(parameter);
+        if (sql == null || id == null) {
+            return;
         }
 
-        return invocation.proceed();
+        Object version = statement.getVersion(parameter);
+        if (version == null) {
+            version = VersionUtils.getCurrentVersion(ms, statement.getTable(), Collections.singletonMap(statement.getTable().getIdColumn().getProperty(), id));
+        }
+
+        List<ParameterMapping> parameterMappings = new ArrayList<>(boundSql.getParameterMappings());
+        parameterMappings.add(statement.getVersionMapping());
+        ReflectionUtils.setField(SQL_FIELD, boundSql, sql);
+        ReflectionUtils.setField(PARAMETER_MAPPINGS_FIELD, boundSql, parameterMappings);
+        boundSql.setAdditionalParameter(VERSION_PARAMETER, version);
+
+        CONTEXT.set(new VersionContext(statement, parameter, id, version));
     }
 
-    private Object handleMethodUpdate(Invocation invocation) throws InvocationTargetException, IllegalAccessException {
-        Object result = invocation.proceed();
-        Object[] queryArgs = invocation.getArgs();
-        MappedStatement mappedStatement = (MappedStatement) queryArgs[0];
-        SqlCommandType sqlCommandType = mappedStatement.getSqlCommandType();
-        if (sqlCommandType != SqlCommandType.UPDATE) {
-            return result;
-        }
-        BoundSql boundSql = mappedStatement.getBoundSql(queryArgs[1]);
-        if (!checkVersion(boundSql, mappedStatement)) {
-            return result;
+    private Object resolveStatement(MappedStatement ms, Object parameter) {
+        EntityTable table = getEntityTable(ms, parameter);
+        if (table == null || table.getVersionColumn() == null || table.getIdColumn() == null) {
+            // 类没有加@Table注解或者没有版本号字段，不需要进行乐观锁
+            return NONE;
         }
-        Object paramObj = boundSql.getParameterObject();
 
-        EntityTable table = getEntityTableForLogicDelete(boundSql, mappedStatement);
-        if (table == null) {
-            return invocation.proceed();
+        return new VersionStatement(table, ms.getConfiguration(), VERSION_PARAMETER);
+    }
+
+    private EntityTable getEntityTable(MappedStatement ms, Object parameter) {
+        EntityTable table = parameter == null ? null : EntityHelper.findEntityTable(parameter.getClass());
+        if (table != null) {
+            return table;
         }
 
-        VersionColumn versionColumn = table.getVersionColumn();
-        String versionColumnName = versionColumn.getColumn();
-        if (StringUtils.isNotBlank(versionColumnName)) {
-            if (Integer.valueOf(result.toString()) == 0) {
-                Field field = ReflectionUtil.getField(paramObj.getClass(), table.getIdColumn().getProperty());
-                Object id = ReflectionUtil.getFieldValue(paramObj, field);
+        // 参数不是实体，按Mapper的泛型获取
+        try {
+            String resource = ms.getResource();
+            String className = StringUtils.replace(StringUtils.remove(resource, ".java (best guess)"), "/", ".");
+            return EntityHelper.findEntityTable(GenericUtils.getGenericParameter0(Class.forName(className)));
+        } catch (ClassNotFoundException | RuntimeException e) {
+            return null;
+        }
+    }
 
-                throw new OptimisticLockException(infoString(paramObj.getClass().getName(), id.toString()));
-            }
+    private MappedStatement getMappedStatement(StatementHandler handler) {
+        // 其他StatementHandler插件的代理需要先拆开
+        Object target = MyBatisUtils.processTarget(handler);
+        if (target instanceof RoutingStatementHandler) {
+            target = MyBatisUtils.processTarget(ReflectionUtils.getField(DELEGATE_FIELD, target));
         }
-        return result;
+
+        return target instanceof BaseStatementHandler ? (MappedStatement) ReflectionUtils.getField(MAPPED_STATEMENT_FIELD, target) : null;
     }
 
     @Override
     public Object plugin(Object target) {
-        if (target instanceof StatementHandler || target instanceof ParameterHandler || target instanceof Executor) {
+        if (target instanceof StatementHandler || target instanceof Executor) {
             return Plugin.wrap(target, this);
         } else {
             return target;
@@ -197,85 +263,27 @@ public class OptimisticLockInterceptor implements Interceptor {
 
     }
 
-    private Boolean checkVersion(BoundSql boundSql, MappedStatement mappedStatement) {
-        EntityTable table = getEntityTableForLogicDelete(boundSql, mappedStatement);
-
-        if (null == table) {
-            // 类没有加@Table注解，不需要进行乐观锁
-            return false;
-        }
-
-        String sql = boundSql.getSql();
-        if (!sql.matches(SQL_REGEX_PREFIX + table.getIdColumn().getColumn() + SQL_REGEX_SUFFIX)) {
-            return false;
+    private static Field getField(Class<?> type, String name) {
+        Field field = ReflectionUtils.findField(type, name);
+        if (field == null) {
+            throw new IllegalStateException("can't find field '" + name + "' in " + type.getName());
         }
 
-        return null != table.getVersionColumn();
+        ReflectionUtils.makeAccessible(field);
+        return field;
     }
 
-    private EntityTable getEntityTableForLogicDelete(BoundSql boundSql, MappedStatement mappedStatement) {
-        Object paramObj = boundSql.getParameterObject();
-        try {
-            return EntityHelper.getEntityTable(paramObj.getClass());
-        } catch (RuntimeException ex) {
-            // 逻辑删除特殊处理
-            try {
-                String resource = mappedStatement.getResource();
-                String className = StringUtils.replace(StringUtils.remove(resource, ".java (best guess)"), "/", ".");
-                Class clazz = Class.forName(className);
-
-                Class<?> entityClass = GenericUtils.getGenericParameter0(clazz);
-                return EntityHelper.getEntityTable(entityClass);
-            } catch (ClassNotFoundException e) {
-                return null;
-            }
+    private static class VersionContext {
+        private final VersionStatement statement;
+        private final Object parameter;
+        private final Object id;
+        private final Object version;
+
+        VersionContext(VersionStatement statement, Object parameter, Object id, Object version) {
+            this.statement = statement;
+            this.parameter = parameter;
+            this.id = id;
+            this.version = version;
         }
     }
-
-    private Object getCurrentVersion(MappedStatement mappedStatement, EntityTable table, Object paramObj) throws SQLException {
-        IdColumn idColumn = table.getIdColumn();
-        Class<?> entityType = table.getEntityType();
-
-        Field field = ReflectionUtil.getField(entityType, idColumn.getProperty());
-        Object id;
-        try {
-            id = ReflectionUtil.getFieldValue(paramObj, field);
-        } catch (Exception e) {
-            if (paramObj instanceof MapperMethod.ParamMap) {
-                id = ((MapperMethod.ParamMap) paramObj).get(idColumn.getProperty());
-            } else {
-                id = paramObj;
-            }
-        }
-
-        return VersionUtils.getCurrentVersion(mappedStatement, table, Collections.singletonMap(idColumn.getProperty(), id));
-    }
-
-    /**
-     * Generate an info message string relating to a particular entity,
-     * based on the given entityName and id.
-     *
-     * @param entityName The defined entity name.
-     * @param id         The entity id value.
-     * @return An info string, in the form [FooBar#1].
-     */
-    private String infoString(String entityName, Serializable id) {
-        StringBuilder s = new StringBuilder();
-        s.append('[');
-        if (entityName == null) {
-            s.append("<null entity name>");
-        } else {
-            s.append(entityName);
-        }
-        s.append('#');
-
-        if (id == null) {
-            s.append("<null>");
-        } else {
-            s.append(id);
-        }
-        s.append(']');
-
-        return s.toString();
-    }
-}
\ No newline at end of file
+}
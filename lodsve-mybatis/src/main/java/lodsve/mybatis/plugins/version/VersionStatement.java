@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.mybatis.plugins.version;
+
+import lodsve.core.utils.StringUtils;
+import lodsve.mybatis.repository.bean.ColumnBean;
+import lodsve.mybatis.repository.bean.EntityTable;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.JdbcParameter;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.Parenthesis;
+import net.sf.jsqlparser.expression.operators.arithmetic.Addition;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.conditional.OrExpression;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.update.Update;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.session.Configuration;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 一个需要乐观锁的MappedStatement，缓存改写后的sql，主键、版本号通过{@link ColumnBean}中的字段访问器读写.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+class VersionStatement {
+    private static final String NOT_VERSIONED = "";
+    private static final String[] QUOTES = {"`", "\"", "[", "]"};
+
+    private final EntityTable table;
+    private final ParameterMapping versionMapping;
+    /**
+     * 原sql -> 改写后的sql，动态sql每种组合只解析一次
+     */
+    private final ConcurrentMap<String, String> sqlCache = new ConcurrentHashMap<>();
+
+    VersionStatement(EntityTable table, Configuration configuration, String versionParameter) {
+        this.table = table;
+        this.versionMapping = new ParameterMapping.Builder(configuration, versionParameter, table.getVersionColumn().getJavaType()).build();
+    }
+
+    EntityTable getTable() {
+        return table;
+    }
+
+    ParameterMapping getVersionMapping() {
+        return versionMapping;
+    }
+
+    /**
+     * 改写sql：SET中增加version = version + 1，WHERE中追加AND version = ?
+     *
+     * @param sql 原sql
+     * @return 改写后的sql，不是按主键更新的sql返回null
+     */
+    String rewrite(String sql) {
+        String rewritten = sqlCache.computeIfAbsent(sql, this::doRewrite);
+        return NOT_VERSIONED.equals(rewritten) ? null : rewritten;
+    }
+
+    Object getId(Object parameter) {
+        return getValue(parameter, table.getIdColumn(), true);
+    }
+
+    Object getVersion(Object parameter) {
+        return getValue(parameter, table.getVersionColumn(), false);
+    }
+
+    boolean isEntity(Object parameter) {
+        return table.getEntityType().isInstance(parameter);
+    }
+
+    /**
+     * 更新成功后将实体中的版本号加1，与数据库保持一致
+     *
+     * @param entity  实体
+     * @param version 更新时使用的版本号
+     */
+    void increaseVersion(Object entity, Object version) {
+        if (!isEntity(entity)) {
+            return;
+        }
+
+        Object next = null;
+        if (version instanceof Integer) {
+            next = (Integer) version + 1;
+        } else if (version instanceof Long) {
+            next = (Long) version + 1;
+        } else if (version instanceof Short) {
+            next = (short) ((Short) version + 1);
+        }
+        if (next != null) {
+            table.getVersionColumn().setValue(entity, next);
+        }
+    }
+
+    private String doRewrite(String sql) {
+        Statement statement;
+        try {
+            statement = CCJSqlParserUtil.parse(sql);
+        } catch (Throwable e) {
+            return NOT_VERSIONED;
+        }
+        if (!(statement instanceof Update)) {
+            return NOT_VERSIONED;
+        }
+
+        Update update = (Update) statement;
+        Expression where = update.getWhere();
+        // 追加的占位符必须是最后一个，WHERE之后还有ORDER BY/LIMIT的不处理
+        if (where == null || update.getLimit() != null || update.getOrderByElements() != null || update.isUseSelect()) {
+            return NOT_VERSIONED;
+        }
+
+        String versionColumn = table.getVersionColumn().getColumn();
+        boolean versionAssigned = update.getColumns().stream().anyMatch(c -> isColumn(c, versionColumn));
+        if (versionAssigned || !hasIdCondition(where) || hasColumnCondition(where, versionColumn)) {
+            return NOT_VERSIONED;
+        }
+
+        Addition increase = new Addition();
+        increase.setLeftExpression(new Column(versionColumn));
+        increase.setRightExpression(new LongValue(1));
+        update.getColumns().add(new Column(versionColumn));
+        update.getExpressions().add(increase);
+
+        EqualsTo versionCondition = new EqualsTo();
+        versionCondition.setLeftExpression(new Column(versionColumn));
+        versionCondition.setRightExpression(new JdbcParameter());
+        update.setWhere(new AndExpression(where instanceof OrExpression ? new Parenthesis(where) : where, versionCondition));
+
+        return update.toString();
+    }
+
+    private boolean hasIdCondition(Expression where) {
+        String idColumn = table.getIdColumn().getColumn();
+        if (where instanceof AndExpression) {
+            return hasIdCondition(((AndExpression) where).getLeftExpression()) || hasIdCondition(((AndExpression) where).getRightExpression());
+        }
+        if (where instanceof Parenthesis) {
+            return hasIdCondition(((Parenthesis) where).getExpression());
+        }
+        if (where instanceof EqualsTo) {
+            EqualsTo equalsTo = (EqualsTo) where;
+            return (isColumn(equalsTo.getLeftExpression(), idColumn) && equalsTo.getRightExpression() instanceof JdbcParameter)
+                    || (isColumn(equalsTo.getRightExpression(), idColumn) && equalsTo.getLeftExpression() instanceof JdbcParameter);
+        }
+
+        return false;
+    }
+
+    private boolean hasColumnCondition(Expression where, String column) {
+        if (where instanceof AndExpression) {
+            return hasColumnCondition(((AndExpression) where).getLeftExpression(), column) || hasColumnCondition(((AndExpression) where).getRightExpression(), column);
+        }
+        if (where instanceof Parenthesis) {
+            return hasColumnCondition(((Parenthesis) where).getExpression(), column);
+        }
+        if (where instanceof EqualsTo) {
+            return isColumn(((EqualsTo) where).getLeftExpression(), column) || isColumn(((EqualsTo) where).getRightExpression(), column);
+        }
+
+        return false;
+    }
+
+    private boolean isColumn(Expression expression, String column) {
+        if (!(expression instanceof Column)) {
+            return false;
+        }
+
+        String name = ((Column) expression).getColumnName();
+        for (String quote : QUOTES) {
+            name = StringUtils.remove(name, quote);
+        }
+        return StringUtils.equalsIgnoreCase(name, column);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object getValue(Object parameter, ColumnBean column, boolean single) {
+        if (parameter == null) {
+            return null;
+        }
+        if (isEntity(parameter)) {
+            return column.getValue(parameter);
+        }
+        if (parameter instanceof Map) {
+            Map<String, Object> map = (Map<String, Object>) parameter;
+            return map.containsKey(column.getProperty()) ? map.get(column.getProperty()) : null;
+        }
+
+        // 只有一个参数时，参数就是主键
+        return single ? parameter : null;
+    }
+}
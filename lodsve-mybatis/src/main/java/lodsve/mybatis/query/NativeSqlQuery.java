@@ -17,6 +17,10 @@
 
 package lodsve.mybatis.query;
 
+import lodsve.mybatis.utils.MyBatisUtils;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.util.Assert;
+
 import javax.sql.DataSource;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -31,10 +35,23 @@ public class NativeSqlQuery extends SqlQuery {
     private PreparedStatement statement;
     private ResultSet resultSet;
 
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+
     public NativeSqlQuery(DataSource dataSource) {
         super(dataSource);
     }
 
+    /**
+     * 设置{@link #queryForEach(String, RowCallbackHandler, Object...)}每次从数据库读取的条数，MySQL使用流式读取，忽略此值
+     *
+     * @param fetchSize fetchSize
+     */
+    public void setFetchSize(int fetchSize) {
+        Assert.isTrue(fetchSize > 0, "fetchSize must be positive!");
+        this.fetchSize = fetchSize;
+    }
+
     public int queryForInt(String sql, Object... params) throws SQLException {
         statement = connection.prepareStatement(sql);
         for (int i = 0; i < params.length; i++) {
@@ -49,6 +66,34 @@ public class NativeSqlQuery extends SqlQuery {
         }
     }
 
+    /**
+     * 逐行处理查询结果，结果集不会全部加载到内存中
+     *
+     * @param sql     查询sql
+     * @param handler 每一行的回调
+     * @param params  参数
+     * @return 处理的行数
+     * @throws SQLException SQLException
+     */
+    public int queryForEach(String sql, RowCallbackHandler handler, Object... params) throws SQLException {
+        Assert.notNull(handler, "handler must be non-null!");
+
+        statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(MyBatisUtils.getStreamingFetchSize(connection, fetchSize));
+        for (int i = 0; i < params.length; i++) {
+            statement.setObject(i + 1, params[i]);
+        }
+
+        resultSet = statement.executeQuery();
+        int rows = 0;
+        while (resultSet.next()) {
+            handler.processRow(resultSet);
+            rows++;
+        }
+
+        return rows;
+    }
+
     @Override
     public void closeResources() throws SQLException {
         if (null != statement) {
@@ -21,6 +21,7 @@ import lodsve.mybatis.repository.annotations.LogicDelete;
 import lodsve.mybatis.repository.helper.MapperHelper;
 import lodsve.mybatis.repository.provider.MapperProvider;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.mapping.MappedStatement;
 
 import java.io.Serializable;
@@ -84,6 +85,49 @@ public interface BaseRepository<T> {
     @SelectProvider(type = MapperProvider.class, method = MapperHelper.PROVIDER_METHOD_NAME)
     List<T> findEnabledByIds(List<? extends Serializable> ids);
 
+    /**
+     * 以游标的方式根据主键集合查询，逐条读取而不是一次性加载到内存中<br/>
+     * 游标需要在SqlSession(事务)内遍历，使用完需要关闭
+     *
+     * @param ids 主键集合
+     * @return 主键匹配的对象的游标
+     * @see MapperProvider#cursorByIds(MappedStatement)
+     */
+    @SelectProvider(type = MapperProvider.class, method = MapperHelper.PROVIDER_METHOD_NAME)
+    Cursor<T> cursorByIds(List<? extends Serializable> ids);
+
+    /**
+     * 以游标的方式根据主键集合查询未删除的记录，只获取加了{@link LogicDelete}注解的字段值为{@link LogicDelete#nonDelete()}的记录<br/>
+     * 游标需要在SqlSession(事务)内遍历，使用完需要关闭
+     *
+     * @param ids 主键集合
+     * @return 主键匹配的对象的游标
+     * @see MapperProvider#cursorEnabledByIds(MappedStatement)
+     */
+    @SelectProvider(type = MapperProvider.class, method = MapperHelper.PROVIDER_METHOD_NAME)
+    Cursor<T> cursorEnabledByIds(List<? extends Serializable> ids);
+
+    /**
+     * 以游标的方式查询表中所有记录，适合报表、重建索引等需要遍历全表的任务，内存占用与表大小无关<br/>
+     * 每次从数据库读取{@link lodsve.mybatis.annotations.EnableMyBatis#cursorFetchSize()}条，MySQL使用流式读取<br/>
+     * 游标需要在SqlSession(事务)内遍历，使用完需要关闭
+     *
+     * @return 所有记录的游标
+     * @see MapperProvider#cursorAll(MappedStatement)
+     */
+    @SelectProvider(type = MapperProvider.class, method = MapperHelper.PROVIDER_METHOD_NAME)
+    Cursor<T> cursorAll();
+
+    /**
+     * 以游标的方式查询表中所有未删除的记录，只获取加了{@link LogicDelete}注解的字段值为{@link LogicDelete#nonDelete()}的记录<br/>
+     * 游标需要在SqlSession(事务)内遍历，使用完需要关闭
+     *
+     * @return 所有未删除记录的游标
+     * @see MapperProvider#cursorAllEnabled(MappedStatement)
+     */
+    @SelectProvider(type = MapperProvider.class, method = MapperHelper.PROVIDER_METHOD_NAME)
+    Cursor<T> cursorAllEnabled();
+
     /**
      * 保存一个实体，null的属性不会保存，会使用数据库默认值。
      *
@@ -96,7 +140,8 @@ public interface BaseRepository<T> {
     int save(T entity);
 
     /**
-     * 批量保存，保存后生成的主键会回填到每一个对象的主键字段
+     * 批量保存，保存后生成的主键会回填到每一个对象的主键字段(需要数据库驱动支持)<br/>
+     * 使用JDBC批处理执行同一条INSERT语句，每{@link lodsve.mybatis.annotations.EnableMyBatis#batchFlushSize()}条提交一次
      *
      * @param entities 需要保存对象的集合
      * @return 保存成功的数据条数
@@ -116,6 +161,17 @@ public interface BaseRepository<T> {
     @UpdateProvider(type = MapperProvider.class, method = MapperHelper.PROVIDER_METHOD_NAME)
     int updateAll(T entity);
 
+    /**
+     * 批量根据主键更新所有属性的值，与{@link #updateAll(Object)}相同，使用JDBC批处理执行<br/>
+     * 每{@link lodsve.mybatis.annotations.EnableMyBatis#batchFlushSize()}条提交一次，带版本号的实体更新条数为0时同样抛出乐观锁异常
+     *
+     * @param entities 需要更新对象的集合,必须含有主键值
+     * @return 更新成功的数据条数，小于实体个数时表示有实体没有更新到记录
+     * @see MapperProvider#batchUpdate(MappedStatement)
+     */
+    @UpdateProvider(type = MapperProvider.class, method = MapperHelper.PROVIDER_METHOD_NAME)
+    int batchUpdate(List<T> entities);
+
     /**
      * 根据主键更新属性不为null的值。
      *
@@ -17,6 +17,10 @@
 
 package lodsve.mybatis.repository.bean;
 
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+
 /**
  * 实体字段对应数据库列的信息.
  *
@@ -39,12 +43,17 @@ public class ColumnBean {
      * Java对象中的类型
      */
     private Class<?> javaType;
-
-    ColumnBean(EntityTable table, String property, String column, Class<?> javaType) {
-        this.table = table;
-        this.property = property;
-        this.column = column;
-        this.javaType = javaType;
+    /**
+     * Java对象中的字段，已设置为可访问，用于直接读写属性值
+     */
+    private Field field;
+
+    ColumnBean(ColumnBean column) {
+        this.table = column.table;
+        this.property = column.property;
+        this.column = column.column;
+        this.javaType = column.javaType;
+        this.field = column.field;
     }
 
     public ColumnBean(EntityTable table) {
@@ -83,6 +92,37 @@ public class ColumnBean {
         this.javaType = javaType;
     }
 
+    public Field getField() {
+        return field;
+    }
+
+    public void setField(Field field) {
+        if (field != null) {
+            ReflectionUtils.makeAccessible(field);
+        }
+        this.field = field;
+    }
+
+    /**
+     * 读取实体中此字段的值
+     *
+     * @param entity 实体
+     * @return 字段值
+     */
+    public Object getValue(Object entity) {
+        return ReflectionUtils.getField(field, entity);
+    }
+
+    /**
+     * 设置实体中此字段的值
+     *
+     * @param entity 实体
+     * @param value  字段值
+     */
+    public void setValue(Object entity, Object value) {
+        ReflectionUtils.setField(field, entity, value);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -33,7 +33,7 @@ public class DeleteColumn extends ColumnBean {
     private int nonDelete;
 
     public DeleteColumn(ColumnBean column) {
-        super(column.getTable(), column.getProperty(), column.getColumn(), column.getJavaType());
+        super(column);
     }
 
     public int getDelete() {
@@ -17,6 +17,10 @@
 
 package lodsve.mybatis.repository.bean;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -37,6 +41,10 @@ public class EntityTable {
      * 实体类 => 全部列属性
      */
     private Set<ColumnBean> columns;
+    /**
+     * 属性名 => 列属性
+     */
+    private Map<String, ColumnBean> propertyColumns = Collections.emptyMap();
     /**
      * 实体类 => 主键信息
      */
@@ -83,7 +91,21 @@ public class EntityTable {
     }
 
     public void setColumns(Set<ColumnBean> columns) {
-        this.columns = columns;
+        Map<String, ColumnBean> propertyColumns = new LinkedHashMap<>(columns.size() * 2);
+        columns.forEach(c -> propertyColumns.put(c.getProperty(), c));
+
+        this.columns = Collections.unmodifiableSet(new LinkedHashSet<>(columns));
+        this.propertyColumns = Collections.unmodifiableMap(propertyColumns);
+    }
+
+    /**
+     * 根据属性名获取列属性
+     *
+     * @param property Java对象中的字段名
+     * @return 列属性，不存在时返回null
+     */
+    public ColumnBean getColumn(String property) {
+        return propertyColumns.get(property);
     }
 
     public IdColumn getIdColumn() {
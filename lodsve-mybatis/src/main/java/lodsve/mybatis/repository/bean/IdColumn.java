@@ -29,7 +29,7 @@ public class IdColumn extends ColumnBean {
     private String generator;
 
     public IdColumn(ColumnBean column) {
-        super(column.getTable(), column.getProperty(), column.getColumn(), column.getJavaType());
+        super(column);
     }
 
     public String getGenerator() {
@@ -24,6 +24,6 @@ package lodsve.mybatis.repository.bean;
  */
 public class LastModifiedByColumn extends ColumnBean {
     public LastModifiedByColumn(ColumnBean column) {
-        super(column.getTable(), column.getProperty(), column.getColumn(), column.getJavaType());
+        super(column);
     }
 }
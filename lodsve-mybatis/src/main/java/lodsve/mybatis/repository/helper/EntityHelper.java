@@ -22,24 +22,32 @@ import lodsve.mybatis.repository.annotations.DisabledDate;
 import lodsve.mybatis.repository.annotations.LogicDelete;
 import lodsve.mybatis.repository.bean.*;
 import lodsve.mybatis.utils.SqlUtils;
+import org.apache.ibatis.session.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.data.annotation.LastModifiedBy;
 import org.springframework.data.annotation.LastModifiedDate;
 
 import javax.persistence.*;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.*;
 
 /**
- * 实体类工具类 - 处理实体和数据库表以及字段关键的一个类.
+ * 实体类工具类 - 处理实体和数据库表以及字段关键的一个类.<br/>
+ * 表对象保存在一个不可变的Map中，通过volatile发布，读取时不需要加锁；启动时扫描所有Mapper的实体类型一次性注册，
+ * 之后遇到未注册的实体时加锁复制一份新的Map再发布.
  *
  * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
  */
 public class EntityHelper {
+    private static final Logger logger = LoggerFactory.getLogger(EntityHelper.class);
     /**
-     * 实体类 => 表对象
+     * 实体类 => 表对象，只读，修改时整体替换
      */
-    private static final Map<Class<?>, EntityTable> ENTITY_TABLE_MAP = new HashMap<>();
+    private static volatile Map<Class<?>, EntityTable> entityTables = Collections.emptyMap();
 
     /**
      * 获取表对象
@@ -48,10 +56,9 @@ public class EntityHelper {
      * @return EntityTable
      */
     public static EntityTable getEntityTable(Class<?> entityClass) {
-        EntityTable entityTable = ENTITY_TABLE_MAP.get(entityClass);
+        EntityTable entityTable = entityTables.get(entityClass);
         if (entityTable == null) {
-            initEntityNameMap(entityClass);
-            entityTable = ENTITY_TABLE_MAP.get(entityClass);
+            entityTable = register(Collections.singleton(entityClass), false).get(entityClass);
         }
         if (entityTable == null) {
             throw new RuntimeException("无法获取实体类" + entityClass.getCanonicalName() + "对应的表名!");
@@ -60,14 +67,95 @@ public class EntityHelper {
     }
 
     /**
-     * 初始化实体属性
+     * 获取表对象，不是实体类(没有@Table注解)时返回null
      *
      * @param entityClass entityClass
+     * @return EntityTable
      */
-    private static synchronized void initEntityNameMap(Class<?> entityClass) {
-        if (ENTITY_TABLE_MAP.get(entityClass) != null) {
-            return;
+    public static EntityTable findEntityTable(Class<?> entityClass) {
+        if (entityClass == null) {
+            return null;
+        }
+
+        EntityTable entityTable = entityTables.get(entityClass);
+        if (entityTable != null || !entityClass.isAnnotationPresent(Table.class)) {
+            return entityTable;
+        }
+
+        return getEntityTable(entityClass);
+    }
+
+    /**
+     * 扫描所有Mapper接口的泛型参数，注册其中的实体类
+     *
+     * @param configuration mybatis configuration
+     */
+    public static void registerEntities(Configuration configuration) {
+        Set<Class<?>> entityClasses = new LinkedHashSet<>();
+        for (Class<?> mapper : configuration.getMapperRegistry().getMappers()) {
+            collectEntityClasses(mapper, entityClasses);
+        }
+
+        register(entityClasses, true);
+    }
+
+    /**
+     * 解析并注册实体类，所有实体解析完成后只发布一次
+     *
+     * @param entityClasses 实体类
+     * @param ignoreError   是否忽略解析失败的实体，忽略的实体在使用时再抛出异常
+     * @return 注册后的表对象
+     */
+    private static synchronized Map<Class<?>, EntityTable> register(Collection<Class<?>> entityClasses, boolean ignoreError) {
+        Map<Class<?>, EntityTable> current = entityTables;
+        Map<Class<?>, EntityTable> added = new LinkedHashMap<>();
+        for (Class<?> entityClass : entityClasses) {
+            if (current.containsKey(entityClass)) {
+                continue;
+            }
+
+            try {
+                added.put(entityClass, buildEntityTable(entityClass));
+            } catch (RuntimeException e) {
+                if (!ignoreError) {
+                    throw e;
+                }
+                logger.warn("register entity '{}' failed! cause: {}", entityClass.getName(), e.getMessage());
+            }
+        }
+        if (added.isEmpty()) {
+            return current;
+        }
+
+        Map<Class<?>, EntityTable> tables = new HashMap<>(current);
+        tables.putAll(added);
+        entityTables = Collections.unmodifiableMap(tables);
+        return entityTables;
+    }
+
+    private static void collectEntityClasses(Class<?> mapper, Set<Class<?>> entityClasses) {
+        for (Type type : mapper.getGenericInterfaces()) {
+            if (type instanceof ParameterizedType) {
+                for (Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+                    if (argument instanceof Class && ((Class<?>) argument).isAnnotationPresent(Table.class)) {
+                        entityClasses.add((Class<?>) argument);
+                    }
+                }
+                type = ((ParameterizedType) type).getRawType();
+            }
+            if (type instanceof Class) {
+                collectEntityClasses((Class<?>) type, entityClasses);
+            }
         }
+    }
+
+    /**
+     * 解析实体属性
+     *
+     * @param entityClass entityClass
+     * @return EntityTable
+     */
+    private static EntityTable buildEntityTable(Class<?> entityClass) {
         //表名
         EntityTable entityTable = new EntityTable();
         entityTable.setEntityType(entityClass);
@@ -95,8 +183,7 @@ public class EntityHelper {
 
         entityTable.setColumns(columnSet);
 
-        //缓存
-        ENTITY_TABLE_MAP.put(entityClass, entityTable);
+        return entityTable;
     }
 
     private static void handleEntityField(EntityTable entityTable, Field field, Set<ColumnBean> columnSet) {
@@ -118,6 +205,7 @@ public class EntityHelper {
         columnBean.setProperty(field.getName());
         columnBean.setColumn(columnName.toUpperCase());
         columnBean.setJavaType(field.getType());
+        columnBean.setField(field);
 
         // 主键字段
         if (field.isAnnotationPresent(Id.class)) {
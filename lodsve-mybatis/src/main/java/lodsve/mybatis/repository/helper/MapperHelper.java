@@ -19,16 +19,21 @@ package lodsve.mybatis.repository.helper;
 
 import lodsve.mybatis.repository.provider.BaseMapperProvider;
 import lodsve.mybatis.repository.provider.EmptyMapperProvider;
+import lodsve.mybatis.utils.PaginationUtils;
 import org.apache.ibatis.annotations.DeleteProvider;
 import org.apache.ibatis.annotations.InsertProvider;
 import org.apache.ibatis.annotations.SelectProvider;
 import org.apache.ibatis.annotations.UpdateProvider;
-import org.apache.ibatis.binding.MapperMethod;
+import org.apache.ibatis.builder.annotation.ProviderSqlSource;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Method;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -39,6 +44,7 @@ import java.util.concurrent.ConcurrentHashMap;
  * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
  */
 public class MapperHelper {
+    private static final Logger logger = LoggerFactory.getLogger(MapperHelper.class);
     public static final String PROVIDER_METHOD_NAME = "dynamicSQL";
     public static final String STRING_POINT = ".";
 
@@ -50,11 +56,11 @@ public class MapperHelper {
     /**
      * 缓存msid和MapperTemplate
      */
-    private static final Map<String, BaseMapperProvider> MS_ID_CACHE = new HashMap<>();
+    private static final Map<String, BaseMapperProvider> MS_ID_CACHE = new ConcurrentHashMap<>();
     /**
      * 缓存skip结果
      */
-    private static final Map<String, Boolean> MS_ID_SKIP = new HashMap<>();
+    private static final Map<String, Boolean> MS_ID_SKIP = new ConcurrentHashMap<>();
 
     /**
      * 默认构造方法
@@ -82,20 +88,78 @@ public class MapperHelper {
         return false;
     }
 
+    /**
+     * 为通用Mapper方法生成SqlSource.<br/>
+     * 不依赖参数的方法只生成一次，替换掉{@link ProviderSqlSource}后重复使用；
+     * 依赖参数的方法(签名为(MappedStatement, Object))每次都按当前参数重新生成，返回使用新SqlSource的MappedStatement副本，共享的MappedStatement保持不变
+     *
+     * @param ms        MappedStatement
+     * @param parameter 参数，只有生成SQL需要参数的方法会使用
+     * @return 执行时使用的MappedStatement
+     */
+    public static MappedStatement resolveSqlSource(MappedStatement ms, Object parameter) {
+        if (!(ms.getSqlSource() instanceof ProviderSqlSource)) {
+            return ms;
+        }
+
+        BaseMapperProvider provider = getMapperProvider(ms.getId());
+        if (provider != null && provider.isParameterRequired(ms)) {
+            return PaginationUtils.copyWithSqlSource(ms, provider.createSqlSource(ms, parameter));
+        }
+
+        // 同一个MappedStatement被多个线程共享，只允许一个线程替换SqlSource，SqlSource的字段都是final的，替换后其他线程可以安全读取
+        synchronized (ms) {
+            if (ms.getSqlSource() instanceof ProviderSqlSource) {
+                resetSqlSource(ms, parameter);
+            }
+        }
+        return ms;
+    }
+
+    /**
+     * 在启动时为所有不依赖参数的通用Mapper方法生成SqlSource，避免第一次调用时生成
+     *
+     * @param configuration mybatis configuration
+     */
+    public static void resolveSqlSources(Configuration configuration) {
+        List<String> names = new ArrayList<>(configuration.getMappedStatementNames());
+        for (String name : names) {
+            // 不带namespace的短名称可能对应多个MappedStatement，跳过
+            if (!name.contains(STRING_POINT) || !isMapperMethod(name)) {
+                continue;
+            }
+
+            MappedStatement ms = configuration.getMappedStatement(name, false);
+            BaseMapperProvider provider = getMapperProvider(name);
+            if (!(ms.getSqlSource() instanceof ProviderSqlSource) || provider.isParameterRequired(ms)) {
+                continue;
+            }
+
+            try {
+                resolveSqlSource(ms, null);
+            } catch (Exception e) {
+                // 例如实体不支持逻辑删除，在调用时才抛出异常
+                if (logger.isDebugEnabled()) {
+                    logger.debug("resolve sql source for '{}' failed, it will be resolved on first use! cause: {}", name, e.getMessage());
+                }
+            }
+        }
+    }
+
     /**
      * 重新设置SqlSource
      *
      * @param ms        MappedStatement
      * @param parameter 参数
      */
-    public static void resetSqlSource(MappedStatement ms, MapperMethod.ParamMap parameter) {
+    public static void resetSqlSource(MappedStatement ms, Object parameter) {
         BaseMapperProvider baseMapperProvider = getMapperProvider(ms.getId());
         try {
             if (baseMapperProvider != null) {
                 baseMapperProvider.resetSqlSource(ms, parameter);
             }
         } catch (Exception e) {
-            throw new RuntimeException("调用方法异常:" + e.getMessage());
+            throw new RuntimeException("调用方法异常:" + e.getMessage(), e);
         }
     }
 
@@ -106,17 +170,17 @@ public class MapperHelper {
      * @return MapperTemplate
      */
     public static BaseMapperProvider getMapperProvider(String msId) {
-        BaseMapperProvider baseMapperProvider = null;
-        if (MS_ID_CACHE.get(msId) != null) {
-            baseMapperProvider = MS_ID_CACHE.get(msId);
-        } else {
-            for (Map.Entry<Class<?>, BaseMapperProvider> entry : REGISTER_MAPPER.entrySet()) {
-                if (entry.getValue().supportMethod(msId)) {
-                    baseMapperProvider = entry.getValue();
-                    break;
-                }
+        BaseMapperProvider baseMapperProvider = MS_ID_CACHE.get(msId);
+        if (baseMapperProvider != null) {
+            return baseMapperProvider;
+        }
+
+        for (Map.Entry<Class<?>, BaseMapperProvider> entry : REGISTER_MAPPER.entrySet()) {
+            if (entry.getValue().supportMethod(msId)) {
+                baseMapperProvider = entry.getValue();
+                MS_ID_CACHE.put(msId, baseMapperProvider);
+                break;
             }
-            MS_ID_CACHE.put(msId, baseMapperProvider);
         }
         return baseMapperProvider;
     }
@@ -21,7 +21,6 @@ import lodsve.core.utils.StringUtils;
 import lodsve.mybatis.repository.bean.IdColumn;
 import lodsve.mybatis.repository.helper.MapperHelper;
 import lodsve.mybatis.utils.MyBatisUtils;
-import org.apache.ibatis.binding.MapperMethod;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.SqlSource;
 import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
@@ -32,8 +31,8 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 通用Mapper模板类，扩展通用Mapper时需要继承该类.
@@ -42,7 +41,7 @@ import java.util.Map;
  */
 public class BaseMapperProvider {
     private XMLLanguageDriver languageDriver = new XMLLanguageDriver();
-    private Map<String, Method> methodMap = new HashMap<>();
+    private Map<String, Method> methodMap = new ConcurrentHashMap<>();
     private Class<?> mapperClass;
 
     public BaseMapperProvider(Class<?> mapperClass) {
@@ -106,28 +105,51 @@ public class BaseMapperProvider {
         }
     }
 
+    /**
+     * 生成SQL是否需要参数，方法签名为(MappedStatement, Object)的需要参数
+     *
+     * @param ms ms
+     * @return 是否需要参数
+     */
+    public boolean isParameterRequired(MappedStatement ms) {
+        return methodMap.get(getMethodName(ms)).getParameterCount() > 1;
+    }
+
     /**
      * 重新设置SqlSource
      *
      * @param ms        ms
      * @param parameter 参数
      */
-    public void resetSqlSource(MappedStatement ms, MapperMethod.ParamMap parameter) {
+    public void resetSqlSource(MappedStatement ms, Object parameter) {
         Method method = methodMap.get(getMethodName(ms));
 
         if (method.getReturnType() == Void.TYPE) {
             invoke(method, this, ms, parameter);
-        } else if (SqlNode.class.isAssignableFrom(method.getReturnType())) {
+        } else {
+            //替换原有的SqlSource
+            setSqlSource(ms, createSqlSource(ms, parameter));
+        }
+    }
+
+    /**
+     * 根据参数生成SqlSource，不修改MappedStatement，只支持返回SqlNode或String的方法
+     *
+     * @param ms        ms
+     * @param parameter 参数
+     * @return SqlSource
+     */
+    public SqlSource createSqlSource(MappedStatement ms, Object parameter) {
+        Method method = methodMap.get(getMethodName(ms));
+
+        if (SqlNode.class.isAssignableFrom(method.getReturnType())) {
             SqlNode sqlNode = (SqlNode) invoke(method, this, ms, parameter);
-            DynamicSqlSource dynamicSqlSource = new DynamicSqlSource(ms.getConfiguration(), sqlNode);
-            setSqlSource(ms, dynamicSqlSource);
+            return new DynamicSqlSource(ms.getConfiguration(), sqlNode);
         } else if (String.class.equals(method.getReturnType())) {
             String xmlSql = (String) invoke(method, this, ms, parameter);
-            SqlSource sqlSource = createSqlSource(ms, xmlSql);
-            //替换原有的SqlSource
-            setSqlSource(ms, sqlSource);
+            return createSqlSource(ms, xmlSql);
         } else {
-            throw new RuntimeException("自定义Mapper方法返回类型错误,可选的返回类型为void,SqlNode,String三种!");
+            throw new RuntimeException("自定义Mapper方法返回类型错误,可选的返回类型为void,SqlNode,String三种,需要参数的方法只能返回SqlNode,String!");
         }
     }
 
@@ -141,15 +163,13 @@ public class BaseMapperProvider {
         MyBatisUtils.setValue(ms, "sqlSource", sqlSource);
     }
 
-    private Object invoke(Method method, Object target, MappedStatement ms, MapperMethod.ParamMap parameter) {
+    private Object invoke(Method method, Object target, MappedStatement ms, Object parameter) {
         try {
-            return method.invoke(target, ms);
-        } catch (Exception e) {
-            try {
-                return method.invoke(target, ms, parameter);
-            } catch (IllegalAccessException | InvocationTargetException e1) {
-                throw new RuntimeException(e);
-            }
+            return method.getParameterCount() > 1 ? method.invoke(target, ms, parameter) : method.invoke(target, ms);
+        } catch (InvocationTargetException e) {
+            throw new RuntimeException(e.getTargetException());
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
         }
     }
 
@@ -133,46 +133,98 @@ public class MapperProvider extends BaseMapperProvider {
     }
 
     /**
-     * 保存一个实体，null的属性不会保存，会使用数据库默认值。
+     * 以游标的方式根据主键集合查询，与{@link #findByIds(MappedStatement)}相同
      *
      * @param ms MappedStatement
      * @return 生成的SQL语句
-     * @see BaseRepository#save(Object)
+     * @see BaseRepository#cursorByIds(List)
      */
-    public String save(MappedStatement ms) {
+    public String cursorByIds(MappedStatement ms) {
+        return findByIds(ms);
+    }
+
+    /**
+     * 以游标的方式根据主键集合查询未删除的记录，与{@link #findEnabledByIds(MappedStatement)}相同
+     *
+     * @param ms MappedStatement
+     * @return 生成的SQL语句
+     * @see BaseRepository#cursorEnabledByIds(List)
+     */
+    public String cursorEnabledByIds(MappedStatement ms) {
+        return findEnabledByIds(ms);
+    }
+
+    /**
+     * 以游标的方式查询表中所有记录(不会按照软删除来查询)
+     *
+     * @param ms MappedStatement
+     * @return 生成的SQL语句
+     * @see BaseRepository#cursorAll()
+     */
+    public String cursorAll(MappedStatement ms) {
         Class<?> entityClass = getSelectReturnType(ms);
         EntityTable table = EntityHelper.getEntityTable(entityClass);
         Set<ColumnBean> columnBeans = table.getColumns();
 
         String columns = columnBeans.stream().map(ColumnBean::getColumn).collect(Collectors.joining(", "));
-        String values = columnBeans.stream().map(c -> "#{" + c.getProperty() + "}").collect(Collectors.joining(", "));
 
-        // 通过反射设置主键字段
-        setKeyColumn(table.getIdColumn(), ms);
+        return String.format("SELECT %s FROM %s", columns, table.getName());
+    }
 
-        return String.format("INSERT INTO %s (%s) VALUES (%s)", table.getName(), columns, values);
+    /**
+     * 以游标的方式查询表中所有未删除的记录<br/>
+     * 如果没有加{@link LogicDelete}注解，这个方法的作用与{@link #cursorAll(MappedStatement)}一致！
+     *
+     * @param ms MappedStatement
+     * @return 生成的SQL语句
+     * @see BaseRepository#cursorAllEnabled()
+     */
+    public String cursorAllEnabled(MappedStatement ms) {
+        Class<?> entityClass = getSelectReturnType(ms);
+        EntityTable table = EntityHelper.getEntityTable(entityClass);
+        DeleteColumn deleteColumn = table.getDeleteColumn();
+        Set<ColumnBean> columnBeans = table.getColumns();
+
+        String columns = columnBeans.stream().map(ColumnBean::getColumn).collect(Collectors.joining(", "));
+        String sql = String.format("SELECT %s FROM %s", columns, table.getName());
+        if (deleteColumn != null) {
+            sql += " WHERE " + deleteColumn.getColumn() + " = " + deleteColumn.getNonDelete();
+        }
+
+        return sql;
     }
 
     /**
-     * 批量保存，保存后生成的主键会回填到每一个对象的主键字段
+     * 保存一个实体，null的属性不会保存，会使用数据库默认值。
      *
      * @param ms MappedStatement
      * @return 生成的SQL语句
-     * @see BaseRepository#batchSave(List)
+     * @see BaseRepository#save(Object)
      */
-    public String batchSave(MappedStatement ms) {
+    public String save(MappedStatement ms) {
         Class<?> entityClass = getSelectReturnType(ms);
         EntityTable table = EntityHelper.getEntityTable(entityClass);
         Set<ColumnBean> columnBeans = table.getColumns();
 
         String columns = columnBeans.stream().map(ColumnBean::getColumn).collect(Collectors.joining(", "));
-        String values = columnBeans.stream().map(c -> "#{item." + c.getProperty() + "}").collect(Collectors.joining(", "));
-        String batchValues = "<foreach collection=\"list\" item=\"item\" separator=\",\" open=\"\" close=\"\">(%s)</foreach>";
+        String values = columnBeans.stream().map(c -> "#{" + c.getProperty() + "}").collect(Collectors.joining(", "));
 
         // 通过反射设置主键字段
         setKeyColumn(table.getIdColumn(), ms);
 
-        return String.format("INSERT INTO %s (%s) VALUES %s", table.getName(), columns, String.format(batchValues, values));
+        return String.format("INSERT INTO %s (%s) VALUES (%s)", table.getName(), columns, values);
+    }
+
+    /**
+     * 批量保存，保存后生成的主键会回填到每一个对象的主键字段<br/>
+     * 生成的是单条记录的INSERT语句，由{@link lodsve.mybatis.plugins.repository.BaseRepositoryInterceptor}使用JDBC批处理逐条执行
+     *
+     * @param ms MappedStatement
+     * @return 生成的SQL语句
+     * @see BaseRepository#batchSave(List)
+     */
+    public String batchSave(MappedStatement ms) {
+        return save(ms);
     }
 
     /**
@@ -201,6 +253,18 @@ public class MapperProvider extends BaseMapperProvider {
         return String.format(sql, table.getName(), columns, idColumn.getColumn() + " = #{" + idColumn.getProperty() + "}");
     }
 
+    /**
+     * 批量根据主键更新所有属性的值<br/>
+     * 生成的是单条记录的UPDATE语句，由{@link lodsve.mybatis.plugins.repository.BaseRepositoryInterceptor}使用JDBC批处理逐条执行
+     *
+     * @param ms MappedStatement
+     * @return 生成的SQL语句
+     * @see BaseRepository#batchUpdate(List)
+     */
+    public String batchUpdate(MappedStatement ms) {
+        return updateAll(ms);
+    }
+
     /**
      * 根据主键更新属性不为null的值（String类型，应该还不为空字符串）。
      *
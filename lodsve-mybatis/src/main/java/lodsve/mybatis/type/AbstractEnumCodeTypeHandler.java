@@ -23,31 +23,77 @@ import org.apache.ibatis.type.JdbcType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.Array;
 import java.sql.CallableStatement;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * mybatis对pojo对象中得枚举与数据库字段映射关系的处理.<br/>
- * 继承的类必须实现空得构造器,然后调用父类的含有clazz参数的构造器
+ * 继承的类必须实现空得构造器,然后调用父类的含有clazz参数的构造器.<br/>
+ * 构造时一次性建立code到枚举的只读映射：code都是较小的非负整数时使用数组按下标查找，否则使用HashMap，读取每一行时都是O(1)
  *
  * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
  * @date 15/6/25 下午7:29
  */
 public abstract class AbstractEnumCodeTypeHandler<T extends Enum<?> & Codeable> extends BaseTypeHandler<T> {
     private static final Logger logger = LoggerFactory.getLogger(AbstractEnumCodeTypeHandler.class);
-    private T[] enums;
+    /**
+     * code不超过此值时使用数组查找
+     */
+    private static final int MAX_DENSE_CODE = 1024;
+
+    private final Class<T> enumType;
+    /**
+     * 下标即code，code不全是较小的非负整数时为null
+     */
+    private final T[] denseTable;
+    private final Map<String, T> codeTable;
 
     public AbstractEnumCodeTypeHandler(Class<T> clazz) {
         if (clazz == null) {
             throw new IllegalArgumentException("enum type can't be null!");
         }
 
-        this.enums = clazz.getEnumConstants();
-        if (this.enums == null) {
+        this.enumType = clazz;
+        T[] enums = clazz.getEnumConstants();
+        if (enums == null || enums.length == 0) {
             logger.warn("This enum '{}' has none enum contents!", clazz.getSimpleName());
         }
+
+        Map<String, T> table = new HashMap<>(enums == null ? 0 : enums.length * 2);
+        int maxCode = -1;
+        if (enums != null) {
+            for (T em : enums) {
+                String code = em.getCode();
+                if (code == null) {
+                    continue;
+                }
+                T exist = table.putIfAbsent(code, em);
+                if (exist != null) {
+                    logger.warn("Enum '{}' has duplicate code '{}', use '{}'!", clazz.getSimpleName(), code, exist.name());
+                }
+                // 任何一个code不是较小的非负整数时都不使用数组
+                int index = maxCode == Integer.MIN_VALUE ? Integer.MIN_VALUE : toIndex(code);
+                maxCode = index < 0 ? Integer.MIN_VALUE : Math.max(maxCode, index);
+            }
+        }
+
+        this.codeTable = Collections.unmodifiableMap(table);
+        this.denseTable = maxCode < 0 ? null : buildDenseTable(clazz, table, maxCode);
+    }
+
+    /**
+     * 获取枚举的类型
+     *
+     * @return 枚举的类型
+     */
+    public Class<T> getEnumType() {
+        return enumType;
     }
 
     @Override
@@ -71,11 +117,45 @@ public abstract class AbstractEnumCodeTypeHandler<T extends Enum<?> & Codeable>
     }
 
     private T convert(String value) {
-        for (T em : this.enums) {
-            if (em.getCode().equals(value)) {
-                return em;
+        if (value == null) {
+            return null;
+        }
+        if (denseTable != null) {
+            int index = toIndex(value);
+            return index >= 0 && index < denseTable.length ? denseTable[index] : null;
+        }
+
+        return codeTable.get(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T[] buildDenseTable(Class<T> clazz, Map<String, T> table, int maxCode) {
+        T[] dense = (T[]) Array.newInstance(clazz, maxCode + 1);
+        table.forEach((code, em) -> dense[toIndex(code)] = em);
+        return dense;
+    }
+
+    /**
+     * 将code解析为数组下标，只接受不带前导0、不超过{@link #MAX_DENSE_CODE}的十进制数字，保证与字符串比较的结果一致
+     *
+     * @param code code
+     * @return 下标，不是合法下标时返回-1
+     */
+    private static int toIndex(String code) {
+        int length = code.length();
+        if (length == 0 || length > 4 || (length > 1 && code.charAt(0) == '0')) {
+            return -1;
+        }
+
+        int index = 0;
+        for (int i = 0; i < length; i++) {
+            char c = code.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
             }
+            index = index * 10 + (c - '0');
         }
-        return null;
+
+        return index > MAX_DENSE_CODE ? -1 : index;
     }
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.mybatis.type;
+
+import lodsve.core.bean.Codeable;
+import org.apache.ibatis.type.TypeReference;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+
+/**
+ * 通用的枚举类型转换器，由{@link TypeHandlerScanner}为每个{@link Codeable}枚举创建一个实例.<br/>
+ * mybatis通过rawType(即枚举的类型)与handler对应，泛型擦除后无法推断，所以在构造时直接设置.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class EnumCodeTypeHandler<T extends Enum<?> & Codeable> extends AbstractEnumCodeTypeHandler<T> {
+    private static final Field RAW_TYPE_FIELD = ReflectionUtils.findField(TypeReference.class, "rawType");
+
+    static {
+        ReflectionUtils.makeAccessible(RAW_TYPE_FIELD);
+    }
+
+    public EnumCodeTypeHandler(Class<T> clazz) {
+        super(clazz);
+        ReflectionUtils.setField(RAW_TYPE_FIELD, this, clazz);
+    }
+}
@@ -18,7 +18,6 @@
 package lodsve.mybatis.type;
 
 import com.google.common.collect.Lists;
-import javassist.*;
 import lodsve.core.bean.Codeable;
 import lodsve.mybatis.exception.MyBatisException;
 import org.apache.commons.lang3.ArrayUtils;
@@ -36,7 +35,6 @@ import org.springframework.core.type.filter.TypeFilter;
 import org.springframework.util.ClassUtils;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
@@ -54,16 +52,9 @@ public class TypeHandlerScanner {
     private ResourcePatternResolver resourcePatternResolver = new PathMatchingResourcePatternResolver();
     private MetadataReaderFactory metadataReaderFactory = new CachingMetadataReaderFactory(this.resourcePatternResolver);
     private final List<TypeFilter> includeFilters = new LinkedList<>();
-    private final ClassPool pool;
 
     public TypeHandlerScanner() {
         this.includeFilters.add(new AssignableTypeFilter(Codeable.class));
-        ClassPool parent = ClassPool.getDefault();
-        ClassPool child = new ClassPool(parent);
-        child.appendClassPath(new LoaderClassPath(TypeHandlerScanner.class.getClassLoader()));
-        child.appendSystemPath();
-        child.childFirstLookup = true;
-        pool = child;
     }
 
     /**
@@ -102,31 +93,16 @@ public class TypeHandlerScanner {
         return typeHandlers;
     }
 
+    @SuppressWarnings({"unchecked", "rawtypes"})
     private TypeHandler<?> getTypeHandlerInstance(String enumClass) {
         try {
             Class<?> enumClazz = ClassUtils.forName(enumClass, Thread.currentThread().getContextClassLoader());
+            if (!enumClazz.isEnum()) {
+                return null;
+            }
 
-            //创建一个TypeHandler类
-            CtClass typeHandler = pool.makeClass(enumClazz.getSimpleName() + "$TypeHandler$" + System.currentTimeMillis());
-            //添加EnumCodeTypeHandler父类(不包含泛型)
-            CtClass enumCodeTypeHandler = pool.get(AbstractEnumCodeTypeHandler.class.getName());
-            typeHandler.setSuperclass(enumCodeTypeHandler);
-
-            //创建构造器
-            CtConstructor constructor = new CtConstructor(null, typeHandler);
-            constructor.setModifiers(Modifier.PUBLIC);
-            constructor.setBody("{super(" + enumClass + ".class);}");
-            typeHandler.addConstructor(constructor);
-
-            // 另取捷径,设置rawType的值
-            // mybatis中,最后需要rawType(即枚举的类型)与handler对应
-            Class<?> clazz = typeHandler.toClass();
-            TypeHandler<?> handler = (TypeHandler<?>) clazz.newInstance();
-            Field field = clazz.getSuperclass().getSuperclass().getSuperclass().getDeclaredField("rawType");
-            field.setAccessible(true);
-            field.set(handler, enumClazz);
-
-            return handler;
+            // 构造时即建立code到枚举的映射
+            return new EnumCodeTypeHandler(enumClazz);
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
         }
@@ -29,7 +29,8 @@ public enum DbType {
     /**
      * 数据库类型
      */
-    DB_ORACLE("O", "Oracle"), DB_MYSQL("M", "MySQL"), DB_HSQL("H", "HSQL Database Engine"), DB_SQL_SERVER("S", "SqlServer");
+    DB_ORACLE("O", "Oracle"), DB_MYSQL("M", "MySQL"), DB_HSQL("H", "HSQL Database Engine"), DB_SQL_SERVER("S", "SqlServer"),
+    DB_POSTGRESQL("P", "PostgreSQL"), DB_H2("H2", "H2");
 
     /**
      * DbType
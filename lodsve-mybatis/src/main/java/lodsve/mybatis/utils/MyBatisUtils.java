@@ -20,6 +20,7 @@ package lodsve.mybatis.utils;
 import lodsve.mybatis.dialect.*;
 import lodsve.mybatis.exception.MyBatisException;
 import lodsve.mybatis.query.NativeSqlQuery;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.SystemMetaObject;
 import org.slf4j.Logger;
@@ -27,8 +28,14 @@ import org.slf4j.LoggerFactory;
 import org.springframework.util.Assert;
 
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * MyBatis utils.
@@ -38,6 +45,8 @@ import java.lang.reflect.Proxy;
  */
 public final class MyBatisUtils {
     private static final Logger logger = LoggerFactory.getLogger(MyBatisUtils.class);
+    private static final String MYSQL_PRODUCT_NAME = "MySQL";
+    private static final String MARIADB_PRODUCT_NAME = "MariaDB";
     private static DbType dbType;
     public static Method method;
 
@@ -90,6 +99,9 @@ public final class MyBatisUtils {
                 return new OracleDialect();
             case DB_SQL_SERVER:
                 return new SqlServerDialect();
+            case DB_POSTGRESQL:
+            case DB_H2:
+                return new AnsiDialect();
             default:
                 return new MySqlDialect();
         }
@@ -135,6 +147,54 @@ public final class MyBatisUtils {
         return (T) metaObject.getValue(fieldName);
     }
 
+    /**
+     * 获取游标查询使用的fetchSize，MySQL驱动默认会一次读取全部结果，需要使用{@link Integer#MIN_VALUE}开启流式读取.<br/>
+     * 使用启动时确定的{@link DbType}判断数据库，不获取连接的元数据(读写分离时获取元数据会强制使用主库)
+     *
+     * @param fetchSize 其他数据库使用的fetchSize
+     * @return fetchSize
+     */
+    public static int getStreamingFetchSize(int fetchSize) {
+        return dbType == DbType.DB_MYSQL ? Integer.MIN_VALUE : fetchSize;
+    }
+
+    /**
+     * 获取直接使用JDBC查询时的fetchSize，按连接的数据库产品名判断是否为MySQL
+     *
+     * @param connection 数据库连接
+     * @param fetchSize  其他数据库使用的fetchSize
+     * @return fetchSize
+     * @throws SQLException 获取数据库信息失败
+     * @see #getStreamingFetchSize(int)
+     */
+    public static int getStreamingFetchSize(Connection connection, int fetchSize) throws SQLException {
+        String productName = connection.getMetaData().getDatabaseProductName();
+        if (productName != null && (productName.contains(MYSQL_PRODUCT_NAME) || productName.contains(MARIADB_PRODUCT_NAME))) {
+            return Integer.MIN_VALUE;
+        }
+
+        return fetchSize;
+    }
+
+    /**
+     * 将游标转换为Stream，关闭Stream时同时关闭游标
+     *
+     * @param cursor 游标
+     * @param <T>    元素类型
+     * @return Stream
+     */
+    public static <T> Stream<T> stream(Cursor<T> cursor) {
+        Assert.notNull(cursor, "cursor must be non-null!");
+
+        return StreamSupport.stream(cursor.spliterator(), false).onClose(() -> {
+            try {
+                cursor.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
     /**
      * <p>Recursive get the original target object.
      * <p>If integrate more than a plugin, maybe there are conflict in these plugins, because plugin will proxy the object.<br>
@@ -17,18 +17,28 @@
 
 package lodsve.mybatis.utils;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import lodsve.core.utils.StringUtils;
 import lodsve.mybatis.dialect.Dialect;
+import lodsve.mybatis.dialect.KeysetSql;
+import lodsve.mybatis.dialect.PageSql;
+import lodsve.mybatis.plugins.pagination.TotalCountCache;
 import lodsve.mybatis.query.MyBatisSqlQuery;
 import org.apache.ibatis.binding.MapperMethod;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.MappedStatement.Builder;
 import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.type.TypeHandlerRegistry;
 import org.springframework.data.domain.Sort;
 import org.springframework.util.Assert;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.regex.Pattern;
@@ -41,6 +51,12 @@ import java.util.regex.Pattern;
  */
 public class PaginationUtils {
     private static final Pattern ORDER_BY = Pattern.compile(".*order\\s+by\\s+.*", Pattern.CASE_INSENSITIVE);
+    private static final int COUNT_SQL_CACHE_SIZE = 1000;
+    private static final String APPENDED_PARAMETER_PREFIX = "__appended_";
+    /**
+     * 原始sql -> count sql，避免每次分页都解析sql
+     */
+    private static final Cache<String, String> COUNT_SQL_CACHE = CacheBuilder.newBuilder().maximumSize(COUNT_SQL_CACHE_SIZE).build();
 
     private PaginationUtils() {
     }
@@ -78,16 +94,132 @@ public class PaginationUtils {
     }
 
     public static int queryForTotal(String sql, MappedStatement mappedStatement, BoundSql boundSql) throws Exception {
+        return queryForTotal(sql, mappedStatement, boundSql, null);
+    }
+
+    /**
+     * 查询总数
+     *
+     * @param sql             原始sql
+     * @param mappedStatement MappedStatement
+     * @param boundSql        BoundSql
+     * @param totalCountCache 总数缓存，为null则不缓存
+     * @return 总数
+     * @throws Exception 查询异常
+     */
+    public static int queryForTotal(String sql, MappedStatement mappedStatement, BoundSql boundSql, TotalCountCache totalCountCache) throws Exception {
         if (StringUtils.isEmpty(sql)) {
             return 0;
         }
 
+        String totalSql = getCountSql(sql);
+        BoundSql countBoundSql = copyFromBoundSql(mappedStatement, boundSql, totalSql);
+
+        List<Object> cacheKey = null;
+        if (totalCountCache != null) {
+            cacheKey = getParameterValues(mappedStatement, countBoundSql);
+            cacheKey.add(0, totalSql);
+
+            Integer total = totalCountCache.get(cacheKey);
+            if (total != null) {
+                return total;
+            }
+        }
+
+        int total;
         try (MyBatisSqlQuery query = new MyBatisSqlQuery(mappedStatement)) {
-            Dialect dialect = MyBatisUtils.getDialect();
-            String totalSql = dialect.getCountSql(sql);
-            BoundSql countBoundSql = copyFromBoundSql(mappedStatement, boundSql, totalSql);
-            return query.queryForInt(countBoundSql);
+            total = query.queryForInt(countBoundSql);
+        }
+
+        if (totalCountCache != null) {
+            totalCountCache.put(cacheKey, total);
+        }
+        return total;
+    }
+
+    /**
+     * 获取count语句，同一条sql只会解析一次
+     *
+     * @param sql 原始sql
+     * @return count语句
+     */
+    public static String getCountSql(String sql) {
+        String countSql = COUNT_SQL_CACHE.getIfPresent(sql);
+        if (countSql == null) {
+            countSql = MyBatisUtils.getDialect().getCountSql(sql);
+            COUNT_SQL_CACHE.put(sql, countSql);
+        }
+        return countSql;
+    }
+
+    /**
+     * 按顺序获取sql中绑定的参数值，取值方式与{@link org.apache.ibatis.scripting.defaults.DefaultParameterHandler}相同
+     *
+     * @param ms       MappedStatement
+     * @param boundSql BoundSql
+     * @return 参数值
+     */
+    private static List<Object> getParameterValues(MappedStatement ms, BoundSql boundSql) {
+        List<ParameterMapping> mappings = boundSql.getParameterMappings();
+        List<Object> values = new ArrayList<>(mappings.size() + 1);
+        Object parameterObject = boundSql.getParameterObject();
+        TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration().getTypeHandlerRegistry();
+        MetaObject metaObject = null;
+
+        for (ParameterMapping mapping : mappings) {
+            if (mapping.getMode() == ParameterMode.OUT) {
+                continue;
+            }
+
+            String property = mapping.getProperty();
+            Object value;
+            if (boundSql.hasAdditionalParameter(property)) {
+                value = boundSql.getAdditionalParameter(property);
+            } else if (parameterObject == null) {
+                value = null;
+            } else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
+                value = parameterObject;
+            } else {
+                if (metaObject == null) {
+                    metaObject = ms.getConfiguration().newMetaObject(parameterObject);
+                }
+                value = metaObject.getValue(property);
+            }
+            values.add(value);
         }
+
+        return values;
+    }
+
+    /**
+     * keyset分页的sql
+     *
+     * @param sql   原sql
+     * @param sort  排序字段
+     * @param seek  是否从上一页最后一条记录之后开始查询
+     * @param limit 数量
+     * @return keyset分页的sql
+     */
+    public static KeysetSql getKeysetPageSql(String sql, Sort sort, boolean seek, int limit) {
+        Assert.hasText(sql, "sql is required!");
+
+        Dialect dialect = MyBatisUtils.getDialect();
+        return dialect.getKeysetPageSql(sql, sort, seek, limit);
+    }
+
+    /**
+     * 使用占位符的分页sql
+     *
+     * @param sql   原sql
+     * @param start 偏移量
+     * @param num   数量
+     * @return 分页的sql及追加的参数
+     */
+    public static PageSql getParameterizedPageSql(String sql, int start, int num) {
+        Assert.hasText(sql, "sql is required!");
+
+        Dialect dialect = MyBatisUtils.getDialect();
+        return dialect.getParameterizedPageSql(sql, start, num);
     }
 
     public static String getPageSql(String sql, int start, int num) {
@@ -103,22 +235,76 @@ public class PaginationUtils {
         return copyFromMappedStatement(ms, new BoundSqlSqlSource(newBoundSql));
     }
 
+    /**
+     * 使用新的sql复制MappedStatement，新sql在原有参数之后追加了占位符
+     *
+     * @param ms                 MappedStatement
+     * @param boundSql           原BoundSql
+     * @param sql                新的sql
+     * @param appendedParameters 追加的占位符依次对应的参数值
+     * @return MappedStatement
+     */
+    public static MappedStatement copyFromNewSql(MappedStatement ms, BoundSql boundSql, String sql, List<Object> appendedParameters) {
+        List<ParameterMapping> mappings = new ArrayList<>(boundSql.getParameterMappings());
+        for (int i = 0; i < appendedParameters.size(); i++) {
+            mappings.add(new ParameterMapping.Builder(ms.getConfiguration(), APPENDED_PARAMETER_PREFIX + i, Object.class).build());
+        }
+
+        BoundSql newBoundSql = new BoundSql(ms.getConfiguration(), sql, mappings, boundSql.getParameterObject());
+        copyAdditionalParameters(boundSql, newBoundSql);
+        for (int i = 0; i < appendedParameters.size(); i++) {
+            newBoundSql.setAdditionalParameter(APPENDED_PARAMETER_PREFIX + i, appendedParameters.get(i));
+        }
+
+        return copyFromMappedStatement(ms, new BoundSqlSqlSource(newBoundSql));
+    }
+
     private static BoundSql copyFromBoundSql(MappedStatement ms, BoundSql boundSql, String sql) {
         BoundSql newBoundSql = new BoundSql(ms.getConfiguration(), sql, boundSql.getParameterMappings(), boundSql.getParameterObject());
-        for (ParameterMapping mapping : boundSql.getParameterMappings()) {
+        copyAdditionalParameters(boundSql, newBoundSql);
+        return newBoundSql;
+    }
+
+    private static void copyAdditionalParameters(BoundSql source, BoundSql target) {
+        for (ParameterMapping mapping : source.getParameterMappings()) {
             String prop = mapping.getProperty();
-            if (boundSql.hasAdditionalParameter(prop)) {
-                newBoundSql.setAdditionalParameter(prop, boundSql.getAdditionalParameter(prop));
+            if (source.hasAdditionalParameter(prop)) {
+                target.setAdditionalParameter(prop, source.getAdditionalParameter(prop));
             }
         }
-        return newBoundSql;
+    }
+
+    /**
+     * 使用新的fetchSize复制MappedStatement
+     *
+     * @param ms        MappedStatement
+     * @param fetchSize fetchSize
+     * @return MappedStatement
+     */
+    public static MappedStatement copyWithFetchSize(MappedStatement ms, int fetchSize) {
+        return copyFromMappedStatement(ms, ms.getSqlSource(), fetchSize);
+    }
+
+    /**
+     * 复制MappedStatement并使用新的SqlSource
+     *
+     * @param ms        原MappedStatement
+     * @param sqlSource 新的SqlSource
+     * @return 新的MappedStatement
+     */
+    public static MappedStatement copyWithSqlSource(MappedStatement ms, SqlSource sqlSource) {
+        return copyFromMappedStatement(ms, sqlSource);
     }
 
     private static MappedStatement copyFromMappedStatement(MappedStatement ms, SqlSource newSqlSource) {
+        return copyFromMappedStatement(ms, newSqlSource, ms.getFetchSize());
+    }
+
+    private static MappedStatement copyFromMappedStatement(MappedStatement ms, SqlSource newSqlSource, Integer fetchSize) {
         Builder builder = new Builder(ms.getConfiguration(), ms.getId(), newSqlSource, ms.getSqlCommandType());
 
         builder.resource(ms.getResource());
-        builder.fetchSize(ms.getFetchSize());
+        builder.fetchSize(fetchSize);
         builder.statementType(ms.getStatementType());
         builder.keyGenerator(ms.getKeyGenerator());
         if (ms.getKeyProperties() != null && ms.getKeyProperties().length != 0) {
@@ -174,6 +360,17 @@ public class PaginationUtils {
             builder.append(", ");
         }
 
+        return builder.append(getOrderBySql(sort)).toString();
+    }
+
+    /**
+     * 排序语句(不含order by关键字)，如：id desc, name asc
+     *
+     * @param sort 排序
+     * @return 排序语句
+     */
+    public static String getOrderBySql(Sort sort) {
+        StringBuilder builder = new StringBuilder();
         for (Sort.Order order : sort) {
             builder.append(getOrderClause(order)).append(", ");
         }
@@ -184,10 +381,18 @@ public class PaginationUtils {
     }
 
     private static String getOrderClause(Sort.Order order) {
-        String property = order.getProperty();
-        String wrapped = order.isIgnoreCase() ? String.format("lower(%s)", property) : property;
+        return String.format("%s %s", getSortExpression(order), toSqlDirection(order));
+    }
 
-        return String.format("%s %s", wrapped, toSqlDirection(order));
+    /**
+     * 排序字段的表达式，忽略大小写时为lower(字段)
+     *
+     * @param order 排序
+     * @return 排序字段的表达式
+     */
+    public static String getSortExpression(Sort.Order order) {
+        String property = order.getProperty();
+        return order.isIgnoreCase() ? String.format("lower(%s)", property) : property;
     }
 
     private static String toSqlDirection(Sort.Order order) {
@@ -23,6 +23,8 @@ import lodsve.mybatis.utils.format.SqlFormatter;
 import net.sf.jsqlparser.expression.Alias;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.Function;
+import net.sf.jsqlparser.expression.Parenthesis;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.statement.Statement;
@@ -31,6 +33,7 @@ import org.springframework.lang.NonNull;
 import org.springframework.util.CollectionUtils;
 
 import java.util.*;
+import java.util.regex.Pattern;
 
 /**
  * sql utils.
@@ -40,6 +43,9 @@ import java.util.*;
  */
 public final class SqlUtils {
     private final static SqlFormatter SQL_FORMATTER = new SqlFormatter();
+    private final static Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+");
+    private final static Pattern PARENTHESES_PATTERN = Pattern.compile("\\([^()]*\\)");
+    private final static Pattern ORDER_BY_PATTERN = Pattern.compile(".*\\border\\s+by\\s+.*", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
     public static final String KEEP_ORDER_BY = "/*keep orderby*/";
     private static final Alias TABLE_ALIAS;
 
@@ -103,7 +109,7 @@ public final class SqlUtils {
         if (format) {
             return SQL_FORMATTER.format(boundSql);
         } else {
-            return boundSql.replaceAll("[\\s]+", " ");
+            return WHITESPACE_PATTERN.matcher(boundSql).replaceAll(" ");
         }
     }
 
@@ -168,6 +174,103 @@ public final class SqlUtils {
         return select.toString();
     }
 
+    /**
+     * 去掉最外层的order by(order by中含有参数时不去掉)，无法解析或以{@link #KEEP_ORDER_BY}开头的sql原样返回
+     *
+     * @param sql 原始sql
+     * @return 去掉order by后的sql
+     */
+    public static String removeOrderBy(@NonNull String sql) {
+        if (sql.startsWith(KEEP_ORDER_BY)) {
+            return sql;
+        }
+
+        Select select;
+        try {
+            select = (Select) CCJSqlParserUtil.parse(sql);
+        } catch (Throwable e) {
+            return sql;
+        }
+
+        SelectBody selectBody = select.getSelectBody();
+        if (selectBody instanceof PlainSelect && orderByHashParameters(((PlainSelect) selectBody).getOrderByElements())) {
+            ((PlainSelect) selectBody).setOrderByElements(null);
+        } else if (selectBody instanceof SetOperationList && orderByHashParameters(((SetOperationList) selectBody).getOrderByElements())) {
+            ((SetOperationList) selectBody).setOrderByElements(null);
+        }
+
+        return select.toString();
+    }
+
+    /**
+     * 在最外层的查询中追加条件(AND)并替换排序，新增的占位符都在原sql的占位符之后.<br/>
+     * 无法解析、以{@link #KEEP_ORDER_BY}开头、不是简单查询(集合运算、GROUP BY、HAVING、已有分页、FOR UPDATE)或者原排序中含有参数时返回null
+     *
+     * @param sql       原始sql
+     * @param condition 追加的条件，为null时不追加
+     * @param orderBy   新的排序(不含order by关键字)
+     * @return 改写后的sql，无法改写时返回null
+     */
+    public static String addConditionAndOrderBy(@NonNull String sql, String condition, @NonNull String orderBy) {
+        if (sql.startsWith(KEEP_ORDER_BY)) {
+            return null;
+        }
+
+        try {
+            Select select = (Select) CCJSqlParserUtil.parse(sql);
+            if (!(select.getSelectBody() instanceof PlainSelect)) {
+                return null;
+            }
+
+            PlainSelect plainSelect = (PlainSelect) select.getSelectBody();
+            if (plainSelect.getGroupByColumnReferences() != null || plainSelect.getHaving() != null || plainSelect.getLimit() != null
+                    || plainSelect.getOffset() != null || plainSelect.getFetch() != null || plainSelect.getTop() != null
+                    || plainSelect.isForUpdate() || !orderByHashParameters(plainSelect.getOrderByElements())) {
+                return null;
+            }
+
+            if (condition != null) {
+                Expression expression = CCJSqlParserUtil.parseCondExpression(condition);
+                plainSelect.setWhere(plainSelect.getWhere() == null ? expression : new AndExpression(new Parenthesis(plainSelect.getWhere()), expression));
+            }
+            PlainSelect ordered = (PlainSelect) ((Select) CCJSqlParserUtil.parse("SELECT 1 FROM t ORDER BY " + orderBy)).getSelectBody();
+            plainSelect.setOrderByElements(ordered.getOrderByElements());
+
+            return select.toString();
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * 最外层是否有order by，子查询、开窗函数中的order by不算；无法解析时去掉所有括号中的内容后再判断
+     *
+     * @param sql 原始sql
+     * @return 最外层有order by返回true
+     */
+    public static boolean hasOrderBy(@NonNull String sql) {
+        Select select;
+        try {
+            select = (Select) CCJSqlParserUtil.parse(sql);
+        } catch (Throwable e) {
+            String topLevel = sql;
+            for (String previous = null; !topLevel.equals(previous); ) {
+                previous = topLevel;
+                topLevel = PARENTHESES_PATTERN.matcher(topLevel).replaceAll(" ");
+            }
+            return ORDER_BY_PATTERN.matcher(topLevel).matches();
+        }
+
+        SelectBody selectBody = select.getSelectBody();
+        if (selectBody instanceof PlainSelect) {
+            return !CollectionUtils.isEmpty(((PlainSelect) selectBody).getOrderByElements());
+        } else if (selectBody instanceof SetOperationList) {
+            return !CollectionUtils.isEmpty(((SetOperationList) selectBody).getOrderByElements());
+        }
+
+        return false;
+    }
+
     /**
      * 获取普通的Count-sql
      *
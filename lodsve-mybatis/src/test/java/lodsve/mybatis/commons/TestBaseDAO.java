@@ -17,6 +17,7 @@
 package lodsve.mybatis.commons;
 
 import lodsve.mybatis.repository.helper.MapperHelper;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.SelectProvider;
 
 import java.util.List;
@@ -30,4 +31,7 @@ public interface TestBaseDAO<T> {
 
     @SelectProvider(type = TestBaseDaoMapperProvider.class, method = MapperHelper.PROVIDER_METHOD_NAME)
     List<T> listAll();
+
+    @SelectProvider(type = TestBaseDaoMapperProvider.class, method = MapperHelper.PROVIDER_METHOD_NAME)
+    int countBy(@Param("enabled") Integer enabled);
 }
@@ -21,6 +21,8 @@ import lodsve.mybatis.repository.helper.EntityHelper;
 import lodsve.mybatis.repository.provider.BaseMapperProvider;
 import org.apache.ibatis.mapping.MappedStatement;
 
+import java.util.Map;
+
 /**
  * .
  *
@@ -36,4 +38,11 @@ public class TestBaseDaoMapperProvider extends BaseMapperProvider {
 
         return "SELECT * FROM " + table.getName();
     }
+
+    public String countBy(MappedStatement ms, Object parameter) {
+        EntityTable table = EntityHelper.getEntityTable(getSelectReturnType(ms));
+        Object enabled = ((Map<?, ?>) parameter).get("enabled");
+
+        return "SELECT COUNT(*) FROM " + table.getName() + (enabled == null ? "" : " WHERE enabled = #{enabled}");
+    }
 }
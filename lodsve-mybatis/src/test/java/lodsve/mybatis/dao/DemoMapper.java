@@ -22,6 +22,7 @@ import lodsve.mybatis.repository.BaseRepository;
 import org.apache.ibatis.annotations.Param;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 /**
  * .
@@ -32,6 +33,8 @@ import org.springframework.data.domain.Pageable;
 public interface DemoMapper extends BaseRepository<Demo>, TestBaseDAO<Demo> {
     Page<Demo> list(Pageable pageable, @Param("name") String name, @Param("id") Integer id);
 
+    Page<Demo> listSorted(Pageable pageable, Sort sort, @Param("name") String name, @Param("id") Integer id);
+
     boolean logicDelete2(@Param("id") Long id, @Param("value") Integer value);
 
     boolean updateNameById(@Param("id") Long id, @Param("name") String name);
@@ -20,7 +20,26 @@ import com.google.common.collect.Lists;
 import lodsve.mybatis.dao.DemoMapper;
 import lodsve.mybatis.domain.Demo;
 import lodsve.mybatis.domain.Sex;
+import lodsve.mybatis.exception.MyBatisException;
+import lodsve.mybatis.exception.OptimisticLockException;
+import lodsve.mybatis.plugins.monitor.MonitorInterceptor;
+import lodsve.mybatis.plugins.monitor.SqlStatistics;
+import lodsve.mybatis.plugins.pagination.KeysetPageRequest;
+import lodsve.mybatis.plugins.pagination.NoCountPageRequest;
+import lodsve.mybatis.plugins.repository.BaseRepositoryInterceptor;
+import lodsve.mybatis.query.NativeSqlQuery;
+import lodsve.mybatis.repository.bean.EntityTable;
+import lodsve.mybatis.repository.helper.EntityHelper;
+import lodsve.mybatis.utils.MyBatisUtils;
+import org.apache.ibatis.builder.annotation.ProviderSqlSource;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.plugin.Invocation;
 import org.hamcrest.Description;
 import org.hamcrest.TypeSafeMatcher;
 import org.junit.*;
@@ -31,8 +50,12 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 
 import javax.persistence.NoResultException;
+import java.lang.reflect.Proxy;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * .
@@ -320,8 +343,17 @@ public class BaseDAOTest extends BaseTest {
             demos.add(demo);
         }
 
+        MonitorInterceptor monitor = (MonitorInterceptor) session.getConfiguration().getInterceptors().stream()
+                .filter(i -> i instanceof MonitorInterceptor).findFirst().orElseThrow(IllegalStateException::new);
+        String id = DemoMapper.class.getName() + ".batchSave";
+        SqlStatistics before = monitor.getStatistics(id);
+        long count = before == null ? 0 : before.getHistogram().getCount();
+
         int result = demoMapper.batchSave(demos);
         Assert.assertEquals(5, result);
+        demos.forEach(d -> Assert.assertNotNull(d.getId()));
+        // 批处理执行器同样经过插件，但耗时已计入外层调用，只记录一次
+        Assert.assertEquals(count + 1, monitor.getStatistics(id).getHistogram().getCount());
     }
 
     /**
@@ -363,4 +395,231 @@ public class BaseDAOTest extends BaseTest {
         List<Demo> demos = demoMapper.listAll();
         Assert.assertTrue(0 < demos.size());
     }
+
+    @Test
+    public void test17_sqlSourceResolvedOnce() {
+        MappedStatement ms = session.getConfiguration().getMappedStatement(DemoMapper.class.getName() + ".findById");
+        Assert.assertFalse(ms.getSqlSource() instanceof ProviderSqlSource);
+
+        SqlSource sqlSource = ms.getSqlSource();
+        demoMapper.findById(1L);
+        Assert.assertSame(sqlSource, ms.getSqlSource());
+
+        // 依赖参数的方法每次按参数生成，不会固定为第一次调用时的SQL
+        int total = demoMapper.countBy(null);
+        int enabled = demoMapper.countBy(1);
+        Assert.assertTrue(enabled < total);
+        Assert.assertEquals(total, demoMapper.countBy(null));
+        Assert.assertTrue(session.getConfiguration().getMappedStatement(DemoMapper.class.getName() + ".countBy").getSqlSource() instanceof ProviderSqlSource);
+    }
+
+    @Test
+    public void test18_NoCountPagination() {
+        Sort sort = new Sort(Sort.Direction.DESC, "id");
+        long total = demoMapper.list(new PageRequest(0, 10, sort), "root", 0).getTotalElements();
+        int lastPage = (int) ((total - 1) / 10);
+
+        Page<Demo> first = demoMapper.list(new NoCountPageRequest(0, 10, sort), "root", 0);
+        Assert.assertEquals(10, first.getNumberOfElements());
+        Assert.assertTrue(first.hasNext());
+
+        Page<Demo> last = demoMapper.list(new NoCountPageRequest(lastPage, 10, sort), "root", 0);
+        Assert.assertEquals(total - lastPage * 10, last.getNumberOfElements());
+        Assert.assertFalse(last.hasNext());
+
+        // 最后一页不执行count语句，总数由偏移量计算
+        Page<Demo> page = demoMapper.list(new PageRequest(lastPage, 10, sort), "root", 0);
+        Assert.assertEquals(total, page.getTotalElements());
+    }
+
+    @Test
+    public void test19_KeysetPagination() {
+        Sort sort = new Sort(Sort.Direction.DESC, "id");
+        List<Demo> expected = demoMapper.list(new PageRequest(0, 100, sort), "root", 0).getContent();
+
+        List<Long> ids = Lists.newArrayList();
+        KeysetPageRequest request = new KeysetPageRequest(10, sort);
+        Page<Demo> page = demoMapper.list(request, "root", 0);
+        page.forEach(d -> ids.add(d.getId()));
+        while (page.hasNext()) {
+            Demo last = page.getContent().get(page.getNumberOfElements() - 1);
+            request = request.next(last.getId());
+            page = demoMapper.list(request, "root", 0);
+            page.forEach(d -> ids.add(d.getId()));
+        }
+
+        Assert.assertEquals(expected.stream().map(Demo::getId).collect(Collectors.toList()), ids);
+
+        // 返回的Page记录了最后一条记录的排序字段值，nextPageable()直接得到下一页
+        List<Long> nextIds = Lists.newArrayList();
+        page = demoMapper.list(new KeysetPageRequest(10, sort), "root", 0);
+        page.forEach(d -> nextIds.add(d.getId()));
+        while (page.hasNext()) {
+            page = demoMapper.list(page.nextPageable(), "root", 0);
+            page.forEach(d -> nextIds.add(d.getId()));
+        }
+        Assert.assertEquals(ids, nextIds);
+
+        // 排序与KeysetPageRequest中的不一致
+        Assert.assertEquals(10, demoMapper.listSorted(new KeysetPageRequest(10, sort), sort, "root", 0).getNumberOfElements());
+        try {
+            demoMapper.listSorted(new KeysetPageRequest(10, sort), new Sort(Sort.Direction.ASC, "id"), "root", 0);
+            Assert.fail("expects MyBatisException");
+        } catch (PersistenceException e) {
+            Assert.assertTrue(e.getCause() instanceof MyBatisException);
+        }
+    }
+
+    @Test
+    public void test20_BatchUpdate() {
+        // 乐观锁查询当前version使用的是另一个连接，需要先提交之前的修改
+        session.commit();
+        List<Demo> demos = demoMapper.list(new PageRequest(0, 5, new Sort(Sort.Direction.ASC, "id")), "root", 0).getContent();
+        demos.forEach(d -> d.setPwd("batch-" + d.getId()));
+        List<Integer> versions = demos.stream().map(Demo::getVersion).collect(Collectors.toList());
+
+        int result = demoMapper.batchUpdate(demos);
+        Assert.assertEquals(demos.size(), result);
+        for (int i = 0; i < demos.size(); i++) {
+            Demo demo = demos.get(i);
+            Assert.assertEquals("batch-" + demo.getId(), demoMapper.findById(demo.getId()).getPwd());
+            // 批量更新同样递增实体的版本号
+            Assert.assertEquals(Integer.valueOf(versions.get(i) + 1), demo.getVersion());
+        }
+
+        Demo stale = demos.get(0);
+        stale.setVersion(versions.get(0));
+        try {
+            demoMapper.batchUpdate(Lists.newArrayList(stale));
+            Assert.fail("expects OptimisticLockException");
+        } catch (PersistenceException e) {
+            Assert.assertTrue(e.getCause() instanceof OptimisticLockException);
+            Assert.assertEquals(stale.getId(), ((OptimisticLockException) e.getCause()).getId());
+        }
+    }
+
+    @Test
+    public void test20_BatchUpdateCache() {
+        MappedStatement ms = session.getConfiguration().getMappedStatement(DemoMapper.class.getName() + ".batchUpdate");
+        Cache cache = new PerpetualCache(DemoMapper.class.getName());
+        MyBatisUtils.setValue(ms, "cache", cache);
+        try {
+            cache.putObject("stale", new Demo());
+            Demo demo = demoMapper.findById(2L);
+            demo.setPwd("batch-cache");
+            Assert.assertEquals(1, demoMapper.batchUpdate(Lists.newArrayList(demo)));
+            // 批量更新后Mapper的二级缓存失效
+            Assert.assertNull(cache.getObject("stale"));
+        } finally {
+            MyBatisUtils.setValue(ms, "cache", null);
+        }
+    }
+
+    @Test
+    public void test21_Monitor() {
+        MonitorInterceptor monitor = (MonitorInterceptor) session.getConfiguration().getInterceptors().stream()
+                .filter(i -> i instanceof MonitorInterceptor).findFirst().orElseThrow(IllegalStateException::new);
+        String id = DemoMapper.class.getName() + ".findById";
+        SqlStatistics before = monitor.getStatistics(id);
+        long count = before == null ? 0 : before.getHistogram().getCount();
+
+        demoMapper.findById(2L);
+        demoMapper.findById(3L);
+
+        Assert.assertEquals(count + 2, monitor.getStatistics(id).getHistogram().getCount());
+        List<SqlStatistics> slowest = monitor.getSlowestStatements(3);
+        Assert.assertTrue(slowest.size() <= 3 && !slowest.isEmpty());
+        for (int i = 1; i < slowest.size(); i++) {
+            Assert.assertTrue(slowest.get(i - 1).getHistogram().getPercentileNanos(99) >= slowest.get(i).getHistogram().getPercentileNanos(99));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void test21_MonitorThrowOnSlow() throws Throwable {
+        MonitorInterceptor monitor = new MonitorInterceptor();
+        monitor.setMaxTime(1);
+        monitor.setWriteInLog(false);
+
+        MappedStatement ms = session.getConfiguration().getMappedStatement(DemoMapper.class.getName() + ".count");
+        Executor executor = (Executor) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Executor.class}, (proxy, method, args) -> {
+            Thread.sleep(20);
+            return 1;
+        });
+        Invocation invocation = new Invocation(executor, Executor.class.getMethod("update", MappedStatement.class, Object.class), new Object[]{ms, null});
+
+        thrown.expect(MyBatisException.class);
+        try {
+            monitor.intercept(invocation);
+        } finally {
+            Assert.assertEquals(1, monitor.getStatistics(ms.getId()).getHistogram().getCount());
+        }
+    }
+
+    @Test
+    public void test22_Cursor() throws Exception {
+        int total = demoMapper.count();
+        try (Cursor<Demo> cursor = demoMapper.cursorAll()) {
+            // 全局配置了defaultFetchSize，不使用插件的cursorFetchSize
+            Assert.assertEquals(Integer.valueOf(50), MyBatisUtils.getValue(cursor, "rsw.resultSet.statement.fetchSize"));
+            int rows = 0;
+            for (Demo demo : cursor) {
+                Assert.assertNotNull(demo.getId());
+                rows++;
+            }
+            Assert.assertEquals(total, rows);
+        }
+
+        try (Stream<Demo> stream = MyBatisUtils.stream(demoMapper.cursorByIds(Lists.newArrayList(2L, 3L)))) {
+            Assert.assertEquals(Lists.newArrayList(2L, 3L), stream.map(Demo::getId).sorted().collect(Collectors.toList()));
+        }
+
+        // 数据库类型为MySQL时使用流式读取
+        Assert.assertEquals(Integer.MIN_VALUE, MyBatisUtils.getStreamingFetchSize(BaseRepositoryInterceptor.DEFAULT_CURSOR_FETCH_SIZE));
+
+        AtomicInteger rows = new AtomicInteger();
+        try (NativeSqlQuery query = new NativeSqlQuery(session.getConfiguration().getEnvironment().getDataSource())) {
+            query.setFetchSize(2);
+            Assert.assertEquals(total, query.queryForEach("SELECT id FROM t_demo", rs -> rows.incrementAndGet()));
+        }
+        Assert.assertEquals(total, rows.get());
+    }
+
+    @Test
+    public void test23_OptimisticLock() {
+        Demo demo = demoMapper.findById(4L);
+        Integer version = demo.getVersion();
+        demo.setPwd("lock");
+        Assert.assertEquals(1, demoMapper.update(demo));
+        Assert.assertEquals(Integer.valueOf(version + 1), demo.getVersion());
+
+        demo.setVersion(version);
+        try {
+            demoMapper.update(demo);
+            Assert.fail("expects OptimisticLockException");
+        } catch (PersistenceException e) {
+            Assert.assertTrue(e.getCause() instanceof OptimisticLockException);
+            OptimisticLockException lock = (OptimisticLockException) e.getCause();
+            Assert.assertEquals(0, lock.getAffectedRows());
+            Assert.assertEquals(4L, lock.getId());
+            Assert.assertEquals(version, lock.getVersion());
+        }
+    }
+
+    @Test
+    public void test24_EntityRegistry() {
+        EntityTable table = EntityHelper.findEntityTable(Demo.class);
+        Assert.assertNotNull(table);
+        Assert.assertSame(table, EntityHelper.getEntityTable(Demo.class));
+        Assert.assertNull(EntityHelper.findEntityTable(String.class));
+
+        Demo demo = demoMapper.findById(4L);
+        Assert.assertEquals(demo.getId(), table.getIdColumn().getValue(demo));
+        Assert.assertEquals(table.getVersionColumn().getColumn(), table.getColumn(table.getVersionColumn().getProperty()).getColumn());
+        try {
+            table.getColumns().clear();
+            Assert.fail("expects UnsupportedOperationException");
+        } catch (UnsupportedOperationException ignored) {
+        }
+    }
 }
@@ -16,6 +16,8 @@
  */
 package lodsve.mybatis.test;
 
+import lodsve.mybatis.repository.helper.EntityHelper;
+import lodsve.mybatis.repository.helper.MapperHelper;
 import lodsve.mybatis.utils.DbType;
 import lodsve.mybatis.utils.MyBatisUtils;
 import org.apache.ibatis.io.Resources;
@@ -49,6 +51,8 @@ public abstract class BaseTest {
             String configFile = "mybatis-config.xml";
             InputStream is = Resources.getResourceAsStream(configFile);
             SqlSessionFactory factory = new SqlSessionFactoryBuilder().build(is, DB_TYPE);
+            EntityHelper.registerEntities(factory.getConfiguration());
+            MapperHelper.resolveSqlSources(factory.getConfiguration());
             session = factory.openSession();
 
             Connection conn = session.getConnection();
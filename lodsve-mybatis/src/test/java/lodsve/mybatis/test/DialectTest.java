@@ -17,10 +17,23 @@
 package lodsve.mybatis.test;
 
 import com.google.common.collect.Lists;
+import lodsve.mybatis.dialect.AnsiDialect;
 import lodsve.mybatis.dialect.Dialect;
+import lodsve.mybatis.dialect.KeysetSql;
 import lodsve.mybatis.dialect.MySqlDialect;
+import lodsve.mybatis.dialect.OracleDialect;
+import lodsve.mybatis.dialect.PageSql;
+import lodsve.mybatis.dialect.SqlServerDialect;
+import lodsve.mybatis.exception.MyBatisException;
+import org.junit.Assert;
 import org.junit.Test;
+import org.springframework.data.domain.Sort;
 
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
 import java.util.List;
 
 /**
@@ -61,6 +74,125 @@ public class DialectTest {
         System.out.println(dialect.getCountSql(sql3));
     }
 
+    @Test
+    public void testGetKeysetPageSql() {
+        String sql = "select id, name, create_time from t_demo where sex = 1 order by name";
+
+        // 条件和排序直接加在原sql上
+        KeysetSql mysql = new MySqlDialect().getKeysetPageSql(sql, new Sort(Sort.Direction.ASC, "create_time", "id"), true, 10);
+        Assert.assertEquals("SELECT id, name, create_time FROM t_demo WHERE (sex = 1) AND (create_time, id) > (?, ?) ORDER BY create_time ASC, id ASC limit 10", mysql.getSql());
+        Assert.assertEquals(Lists.newArrayList(0, 1), mysql.getKeyIndexes());
+
+        Sort mixed = new Sort(Sort.Direction.DESC, "create_time").and(new Sort(Sort.Direction.ASC, "id"));
+        KeysetSql oracle = new OracleDialect().getKeysetPageSql(sql, mixed, true, 10);
+        Assert.assertTrue(oracle.getSql().contains("WHERE (sex = 1) AND ((create_time < ?) OR (create_time = ? AND id > ?))"));
+        Assert.assertEquals(Lists.newArrayList(0, 0, 1), oracle.getKeyIndexes());
+
+        KeysetSql first = new MySqlDialect().getKeysetPageSql(sql, mixed, false, 10);
+        Assert.assertEquals("SELECT id, name, create_time FROM t_demo WHERE sex = 1 ORDER BY create_time DESC, id ASC limit 10", first.getSql());
+        Assert.assertTrue(first.getKeyIndexes().isEmpty());
+
+        // 带表别名的排序字段
+        KeysetSql qualified = new MySqlDialect().getKeysetPageSql("select u.id, u.name from t_user u join t_dept d on u.dept_id = d.id where d.id = ?",
+                new Sort(Sort.Direction.DESC, "u.id"), true, 10);
+        Assert.assertEquals("SELECT u.id, u.name FROM t_user u JOIN t_dept d ON u.dept_id = d.id WHERE (d.id = ?) AND ((u.id < ?)) ORDER BY u.id DESC limit 10", qualified.getSql());
+
+        // 无法直接改写时包装为派生表，排序字段去掉限定名
+        KeysetSql grouped = new MySqlDialect().getKeysetPageSql("select u.dept_id, count(*) total from t_user u group by u.dept_id",
+                new Sort(Sort.Direction.ASC, "u.dept_id"), true, 10);
+        Assert.assertEquals("SELECT * FROM (select u.dept_id, count(*) total from t_user u group by u.dept_id) keyset_t WHERE ((dept_id > ?)) ORDER BY dept_id asc limit 10", grouped.getSql());
+        Assert.assertEquals(Lists.newArrayList(0), grouped.getKeyIndexes());
+    }
+
+    @Test
+    public void testSqlServerOrderBy() {
+        Dialect dialect = new SqlServerDialect();
+        String suffix = " OFFSET 0 ROWS FETCH NEXT 10 ROWS ONLY";
+
+        String ordered = "SELECT id, name FROM t_page ORDER BY id";
+        Assert.assertEquals(ordered + suffix, dialect.getPageSql(ordered, 0, 10));
+
+        // 子查询、开窗函数中的排序不是最外层的排序
+        String subQuery = "SELECT id FROM (SELECT TOP 10 id FROM t_page ORDER BY id) t";
+        Assert.assertEquals(subQuery + " ORDER BY (SELECT NULL)" + suffix, dialect.getPageSql(subQuery, 0, 10));
+        String window = "SELECT id, ROW_NUMBER() OVER (ORDER BY name) rn FROM t_page";
+        Assert.assertEquals(window + " ORDER BY (SELECT NULL)" + suffix, dialect.getPageSql(window, 0, 10));
+
+        // 派生表中不允许ORDER BY，排序中含有参数时无法去掉
+        Assert.assertFalse(dialect.getCountSql(ordered).contains("ORDER BY"));
+        String parameterized = "SELECT id, name FROM t_page ORDER BY CASE WHEN name = ? THEN 0 ELSE 1 END, id";
+        try {
+            dialect.getCountSql(parameterized);
+            Assert.fail();
+        } catch (MyBatisException e) {
+            Assert.assertEquals(Integer.valueOf(102006), e.getCode());
+        }
+        try {
+            dialect.getKeysetPageSql(parameterized, new Sort(Sort.Direction.ASC, "id"), true, 10);
+            Assert.fail();
+        } catch (MyBatisException e) {
+            Assert.assertEquals(Integer.valueOf(102006), e.getCode());
+        }
+    }
+
+    @Test
+    public void testAnsiPageSqlOnH2() throws Exception {
+        assertPageOnH2("Regular", new AnsiDialect());
+        assertPageOnH2("PostgreSQL", new AnsiDialect());
+        assertPageOnH2("MSSQLServer", new SqlServerDialect());
+    }
+
+    private void assertPageOnH2(String mode, Dialect dialect) throws Exception {
+        try (Connection conn = DriverManager.getConnection("jdbc:h2:mem:dialect_" + mode + ";MODE=" + mode, "sa", "")) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE t_page (id INT PRIMARY KEY, name VARCHAR(20))");
+                for (int i = 1; i <= 25; i++) {
+                    stmt.execute("INSERT INTO t_page VALUES (" + i + ", 'name" + i + "')");
+                }
+            }
+
+            String sql = "SELECT id, name FROM t_page WHERE id > ? ORDER BY id DESC";
+            PageSql pageSql = dialect.getParameterizedPageSql(sql, 10, 10);
+            Assert.assertEquals(pageSql.getSql(), dialect.getParameterizedPageSql(sql, 20, 10).getSql());
+
+            List<Integer> ids = Lists.newArrayList();
+            try (PreparedStatement ps = conn.prepareStatement(pageSql.getSql())) {
+                ps.setInt(1, 0);
+                for (int i = 0; i < pageSql.getParameters().size(); i++) {
+                    ps.setObject(i + 2, pageSql.getParameters().get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getInt(1));
+                    }
+                }
+            }
+            Assert.assertEquals(Lists.newArrayList(15, 14, 13, 12, 11, 10, 9, 8, 7, 6), ids);
+
+            try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(dialect.getCountSql(sql.replace("?", "0")))) {
+                Assert.assertTrue(rs.next());
+                Assert.assertEquals(25, rs.getInt(1));
+            }
+
+            KeysetSql keysetSql = dialect.getKeysetPageSql(sql.replace("?", "0"), new Sort(Sort.Direction.DESC, "id"), true, 5);
+            try (PreparedStatement ps = conn.prepareStatement(keysetSql.getSql())) {
+                ps.setInt(1, 20);
+                try (ResultSet rs = ps.executeQuery()) {
+                    Assert.assertTrue(rs.next());
+                    Assert.assertEquals(19, rs.getInt(1));
+                }
+            }
+
+            try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(dialect.getPageSql("SELECT id FROM t_page", 0, 3))) {
+                int count = 0;
+                while (rs.next()) {
+                    count++;
+                }
+                Assert.assertEquals(3, count);
+            }
+        }
+    }
+
     @Test
     public void testLambda() {
         List<String> list1 = Lists.newArrayList("Tom", "Jim", "Jack");
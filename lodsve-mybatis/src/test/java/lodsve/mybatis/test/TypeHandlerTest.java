@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.mybatis.test;
+
+import lodsve.mybatis.domain.Level;
+import lodsve.mybatis.domain.Status;
+import lodsve.mybatis.type.EnumCodeTypeHandler;
+import lodsve.mybatis.type.TypeHandlerScanner;
+import org.apache.ibatis.type.TypeHandler;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * .
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class TypeHandlerTest {
+    @Test
+    public void testScan() {
+        TypeHandlerRegistry registry = new TypeHandlerRegistry();
+        for (TypeHandler<?> handler : new TypeHandlerScanner().find("lodsve.mybatis.domain")) {
+            registry.register(handler);
+        }
+
+        Assert.assertTrue(registry.getTypeHandler(Status.class) instanceof EnumCodeTypeHandler);
+        Assert.assertTrue(registry.getTypeHandler(Level.class) instanceof EnumCodeTypeHandler);
+    }
+
+    @Test
+    public void testConvert() throws Exception {
+        EnumCodeTypeHandler<Status> status = new EnumCodeTypeHandler<>(Status.class);
+        EnumCodeTypeHandler<Level> level = new EnumCodeTypeHandler<>(Level.class);
+
+        try (Connection conn = DriverManager.getConnection("jdbc:h2:mem:type_handler");
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("select '0', '1', '10', '01', '2', null, 'H', 'M'")) {
+            Assert.assertTrue(rs.next());
+
+            Assert.assertEquals(Status.DRAFT, status.getResult(rs, 1));
+            Assert.assertEquals(Status.PUBLISHED, status.getResult(rs, 2));
+            Assert.assertEquals(Status.DELETED, status.getResult(rs, 3));
+            // 与字符串比较一致，前导0不匹配
+            Assert.assertNull(status.getResult(rs, 4));
+            Assert.assertNull(status.getResult(rs, 5));
+            Assert.assertNull(status.getResult(rs, 6));
+
+            Assert.assertEquals(Level.HIGH, level.getResult(rs, 7));
+            Assert.assertNull(level.getResult(rs, 8));
+        }
+    }
+}
@@ -31,8 +31,16 @@ public class Constants {
 
     public static final String DATA_SOURCE_BEAN_NAME = "lodsveDataSource";
     public static final String REAL_DATA_SOURCE_BEAN_NAME = "lodsveRealDataSource";
+    /**
+     * 从库数据源的BeanDefinition上带有此属性，不执行flyway迁移
+     */
+    public static final String REPLICA_ATTRIBUTE_NAME = "lodsveReplica";
 
     public static final String DRUID_DATA_SOURCE_CLASS = "com.alibaba.druid.pool.DruidDataSource";
 
     public static final String FLYWAY_BEAN_NAME = "lodsveFlyway";
+
+    public static final String FLYWAY_COORDINATOR_BEAN_NAME = "lodsveFlywayCoordinator";
+
+    public static final String SHARDING_ROUTER_BEAN_NAME = "lodsveShardingRouter";
 }
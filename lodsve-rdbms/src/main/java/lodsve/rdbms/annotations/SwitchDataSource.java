@@ -20,18 +20,28 @@ package lodsve.rdbms.annotations;
 import java.lang.annotation.*;
 
 /**
- * 切换数据源.
+ * 切换数据源.<br/>
+ * 可以加在方法或类上，方法上的优先；{@link #key()}为SpEL表达式，可以使用方法参数(#参数名、#p0、#a0)以及Spring Bean(@beanName)，
+ * 例如按租户路由：{@code @SwitchDataSource(key = "'tenant_' + #tenantId")}.
  *
  * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
  */
-@Target(ElementType.METHOD)
+@Target({ElementType.METHOD, ElementType.TYPE})
 @Retention(RetentionPolicy.RUNTIME)
 @Documented
+@Inherited
 public @interface SwitchDataSource {
     /**
      * 选择的数据源
      *
      * @return 数据源名称
      */
-    String value();
+    String value() default "";
+
+    /**
+     * 计算数据源名称的SpEL表达式，设置了之后忽略{@link #value()}，计算结果为空时抛出异常
+     *
+     * @return SpEL表达式
+     */
+    String key() default "";
 }
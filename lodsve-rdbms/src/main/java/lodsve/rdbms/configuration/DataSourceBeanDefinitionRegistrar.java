@@ -21,12 +21,17 @@ import com.google.common.collect.Maps;
 import com.p6spy.engine.spy.P6DataSource;
 import lodsve.core.bean.BeanRegisterUtils;
 import lodsve.core.properties.Profiles;
+import lodsve.core.properties.relaxedbind.RelaxedBindFactory;
 import lodsve.rdbms.Constants;
 import lodsve.rdbms.annotations.DataSourceProvider;
 import lodsve.rdbms.dynamic.DynamicDataSource;
 import lodsve.rdbms.exception.RdbmsException;
 import lodsve.rdbms.p6spy.LodsveP6OptionsSource;
 import lodsve.rdbms.pool.BaseDataSourcePool;
+import lodsve.rdbms.properties.RdbmsProperties;
+import lodsve.rdbms.properties.ReplicaSetting;
+import lodsve.rdbms.properties.ShardingSetting;
+import lodsve.rdbms.sharding.ShardingRouter;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
@@ -37,6 +42,7 @@ import org.springframework.lang.NonNull;
 import org.springframework.util.Assert;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -62,7 +68,10 @@ public class DataSourceBeanDefinitionRegistrar implements ImportBeanDefinitionRe
         }
 
         // 组装一些信息
-        DataSourceBean dataSourceBean = new DataSourceBean(dataSources);
+        RdbmsProperties rdbmsProperties = new RelaxedBindFactory.Builder<>(RdbmsProperties.class).build();
+        Map<String, ReplicaSetting> replicas = getReplicas(rdbmsProperties, dataSources);
+        Map<String, ShardingSetting> sharding = rdbmsProperties.getSharding() == null ? Collections.emptyMap() : rdbmsProperties.getSharding();
+        DataSourceBean dataSourceBean = new DataSourceBean(dataSources, replicas, sharding);
         String defaultDataSourceKey = dataSourceBean.getDefaultDataSourceKey();
         beanDefinitions.putAll(dataSourceBean.getBeanDefinitions());
 
@@ -70,6 +79,13 @@ public class DataSourceBeanDefinitionRegistrar implements ImportBeanDefinitionRe
         BeanDefinitionBuilder dynamicDataSource = BeanDefinitionBuilder.genericBeanDefinition(DynamicDataSource.class);
         dynamicDataSource.addConstructorArgValue(dataSourceBean.getDataSourceNames());
         dynamicDataSource.addConstructorArgValue(defaultDataSourceKey);
+        dynamicDataSource.addConstructorArgValue(replicas);
+        if (rdbmsProperties.getGuard() != null) {
+            dynamicDataSource.addPropertyValue("guards", rdbmsProperties.getGuard());
+        }
+        if (rdbmsProperties.getStatementCache() != null) {
+            dynamicDataSource.addPropertyValue("statementCacheSettings", rdbmsProperties.getStatementCache());
+        }
 
         boolean p6spy = Profiles.getProfile("p6spy");
 
@@ -86,29 +102,73 @@ public class DataSourceBeanDefinitionRegistrar implements ImportBeanDefinitionRe
             LodsveP6OptionsSource.init();
         }
 
+        if (!sharding.isEmpty()) {
+            // 分库路由
+            BeanDefinitionBuilder shardingRouter = BeanDefinitionBuilder.genericBeanDefinition(ShardingRouter.class);
+            shardingRouter.addConstructorArgValue(sharding);
+            beanDefinitions.put(Constants.SHARDING_ROUTER_BEAN_NAME, shardingRouter.getBeanDefinition());
+        }
+
         BeanRegisterUtils.registerBeans(beanDefinitions, registry);
     }
 
+    /**
+     * 获取数据源对应的从库配置
+     *
+     * @param rdbmsProperties 配置
+     * @param dataSources     数据源名称
+     * @return 主库数据源名称 => 从库配置
+     */
+    private Map<String, ReplicaSetting> getReplicas(RdbmsProperties rdbmsProperties, String[] dataSources) {
+        Map<String, ReplicaSetting> replicas = Maps.newHashMap();
+        if (rdbmsProperties.getReplicas() == null) {
+            return replicas;
+        }
+
+        for (String dataSource : dataSources) {
+            ReplicaSetting setting = rdbmsProperties.getReplicas().get(dataSource);
+            if (setting != null && setting.getDataSources() != null && !setting.getDataSources().isEmpty()) {
+                replicas.put(dataSource, setting);
+            }
+        }
+        return replicas;
+    }
+
     private static class DataSourceBean {
         private String defaultDataSourceKey;
         private Map<String, BeanDefinition> beanDefinitions;
         private List<String> dataSourceNames;
 
-        DataSourceBean(String[] dataSources) {
+        DataSourceBean(String[] dataSources, Map<String, ReplicaSetting> replicas, Map<String, ShardingSetting> sharding) {
             beanDefinitions = new HashMap<>(dataSources.length);
             dataSourceNames = new ArrayList<>(dataSources.length);
 
             for (int i = 0; i < dataSources.length; i++) {
                 String name = dataSources[i];
-                BeanDefinition dsBeanDefinition = BaseDataSourcePool.getDataSourcePool(name).build();
-
                 if (i == 0) {
                     defaultDataSourceKey = name;
                 }
 
-                beanDefinitions.put(name, dsBeanDefinition);
-                dataSourceNames.add(name);
+                addDataSource(name, false);
+            }
+
+            // 从库也注册为数据源，同样可以通过名称切换，但是需要标记出来，数据由主库同步，不能直接迁移
+            replicas.values().forEach(r -> r.getDataSources().keySet().forEach(name -> addDataSource(name, true)));
+            // 分片数据源
+            sharding.values().stream().filter(s -> s.getDataSources() != null).forEach(s -> s.getDataSources().forEach(name -> addDataSource(name, false)));
+        }
+
+        private void addDataSource(String name, boolean replica) {
+            if (beanDefinitions.containsKey(name)) {
+                return;
+            }
+
+            BeanDefinition beanDefinition = BaseDataSourcePool.getDataSourcePool(name).build();
+            if (replica) {
+                beanDefinition.setAttribute(Constants.REPLICA_ATTRIBUTE_NAME, Boolean.TRUE);
             }
+            beanDefinitions.put(name, beanDefinition);
+            dataSourceNames.add(name);
         }
 
         String getDefaultDataSourceKey() {
@@ -21,13 +21,18 @@ import com.google.common.collect.Lists;
 import lodsve.core.condition.ConditionalOnClass;
 import lodsve.core.condition.ConditionalOnMissingBean;
 import lodsve.core.condition.ConditionalOnWebApplication;
+import lodsve.core.event.EventPublisher;
 import lodsve.core.properties.relaxedbind.annotations.EnableConfigurationProperties;
 import lodsve.core.utils.StringUtils;
 import lodsve.rdbms.Constants;
 import lodsve.rdbms.druid.DruidInitializer;
+import lodsve.rdbms.dynamic.DynamicDataSource;
 import lodsve.rdbms.dynamic.DynamicDataSourceAspect;
+import lodsve.rdbms.flyway.FlywayMigrationCoordinator;
 import lodsve.rdbms.flyway.FlywayMigrationInitializer;
 import lodsve.rdbms.flyway.FlywayMigrationStrategy;
+import lodsve.rdbms.metrics.PoolMetricsMonitor;
+import lodsve.rdbms.warmup.DataSourceWarmup;
 import lodsve.rdbms.properties.DruidProperties;
 import lodsve.rdbms.properties.FlywayProperties;
 import lodsve.rdbms.properties.P6SpyProperties;
@@ -35,9 +40,13 @@ import lodsve.rdbms.properties.RdbmsProperties;
 import org.flywaydb.core.Flyway;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.context.annotation.*;
 
 import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -56,6 +65,18 @@ public class RdbmsConfiguration {
         return new DynamicDataSourceAspect();
     }
 
+    @Bean
+    public PoolMetricsMonitor poolMetricsMonitor(ObjectProvider<DynamicDataSource> dataSource, ObjectProvider<RdbmsProperties> rdbmsProperties, ObjectProvider<EventPublisher> eventPublisher) {
+        RdbmsProperties properties = rdbmsProperties.getIfAvailable();
+        return new PoolMetricsMonitor(dataSource.getIfAvailable(), properties == null ? null : properties.getMetrics(), eventPublisher.getIfAvailable());
+    }
+
+    @Bean
+    public DataSourceWarmup dataSourceWarmup(ObjectProvider<DynamicDataSource> dataSource, ObjectProvider<RdbmsProperties> rdbmsProperties) {
+        RdbmsProperties properties = rdbmsProperties.getIfAvailable();
+        return new DataSourceWarmup(dataSource.getIfAvailable(), properties == null ? null : properties.getWarmup(), properties == null ? null : properties.getPool());
+    }
+
     @Bean
     @ConditionalOnClass(StatViewServlet.class)
     @ConditionalOnWebApplication
@@ -75,36 +96,78 @@ public class RdbmsConfiguration {
 
         @Autowired
         public FlywayConfiguration(ObjectProvider<FlywayMigrationStrategy> migrationStrategy) {
-            this.migrationStrategy = migrationStrategy.getIfAvailable();
+            this(migrationStrategy.getIfAvailable());
         }
 
-        @Bean(name = Constants.FLYWAY_BEAN_NAME)
-        public List<Flyway> flyway(ObjectProvider<Map<String, DataSource>> dataSourcesProvider, ObjectProvider<FlywayProperties> flywayPropertiesProvider) {
+        FlywayConfiguration(FlywayMigrationStrategy migrationStrategy) {
+            this.migrationStrategy = migrationStrategy;
+        }
+
+        @Bean(name = Constants.FLYWAY_COORDINATOR_BEAN_NAME)
+        public FlywayMigrationCoordinator flywayMigrationCoordinator(ObjectProvider<Map<String, DataSource>> dataSourcesProvider, ObjectProvider<FlywayProperties> flywayPropertiesProvider,
+                                                                     ObjectProvider<DataSourceWarmup> warmupProvider, ConfigurableListableBeanFactory beanFactory) {
             Map<String, DataSource> dataSources = dataSourcesProvider.getIfAvailable();
             FlywayProperties flywayProperties = flywayPropertiesProvider.getIfAvailable();
+            FlywayMigrationCoordinator coordinator;
             if (null == dataSources || null == flywayProperties) {
-                return Lists.newArrayList();
+                coordinator = new FlywayMigrationCoordinator(Collections.emptyMap(), this.migrationStrategy, 1);
+            } else {
+                int parallelism = flywayProperties.getParallelism() == null ? 1 : flywayProperties.getParallelism();
+                coordinator = new FlywayMigrationCoordinator(createFlyways(dataSources, flywayProperties, beanFactory), this.migrationStrategy, parallelism);
+                coordinator.setValidateFirst(flywayProperties.isValidateFirst());
+                coordinator.setFailFast(flywayProperties.isFailFast());
+            }
+
+            // 预热需要等待迁移完成
+            DataSourceWarmup warmup = warmupProvider.getIfAvailable();
+            if (warmup != null) {
+                warmup.setMigrationCoordinator(coordinator);
+                warmup.setBackgroundMigration(flywayProperties != null && flywayProperties.isBackground());
             }
+            return coordinator;
+        }
+
+        @Bean(name = Constants.FLYWAY_BEAN_NAME)
+        public List<Flyway> flyway(FlywayMigrationCoordinator coordinator) {
+            return new ArrayList<>(coordinator.getFlyways().values());
+        }
 
+        @Bean
+        @ConditionalOnMissingBean
+        public FlywayMigrationInitializer flywayInitializer(FlywayMigrationCoordinator coordinator, ObjectProvider<FlywayProperties> flywayPropertiesProvider) {
+            FlywayProperties flywayProperties = flywayPropertiesProvider.getIfAvailable();
+            return new FlywayMigrationInitializer(coordinator, flywayProperties != null && flywayProperties.isBackground());
+        }
+
+        /**
+         * 为需要迁移的数据源创建flyway，排除动态数据源、p6spy的真实数据源以及从库
+         *
+         * @param dataSources      所有数据源
+         * @param flywayProperties flyway配置
+         * @param beanFactory      beanFactory，用于判断是否是从库
+         * @return 数据源名称 => flyway
+         */
+        Map<String, Flyway> createFlyways(Map<String, DataSource> dataSources, FlywayProperties flywayProperties, ConfigurableListableBeanFactory beanFactory) {
             // 要排除  p6spy的"lodsveRealDataSource"数据源
             // 还要排除默认数据源 "lodsveDataSource"
-            List<Flyway> flyways = Lists.newArrayList();
-            dataSources.keySet().stream().filter(k -> !Lists.newArrayList(Constants.DATA_SOURCE_BEAN_NAME, Constants.REAL_DATA_SOURCE_BEAN_NAME).contains(k)).forEach(k -> {
+            // 从库的数据由主库同步，直接迁移会重复执行或者因为只读而失败
+            Map<String, Flyway> flyways = new LinkedHashMap<>(dataSources.size());
+            dataSources.keySet().stream().filter(k -> !Lists.newArrayList(Constants.DATA_SOURCE_BEAN_NAME, Constants.REAL_DATA_SOURCE_BEAN_NAME).contains(k))
+                    .filter(k -> !isReplica(k, beanFactory)).forEach(k -> {
                 Flyway flyway = new Flyway();
                 flyway.setDataSource(dataSources.get(k));
-                String location = flywayProperties.getLocations().get(k);
+                String location = flywayProperties.getLocations() == null ? null : flywayProperties.getLocations().get(k);
                 flyway.setLocations(StringUtils.isBlank(location) ? DEFAULT_FLYWAY_LOCATION : location);
 
-                flyways.add(flyway);
+                flyways.put(k, flyway);
             });
 
             return flyways;
         }
 
-        @Bean
-        @ConditionalOnMissingBean
-        public FlywayMigrationInitializer flywayInitializer(List<Flyway> flyways) {
-            return new FlywayMigrationInitializer(flyways, this.migrationStrategy);
+        private boolean isReplica(String beanName, ConfigurableListableBeanFactory beanFactory) {
+            return beanFactory != null && beanFactory.containsBeanDefinition(beanName)
+                    && Boolean.TRUE.equals(beanFactory.getBeanDefinition(beanName).getAttribute(Constants.REPLICA_ATTRIBUTE_NAME));
         }
     }
 }
@@ -17,30 +17,93 @@
 
 package lodsve.rdbms.dynamic;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+
 /**
- * 多数据源保存选择的数据源.
+ * 多数据源保存选择的数据源.<br/>
+ * 使用栈保存，{@link #push(String)}入栈，{@link #close()}出栈，嵌套切换返回时恢复外层选择的数据源：
+ * <pre>
+ * try (DataSourceHolder holder = DataSourceHolder.getInstance()) {
+ *     holder.push("dataSource");
+ *     ...
+ * }
+ * </pre>
+ * {@link #set(String)}保持原有语义，替换当前层选择的数据源而不入栈，只调用set不调用close时栈也不会增长.
  *
  * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
  * @date 2017/12/14 下午6:03
  */
 public class DataSourceHolder implements AutoCloseable {
-    private static final ThreadLocal<String> DATAS_SOURCE = new ThreadLocal<>();
+    /**
+     * ArrayDeque不能保存null，选择null(使用默认数据源)时保存此标记
+     */
+    private static final Object NONE = new Object();
+    private static final ThreadLocal<Deque<Object>> DATAS_SOURCE = new ThreadLocal<>();
     private static final DataSourceHolder INSTANCE = new DataSourceHolder();
 
     public static DataSourceHolder getInstance() {
         return INSTANCE;
     }
 
+    /**
+     * 当前选择的数据源
+     *
+     * @return 数据源名称，没有选择时返回null
+     */
     public String get() {
-        return DATAS_SOURCE.get();
+        Deque<Object> stack = DATAS_SOURCE.get();
+        Object dataSource = stack == null ? null : stack.peek();
+        return dataSource == null || dataSource == NONE ? null : (String) dataSource;
+    }
+
+    /**
+     * 嵌套选择数据源，需要与{@link #close()}成对调用
+     *
+     * @param dataSource 数据源名称，为null时使用默认数据源
+     */
+    public void push(String dataSource) {
+        Deque<Object> stack = DATAS_SOURCE.get();
+        if (stack == null) {
+            stack = new ArrayDeque<>(4);
+            DATAS_SOURCE.set(stack);
+        }
+        stack.push(dataSource == null ? NONE : dataSource);
     }
 
+    /**
+     * 替换当前层选择的数据源，没有选择过时等同于{@link #push(String)}
+     *
+     * @param dataSource 数据源名称，为null时使用默认数据源
+     */
     public void set(String dataSource) {
-        DATAS_SOURCE.set(dataSource);
+        Deque<Object> stack = DATAS_SOURCE.get();
+        if (stack != null) {
+            stack.poll();
+        }
+        push(dataSource);
     }
 
+    /**
+     * 恢复上一次选择的数据源
+     */
     @Override
     public void close() {
+        Deque<Object> stack = DATAS_SOURCE.get();
+        if (stack == null) {
+            return;
+        }
+
+        stack.poll();
+        if (stack.isEmpty()) {
+            DATAS_SOURCE.remove();
+        }
+    }
+
+    /**
+     * 清空当前线程选择的所有数据源
+     */
+    public void clear() {
         DATAS_SOURCE.remove();
     }
 }
@@ -20,6 +20,15 @@ package lodsve.rdbms.dynamic;
 import com.google.common.collect.Maps;
 import lodsve.core.utils.StringUtils;
 import lodsve.rdbms.exception.RdbmsException;
+import lodsve.rdbms.guard.GuardedDataSource;
+import lodsve.rdbms.guard.StatementGuard;
+import lodsve.rdbms.metrics.DataSourcePoolMetrics;
+import lodsve.rdbms.metrics.InstrumentedDataSource;
+import lodsve.rdbms.properties.GuardSetting;
+import lodsve.rdbms.properties.ReplicaSetting;
+import lodsve.rdbms.properties.StatementCacheSetting;
+import lodsve.rdbms.statement.CachingDataSource;
+import lodsve.rdbms.statement.StatementCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
@@ -29,11 +38,18 @@ import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
 import org.springframework.lang.NonNull;
 
 import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * 动态数据源.
+ * 动态数据源.<br/>
+ * 配置了从库的数据源支持读写分离：只读事务以及不在事务中的查询使用从库，其他都使用主库，参见{@link ReadWriteConnectionHandler}.<br/>
+ * 每个数据源都包装为{@link InstrumentedDataSource}，按名称记录连接池统计；配置了PreparedStatement缓存的数据源在连接池之上包装为{@link CachingDataSource}，
+ * 配置了语句防护的数据源在最外层包装为{@link GuardedDataSource}.
  *
  * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
  * @date 2017/12/14 下午6:23
@@ -43,10 +59,39 @@ public class DynamicDataSource extends AbstractRoutingDataSource implements Bean
     private List<String> dataSourceBeans;
     private String defaultDataSource;
     private BeanFactory beanFactory;
+    /**
+     * 主库数据源名称 => 从库配置
+     */
+    private Map<String, ReplicaSetting> replicas;
+    private Map<String, ReplicaGroup> replicaGroups = Collections.emptyMap();
+    /**
+     * 数据源名称 => 连接池统计
+     */
+    private final Map<String, DataSourcePoolMetrics> poolMetrics = new ConcurrentHashMap<>(16);
+    private Map<String, DataSource> dataSources = Collections.emptyMap();
+    /**
+     * 数据源名称 => 语句防护配置
+     */
+    private Map<String, GuardSetting> guards = Collections.emptyMap();
+    private final Map<String, StatementGuard> statementGuards = new ConcurrentHashMap<>(16);
+    /**
+     * 数据源名称 => PreparedStatement缓存配置
+     */
+    private Map<String, StatementCacheSetting> statementCacheSettings = Collections.emptyMap();
+    private final Map<String, StatementCache> statementCaches = new ConcurrentHashMap<>(16);
+    /**
+     * 数据源名称 => 包装后的数据源，同一个数据源作为目标数据源、默认数据源、主库时共用一条包装链
+     */
+    private final Map<String, DataSource> wrappedDataSources = new ConcurrentHashMap<>(16);
 
     public DynamicDataSource(List<String> dataSourceBeans, String defaultDataSource) {
+        this(dataSourceBeans, defaultDataSource, Collections.emptyMap());
+    }
+
+    public DynamicDataSource(List<String> dataSourceBeans, String defaultDataSource, Map<String, ReplicaSetting> replicas) {
         this.dataSourceBeans = dataSourceBeans;
         this.defaultDataSource = defaultDataSource;
+        this.replicas = replicas == null ? Collections.emptyMap() : replicas;
     }
 
     @Override
@@ -54,25 +99,53 @@ public class DynamicDataSource extends AbstractRoutingDataSource implements Bean
         return DataSourceHolder.getInstance().get();
     }
 
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (replicaGroups.isEmpty()) {
+            return super.getConnection();
+        }
+
+        String key = DataSourceHolder.getInstance().get();
+        ReplicaGroup group = replicaGroups.get(StringUtils.isBlank(key) ? defaultDataSource : key);
+        return group == null ? super.getConnection() : group.getConnection();
+    }
+
     @Override
     public void afterPropertiesSet() {
         if (this.dataSourceBeans == null) {
             throw new IllegalArgumentException("Property 'dataSourceBeans' is required");
         }
 
-        Map<Object, Object> targetDataSources = Maps.newHashMap();
-        dataSourceBeans.forEach(d -> targetDataSources.put(d, getDataSourceByBeanName(d)));
+        Map<String, DataSource> dataSources = Maps.newLinkedHashMap();
+        dataSourceBeans.forEach(d -> dataSources.put(d, getDataSourceByBeanName(d)));
+        this.dataSources = Collections.unmodifiableMap(dataSources);
 
-        super.setTargetDataSources(targetDataSources);
+        super.setTargetDataSources(Maps.newHashMap(dataSources));
 
         if (StringUtils.isNotBlank(defaultDataSource)) {
             super.setDefaultTargetDataSource(getDataSourceByBeanName(defaultDataSource));
         }
 
+        Map<String, ReplicaGroup> groups = Maps.newHashMap();
+        replicas.forEach((primary, setting) -> {
+            if (!dataSourceBeans.contains(primary) || setting.getDataSources() == null || setting.getDataSources().isEmpty()) {
+                return;
+            }
+
+            Map<String, DataSource> replicaDataSources = Maps.newHashMap();
+            setting.getDataSources().keySet().forEach(r -> replicaDataSources.put(r, getDataSourceByBeanName(r)));
+            groups.put(primary, new ReplicaGroup(primary, getDataSourceByBeanName(primary), replicaDataSources, setting));
+        });
+        replicaGroups = Collections.unmodifiableMap(groups);
+
         super.afterPropertiesSet();
     }
 
     private DataSource getDataSourceByBeanName(String beanName) {
+        return wrappedDataSources.computeIfAbsent(beanName, this::wrap);
+    }
+
+    private DataSource wrap(String beanName) {
         Object object = beanFactory.getBean(beanName);
         if (!(object instanceof DataSource)) {
             if (logger.isErrorEnabled()) {
@@ -81,7 +154,75 @@ public class DynamicDataSource extends AbstractRoutingDataSource implements Bean
             throw new RdbmsException(108001, String.format("The bean named '%s' is not a '%s'!", beanName, DataSource.class.getName()));
         }
 
-        return (DataSource) object;
+        DataSourcePoolMetrics metrics = poolMetrics.computeIfAbsent(beanName, name -> new DataSourcePoolMetrics(name, (DataSource) object));
+        DataSource dataSource = (DataSource) object;
+        StatementCacheSetting cacheSetting = statementCacheSettings.get(beanName);
+        if (cacheSetting != null && cacheSetting.getSize() != null && cacheSetting.getSize() > 0) {
+            dataSource = new CachingDataSource(dataSource, statementCaches.computeIfAbsent(beanName, name -> new StatementCache(name, cacheSetting)));
+        }
+        dataSource = new InstrumentedDataSource(dataSource, metrics);
+
+        GuardSetting setting = guards.get(beanName);
+        if (setting == null) {
+            return dataSource;
+        }
+        return new GuardedDataSource(dataSource, statementGuards.computeIfAbsent(beanName, name -> new StatementGuard(name, setting)));
+    }
+
+    /**
+     * 获取所有数据源
+     *
+     * @return 数据源名称 => 数据源
+     */
+    public Map<String, DataSource> getDataSources() {
+        return dataSources;
+    }
+
+    /**
+     * 获取所有数据源的连接池统计
+     *
+     * @return 数据源名称 => 连接池统计
+     */
+    public Map<String, DataSourcePoolMetrics> getPoolMetrics() {
+        return Collections.unmodifiableMap(poolMetrics);
+    }
+
+    /**
+     * 获取指定数据源的连接池统计
+     *
+     * @param dataSourceName 数据源名称
+     * @return 连接池统计，没有该数据源时返回null
+     */
+    public DataSourcePoolMetrics getPoolMetrics(String dataSourceName) {
+        return poolMetrics.get(dataSourceName);
+    }
+
+    /**
+     * 获取指定数据源的语句防护
+     *
+     * @param dataSourceName 数据源名称
+     * @return 语句防护，该数据源没有配置时返回null
+     */
+    public StatementGuard getStatementGuard(String dataSourceName) {
+        return statementGuards.get(dataSourceName);
+    }
+
+    /**
+     * 获取指定数据源的PreparedStatement缓存
+     *
+     * @param dataSourceName 数据源名称
+     * @return PreparedStatement缓存，该数据源没有配置时返回null
+     */
+    public StatementCache getStatementCache(String dataSourceName) {
+        return statementCaches.get(dataSourceName);
+    }
+
+    public void setStatementCacheSettings(Map<String, StatementCacheSetting> statementCacheSettings) {
+        this.statementCacheSettings = statementCacheSettings == null ? Collections.emptyMap() : statementCacheSettings;
+    }
+
+    public void setGuards(Map<String, GuardSetting> guards) {
+        this.guards = guards == null ? Collections.emptyMap() : guards;
     }
 
     @Override
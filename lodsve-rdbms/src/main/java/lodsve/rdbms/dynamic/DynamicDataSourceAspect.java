@@ -19,37 +19,123 @@ package lodsve.rdbms.dynamic;
 
 import lodsve.core.utils.StringUtils;
 import lodsve.rdbms.annotations.SwitchDataSource;
+import lodsve.rdbms.exception.RdbmsException;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.context.expression.BeanFactoryResolver;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.MethodClassKey;
+import org.springframework.core.Ordered;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.stereotype.Component;
 
 import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * aop动态切换数据源.
+ * aop动态切换数据源.<br/>
+ * 方法上的{@link SwitchDataSource}优先于类上的，每个方法解析出的路由信息(数据源名称或编译后的SpEL表达式)只解析一次；
+ * SpEL表达式使用目标类中的方法(JDK代理时接口方法没有参数名)，计算结果为空时抛出异常；
+ * 切换在事务开始之前进行，方法返回后恢复外层选择的数据源.
  *
  * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
  * @date 2017/12/14 下午6:16
  */
 @Aspect
 @Component
-public class DynamicDataSourceAspect {
-    @Around("@annotation(lodsve.rdbms.annotations.SwitchDataSource)")
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class DynamicDataSourceAspect implements BeanFactoryAware {
+    private static final ExpressionParser PARSER = new SpelExpressionParser();
+    private static final ParameterNameDiscoverer DISCOVERER = new DefaultParameterNameDiscoverer();
+    private static final Routing NONE = new Routing(null, null, null);
+
+    private final Map<MethodClassKey, Routing> routings = new ConcurrentHashMap<>(256);
+    private BeanFactory beanFactory;
+
+    @Around("@annotation(lodsve.rdbms.annotations.SwitchDataSource) || @within(lodsve.rdbms.annotations.SwitchDataSource)")
     public Object around(ProceedingJoinPoint point) throws Throwable {
-        String dataSource = StringUtils.EMPTY;
-        MethodSignature methodSignature = (MethodSignature) point.getSignature();
-        Method method = methodSignature.getMethod();
-        if (method.isAnnotationPresent(SwitchDataSource.class)) {
-            SwitchDataSource annotation = method.getAnnotation(SwitchDataSource.class);
-            // 取出注解中的数据源名
-            dataSource = annotation.value();
+        Method method = ((MethodSignature) point.getSignature()).getMethod();
+        Class<?> targetClass = point.getTarget() == null ? method.getDeclaringClass() : AopUtils.getTargetClass(point.getTarget());
+
+        Routing routing = routings.computeIfAbsent(new MethodClassKey(method, targetClass), key -> resolve(method, targetClass));
+        String dataSource = routing.getDataSource(point.getArgs(), point.getTarget(), beanFactory);
+        if (StringUtils.isBlank(dataSource)) {
+            // 没有指定数据源，沿用外层选择的数据源
+            return point.proceed();
         }
 
         try (DataSourceHolder dsh = DataSourceHolder.getInstance()) {
-            dsh.set(dataSource);
+            dsh.push(dataSource);
             return point.proceed();
         }
     }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
+    }
+
+    private Routing resolve(Method method, Class<?> targetClass) {
+        Method specificMethod = AopUtils.getMostSpecificMethod(method, targetClass);
+        SwitchDataSource annotation = AnnotatedElementUtils.findMergedAnnotation(specificMethod, SwitchDataSource.class);
+        if (annotation == null) {
+            annotation = AnnotatedElementUtils.findMergedAnnotation(targetClass, SwitchDataSource.class);
+        }
+        if (annotation == null) {
+            return NONE;
+        }
+
+        if (StringUtils.isNotBlank(annotation.key())) {
+            return new Routing(null, PARSER.parseExpression(annotation.key()), specificMethod);
+        }
+        return StringUtils.isBlank(annotation.value()) ? NONE : new Routing(annotation.value(), null, null);
+    }
+
+    /**
+     * 一个方法解析出的路由信息
+     */
+    private static class Routing {
+        private final String dataSource;
+        private final Expression expression;
+        /**
+         * 目标类中的方法，用于获取参数名
+         */
+        private final Method method;
+
+        Routing(String dataSource, Expression expression, Method method) {
+            this.dataSource = dataSource;
+            this.expression = expression;
+            this.method = method;
+        }
+
+        String getDataSource(Object[] args, Object target, BeanFactory beanFactory) {
+            if (expression == null) {
+                return dataSource;
+            }
+
+            MethodBasedEvaluationContext context = new MethodBasedEvaluationContext(target, method, args, DISCOVERER);
+            if (beanFactory != null) {
+                context.setBeanResolver(new BeanFactoryResolver(beanFactory));
+            }
+            String value = expression.getValue(context, String.class);
+            if (StringUtils.isBlank(value)) {
+                // 路由键计算失败时不能静默地使用默认数据源
+                String source = expression.getExpressionString();
+                throw new RdbmsException(108007, String.format("expression '%s' of %s evaluated to an empty data source!", source, method), source);
+            }
+            return value;
+        }
+    }
 }
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.dynamic;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.regex.Pattern;
+
+/**
+ * 读写分离的连接代理，在执行第一条语句时才获取真正的连接：
+ * <ul>
+ * <li>只读事务(setReadOnly(true))使用从库</li>
+ * <li>读写事务(autoCommit为false)使用主库</li>
+ * <li>不在事务中时，第一条语句是查询则使用从库，否则使用主库</li>
+ * </ul>
+ * 获取之后该连接上的所有语句都使用同一个库.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+class ReadWriteConnectionHandler implements InvocationHandler {
+    private static final Pattern READ_PATTERN = Pattern.compile("^(SELECT|SHOW|EXPLAIN)\\b", Pattern.CASE_INSENSITIVE);
+    /**
+     * 加锁读、SELECT INTO以及取序列的语句需要在主库执行
+     */
+    private static final Pattern WRITE_PATTERN = Pattern.compile("\\bFOR\\s+(UPDATE|SHARE)\\b|\\bLOCK\\s+IN\\s+SHARE\\s+MODE\\b|\\bINTO\\b|\\bNEXTVAL\\b",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern COMMENT_PATTERN = Pattern.compile("^\\s*(/\\*.*?\\*/|--[^\\n]*(\\n|$))", Pattern.DOTALL);
+
+    private final ReplicaGroup group;
+    private Connection target;
+    private ReplicaGroup.Replica replica;
+    private Boolean autoCommit;
+    private boolean readOnly;
+    private Integer transactionIsolation;
+    private boolean closed;
+
+    ReadWriteConnectionHandler(ReplicaGroup group) {
+        this.group = group;
+    }
+
+    void setReplica(ReplicaGroup.Replica replica) {
+        this.replica = replica;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Read/write connection proxy for '" + group + "'" + (target == null ? "" : " [" + target + "]");
+            case "unwrap":
+                if (((Class<?>) args[0]).isInstance(proxy)) {
+                    return proxy;
+                }
+                break;
+            case "isWrapperFor":
+                if (((Class<?>) args[0]).isInstance(proxy)) {
+                    return true;
+                }
+                break;
+            case "getTargetConnection":
+                return getTarget(false);
+            case "close":
+                close();
+                return null;
+            case "isClosed":
+                return closed;
+            default:
+                break;
+        }
+
+        if (target == null) {
+            switch (method.getName()) {
+                case "getAutoCommit":
+                    return autoCommit != null ? autoCommit : group.getDefaultAutoCommit();
+                case "setAutoCommit":
+                    autoCommit = (Boolean) args[0];
+                    return null;
+                case "isReadOnly":
+                    return readOnly;
+                case "setReadOnly":
+                    readOnly = (Boolean) args[0];
+                    return null;
+                case "getTransactionIsolation":
+                    return transactionIsolation != null ? transactionIsolation : group.getDefaultTransactionIsolation();
+                case "setTransactionIsolation":
+                    transactionIsolation = (Integer) args[0];
+                    return null;
+                case "commit":
+                case "rollback":
+                case "clearWarnings":
+                    return null;
+                case "getWarnings":
+                    return null;
+                default:
+                    break;
+            }
+        }
+
+        String sql = "prepareStatement".equals(method.getName()) && args != null && args[0] instanceof String ? (String) args[0] : null;
+        try {
+            return method.invoke(getTarget(isRead(sql)), args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private Connection getTarget(boolean read) throws SQLException {
+        if (target != null) {
+            return target;
+        }
+        if (closed) {
+            throw new SQLException("Illegal operation: connection is closed");
+        }
+
+        target = read ? group.getReplicaConnection(this) : group.getPrimaryConnection();
+        if (autoCommit != null && target.getAutoCommit() != autoCommit) {
+            target.setAutoCommit(autoCommit);
+        }
+        if (readOnly) {
+            target.setReadOnly(true);
+        }
+        if (transactionIsolation != null) {
+            target.setTransactionIsolation(transactionIsolation);
+        }
+
+        return target;
+    }
+
+    private boolean isRead(String sql) throws SQLException {
+        if (readOnly) {
+            return true;
+        }
+        if (sql == null || !(autoCommit != null ? autoCommit : group.getDefaultAutoCommit())) {
+            return false;
+        }
+
+        return isReadStatement(sql);
+    }
+
+    private void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        if (target != null) {
+            try {
+                target.close();
+            } finally {
+                if (replica != null) {
+                    replica.release();
+                    replica = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * 判断语句是否只读
+     *
+     * @param sql 语句
+     * @return 是否只读
+     */
+    static boolean isReadStatement(String sql) {
+        String statement = sql;
+        String stripped;
+        while (!(stripped = COMMENT_PATTERN.matcher(statement).replaceFirst("")).equals(statement)) {
+            statement = stripped;
+        }
+        statement = statement.trim();
+
+        return READ_PATTERN.matcher(statement).find() && !WRITE_PATTERN.matcher(statement).find();
+    }
+}
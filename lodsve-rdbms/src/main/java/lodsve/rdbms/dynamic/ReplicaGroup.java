@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.dynamic;
+
+import lodsve.rdbms.properties.LoadBalance;
+import lodsve.rdbms.properties.ReplicaSetting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一个主库及其从库，负责选择从库以及剔除不可用的从库.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+class ReplicaGroup {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaGroup.class);
+
+    private final String name;
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final LoadBalance loadBalance;
+    private final int failureThreshold;
+    private final long ejectTime;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    private volatile boolean defaultsResolved;
+    private boolean defaultAutoCommit = true;
+    private int defaultTransactionIsolation = Connection.TRANSACTION_READ_COMMITTED;
+
+    ReplicaGroup(String name, DataSource primary, Map<String, DataSource> replicas, ReplicaSetting setting) {
+        this.name = name;
+        this.primary = primary;
+        this.loadBalance = setting.getLoadBalance() == null ? LoadBalance.ROUND_ROBIN : setting.getLoadBalance();
+        this.failureThreshold = setting.getFailureThreshold() == null ? 1 : Math.max(1, setting.getFailureThreshold());
+        this.ejectTime = setting.getEjectTime() == null ? 0 : Math.max(0, setting.getEjectTime());
+
+        List<Replica> list = new ArrayList<>(replicas.size());
+        replicas.forEach((replicaName, dataSource) -> {
+            Integer weight = setting.getDataSources().get(replicaName);
+            list.add(new Replica(replicaName, dataSource, weight == null ? 1 : Math.max(0, weight)));
+        });
+        list.sort((r1, r2) -> r1.name.compareTo(r2.name));
+        this.replicas = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * 获取一个连接，在执行第一条语句时才决定使用主库还是从库
+     *
+     * @return 连接
+     */
+    Connection getConnection() {
+        return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+                new Class<?>[]{ConnectionProxy.class}, new ReadWriteConnectionHandler(this));
+    }
+
+    Connection getPrimaryConnection() throws SQLException {
+        return primary.getConnection();
+    }
+
+    /**
+     * 从可用的从库中获取连接，没有可用的从库时使用主库
+     *
+     * @param handler 连接代理，记录使用的从库以便归还时计数
+     * @return 连接
+     * @throws SQLException 主库获取连接失败
+     */
+    Connection getReplicaConnection(ReadWriteConnectionHandler handler) throws SQLException {
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = select();
+            if (replica == null) {
+                break;
+            }
+
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                replica.onSuccess();
+                handler.setReplica(replica);
+                return connection;
+            } catch (SQLException | RuntimeException e) {
+                replica.onFailure(e);
+            }
+        }
+
+        return getPrimaryConnection();
+    }
+
+    boolean getDefaultAutoCommit() throws SQLException {
+        resolveDefaults();
+        return defaultAutoCommit;
+    }
+
+    int getDefaultTransactionIsolation() throws SQLException {
+        resolveDefaults();
+        return defaultTransactionIsolation;
+    }
+
+    List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * 连接在真正获取之前需要返回autoCommit等属性，取主库连接的默认值，只取一次
+     */
+    private void resolveDefaults() throws SQLException {
+        if (defaultsResolved) {
+            return;
+        }
+
+        synchronized (this) {
+            if (!defaultsResolved) {
+                try (Connection connection = primary.getConnection()) {
+                    defaultAutoCommit = connection.getAutoCommit();
+                    defaultTransactionIsolation = connection.getTransactionIsolation();
+                }
+                defaultsResolved = true;
+            }
+        }
+    }
+
+    private Replica select() {
+        long now = System.currentTimeMillis();
+        List<Replica> available = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            if (replica.isAvailable(now)) {
+                available.add(replica);
+            }
+        }
+        if (available.isEmpty()) {
+            return null;
+        }
+
+        switch (loadBalance) {
+            case WEIGHTED:
+                return selectByWeight(available);
+            case LEAST_ACTIVE:
+                Replica least = available.get(0);
+                for (Replica replica : available) {
+                    if (replica.active.get() < least.active.get()) {
+                        least = replica;
+                    }
+                }
+                return least;
+            default:
+                return available.get((counter.getAndIncrement() & Integer.MAX_VALUE) % available.size());
+        }
+    }
+
+    private Replica selectByWeight(List<Replica> available) {
+        int total = 0;
+        for (Replica replica : available) {
+            total += replica.weight;
+        }
+        if (total <= 0) {
+            return available.get(ThreadLocalRandom.current().nextInt(available.size()));
+        }
+
+        int random = ThreadLocalRandom.current().nextInt(total);
+        for (Replica replica : available) {
+            random -= replica.weight;
+            if (random < 0) {
+                return replica;
+            }
+        }
+        return available.get(available.size() - 1);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * 从库
+     */
+    class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private final int weight;
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private volatile long ejectedUntil;
+
+        Replica(String name, DataSource dataSource, int weight) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.weight = weight;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        int getActive() {
+            return active.get();
+        }
+
+        boolean isAvailable(long now) {
+            return now >= ejectedUntil;
+        }
+
+        void release() {
+            active.decrementAndGet();
+        }
+
+        private void onSuccess() {
+            active.incrementAndGet();
+            failures.set(0);
+        }
+
+        private void onFailure(Exception e) {
+            if (failures.incrementAndGet() >= failureThreshold) {
+                failures.set(0);
+                ejectedUntil = System.currentTimeMillis() + ejectTime;
+                logger.warn("replica '{}' of '{}' is ejected for {} ms! cause: {}", name, ReplicaGroup.this.name, ejectTime, e.getMessage());
+            } else if (logger.isDebugEnabled()) {
+                logger.debug("get connection from replica '{}' failed! cause: {}", name, e.getMessage());
+            }
+        }
+    }
+}
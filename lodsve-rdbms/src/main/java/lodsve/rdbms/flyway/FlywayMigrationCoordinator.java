@@ -0,0 +1,312 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.flyway;
+
+import lodsve.core.utils.StringUtils;
+import lodsve.rdbms.exception.RdbmsException;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 多数据源的flyway迁移协调器.<br/>
+ * 1. 先并行校验所有数据源已执行脚本的checksum，任何一个不一致都不会开始迁移；<br/>
+ * 2. 各数据源之间相互独立，使用有界线程池并行迁移；<br/>
+ * 3. failFast时一个数据源失败后不再开始新的迁移，等待正在执行的完成后汇总所有失败抛出；<br/>
+ * 4. 可以在后台迁移，通过{@link #isReady()}、{@link #awaitReady(long, TimeUnit)}判断是否可以对外服务，容器关闭时中断后台迁移.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class FlywayMigrationCoordinator implements DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(FlywayMigrationCoordinator.class);
+    /**
+     * 容器关闭时等待后台迁移线程结束的时间，单位毫秒
+     */
+    private static final long SHUTDOWN_TIMEOUT = 30000;
+
+    private final Map<String, Flyway> flyways;
+    private final FlywayMigrationStrategy migrationStrategy;
+    private final int parallelism;
+    private boolean validateFirst = true;
+    private boolean failFast = true;
+
+    private final CountDownLatch ready = new CountDownLatch(1);
+    private volatile List<MigrationResult> results = Collections.emptyList();
+    private volatile RuntimeException failure;
+    private volatile Thread backgroundThread;
+
+    /**
+     * @param flyways           数据源名称 => flyway
+     * @param migrationStrategy 自定义迁移方式，可以为null
+     * @param parallelism       同时迁移的数据源个数
+     */
+    public FlywayMigrationCoordinator(Map<String, Flyway> flyways, FlywayMigrationStrategy migrationStrategy, int parallelism) {
+        Assert.notNull(flyways, "flyways must not be null!");
+        this.flyways = new LinkedHashMap<>(flyways);
+        this.migrationStrategy = migrationStrategy;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * 迁移所有数据源，完成后返回
+     *
+     * @return 每个数据源的迁移结果
+     * @throws RdbmsException 校验或迁移失败，包含所有失败的数据源
+     */
+    public List<MigrationResult> migrate() {
+        try {
+            if (flyways.isEmpty()) {
+                return results;
+            }
+
+            long start = System.nanoTime();
+            if (validateFirst) {
+                checkFailures(execute(this::validate, false), "validate");
+            }
+
+            List<MigrationResult> migrated = execute(this::migrate, failFast);
+            results = Collections.unmodifiableList(migrated);
+            if (logger.isInfoEnabled()) {
+                logger.info("flyway migrated {} data sources in {}ms: {}", migrated.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), migrated);
+            }
+            checkFailures(migrated, "migrate");
+
+            return results;
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            ready.countDown();
+        }
+    }
+
+    /**
+     * 在后台线程中迁移，立即返回
+     */
+    public void migrateInBackground() {
+        Thread thread = new Thread(() -> {
+            try {
+                migrate();
+            } catch (RuntimeException e) {
+                logger.error("flyway migration failed!", e);
+            }
+        }, "flyway-migration");
+        thread.setDaemon(true);
+        backgroundThread = thread;
+        thread.start();
+    }
+
+    /**
+     * 中断后台迁移并等待结束
+     *
+     * @throws InterruptedException 等待被中断
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        Thread thread = backgroundThread;
+        if (thread == null || !thread.isAlive()) {
+            return;
+        }
+
+        thread.interrupt();
+        thread.join(SHUTDOWN_TIMEOUT);
+        if (thread.isAlive()) {
+            logger.warn("flyway migration is still running after {}ms!", SHUTDOWN_TIMEOUT);
+        }
+    }
+
+    /**
+     * 迁移是否已经成功完成
+     *
+     * @return 成功完成返回true
+     */
+    public boolean isReady() {
+        return ready.getCount() == 0 && failure == null;
+    }
+
+    /**
+     * 等待迁移完成
+     *
+     * @param timeout 超时时间
+     * @param unit    单位
+     * @return 在超时之前成功完成返回true，超时返回false
+     * @throws InterruptedException 等待被中断
+     * @throws RdbmsException       迁移失败
+     */
+    public boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!ready.await(timeout, unit)) {
+            return false;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+
+        return true;
+    }
+
+    /**
+     * 最近一次迁移的结果
+     *
+     * @return 每个数据源的迁移结果
+     */
+    public List<MigrationResult> getResults() {
+        return results;
+    }
+
+    /**
+     * 所有需要迁移的flyway
+     *
+     * @return 数据源名称 => flyway
+     */
+    public Map<String, Flyway> getFlyways() {
+        return Collections.unmodifiableMap(flyways);
+    }
+
+    public void setValidateFirst(boolean validateFirst) {
+        this.validateFirst = validateFirst;
+    }
+
+    public void setFailFast(boolean failFast) {
+        this.failFast = failFast;
+    }
+
+    private MigrationResult validate(String name, Flyway flyway) {
+        MigrationInfo current = flyway.info().current();
+        if (current == null || current.getVersion() == null) {
+            // 还没有执行过任何脚本，没有需要校验的
+            return new MigrationResult(name, MigrationResult.State.SUCCESS, 0, 0, null);
+        }
+
+        // validate()不允许有待执行的脚本，把target设置为当前版本，只校验已执行脚本的checksum、失败记录等
+        MigrationVersion target = flyway.getTarget();
+        flyway.setTarget(current.getVersion());
+        try {
+            flyway.validate();
+        } finally {
+            flyway.setTarget(target);
+        }
+
+        return new MigrationResult(name, MigrationResult.State.SUCCESS, 0, 0, null);
+    }
+
+    private MigrationResult migrate(String name, Flyway flyway) {
+        if (migrationStrategy != null) {
+            migrationStrategy.migrate(flyway);
+            return new MigrationResult(name, MigrationResult.State.SUCCESS, -1, 0, null);
+        }
+
+        return new MigrationResult(name, MigrationResult.State.SUCCESS, flyway.migrate(), 0, null);
+    }
+
+    private List<MigrationResult> execute(MigrationTask task, boolean stopOnFailure) {
+        int total = flyways.size();
+        AtomicInteger finished = new AtomicInteger();
+        AtomicBoolean failed = new AtomicBoolean();
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, total), r -> {
+            Thread thread = new Thread(r, "flyway-migration-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Map<String, Future<MigrationResult>> futures = new LinkedHashMap<>(total);
+        try {
+            flyways.forEach((name, flyway) -> futures.put(name, executor.submit(() -> {
+                if (stopOnFailure && failed.get()) {
+                    return new MigrationResult(name, MigrationResult.State.SKIPPED, 0, 0, null);
+                }
+
+                long start = System.nanoTime();
+                MigrationResult result;
+                try {
+                    MigrationResult r = task.execute(name, flyway);
+                    result = new MigrationResult(name, r.getState(), r.getMigrations(), elapsedMillis(start), null);
+                } catch (RuntimeException e) {
+                    failed.set(true);
+                    result = new MigrationResult(name, MigrationResult.State.FAILED, 0, elapsedMillis(start), e);
+                }
+                logger.info("flyway [{}/{}] {}", finished.incrementAndGet(), total, result);
+                return result;
+            })));
+
+            List<MigrationResult> results = new ArrayList<>(total);
+            futures.forEach((name, future) -> results.add(get(name, future, e -> new MigrationResult(name, MigrationResult.State.FAILED, 0, 0, e))));
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private MigrationResult get(String name, Future<MigrationResult> future, Function<Exception, MigrationResult> onError) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return onError.apply(e);
+        } catch (ExecutionException e) {
+            return onError.apply(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+        }
+    }
+
+    private void checkFailures(List<MigrationResult> results, String phase) {
+        List<MigrationResult> failures = new ArrayList<>();
+        results.stream().filter(r -> r.getState() == MigrationResult.State.FAILED).forEach(failures::add);
+        if (failures.isEmpty()) {
+            return;
+        }
+
+        List<String> names = new ArrayList<>(failures.size());
+        StringBuilder message = new StringBuilder(String.format("flyway %s failed on %d data source(s):", phase, failures.size()));
+        for (MigrationResult result : failures) {
+            names.add(result.getDataSourceName());
+            message.append("\n  [").append(result.getDataSourceName()).append("] ").append(result.getError().getMessage());
+        }
+
+        RdbmsException exception = new RdbmsException(108005, message.toString(), StringUtils.join(names, ","));
+        failures.forEach(r -> exception.addSuppressed(r.getError()));
+        throw exception;
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    @FunctionalInterface
+    private interface MigrationTask {
+        MigrationResult execute(String name, Flyway flyway);
+    }
+}
@@ -22,20 +22,22 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.core.Ordered;
 import org.springframework.util.Assert;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * {@link InitializingBean} used to trigger {@link Flyway} migration via the
- * {@link FlywayMigrationStrategy}.
+ * {@link FlywayMigrationCoordinator}.
  *
  * @author Phillip Webb
  * @since 1.3.0
  */
 public class FlywayMigrationInitializer implements InitializingBean, Ordered {
 
-    private final List<Flyway> flyways;
+    private final FlywayMigrationCoordinator coordinator;
 
-    private final FlywayMigrationStrategy migrationStrategy;
+    private final boolean background;
 
     private int order = 0;
 
@@ -47,19 +49,33 @@ public class FlywayMigrationInitializer implements InitializingBean, Ordered {
      */
     public FlywayMigrationInitializer(List<Flyway> flyways, FlywayMigrationStrategy migrationStrategy) {
         Assert.notEmpty(flyways, "Flyway must not be null");
-        this.flyways = flyways;
-        this.migrationStrategy = migrationStrategy;
+        Map<String, Flyway> named = new LinkedHashMap<>(flyways.size());
+        for (int i = 0; i < flyways.size(); i++) {
+            named.put("flyway-" + i, flyways.get(i));
+        }
+        this.coordinator = new FlywayMigrationCoordinator(named, migrationStrategy, 1);
+        this.background = false;
+    }
+
+    /**
+     * Create a new {@link FlywayMigrationInitializer} instance.
+     *
+     * @param coordinator the migration coordinator
+     * @param background  migrate in background, use {@link FlywayMigrationCoordinator#awaitReady} to wait for it
+     */
+    public FlywayMigrationInitializer(FlywayMigrationCoordinator coordinator, boolean background) {
+        Assert.notNull(coordinator, "FlywayMigrationCoordinator must not be null");
+        this.coordinator = coordinator;
+        this.background = background;
     }
 
     @Override
     public void afterPropertiesSet() throws Exception {
-        flyways.forEach(flyway -> {
-            if (this.migrationStrategy != null) {
-                this.migrationStrategy.migrate(flyway);
-            } else {
-                flyway.migrate();
-            }
-        });
+        if (this.background) {
+            this.coordinator.migrateInBackground();
+        } else {
+            this.coordinator.migrate();
+        }
     }
 
     @Override
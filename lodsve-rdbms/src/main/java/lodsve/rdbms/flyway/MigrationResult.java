@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.flyway;
+
+/**
+ * 一个数据源的迁移结果.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class MigrationResult {
+    /**
+     * 迁移状态
+     */
+    public enum State {
+        /**
+         * 迁移成功
+         */
+        SUCCESS,
+        /**
+         * 校验或迁移失败
+         */
+        FAILED,
+        /**
+         * 其他数据源失败后未执行
+         */
+        SKIPPED
+    }
+
+    private final String dataSourceName;
+    private final State state;
+    private final int migrations;
+    private final long elapsedMillis;
+    private final Exception error;
+
+    MigrationResult(String dataSourceName, State state, int migrations, long elapsedMillis, Exception error) {
+        this.dataSourceName = dataSourceName;
+        this.state = state;
+        this.migrations = migrations;
+        this.elapsedMillis = elapsedMillis;
+        this.error = error;
+    }
+
+    public String getDataSourceName() {
+        return dataSourceName;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * 执行的迁移脚本数
+     *
+     * @return 脚本数，使用自定义{@link FlywayMigrationStrategy}时为-1
+     */
+    public int getMigrations() {
+        return migrations;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public Exception getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[%s] %s, migrations=%d, elapsed=%dms%s", dataSourceName, state, migrations, elapsedMillis,
+                error == null ? "" : ", error=" + error.getMessage());
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.guard;
+
+/**
+ * 语句防护拦截到的违规类型.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public enum GuardViolationType {
+    /**
+     * 没有WHERE条件的UPDATE/DELETE，语句被拒绝执行
+     */
+    UNBOUNDED_WRITE,
+    /**
+     * 查询结果超过最大行数，超过的部分被截断
+     */
+    ROW_LIMIT,
+    /**
+     * 语句执行超时
+     */
+    TIMEOUT
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.guard;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * 语句防护的连接代理，创建的Statement/PreparedStatement/CallableStatement都会被代理，参见{@link StatementGuard}.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+class GuardedConnectionHandler implements InvocationHandler {
+    private final StatementGuard guard;
+    private final Connection target;
+
+    GuardedConnectionHandler(StatementGuard guard, Connection target) {
+        this.guard = guard;
+        this.target = target;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String sql = null;
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Guarded connection proxy for '" + guard.getDataSourceName() + "' [" + target + "]";
+            case "unwrap":
+                if (((Class<?>) args[0]).isInstance(proxy)) {
+                    return proxy;
+                }
+                break;
+            case "isWrapperFor":
+                if (((Class<?>) args[0]).isInstance(proxy)) {
+                    return true;
+                }
+                break;
+            case "getTargetConnection":
+                return target;
+            case "prepareStatement":
+            case "prepareCall":
+                sql = (String) args[0];
+                // 预编译之前就拒绝，不占用数据库资源
+                guard.check(sql);
+                break;
+            default:
+                break;
+        }
+
+        Object result;
+        try {
+            result = method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+
+        if (result instanceof Statement) {
+            Statement statement = (Statement) result;
+            guard.prepare(statement);
+            return guard.wrap(statement, method.getReturnType(), (Connection) proxy, sql);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.guard;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 对获取的连接进行语句防护的数据源，适用于所有连接池，参见{@link StatementGuard}.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class GuardedDataSource extends DelegatingDataSource {
+    private final StatementGuard guard;
+
+    public GuardedDataSource(DataSource targetDataSource, StatementGuard guard) {
+        super(targetDataSource);
+        this.guard = guard;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return guard.wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return guard.wrap(super.getConnection(username, password));
+    }
+
+    public StatementGuard getGuard() {
+        return guard;
+    }
+}
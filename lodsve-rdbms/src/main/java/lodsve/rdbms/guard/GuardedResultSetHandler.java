@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.guard;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 语句防护的ResultSet代理，读取到第maxRows + 1行时截断结果并记录.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+class GuardedResultSetHandler implements InvocationHandler {
+    private final StatementGuard guard;
+    private final ResultSet target;
+    private final Statement statement;
+    private final String sql;
+    private int rows;
+    private boolean truncated;
+
+    GuardedResultSetHandler(StatementGuard guard, ResultSet target, Statement statement, String sql) {
+        this.guard = guard;
+        this.target = target;
+        this.statement = statement;
+        this.sql = sql;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Guarded result set proxy for '" + guard.getDataSourceName() + "' [" + target + "]";
+            case "unwrap":
+                if (((Class<?>) args[0]).isInstance(proxy)) {
+                    return proxy;
+                }
+                break;
+            case "isWrapperFor":
+                if (((Class<?>) args[0]).isInstance(proxy)) {
+                    return true;
+                }
+                break;
+            case "getStatement":
+                return statement;
+            case "next":
+                return next();
+            default:
+                break;
+        }
+
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private boolean next() throws SQLException {
+        if (truncated) {
+            return false;
+        }
+
+        boolean next;
+        try {
+            next = target.next();
+        } catch (SQLException e) {
+            guard.onFailure(e, sql);
+            throw e;
+        }
+        if (next && ++rows > guard.getMaxRows()) {
+            truncated = true;
+            guard.record(GuardViolationType.ROW_LIMIT, sql);
+            return false;
+        }
+
+        return next;
+    }
+}
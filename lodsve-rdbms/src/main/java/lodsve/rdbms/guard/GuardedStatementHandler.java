@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.guard;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * 语句防护的Statement代理：检查直接执行的sql，显式设置的超时时间和最大行数不能突破防护，记录执行超时.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+class GuardedStatementHandler implements InvocationHandler {
+    private final StatementGuard guard;
+    private final Statement target;
+    private final Connection connection;
+    /**
+     * 预编译的sql，Statement为最近一次执行的sql
+     */
+    private String sql;
+    /**
+     * 是否需要截断结果，显式设置了不超过maxRows的最大行数时由数据库限制，不需要截断
+     */
+    private boolean limited;
+
+    GuardedStatementHandler(StatementGuard guard, Statement target, Connection connection, String sql) {
+        this.guard = guard;
+        this.target = target;
+        this.connection = connection;
+        this.sql = sql;
+        this.limited = guard.getMaxRows() > 0;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Guarded statement proxy for '" + guard.getDataSourceName() + "' [" + target + "]";
+            case "unwrap":
+                if (((Class<?>) args[0]).isInstance(proxy)) {
+                    return proxy;
+                }
+                break;
+            case "isWrapperFor":
+                if (((Class<?>) args[0]).isInstance(proxy)) {
+                    return true;
+                }
+                break;
+            case "getConnection":
+                return connection;
+            case "setQueryTimeout":
+                int timeout = (Integer) args[0];
+                target.setQueryTimeout(timeout > 0 ? timeout : guard.getQueryTimeout());
+                return null;
+            case "setMaxRows":
+            case "setLargeMaxRows":
+                if (guard.getMaxRows() > 0) {
+                    long rows = ((Number) args[0]).longValue();
+                    limited = rows <= 0 || rows > guard.getMaxRows();
+                    target.setMaxRows(limited ? guard.getFetchLimit() : (int) rows);
+                    return null;
+                }
+                break;
+            case "getMaxRows":
+            case "getLargeMaxRows":
+                if (limited && "getMaxRows".equals(method.getName())) {
+                    return guard.getMaxRows();
+                } else if (limited) {
+                    return (long) guard.getMaxRows();
+                }
+                break;
+            case "execute":
+            case "executeQuery":
+            case "executeUpdate":
+            case "executeLargeUpdate":
+            case "addBatch":
+                if (args != null && args.length > 0 && args[0] instanceof String) {
+                    sql = (String) args[0];
+                    guard.check(sql);
+                }
+                break;
+            default:
+                break;
+        }
+
+        Object result;
+        try {
+            result = method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            guard.onFailure(e.getTargetException(), sql);
+            throw e.getTargetException();
+        }
+
+        if (limited && result instanceof ResultSet && ("executeQuery".equals(method.getName()) || "getResultSet".equals(method.getName()))) {
+            return guard.wrap((ResultSet) result, (Statement) proxy, sql);
+        }
+        return result;
+    }
+}
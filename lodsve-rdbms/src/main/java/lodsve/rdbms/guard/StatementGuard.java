@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.guard;
+
+import lodsve.rdbms.properties.GuardSetting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * 单个数据源的语句防护，通过代理连接和语句实现，与连接池无关：
+ * <ul>
+ * <li>语句没有显式设置超时时间时使用默认的超时时间</li>
+ * <li>查询最多读取maxRows行，超过的部分被截断</li>
+ * <li>拒绝没有WHERE条件(或条件恒为真)的UPDATE/DELETE，只带LIMIT的语句视为有界</li>
+ * </ul>
+ * 拦截到的违规按类型计数并输出warn日志.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class StatementGuard {
+    private static final Logger logger = LoggerFactory.getLogger(StatementGuard.class);
+    private static final Pattern WRITE_PATTERN = Pattern.compile("^(UPDATE|DELETE)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern TAUTOLOGY_PATTERN = Pattern.compile("^\\s*(\\(\\s*)*(1\\s*=\\s*1|TRUE)(\\s*\\))*\\s*(ORDER\\s+BY\\b.*|LIMIT\\b.*)?;?\\s*$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    /**
+     * 语句被取消时的SQLState，H2/PostgreSQL/DB2为57014，SQL Server为HY008
+     */
+    private static final String[] CANCELED_STATES = {"57014", "HY008"};
+
+    private final String dataSourceName;
+    private final int queryTimeout;
+    private final int maxRows;
+    private final boolean rejectUnboundedWrite;
+    private final Map<GuardViolationType, LongAdder> violations = new EnumMap<>(GuardViolationType.class);
+
+    public StatementGuard(String dataSourceName, GuardSetting setting) {
+        this.dataSourceName = dataSourceName;
+        this.queryTimeout = setting.getQueryTimeout() == null ? 0 : Math.max(setting.getQueryTimeout(), 0);
+        this.maxRows = setting.getMaxRows() == null ? 0 : Math.max(setting.getMaxRows(), 0);
+        this.rejectUnboundedWrite = setting.isRejectUnboundedWrite();
+        for (GuardViolationType type : GuardViolationType.values()) {
+            violations.put(type, new LongAdder());
+        }
+    }
+
+    /**
+     * 代理连接，该连接创建的所有语句都会被防护
+     *
+     * @param connection 连接
+     * @return 代理后的连接
+     */
+    public Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+                new Class<?>[]{ConnectionProxy.class}, new GuardedConnectionHandler(this, connection));
+    }
+
+    public String getDataSourceName() {
+        return dataSourceName;
+    }
+
+    public int getQueryTimeout() {
+        return queryTimeout;
+    }
+
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    /**
+     * 获取某种违规的次数
+     *
+     * @param type 违规类型
+     * @return 次数
+     */
+    public long getViolationCount(GuardViolationType type) {
+        return violations.get(type).sum();
+    }
+
+    /**
+     * 获取所有违规的次数
+     *
+     * @return 违规类型 => 次数
+     */
+    public Map<GuardViolationType, Long> getViolations() {
+        Map<GuardViolationType, Long> counts = new EnumMap<>(GuardViolationType.class);
+        violations.forEach((type, count) -> counts.put(type, count.sum()));
+        return counts;
+    }
+
+    @Override
+    public String toString() {
+        return "StatementGuard[" + dataSourceName + "] " + getViolations();
+    }
+
+    /**
+     * 执行之前检查语句
+     *
+     * @param sql 语句
+     * @throws SQLSyntaxErrorException 没有WHERE条件的UPDATE/DELETE
+     */
+    void check(String sql) throws SQLSyntaxErrorException {
+        if (rejectUnboundedWrite && isUnboundedWrite(sql)) {
+            record(GuardViolationType.UNBOUNDED_WRITE, sql);
+            throw new SQLSyntaxErrorException("Unbounded UPDATE/DELETE is rejected on data source '" + dataSourceName + "': " + sql);
+        }
+    }
+
+    /**
+     * 新创建的语句设置默认的超时时间和最大行数
+     *
+     * @param statement 语句
+     * @throws SQLException 设置出错
+     */
+    void prepare(Statement statement) throws SQLException {
+        if (queryTimeout > 0 && statement.getQueryTimeout() <= 0) {
+            statement.setQueryTimeout(queryTimeout);
+        }
+        if (maxRows > 0) {
+            statement.setMaxRows(getFetchLimit());
+        }
+    }
+
+    /**
+     * 语句上限制的行数，比maxRows多读一行用于判断是否被截断
+     */
+    int getFetchLimit() {
+        return maxRows == Integer.MAX_VALUE ? maxRows : maxRows + 1;
+    }
+
+    Statement wrap(Statement statement, Class<?> type, Connection connection, String sql) {
+        return (Statement) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+                new Class<?>[]{type}, new GuardedStatementHandler(this, statement, connection, sql));
+    }
+
+    ResultSet wrap(ResultSet resultSet, Statement statement, String sql) {
+        return (ResultSet) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, new GuardedResultSetHandler(this, resultSet, statement, sql));
+    }
+
+    void onFailure(Throwable e, String sql) {
+        if (e instanceof SQLException && isTimeout((SQLException) e)) {
+            record(GuardViolationType.TIMEOUT, sql);
+        }
+    }
+
+    void record(GuardViolationType type, String sql) {
+        violations.get(type).increment();
+        if (logger.isWarnEnabled()) {
+            logger.warn("Statement guard of data source '{}' caught {}: {}", dataSourceName, type, sql);
+        }
+    }
+
+    private static boolean isTimeout(SQLException e) {
+        if (e instanceof SQLTimeoutException) {
+            return true;
+        }
+        for (String state : CANCELED_STATES) {
+            if (state.equals(e.getSQLState())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * 判断语句是否是没有WHERE条件的UPDATE/DELETE，忽略注释、字符串以及子查询中的WHERE
+     *
+     * @param sql 语句
+     * @return 是否无界
+     */
+    static boolean isUnboundedWrite(String sql) {
+        if (sql == null) {
+            return false;
+        }
+
+        String statement = mask(sql).trim();
+        if (!WRITE_PATTERN.matcher(statement).find()) {
+            return false;
+        }
+
+        int where = indexOfKeyword(statement, "WHERE");
+        if (where < 0) {
+            return indexOfKeyword(statement, "LIMIT") < 0;
+        }
+        return TAUTOLOGY_PATTERN.matcher(statement.substring(where + "WHERE".length())).matches();
+    }
+
+    /**
+     * 去掉注释，字符串和带引号的标识符替换为?
+     */
+    private static String mask(String sql) {
+        StringBuilder masked = new StringBuilder(sql.length());
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? length : end;
+                masked.append(' ');
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                masked.append(' ');
+            } else if (c == '\'' || c == '"' || c == '`') {
+                i = skipQuoted(sql, i, c);
+                masked.append(" ? ");
+            } else {
+                masked.append(c);
+                i++;
+            }
+        }
+
+        return masked.toString();
+    }
+
+    private static int skipQuoted(String sql, int start, char quote) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\\' && quote == '\'') {
+                i += 2;
+            } else if (c == quote) {
+                // 两个引号是转义
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+
+        return sql.length();
+    }
+
+    /**
+     * 查找不在括号中的关键字
+     */
+    private static int indexOfKeyword(String statement, String keyword) {
+        int depth = 0;
+        for (int i = 0; i < statement.length(); i++) {
+            char c = statement.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (depth == 0 && statement.regionMatches(true, i, keyword, 0, keyword.length())
+                    && (i == 0 || !isIdentifierPart(statement.charAt(i - 1)))
+                    && (i + keyword.length() == statement.length() || !isIdentifierPart(statement.charAt(i + keyword.length())))) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+}
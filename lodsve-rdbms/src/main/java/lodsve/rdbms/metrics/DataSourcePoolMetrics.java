@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.metrics;
+
+import lodsve.core.metrics.LatencyHistogram;
+
+import javax.sql.DataSource;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个关系型数据源的连接池统计.<br/>
+ * 借用耗时、超时在{@link InstrumentedDataSource}中统一记录，活跃/空闲/等待数从各连接池读取，连接池不支持的返回-1.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class DataSourcePoolMetrics {
+    private final String name;
+    private final PoolGauge gauge;
+    private final LatencyHistogram borrowLatency = new LatencyHistogram();
+    private final LatencyHistogram creationLatency = new LatencyHistogram();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+
+    public DataSourcePoolMetrics(String name, DataSource dataSource) {
+        this.name = name;
+        this.gauge = PoolGauge.of(dataSource, this);
+    }
+
+    /**
+     * 数据源名称
+     *
+     * @return 数据源名称
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 正在使用的连接数
+     *
+     * @return 正在使用的连接数
+     */
+    public int getNumActive() {
+        return gauge.getNumActive();
+    }
+
+    /**
+     * 空闲的连接数
+     *
+     * @return 空闲的连接数
+     */
+    public int getNumIdle() {
+        return gauge.getNumIdle();
+    }
+
+    /**
+     * 等待获取连接的线程数
+     *
+     * @return 等待获取连接的线程数
+     */
+    public int getNumWaiters() {
+        return gauge.getNumWaiters();
+    }
+
+    /**
+     * 连接池最大连接数
+     *
+     * @return 最大连接数
+     */
+    public int getMaxActive() {
+        return gauge.getMaxActive();
+    }
+
+    /**
+     * 连接池使用率，即活跃连接数/最大连接数
+     *
+     * @return 使用率，连接池不支持时返回-1
+     */
+    public double getUtilization() {
+        int active = getNumActive();
+        int max = getMaxActive();
+        return active < 0 || max <= 0 ? -1 : (double) active / max;
+    }
+
+    /**
+     * 从连接池借用连接的耗时
+     *
+     * @return 耗时直方图
+     */
+    public LatencyHistogram getBorrowLatency() {
+        return borrowLatency;
+    }
+
+    /**
+     * 连接池建立物理连接的耗时(HikariCP、Druid)
+     *
+     * @return 耗时直方图
+     */
+    public LatencyHistogram getCreationLatency() {
+        return creationLatency;
+    }
+
+    /**
+     * 获取连接超时的次数
+     *
+     * @return 超时次数
+     */
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    /**
+     * 连接泄漏(超时未归还)的次数
+     *
+     * @return 泄漏次数
+     */
+    public long getLeakCount() {
+        return leaks.sum() + gauge.getLeakCount();
+    }
+
+    void recordTimeout() {
+        timeouts.increment();
+    }
+
+    void recordLeak() {
+        leaks.increment();
+    }
+
+    /**
+     * 采样连接池的累计值
+     */
+    void sample() {
+        gauge.sample();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[%s] active=%d, idle=%d, waiters=%d, maxActive=%d, timeouts=%d, leaks=%d, borrow={%s}, creation={%s}", name,
+                getNumActive(), getNumIdle(), getNumWaiters(), getMaxActive(), getTimeoutCount(), getLeakCount(), borrowLatency, creationLatency);
+    }
+}
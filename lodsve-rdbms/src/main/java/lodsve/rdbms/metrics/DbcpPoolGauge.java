@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.metrics;
+
+import org.springframework.util.ReflectionUtils;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+
+/**
+ * commons-dbcp连接池状态，dbcp不是编译依赖，通过反射读取，同时兼容dbcp2(getMaxTotal).<br/>
+ * dbcp不提供等待线程数以及建立连接的耗时.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+class DbcpPoolGauge extends PoolGauge {
+    private final DataSource dataSource;
+    private final Method numActive;
+    private final Method numIdle;
+    private final Method maxActive;
+
+    DbcpPoolGauge(DataSource dataSource) {
+        this.dataSource = dataSource;
+        Class<?> type = dataSource.getClass();
+        this.numActive = ReflectionUtils.findMethod(type, "getNumActive");
+        this.numIdle = ReflectionUtils.findMethod(type, "getNumIdle");
+        Method max = ReflectionUtils.findMethod(type, "getMaxActive");
+        this.maxActive = max == null ? ReflectionUtils.findMethod(type, "getMaxTotal") : max;
+    }
+
+    static boolean supports(DataSource dataSource) {
+        return ReflectionUtils.findMethod(dataSource.getClass(), "getNumActive") != null
+                && ReflectionUtils.findMethod(dataSource.getClass(), "getNumIdle") != null;
+    }
+
+    @Override
+    int getNumActive() {
+        return invoke(numActive);
+    }
+
+    @Override
+    int getNumIdle() {
+        return invoke(numIdle);
+    }
+
+    @Override
+    int getMaxActive() {
+        return invoke(maxActive);
+    }
+
+    private int invoke(Method method) {
+        if (method == null) {
+            return -1;
+        }
+
+        Object value = ReflectionUtils.invokeMethod(method, dataSource);
+        return value instanceof Number ? ((Number) value).intValue() : -1;
+    }
+}
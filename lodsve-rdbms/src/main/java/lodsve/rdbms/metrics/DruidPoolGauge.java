@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.metrics;
+
+import com.alibaba.druid.pool.DruidDataSource;
+
+import javax.sql.DataSource;
+
+/**
+ * Druid连接池状态，建立连接耗时按两次采样之间的平均值记录.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+class DruidPoolGauge extends PoolGauge {
+    private final DruidDataSource dataSource;
+    private final DataSourcePoolMetrics metrics;
+    private long createCount;
+    private long createNanos;
+
+    DruidPoolGauge(DataSource dataSource, DataSourcePoolMetrics metrics) {
+        this.dataSource = (DruidDataSource) dataSource;
+        this.metrics = metrics;
+    }
+
+    @Override
+    int getNumActive() {
+        return dataSource.getActiveCount();
+    }
+
+    @Override
+    int getNumIdle() {
+        return dataSource.getPoolingCount();
+    }
+
+    @Override
+    int getNumWaiters() {
+        return dataSource.getNotEmptyWaitThreadCount();
+    }
+
+    @Override
+    int getMaxActive() {
+        return dataSource.getMaxActive();
+    }
+
+    @Override
+    long getLeakCount() {
+        return dataSource.getRemoveAbandonedCount();
+    }
+
+    @Override
+    synchronized void sample() {
+        long count = dataSource.getCreateCount();
+        long nanos = dataSource.getCreateTimespanNano();
+        long created = count - createCount;
+        if (created > 0) {
+            long mean = (nanos - createNanos) / created;
+            for (long i = 0; i < created; i++) {
+                metrics.getCreationLatency().record(mean);
+            }
+        }
+
+        createCount = count;
+        createNanos = nanos;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.metrics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HikariCP连接池状态，通过MetricsTrackerFactory记录建立连接耗时以及超过leakDetectionThreshold未归还的连接.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+class HikariPoolGauge extends PoolGauge {
+    private static final Logger logger = LoggerFactory.getLogger(HikariPoolGauge.class);
+
+    private final HikariDataSource dataSource;
+
+    HikariPoolGauge(DataSource dataSource, DataSourcePoolMetrics metrics) {
+        this.dataSource = (HikariDataSource) dataSource;
+
+        if (this.dataSource.getMetricsTrackerFactory() != null || this.dataSource.getMetricRegistry() != null) {
+            // 已经配置了其他的统计，不覆盖
+            return;
+        }
+        try {
+            this.dataSource.setMetricsTrackerFactory((poolName, poolStats) -> new Tracker(this.dataSource, metrics));
+        } catch (IllegalStateException e) {
+            logger.debug("can't set metrics tracker for '{}': {}", metrics.getName(), e.getMessage());
+        }
+    }
+
+    @Override
+    int getNumActive() {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        return pool == null ? 0 : pool.getActiveConnections();
+    }
+
+    @Override
+    int getNumIdle() {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        return pool == null ? 0 : pool.getIdleConnections();
+    }
+
+    @Override
+    int getNumWaiters() {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        return pool == null ? 0 : pool.getThreadsAwaitingConnection();
+    }
+
+    @Override
+    int getMaxActive() {
+        return dataSource.getMaximumPoolSize();
+    }
+
+    private static class Tracker implements IMetricsTracker {
+        private final HikariDataSource dataSource;
+        private final DataSourcePoolMetrics metrics;
+
+        Tracker(HikariDataSource dataSource, DataSourcePoolMetrics metrics) {
+            this.dataSource = dataSource;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+            metrics.getCreationLatency().record(TimeUnit.MILLISECONDS.toNanos(connectionCreatedMillis));
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            long threshold = dataSource.getLeakDetectionThreshold();
+            if (threshold > 0 && elapsedBorrowedMillis >= threshold) {
+                metrics.recordLeak();
+            }
+        }
+    }
+}
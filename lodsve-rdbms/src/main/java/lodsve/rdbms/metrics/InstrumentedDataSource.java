@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.NoSuchElementException;
+
+/**
+ * 记录借用连接耗时以及超时次数的数据源，适用于所有连接池.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class InstrumentedDataSource extends DelegatingDataSource {
+    private static final String DRUID_TIMEOUT_EXCEPTION_CLASS = "com.alibaba.druid.pool.GetConnectionTimeoutException";
+
+    private final DataSourcePoolMetrics metrics;
+
+    public InstrumentedDataSource(DataSource targetDataSource, DataSourcePoolMetrics metrics) {
+        super(targetDataSource);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Connection connection = super.getConnection();
+            metrics.getBorrowLatency().record(System.nanoTime() - start);
+            return connection;
+        } catch (SQLException e) {
+            onFailure(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Connection connection = super.getConnection(username, password);
+            metrics.getBorrowLatency().record(System.nanoTime() - start);
+            return connection;
+        } catch (SQLException e) {
+            onFailure(e);
+            throw e;
+        }
+    }
+
+    public DataSourcePoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    private void onFailure(SQLException e) {
+        if (isTimeout(e)) {
+            metrics.recordTimeout();
+        }
+    }
+
+    /**
+     * 各连接池借用连接超时的异常不同：HikariCP为SQLTransientConnectionException，Druid为GetConnectionTimeoutException，
+     * dbcp为cause是NoSuchElementException(等待空闲连接超时)的SQLException
+     */
+    private static boolean isTimeout(SQLException e) {
+        if (e instanceof SQLTimeoutException || e instanceof SQLTransientConnectionException) {
+            return true;
+        }
+        if (isInstance(e, DRUID_TIMEOUT_EXCEPTION_CLASS)) {
+            return true;
+        }
+
+        return e.getCause() instanceof NoSuchElementException;
+    }
+
+    private static boolean isInstance(Exception e, String className) {
+        ClassLoader classLoader = e.getClass().getClassLoader();
+        return ClassUtils.isPresent(className, classLoader) && ClassUtils.resolveClassName(className, classLoader).isInstance(e);
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.metrics;
+
+/**
+ * 连接池事件类型.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public enum PoolEventType {
+    /**
+     * 使用率或等待线程数超过阈值
+     */
+    SATURATED,
+    /**
+     * 从饱和状态恢复
+     */
+    RECOVERED,
+    /**
+     * 采样周期内出现获取连接超时
+     */
+    TIMEOUT,
+    /**
+     * 采样周期内出现连接泄漏
+     */
+    LEAK
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.metrics;
+
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+
+/**
+ * 读取连接池的当前状态，连接池不支持的指标返回-1.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+abstract class PoolGauge {
+    private static final String HIKARI_DATA_SOURCE_CLASS = "com.zaxxer.hikari.HikariDataSource";
+    private static final String DRUID_DATA_SOURCE_CLASS = "com.alibaba.druid.pool.DruidDataSource";
+
+    static final PoolGauge UNKNOWN = new PoolGauge() {
+    };
+
+    /**
+     * 根据连接池类型创建，连接池都是可选依赖，按类名判断
+     *
+     * @param dataSource 连接池
+     * @param metrics    统计，用于接收连接池回调的指标
+     * @return PoolGauge
+     */
+    static PoolGauge of(DataSource dataSource, DataSourcePoolMetrics metrics) {
+        if (isInstance(dataSource, HIKARI_DATA_SOURCE_CLASS)) {
+            return new HikariPoolGauge(dataSource, metrics);
+        }
+        if (isInstance(dataSource, DRUID_DATA_SOURCE_CLASS)) {
+            return new DruidPoolGauge(dataSource, metrics);
+        }
+
+        return DbcpPoolGauge.supports(dataSource) ? new DbcpPoolGauge(dataSource) : UNKNOWN;
+    }
+
+    /**
+     * 定时采样，用于把连接池的累计值转换为统计
+     */
+    void sample() {
+    }
+
+    int getNumActive() {
+        return -1;
+    }
+
+    int getNumIdle() {
+        return -1;
+    }
+
+    int getNumWaiters() {
+        return -1;
+    }
+
+    int getMaxActive() {
+        return -1;
+    }
+
+    /**
+     * 连接池自己检测到的泄漏(被回收的超时未归还连接)数
+     *
+     * @return 泄漏数
+     */
+    long getLeakCount() {
+        return 0;
+    }
+
+    private static boolean isInstance(DataSource dataSource, String className) {
+        ClassLoader classLoader = dataSource.getClass().getClassLoader();
+        return ClassUtils.isPresent(className, classLoader) && ClassUtils.resolveClassName(className, classLoader).isInstance(dataSource);
+    }
+}
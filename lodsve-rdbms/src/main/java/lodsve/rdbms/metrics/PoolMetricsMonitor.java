@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.metrics;
+
+import lodsve.core.event.EventPublisher;
+import lodsve.rdbms.dynamic.DynamicDataSource;
+import lodsve.rdbms.properties.MetricsSetting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定时检查{@link DynamicDataSource}中每个数据源的连接池.<br/>
+ * 使用率或等待线程数达到阈值时发布一次{@link PoolEventType#SATURATED}，回落后发布{@link PoolEventType#RECOVERED}；
+ * 两次检查之间出现超时、泄漏时发布{@link PoolEventType#TIMEOUT}、{@link PoolEventType#LEAK}.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class PoolMetricsMonitor implements InitializingBean, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(PoolMetricsMonitor.class);
+
+    private final DynamicDataSource dataSource;
+    private final MetricsSetting setting;
+    private final EventPublisher eventPublisher;
+    private final Map<String, State> states = new HashMap<>(16);
+    private ScheduledExecutorService executor;
+
+    public PoolMetricsMonitor(DynamicDataSource dataSource, MetricsSetting setting, EventPublisher eventPublisher) {
+        this.dataSource = dataSource;
+        this.setting = setting == null ? new MetricsSetting() : setting;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (dataSource == null || !setting.isEnabled()) {
+            return;
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rdbms-pool-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = setting.getInterval() == null ? 5000L : setting.getInterval();
+        executor.scheduleWithFixedDelay(this::check, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 检查一次所有数据源
+     */
+    public synchronized void check() {
+        for (DataSourcePoolMetrics metrics : dataSource.getPoolMetrics().values()) {
+            try {
+                check(metrics);
+            } catch (Exception e) {
+                logger.warn("check rdbms pool '" + metrics.getName() + "' failed!", e);
+            }
+        }
+    }
+
+    private void check(DataSourcePoolMetrics metrics) {
+        metrics.sample();
+        State state = states.computeIfAbsent(metrics.getName(), n -> new State());
+
+        double threshold = setting.getSaturationThreshold() == null ? 0.9 : setting.getSaturationThreshold();
+        int waitersThreshold = setting.getWaitersThreshold() == null ? 1 : setting.getWaitersThreshold();
+        double utilization = metrics.getUtilization();
+        int waiters = metrics.getNumWaiters();
+        boolean saturated = (utilization >= 0 && utilization >= threshold) || (waitersThreshold > 0 && waiters >= waitersThreshold);
+        if (saturated != state.saturated) {
+            state.saturated = saturated;
+            publish(metrics, saturated ? PoolEventType.SATURATED : PoolEventType.RECOVERED, 0);
+        }
+
+        long timeouts = metrics.getTimeoutCount();
+        if (timeouts > state.timeouts) {
+            publish(metrics, PoolEventType.TIMEOUT, timeouts - state.timeouts);
+        }
+        state.timeouts = timeouts;
+
+        long leaks = metrics.getLeakCount();
+        if (leaks > state.leaks) {
+            publish(metrics, PoolEventType.LEAK, leaks - state.leaks);
+        }
+        state.leaks = leaks;
+    }
+
+    private void publish(DataSourcePoolMetrics metrics, PoolEventType type, long count) {
+        PoolSaturationEvent event = new PoolSaturationEvent(metrics, type, count);
+        if (type == PoolEventType.RECOVERED) {
+            logger.info("rdbms pool {}", event);
+        } else {
+            logger.warn("rdbms pool {}", event);
+        }
+
+        if (eventPublisher != null) {
+            eventPublisher.publish(event);
+        }
+    }
+
+    private static class State {
+        private boolean saturated;
+        private long timeouts;
+        private long leaks;
+    }
+}
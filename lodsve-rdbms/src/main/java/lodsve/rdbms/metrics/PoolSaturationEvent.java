@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.metrics;
+
+import lodsve.core.event.module.BaseEvent;
+
+import java.util.Date;
+
+/**
+ * 连接池饱和事件，通过{@link lodsve.core.event.EventPublisher}发布，使用{@link lodsve.core.event.annotations.AsyncEvent}订阅.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class PoolSaturationEvent extends BaseEvent {
+    private final String dataSourceName;
+    private final PoolEventType type;
+    private final int numActive;
+    private final int numWaiters;
+    private final int maxActive;
+    private final long count;
+
+    /**
+     * @param source 连接池统计
+     * @param type   事件类型
+     * @param count  TIMEOUT/LEAK时为采样周期内新增的次数
+     */
+    public PoolSaturationEvent(DataSourcePoolMetrics source, PoolEventType type, long count) {
+        super(source, new Date());
+        this.dataSourceName = source.getName();
+        this.type = type;
+        this.numActive = source.getNumActive();
+        this.numWaiters = source.getNumWaiters();
+        this.maxActive = source.getMaxActive();
+        this.count = count;
+    }
+
+    public String getDataSourceName() {
+        return dataSourceName;
+    }
+
+    public PoolEventType getType() {
+        return type;
+    }
+
+    public int getNumActive() {
+        return numActive;
+    }
+
+    public int getNumWaiters() {
+        return numWaiters;
+    }
+
+    public int getMaxActive() {
+        return maxActive;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[%s] active=%d, waiters=%d, maxActive=%d, count=%d", type, dataSourceName, numActive, numWaiters, maxActive, count);
+    }
+}
@@ -22,19 +22,26 @@ import lodsve.core.properties.relaxedbind.RelaxedBindFactory;
 import lodsve.core.utils.BeanMapper;
 import lodsve.rdbms.properties.PoolSetting;
 import lodsve.rdbms.properties.RdbmsProperties;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.util.ClassUtils;
 
+import java.beans.PropertyDescriptor;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 /**
- * 数据源连接池.
+ * 数据源连接池.<br/>
+ * 连接校验按{@link PoolSetting#getValidationStrategy()}由各连接池转换为自己的配置，PoolSetting中显式设置的testOnBorrow等属性优先.
  *
  * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
  */
 public abstract class BaseDataSourcePool {
     private static final String DATA_SOURCE_NAME_DBCP = "org.apache.commons.dbcp.BasicDataSource";
     private static final String DATA_SOURCE_NAME_DRUID = "com.alibaba.druid.pool.DruidDataSource";
+    private static final String DATA_SOURCE_NAME_HIKARI = "com.zaxxer.hikari.HikariDataSource";
 
     private final String dataSourceName;
     private final RdbmsProperties rdbmsProperties;
@@ -53,23 +60,70 @@ public abstract class BaseDataSourcePool {
         String dataSourceClassName = rdbmsProperties.getDataSourceClass();
         BeanDefinitionBuilder beanDefinitionBuilder = BeanDefinitionBuilder.genericBeanDefinition(dataSourceClassName);
 
-        setDataSourceProperty(beanDefinitionBuilder, getProperties());
+        // 连接信息
+        PoolSetting poolSetting = rdbmsProperties.getPool().get(dataSourceName);
+        Map<String, Object> properties = Maps.newHashMap(getValidationProperties(poolSetting));
+        properties.putAll(getProperties(poolSetting));
+        setDataSourceProperty(beanDefinitionBuilder, properties);
         setCustomProperties(beanDefinitionBuilder, rdbmsProperties);
 
         return beanDefinitionBuilder.getBeanDefinition();
     }
 
-    private Map<String, String> getProperties() {
-        // 连接信息
-        PoolSetting poolSetting = rdbmsProperties.getPool().get(dataSourceName);
-
-        Map<String, String> properties = Maps.newHashMap();
+    /**
+     * 将连接信息转换为连接池的属性，默认属性名与{@link PoolSetting}相同，未设置的属性以及连接池中没有的属性不处理
+     *
+     * @param poolSetting 连接信息
+     * @return 连接池的属性
+     */
+    protected Map<String, Object> getProperties(PoolSetting poolSetting) {
+        Map<String, Object> properties = Maps.newHashMap();
         BeanMapper.map(poolSetting, properties);
+        properties.values().removeIf(Objects::isNull);
+
+        ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+        String dataSourceClassName = rdbmsProperties.getDataSourceClass();
+        if (ClassUtils.isPresent(dataSourceClassName, classLoader)) {
+            Class<?> dataSourceClass = ClassUtils.resolveClassName(dataSourceClassName, classLoader);
+            properties.keySet().removeIf(name -> !isWritable(dataSourceClass, name));
+        }
         return properties;
     }
 
-    private void setDataSourceProperty(BeanDefinitionBuilder dataSourceBuilder, Map<String, String> properties) {
-        for (Map.Entry<String, String> entry : properties.entrySet()) {
+    /**
+     * 将连接校验策略转换为连接池的属性
+     *
+     * @param poolSetting 连接信息
+     * @return 连接池的属性
+     */
+    protected abstract Map<String, Object> getValidationProperties(PoolSetting poolSetting);
+
+    /**
+     * 数据源名称
+     *
+     * @return 数据源名称
+     */
+    protected String getDataSourceName() {
+        return dataSourceName;
+    }
+
+    /**
+     * 毫秒转换为秒，向上取整，最小为1秒
+     *
+     * @param millis 毫秒
+     * @return 秒
+     */
+    static int toSeconds(long millis) {
+        return (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(millis + 999));
+    }
+
+    private static boolean isWritable(Class<?> dataSourceClass, String name) {
+        PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(dataSourceClass, name);
+        return descriptor != null && descriptor.getWriteMethod() != null;
+    }
+
+    private void setDataSourceProperty(BeanDefinitionBuilder dataSourceBuilder, Map<String, Object> properties) {
+        for (Map.Entry<String, Object> entry : properties.entrySet()) {
             dataSourceBuilder.addPropertyValue(entry.getKey(), entry.getValue());
         }
     }
@@ -97,6 +151,8 @@ public abstract class BaseDataSourcePool {
                 return new DbcpDataSourcePool(dataSourceName, rdbmsProperties);
             case DATA_SOURCE_NAME_DRUID:
                 return new DruidDataSourcePool(dataSourceName, rdbmsProperties);
+            case DATA_SOURCE_NAME_HIKARI:
+                return new HikariDataSourcePool(dataSourceName, rdbmsProperties);
             default:
                 return new DbcpDataSourcePool(dataSourceName, rdbmsProperties);
         }
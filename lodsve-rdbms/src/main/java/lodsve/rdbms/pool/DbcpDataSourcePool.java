@@ -17,11 +17,18 @@
 
 package lodsve.rdbms.pool;
 
+import com.google.common.collect.Maps;
+import lodsve.rdbms.properties.PoolSetting;
 import lodsve.rdbms.properties.RdbmsProperties;
+import lodsve.rdbms.properties.StatementCacheSetting;
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
 
+import java.util.Map;
+
 /**
- * dbcp数据源连接池.
+ * dbcp数据源连接池.<br/>
+ * dbcp1只能通过validationQuery校验，也不会剔除执行出错的连接，所以IS_VALID在借出时执行validationQuery，
+ * IDLE_INTERVAL/BACKGROUND/ON_ERROR都使用后台线程校验空闲连接.
  *
  * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
  */
@@ -31,7 +38,41 @@ public class DbcpDataSourcePool extends BaseDataSourcePool {
     }
 
     @Override
-    public void setCustomProperties(BeanDefinitionBuilder beanDefinitionBuilder, RdbmsProperties rdbmsProperties) {
+    protected Map<String, Object> getValidationProperties(PoolSetting poolSetting) {
+        Map<String, Object> properties = Maps.newHashMap();
+        properties.put("validationQueryTimeout", toSeconds(poolSetting.getValidationTimeout()));
 
+        switch (poolSetting.getValidationStrategy()) {
+            case BORROW_AND_RETURN:
+                properties.put("testOnBorrow", true);
+                properties.put("testOnReturn", true);
+                properties.put("testWhileIdle", false);
+                break;
+            case IS_VALID:
+                properties.put("testOnBorrow", true);
+                properties.put("testOnReturn", false);
+                properties.put("testWhileIdle", false);
+                break;
+            default:
+                properties.put("testOnBorrow", false);
+                properties.put("testOnReturn", false);
+                properties.put("testWhileIdle", true);
+                properties.put("timeBetweenEvictionRunsMillis", poolSetting.getValidationInterval());
+                // 每次校验所有空闲连接
+                properties.put("numTestsPerEvictionRun", -1);
+                break;
+        }
+
+        return properties;
+    }
+
+    @Override
+    public void setCustomProperties(BeanDefinitionBuilder beanDefinitionBuilder, RdbmsProperties rdbmsProperties) {
+        // 配置了PreparedStatement缓存时需要通过getInnermostDelegate取得物理连接
+        Map<String, StatementCacheSetting> statementCache = rdbmsProperties.getStatementCache();
+        StatementCacheSetting setting = statementCache == null ? null : statementCache.get(getDataSourceName());
+        if (setting != null && setting.getSize() != null && setting.getSize() > 0) {
+            beanDefinitionBuilder.addPropertyValue("accessToUnderlyingConnectionAllowed", true);
+        }
     }
 }
@@ -21,16 +21,21 @@ import com.alibaba.druid.filter.Filter;
 import com.alibaba.druid.wall.WallConfig;
 import com.alibaba.druid.wall.WallFilter;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import lodsve.core.properties.relaxedbind.RelaxedBindFactory;
 import lodsve.core.utils.StringUtils;
 import lodsve.rdbms.properties.DruidProperties;
+import lodsve.rdbms.properties.PoolSetting;
 import lodsve.rdbms.properties.RdbmsProperties;
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
 
 import java.util.List;
+import java.util.Map;
 
 /**
- * druid数据源连接池.
+ * druid数据源连接池.<br/>
+ * druid对MySQL/PostgreSQL/Oracle等会自动使用ping/isValid代替validationQuery，
+ * 并通过ExceptionSorter在执行出错时剔除已经断开的连接.
  *
  * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
  */
@@ -41,6 +46,38 @@ public class DruidDataSourcePool extends BaseDataSourcePool {
         super(dataSourceName, rdbmsProperties);
     }
 
+    @Override
+    protected Map<String, Object> getValidationProperties(PoolSetting poolSetting) {
+        Map<String, Object> properties = Maps.newHashMap();
+        properties.put("validationQueryTimeout", toSeconds(poolSetting.getValidationTimeout()));
+        properties.put("testOnBorrow", false);
+        properties.put("testOnReturn", false);
+        properties.put("testWhileIdle", false);
+
+        switch (poolSetting.getValidationStrategy()) {
+            case BORROW_AND_RETURN:
+                properties.put("testOnBorrow", true);
+                properties.put("testOnReturn", true);
+                break;
+            case IS_VALID:
+                properties.put("testOnBorrow", true);
+                break;
+            case IDLE_INTERVAL:
+                // 借出时空闲超过timeBetweenEvictionRunsMillis才校验
+                properties.put("testWhileIdle", true);
+                properties.put("timeBetweenEvictionRunsMillis", poolSetting.getValidationInterval());
+                break;
+            case BACKGROUND:
+                properties.put("keepAlive", true);
+                properties.put("timeBetweenEvictionRunsMillis", poolSetting.getValidationInterval());
+                break;
+            default:
+                break;
+        }
+
+        return properties;
+    }
+
     @Override
     public void setCustomProperties(BeanDefinitionBuilder beanDefinitionBuilder, RdbmsProperties rdbmsProperties) {
         // init method
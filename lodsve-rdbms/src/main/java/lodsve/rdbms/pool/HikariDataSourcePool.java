@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.pool;
+
+import lodsve.rdbms.properties.PoolSetting;
+import lodsve.rdbms.properties.RdbmsProperties;
+import lodsve.rdbms.properties.ValidationStrategy;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HikariCP数据源连接池.<br/>
+ * HikariCP的属性名与dbcp/druid不同，{@link PoolSetting}中的属性按以下对应关系设置：
+ * <ul>
+ * <li>url -> jdbcUrl</li>
+ * <li>maxActive -> maximumPoolSize</li>
+ * <li>minIdle -> minimumIdle</li>
+ * <li>maxWait -> connectionTimeout</li>
+ * <li>idleTimeout/maxLifetime -> idleTimeout/maxLifetime</li>
+ * <li>leakDetectionThreshold -> leakDetectionThreshold，未设置时取removeAbandonedTimeout(removeAbandoned为true时)</li>
+ * <li>cachePrepStmts/prepStmtCacheSize/prepStmtCacheSqlLimit -> dataSourceProperties(驱动属性)</li>
+ * </ul>
+ * initialSize/maxIdle在HikariCP中没有对应的属性，忽略.<br/>
+ * HikariCP借出时只校验空闲超过500毫秒的连接，并在执行出错时剔除已经断开的连接，没有归还时校验和后台校验，
+ * 所以只有BORROW_AND_RETURN使用validationQuery(connectionTestQuery)，其他策略都使用JDBC4的isValid.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class HikariDataSourcePool extends BaseDataSourcePool {
+    HikariDataSourcePool(String dataSourceName, RdbmsProperties rdbmsProperties) {
+        super(dataSourceName, rdbmsProperties);
+    }
+
+    @Override
+    protected Map<String, Object> getProperties(PoolSetting poolSetting) {
+        Map<String, Object> properties = new HashMap<>(16);
+        properties.put("poolName", getDataSourceName());
+        putIfNotNull(properties, "driverClassName", poolSetting.getDriverClassName());
+        putIfNotNull(properties, "jdbcUrl", poolSetting.getUrl());
+        putIfNotNull(properties, "username", poolSetting.getUsername());
+        putIfNotNull(properties, "password", poolSetting.getPassword());
+        putIfNotNull(properties, "maximumPoolSize", poolSetting.getMaxActive());
+        putIfNotNull(properties, "minimumIdle", poolSetting.getMinIdle());
+        putIfNotNull(properties, "connectionTimeout", poolSetting.getMaxWait());
+        putIfNotNull(properties, "idleTimeout", poolSetting.getIdleTimeout());
+        putIfNotNull(properties, "maxLifetime", poolSetting.getMaxLifetime());
+
+        Long leakDetectionThreshold = poolSetting.getLeakDetectionThreshold();
+        if (leakDetectionThreshold == null && Boolean.TRUE.equals(poolSetting.getRemoveAbandoned()) && poolSetting.getRemoveAbandonedTimeout() != null) {
+            leakDetectionThreshold = TimeUnit.SECONDS.toMillis(poolSetting.getRemoveAbandonedTimeout());
+        }
+        putIfNotNull(properties, "leakDetectionThreshold", leakDetectionThreshold);
+
+        Properties driverProperties = new Properties();
+        putIfNotNull(driverProperties, "cachePrepStmts", poolSetting.getCachePrepStmts());
+        putIfNotNull(driverProperties, "prepStmtCacheSize", poolSetting.getPrepStmtCacheSize());
+        putIfNotNull(driverProperties, "prepStmtCacheSqlLimit", poolSetting.getPrepStmtCacheSqlLimit());
+        if (!driverProperties.isEmpty()) {
+            properties.put("dataSourceProperties", driverProperties);
+        }
+
+        return properties;
+    }
+
+    @Override
+    protected Map<String, Object> getValidationProperties(PoolSetting poolSetting) {
+        Map<String, Object> properties = new HashMap<>(4);
+        putIfNotNull(properties, "validationTimeout", poolSetting.getValidationTimeout());
+        if (ValidationStrategy.BORROW_AND_RETURN == poolSetting.getValidationStrategy()) {
+            putIfNotNull(properties, "connectionTestQuery", poolSetting.getValidationQuery());
+        }
+
+        return properties;
+    }
+
+    @Override
+    public void setCustomProperties(BeanDefinitionBuilder beanDefinitionBuilder, RdbmsProperties rdbmsProperties) {
+        // destroy method
+        beanDefinitionBuilder.setDestroyMethodName("close");
+    }
+
+    private static void putIfNotNull(Map<String, Object> properties, String key, Object value) {
+        if (value != null) {
+            properties.put(key, value);
+        }
+    }
+
+    private static void putIfNotNull(Properties properties, String key, Object value) {
+        if (value != null) {
+            // 驱动属性只接受字符串
+            properties.setProperty(key, String.valueOf(value));
+        }
+    }
+}
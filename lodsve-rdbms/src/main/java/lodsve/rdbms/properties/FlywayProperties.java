@@ -38,4 +38,20 @@ public class FlywayProperties {
      * value: flyway脚本路径，多个以逗号分隔
      */
     private Map<String, String> locations;
+    /**
+     * 同时迁移的数据源个数
+     */
+    private Integer parallelism = 4;
+    /**
+     * 迁移之前是否先校验所有数据源已执行脚本的checksum
+     */
+    private boolean validateFirst = true;
+    /**
+     * 一个数据源失败后是否不再开始其他数据源的迁移
+     */
+    private boolean failFast = true;
+    /**
+     * 是否在后台迁移，启动时不等待迁移完成
+     */
+    private boolean background = false;
 }
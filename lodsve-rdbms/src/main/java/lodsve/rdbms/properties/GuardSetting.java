@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 语句防护配置，与连接池无关.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+@Setter
+@Getter
+public class GuardSetting {
+    /**
+     * 默认的语句超时时间，单位秒，小于等于0表示不设置；语句上显式设置的超时时间优先
+     */
+    private Integer queryTimeout = 0;
+    /**
+     * 每个查询最多读取的行数，超过的部分被截断并记录，小于等于0表示不限制
+     */
+    private Integer maxRows = 0;
+    /**
+     * 是否拒绝没有WHERE条件的UPDATE/DELETE
+     */
+    private boolean rejectUnboundedWrite = true;
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 连接池监控配置.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+@Setter
+@Getter
+public class MetricsSetting {
+    /**
+     * 是否定时检查连接池并发布饱和事件
+     */
+    private boolean enabled = true;
+    /**
+     * 检查间隔，单位毫秒
+     */
+    private Long interval = 5000L;
+    /**
+     * 使用率(活跃连接数/最大连接数)达到多少时认为饱和
+     */
+    private Double saturationThreshold = 0.9;
+    /**
+     * 等待获取连接的线程数达到多少时认为饱和
+     */
+    private Integer waitersThreshold = 1;
+}
@@ -43,9 +43,36 @@ public class PoolSetting {
     private Integer maxWait = 60000;
     private Boolean removeAbandoned = true;
     private Integer removeAbandonedTimeout = 180;
-    private Boolean testOnBorrow = true;
-    private Boolean testOnReturn = true;
-    private Boolean testWhileIdle = false;
+    /**
+     * 连接校验策略，testOnBorrow/testOnReturn/testWhileIdle设置了值时优先使用设置的值
+     */
+    private ValidationStrategy validationStrategy = ValidationStrategy.IDLE_INTERVAL;
+    /**
+     * 校验超时时间，单位毫秒
+     */
+    private Long validationTimeout = 3000L;
+    /**
+     * 空闲多久之后需要校验/后台校验的间隔，单位毫秒
+     */
+    private Long validationInterval = 30000L;
+    private Boolean testOnBorrow;
+    private Boolean testOnReturn;
+    private Boolean testWhileIdle;
     private String validationQuery = "select 1";
     private Integer maxIdle = 5;
+    /**
+     * 以下属性只用于HikariCP，单位毫秒，为空时使用HikariCP的默认值
+     */
+    private Long idleTimeout;
+    private Long maxLifetime;
+    /**
+     * 连接泄露检测阈值，为空时removeAbandoned为true则使用removeAbandonedTimeout
+     */
+    private Long leakDetectionThreshold;
+    /**
+     * 驱动端PreparedStatement缓存，以驱动属性(cachePrepStmts/prepStmtCacheSize/prepStmtCacheSqlLimit)传递给驱动，只用于HikariCP
+     */
+    private Boolean cachePrepStmts;
+    private Integer prepStmtCacheSize;
+    private Integer prepStmtCacheSqlLimit;
 }
@@ -24,7 +24,7 @@ import lombok.Setter;
 import java.util.Map;
 
 /**
- * rdbms base properties,only support BasicDataSource and DruidDataSource.
+ * rdbms base properties,only support BasicDataSource, DruidDataSource and HikariDataSource.
  *
  * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
  * @date 2016-1-27 09:20
@@ -45,4 +45,28 @@ public class RdbmsProperties {
      * 连接信息
      */
     private Map<String, PoolSetting> pool;
+    /**
+     * 读写分离，主库数据源名称 => 从库配置
+     */
+    private Map<String, ReplicaSetting> replicas;
+    /**
+     * 分库，逻辑表名 => 分片配置
+     */
+    private Map<String, ShardingSetting> sharding;
+    /**
+     * 连接池监控
+     */
+    private MetricsSetting metrics = new MetricsSetting();
+    /**
+     * 启动时预热连接池
+     */
+    private WarmupSetting warmup = new WarmupSetting();
+    /**
+     * 语句防护，数据源名称 => 防护配置
+     */
+    private Map<String, GuardSetting> guard;
+    /**
+     * PreparedStatement缓存，数据源名称 => 缓存配置
+     */
+    private Map<String, StatementCacheSetting> statementCache;
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Map;
+
+/**
+ * 主库对应的从库配置，从库的连接信息与主库一样配置在pool中.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+@Setter
+@Getter
+public class ReplicaSetting {
+    /**
+     * 从库数据源名称 => 权重(只用于WEIGHTED)
+     */
+    private Map<String, Integer> dataSources;
+    /**
+     * 负载均衡策略
+     */
+    private LoadBalance loadBalance = LoadBalance.ROUND_ROBIN;
+    /**
+     * 连续获取连接失败多少次后暂时剔除该从库
+     */
+    private Integer failureThreshold = 3;
+    /**
+     * 剔除多久之后重新尝试，单位毫秒
+     */
+    private Long ejectTime = 30000L;
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.properties;
+
+/**
+ * 分片算法.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public enum ShardingAlgorithmType {
+    /**
+     * 取模，数字按数值取模，其他按hashCode取模
+     */
+    HASH_MOD,
+    /**
+     * 按范围，需要配置rangeBounds
+     */
+    RANGE,
+    /**
+     * 一致性哈希，增减分片时只有少量数据需要迁移
+     */
+    CONSISTENT_HASH
+}
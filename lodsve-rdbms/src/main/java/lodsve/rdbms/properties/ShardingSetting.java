@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * 逻辑表的分片配置，分片数据源的连接信息同样配置在pool中.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+@Setter
+@Getter
+public class ShardingSetting {
+    /**
+     * 分片数据源名称，顺序即分片序号
+     */
+    private List<String> dataSources;
+    /**
+     * 分片键
+     */
+    private String shardKey;
+    /**
+     * 分片算法
+     */
+    private ShardingAlgorithmType algorithm = ShardingAlgorithmType.HASH_MOD;
+    /**
+     * 按范围分片时每个分片的上界(不包含)，个数为分片数-1，最后一个分片没有上界
+     */
+    private List<Long> rangeBounds;
+    /**
+     * 一致性哈希每个分片的虚拟节点数
+     */
+    private Integer virtualNodes = 160;
+}
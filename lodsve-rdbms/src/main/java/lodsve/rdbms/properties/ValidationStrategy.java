@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.properties;
+
+/**
+ * 连接校验策略，由各连接池转换为自己的配置.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ * @see lodsve.rdbms.pool.BaseDataSourcePool#getValidationProperties(PoolSetting)
+ */
+public enum ValidationStrategy {
+    /**
+     * 借出和归还时都执行validationQuery，每次借用多两次网络往返，与之前的默认配置相同
+     */
+    BORROW_AND_RETURN,
+    /**
+     * 借出时使用JDBC4的Connection.isValid(timeout)校验(dbcp不支持isValid，使用validationQuery)
+     */
+    IS_VALID,
+    /**
+     * 借出时只有空闲超过validationInterval的连接才校验
+     */
+    IDLE_INTERVAL,
+    /**
+     * 借出和归还时不校验，由后台线程每隔validationInterval校验空闲连接
+     */
+    BACKGROUND,
+    /**
+     * 不主动校验，执行出错时剔除已经断开的连接(dbcp不支持，使用BACKGROUND)
+     */
+    ON_ERROR
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 启动时连接池预热配置.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+@Setter
+@Getter
+public class WarmupSetting {
+    /**
+     * 是否在启动时预热所有数据源
+     */
+    private boolean enabled = true;
+    /**
+     * 预热时在每个连接上执行的语句，为空时使用连接池的validationQuery，都没有时使用Connection#isValid
+     */
+    private String primingStatement;
+    /**
+     * 预热的总超时时间，单位毫秒
+     */
+    private Long timeout = 30000L;
+    /**
+     * 同时预热的数据源个数，小于等于0时所有数据源同时预热
+     */
+    private Integer parallelism = 0;
+    /**
+     * 有数据源预热失败时是否终止启动
+     */
+    private boolean failFast = false;
+}
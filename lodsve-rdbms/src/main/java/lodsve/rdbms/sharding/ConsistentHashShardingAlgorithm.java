@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.sharding;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 一致性哈希分片.<br/>
+ * 每个数据源在哈希环上放置若干虚拟节点，分片键的值落在顺时针方向的第一个节点上；增减数据源时只有相邻区间的数据需要迁移.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class ConsistentHashShardingAlgorithm implements ShardingAlgorithm {
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+
+    public ConsistentHashShardingAlgorithm(List<String> dataSources, int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("virtualNodes must be positive!");
+        }
+
+        for (String dataSource : dataSources) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(dataSource + "#" + i), dataSource);
+            }
+        }
+    }
+
+    @Override
+    public String doSharding(Object shardValue) {
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(shardValue.toString()));
+        return (entry == null ? ring.firstEntry() : entry).getValue();
+    }
+
+    private static long hash(String key) {
+        return HASH.hashString(key, StandardCharsets.UTF_8).asLong();
+    }
+}
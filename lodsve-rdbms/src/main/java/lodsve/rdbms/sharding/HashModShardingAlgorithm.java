@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.sharding;
+
+import lodsve.rdbms.exception.RdbmsException;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * 取模分片.<br/>
+ * 整数按数值取模(例如4个分片时id为5的数据在第2个分片)，其他类型按toString()的hashCode取模，在不同的进程中结果一致；
+ * 没有重写toString()的类型(toString()中含有内存地址)不能作为分片键.<br/>
+ * 取模前先归一化：整数字符串、没有小数部分的浮点数/BigDecimal/BigInteger都按整数处理，所以5L、5和"5"在同一个分片.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class HashModShardingAlgorithm implements ShardingAlgorithm {
+    private final String[] dataSources;
+
+    public HashModShardingAlgorithm(List<String> dataSources) {
+        this.dataSources = dataSources.toArray(new String[0]);
+    }
+
+    @Override
+    public String doSharding(Object shardValue) {
+        return dataSources[(int) Math.floorMod(hash(shardValue), (long) dataSources.length)];
+    }
+
+    private static long hash(Object shardValue) {
+        Long value = toLong(shardValue);
+        if (value != null) {
+            return value;
+        }
+        if (!overridesToString(shardValue.getClass())) {
+            String type = shardValue.getClass().getName();
+            throw new RdbmsException(108008, String.format("unsupported shard value type '%s' for hash mod sharding!", type), type);
+        }
+
+        return shardValue.toString().hashCode();
+    }
+
+    private static boolean overridesToString(Class<?> clazz) {
+        try {
+            return clazz.getMethod("toString").getDeclaringClass() != Object.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static Long toLong(Object shardValue) {
+        if (shardValue instanceof Long || shardValue instanceof Integer || shardValue instanceof Short || shardValue instanceof Byte) {
+            return ((Number) shardValue).longValue();
+        }
+        if (shardValue instanceof BigInteger) {
+            return ((BigInteger) shardValue).bitLength() < Long.SIZE ? ((BigInteger) shardValue).longValue() : null;
+        }
+        if (shardValue instanceof Number) {
+            // BigDecimal、Double等没有小数部分时按整数处理
+            try {
+                return new BigDecimal(shardValue.toString()).longValueExact();
+            } catch (NumberFormatException | ArithmeticException e) {
+                return null;
+            }
+        }
+        if (shardValue instanceof CharSequence) {
+            try {
+                return Long.parseLong(shardValue.toString().trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        return null;
+    }
+}
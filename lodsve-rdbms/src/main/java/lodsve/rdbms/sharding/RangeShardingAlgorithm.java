@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.sharding;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 范围分片.<br/>
+ * 第i个分片保存[bounds[i-1], bounds[i])的数据，最后一个分片没有上界，分片键的值必须是整数或者整数字符串.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class RangeShardingAlgorithm implements ShardingAlgorithm {
+    private final String[] dataSources;
+    private final long[] bounds;
+
+    public RangeShardingAlgorithm(List<String> dataSources, List<Long> bounds) {
+        if (bounds == null || bounds.size() != dataSources.size() - 1) {
+            throw new IllegalArgumentException("range sharding requires " + (dataSources.size() - 1) + " bounds!");
+        }
+
+        this.dataSources = dataSources.toArray(new String[0]);
+        this.bounds = new long[bounds.size()];
+        for (int i = 0; i < this.bounds.length; i++) {
+            this.bounds[i] = bounds.get(i);
+            if (i > 0 && this.bounds[i] <= this.bounds[i - 1]) {
+                throw new IllegalArgumentException("range bounds must be ascending!");
+            }
+        }
+    }
+
+    @Override
+    public String doSharding(Object shardValue) {
+        long value = shardValue instanceof Number ? ((Number) shardValue).longValue() : Long.parseLong(shardValue.toString().trim());
+
+        int index = Arrays.binarySearch(bounds, value);
+        // 等于上界时属于下一个分片，没找到时binarySearch返回-(插入位置)-1
+        return dataSources[index >= 0 ? index + 1 : -index - 1];
+    }
+}
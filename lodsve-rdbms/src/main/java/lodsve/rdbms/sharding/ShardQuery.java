@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.sharding;
+
+import java.util.List;
+
+/**
+ * 在一个分片上执行的查询，执行时已经切换到该分片的数据源.
+ *
+ * @param <T> 结果类型
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+@FunctionalInterface
+public interface ShardQuery<T> {
+    /**
+     * 查询
+     *
+     * @param dataSource 分片数据源名称
+     * @param fetchSize  最多需要返回的条数(offset + limit)，按排序条件取前fetchSize条即可
+     * @return 按排序条件排好序的结果
+     */
+    List<T> query(String dataSource, int fetchSize);
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.sharding;
+
+import lodsve.rdbms.dynamic.DataSourceHolder;
+import lodsve.rdbms.exception.RdbmsException;
+import lodsve.rdbms.properties.ShardingSetting;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.NonNull;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 分库路由.<br/>
+ * 按逻辑表的分片规则计算数据源，通过{@link DataSourceHolder}切换，由{@link lodsve.rdbms.dynamic.DynamicDataSource}取得对应的连接；
+ * 没有分片键的查询在所有分片上并行执行后合并、分页，每个分片使用单独的线程；默认线程池的大小为最大的分片数，
+ * 排队的任务超过{@value #DEFAULT_QUEUE_CAPACITY}个时由调用线程执行.<br/>
+ * 路由是显式的：通过{@link #execute}、{@link #scatter}或者
+ * {@code @SwitchDataSource(key = "@lodsveShardingRouter.route('t_order', #userId)")}指定，不会解析每条sql自动路由.<br/>
+ * 事务开始后连接已经绑定，切换数据源不再生效，所以在事务中或者当前线程已经绑定了资源时直接抛出异常，而不是在同一个连接上重复查询.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class ShardingRouter implements DisposableBean {
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private final Map<String, ShardingRule> rules;
+    /**
+     * 默认的跨分片查询线程池
+     */
+    private final ExecutorService defaultExecutor;
+    /**
+     * 执行跨分片查询的线程池
+     */
+    private Executor executor;
+
+    public ShardingRouter(Map<String, ShardingSetting> settings) {
+        Map<String, ShardingRule> rules = new HashMap<>(settings.size());
+        settings.forEach((table, setting) -> rules.put(table, ShardingRule.create(table, setting)));
+        this.rules = Collections.unmodifiableMap(rules);
+        this.defaultExecutor = createDefaultExecutor(this.rules.values());
+        this.executor = defaultExecutor;
+    }
+
+    public ShardingRouter(Collection<ShardingRule> rules) {
+        Map<String, ShardingRule> map = new HashMap<>(rules.size());
+        rules.forEach(r -> map.put(r.getTable(), r));
+        this.rules = Collections.unmodifiableMap(map);
+        this.defaultExecutor = createDefaultExecutor(this.rules.values());
+        this.executor = defaultExecutor;
+    }
+
+    /**
+     * 获取逻辑表的分片规则
+     *
+     * @param table 逻辑表名
+     * @return 分片规则
+     */
+    public ShardingRule getRule(String table) {
+        ShardingRule rule = rules.get(table);
+        if (rule == null) {
+            throw new RdbmsException(108002, String.format("no sharding rule for table '%s'!", table), table);
+        }
+
+        return rule;
+    }
+
+    /**
+     * 计算数据所在的数据源
+     *
+     * @param table     逻辑表名
+     * @param parameter 分片键的值，或者包含分片键的Map/实体
+     * @return 数据源名称
+     */
+    public String route(String table, Object parameter) {
+        return getRule(table).route(parameter);
+    }
+
+    /**
+     * 切换到数据所在的分片执行
+     *
+     * @param table     逻辑表名
+     * @param parameter 分片键的值，或者包含分片键的Map/实体
+     * @param action    执行的操作
+     * @param <T>       返回值类型
+     * @return 操作的返回值
+     */
+    public <T> T execute(String table, Object parameter, Supplier<T> action) {
+        checkUnbound(table);
+        return doInShard(route(table, parameter), action);
+    }
+
+    /**
+     * 在所有分片上执行查询，按分片顺序合并结果
+     *
+     * @param table 逻辑表名
+     * @param query 查询，参数为分片数据源名称
+     * @param <T>   结果类型
+     * @return 所有分片的结果
+     */
+    public <T> List<T> scatter(String table, Function<String, List<T>> query) {
+        checkUnbound(table);
+
+        List<T> result = new ArrayList<>();
+        gather(getRule(table).getDataSources(), query).forEach(result::addAll);
+        return result;
+    }
+
+    /**
+     * 在所有分片上执行排序查询，合并后分页.<br/>
+     * 每个分片取前offset + limit条排好序的结果，多路归并后跳过offset条取limit条.
+     *
+     * @param table      逻辑表名
+     * @param comparator 排序条件，与分片上查询的排序一致
+     * @param offset     跳过的条数
+     * @param limit      返回的条数
+     * @param query      查询
+     * @param <T>        结果类型
+     * @return 当前页的结果
+     */
+    public <T> List<T> scatter(String table, Comparator<? super T> comparator, int offset, int limit, ShardQuery<T> query) {
+        Assert.notNull(comparator, "comparator is required!");
+        Assert.isTrue(offset >= 0 && limit > 0, "offset must be non-negative and limit must be positive!");
+        checkUnbound(table);
+
+        int fetchSize = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+        List<List<T>> results = gather(getRule(table).getDataSources(), ds -> query.query(ds, fetchSize));
+
+        return merge(results, comparator, offset, limit);
+    }
+
+    /**
+     * 设置执行跨分片查询的线程池
+     *
+     * @param executor 线程池，为null时使用默认的线程池
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor == null ? defaultExecutor : executor;
+    }
+
+    @Override
+    public void destroy() {
+        defaultExecutor.shutdownNow();
+    }
+
+    private static ExecutorService createDefaultExecutor(Collection<ShardingRule> rules) {
+        int poolSize = Math.max(rules.stream().mapToInt(r -> r.getDataSources().size()).max().orElse(1), 1);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(DEFAULT_QUEUE_CAPACITY),
+                new ThreadFactory() {
+                    private final AtomicInteger counter = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(@NonNull Runnable r) {
+                        Thread thread = new Thread(r, "sharding-scatter-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+
+    /**
+     * 事务中或者已经绑定了连接时，DynamicDataSource不会再取新的连接，切换数据源会在同一个连接上执行
+     */
+    private void checkUnbound(String table) {
+        if (TransactionSynchronizationManager.isSynchronizationActive() || !TransactionSynchronizationManager.getResourceMap().isEmpty()) {
+            throw new RdbmsException(108006, String.format("can't switch shard of table '%s' inside a transaction or with a bound connection!", table), table);
+        }
+    }
+
+    private <T> List<List<T>> gather(List<String> dataSources, Function<String, List<T>> query) {
+        // 每个分片在单独的线程中执行，不受调用线程上数据源、连接的影响
+        List<CompletableFuture<List<T>>> futures = new ArrayList<>(dataSources.size());
+        dataSources.forEach(ds -> futures.add(CompletableFuture.supplyAsync(() -> doInShard(ds, () -> query.apply(ds)), executor)));
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+
+        List<List<T>> results = new ArrayList<>(futures.size());
+        futures.forEach(f -> results.add(f.join()));
+        return results;
+    }
+
+    private <T> T doInShard(String dataSource, Supplier<T> action) {
+        try (DataSourceHolder dsh = DataSourceHolder.getInstance()) {
+            dsh.push(dataSource);
+            return action.get();
+        }
+    }
+
+    private static <T> List<T> merge(List<List<T>> results, Comparator<? super T> comparator, int offset, int limit) {
+        PriorityQueue<Cursor<T>> queue = new PriorityQueue<>(Math.max(results.size(), 1), (a, b) -> comparator.compare(a.current, b.current));
+        for (List<T> result : results) {
+            Iterator<T> iterator = result == null ? Collections.emptyIterator() : result.iterator();
+            if (iterator.hasNext()) {
+                queue.add(new Cursor<>(iterator));
+            }
+        }
+
+        List<T> page = new ArrayList<>(Math.min(limit, 1024));
+        int skipped = 0;
+        while (!queue.isEmpty() && page.size() < limit) {
+            Cursor<T> cursor = queue.poll();
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                page.add(cursor.current);
+            }
+
+            if (cursor.next()) {
+                queue.add(cursor);
+            }
+        }
+
+        return page;
+    }
+
+    private static class Cursor<T> {
+        private final Iterator<T> iterator;
+        private T current;
+
+        Cursor(Iterator<T> iterator) {
+            this.iterator = iterator;
+            this.current = iterator.next();
+        }
+
+        boolean next() {
+            if (!iterator.hasNext()) {
+                return false;
+            }
+
+            current = iterator.next();
+            return true;
+        }
+    }
+}
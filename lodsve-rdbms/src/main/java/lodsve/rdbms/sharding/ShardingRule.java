@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.sharding;
+
+import lodsve.rdbms.exception.RdbmsException;
+import lodsve.rdbms.properties.ShardingAlgorithmType;
+import lodsve.rdbms.properties.ShardingSetting;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一个逻辑表的分片规则.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class ShardingRule {
+    private final String table;
+    private final String shardKey;
+    private final List<String> dataSources;
+    private final ShardingAlgorithm algorithm;
+
+    public ShardingRule(String table, String shardKey, List<String> dataSources, ShardingAlgorithm algorithm) {
+        Assert.hasText(table, "table is required!");
+        Assert.notEmpty(dataSources, "dataSources is required!");
+        Assert.notNull(algorithm, "algorithm is required!");
+
+        this.table = table;
+        this.shardKey = shardKey;
+        this.dataSources = Collections.unmodifiableList(new ArrayList<>(dataSources));
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * 根据配置创建分片规则
+     *
+     * @param table   逻辑表名
+     * @param setting 分片配置
+     * @return 分片规则
+     */
+    public static ShardingRule create(String table, ShardingSetting setting) {
+        List<String> dataSources = setting.getDataSources();
+        if (dataSources == null || dataSources.isEmpty()) {
+            throw new RdbmsException(108002, String.format("sharding table '%s' has no data sources!", table), table);
+        }
+
+        ShardingAlgorithmType type = setting.getAlgorithm() == null ? ShardingAlgorithmType.HASH_MOD : setting.getAlgorithm();
+        ShardingAlgorithm algorithm;
+        try {
+            switch (type) {
+                case RANGE:
+                    algorithm = new RangeShardingAlgorithm(dataSources, setting.getRangeBounds());
+                    break;
+                case CONSISTENT_HASH:
+                    algorithm = new ConsistentHashShardingAlgorithm(dataSources, setting.getVirtualNodes() == null ? 160 : setting.getVirtualNodes());
+                    break;
+                default:
+                    algorithm = new HashModShardingAlgorithm(dataSources);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new RdbmsException(108002, String.format("sharding table '%s': %s", table, e.getMessage()), table);
+        }
+
+        return new ShardingRule(table, setting.getShardKey(), dataSources, algorithm);
+    }
+
+    /**
+     * 计算数据所在的数据源
+     *
+     * @param parameter 分片键的值，或者包含分片键的Map/实体
+     * @return 数据源名称
+     */
+    public String route(Object parameter) {
+        Object shardValue = getShardValue(parameter);
+        if (shardValue == null) {
+            throw new RdbmsException(108003, String.format("sharding table '%s' requires a value of '%s'!", table, shardKey), table);
+        }
+
+        try {
+            return algorithm.doSharding(shardValue);
+        } catch (NumberFormatException e) {
+            throw new RdbmsException(108003, String.format("sharding table '%s' can't route value '%s'!", table, shardValue), table);
+        }
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public String getShardKey() {
+        return shardKey;
+    }
+
+    public List<String> getDataSources() {
+        return dataSources;
+    }
+
+    public ShardingAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    private Object getShardValue(Object parameter) {
+        if (parameter == null || BeanUtils.isSimpleValueType(parameter.getClass())) {
+            return parameter;
+        }
+        if (parameter instanceof Map) {
+            return ((Map<?, ?>) parameter).get(shardKey);
+        }
+
+        Assert.hasText(shardKey, "shardKey is required to route an entity!");
+        return PropertyAccessorFactory.forBeanPropertyAccess(parameter).getPropertyValue(shardKey);
+    }
+}
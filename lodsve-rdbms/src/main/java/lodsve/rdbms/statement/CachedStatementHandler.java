@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.statement;
+
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 缓存的PreparedStatement代理，关闭时清空参数、恢复修改过的属性后放回缓存.<br/>
+ * 修改了无法恢复的属性(cursorName、escapeProcessing等)的语句不再复用.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+class CachedStatementHandler implements InvocationHandler {
+    private final CachingConnectionHandler connectionHandler;
+    private final Connection connection;
+    private final ConnectionStatements statements;
+    private final StatementKey key;
+    private final PreparedStatement target;
+    /**
+     * 属性名 => 第一次修改之前的值
+     */
+    private final Map<String, Integer> originals = new HashMap<>(4);
+    /**
+     * 最近一次打开的结果集以及自增主键，关闭语句时需要一起关闭，再次执行时驱动会关闭之前的结果集
+     */
+    private ResultSet resultSet;
+    private ResultSet generatedKeys;
+    private boolean batched;
+    private boolean reusable = true;
+    private boolean closed;
+
+    CachedStatementHandler(CachingConnectionHandler connectionHandler, Connection connection, ConnectionStatements statements,
+                           StatementKey key, PreparedStatement target) {
+        this.connectionHandler = connectionHandler;
+        this.connection = connection;
+        this.statements = statements;
+        this.key = key;
+        this.target = target;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Cached statement proxy [" + target + "]";
+            case "unwrap":
+                if (((Class<?>) args[0]).isInstance(proxy)) {
+                    return proxy;
+                }
+                break;
+            case "isWrapperFor":
+                if (((Class<?>) args[0]).isInstance(proxy)) {
+                    return true;
+                }
+                break;
+            case "isClosed":
+                return closed;
+            case "close":
+                close();
+                return null;
+            default:
+                break;
+        }
+
+        if (closed) {
+            throw new SQLException("Illegal operation: statement is closed");
+        }
+
+        switch (method.getName()) {
+            case "getConnection":
+                return connection;
+            case "setQueryTimeout":
+                originals.putIfAbsent("queryTimeout", target.getQueryTimeout());
+                break;
+            case "setMaxRows":
+            case "setLargeMaxRows":
+                originals.putIfAbsent("maxRows", target.getMaxRows());
+                break;
+            case "setFetchSize":
+                originals.putIfAbsent("fetchSize", target.getFetchSize());
+                break;
+            case "setFetchDirection":
+                originals.putIfAbsent("fetchDirection", target.getFetchDirection());
+                break;
+            case "setMaxFieldSize":
+                originals.putIfAbsent("maxFieldSize", target.getMaxFieldSize());
+                break;
+            case "setCursorName":
+            case "setEscapeProcessing":
+            case "setPoolable":
+            case "closeOnCompletion":
+                reusable = false;
+                break;
+            case "addBatch":
+                batched = true;
+                break;
+            case "clearBatch":
+                batched = false;
+                break;
+            case "executeBatch":
+            case "executeLargeBatch":
+                batched = false;
+                connectionHandler.markDirty();
+                break;
+            case "execute":
+            case "executeQuery":
+            case "executeUpdate":
+            case "executeLargeUpdate":
+                connectionHandler.markDirty();
+                break;
+            default:
+                break;
+        }
+
+        Object result;
+        try {
+            result = method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+
+        if (result instanceof ResultSet) {
+            if ("getGeneratedKeys".equals(method.getName())) {
+                generatedKeys = (ResultSet) result;
+            } else {
+                resultSet = (ResultSet) result;
+            }
+        }
+        return result;
+    }
+
+    void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        connectionHandler.onStatementClosed(this);
+        JdbcUtils.closeResultSet(resultSet);
+        JdbcUtils.closeResultSet(generatedKeys);
+        resultSet = null;
+        generatedKeys = null;
+        if (reusable) {
+            try {
+                reset();
+            } catch (SQLException | RuntimeException e) {
+                reusable = false;
+            }
+        }
+
+        if (!reusable || !statements.release(key, target)) {
+            target.close();
+        }
+    }
+
+    private void reset() throws SQLException {
+        if (batched) {
+            target.clearBatch();
+        }
+        target.clearParameters();
+        target.clearWarnings();
+
+        for (Map.Entry<String, Integer> original : originals.entrySet()) {
+            int value = original.getValue();
+            switch (original.getKey()) {
+                case "queryTimeout":
+                    target.setQueryTimeout(value);
+                    break;
+                case "maxRows":
+                    target.setMaxRows(value);
+                    break;
+                case "fetchSize":
+                    target.setFetchSize(value);
+                    break;
+                case "fetchDirection":
+                    target.setFetchDirection(value);
+                    break;
+                default:
+                    target.setMaxFieldSize(value);
+                    break;
+            }
+        }
+    }
+}
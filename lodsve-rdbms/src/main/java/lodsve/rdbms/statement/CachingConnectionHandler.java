@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.statement;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * 缓存PreparedStatement的连接代理.<br/>
+ * 缓存的语句直接在物理连接上执行，连接池感知不到，所以关闭时如果有未提交的修改需要自己回滚，
+ * 切换catalog/schema后缓存的语句可能指向其他库，需要清空.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+class CachingConnectionHandler implements InvocationHandler {
+    private static final Logger logger = LoggerFactory.getLogger(CachingConnectionHandler.class);
+
+    private final StatementCache cache;
+    private final Connection target;
+    private final ConnectionStatements statements;
+    private final boolean pooled;
+    /**
+     * 缓存的语句执行过修改并且还没有提交或回滚
+     */
+    private boolean dirty;
+    private boolean closed;
+    /**
+     * 借出的还没有关闭的语句，连接关闭时一起关闭(放回缓存)，否则这些语句会一直占用物理连接上的资源
+     */
+    private final Set<CachedStatementHandler> openStatements = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    CachingConnectionHandler(StatementCache cache, Connection target, ConnectionStatements statements, boolean pooled) {
+        this.cache = cache;
+        this.target = target;
+        this.statements = statements;
+        this.pooled = pooled;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Statement caching connection proxy for '" + cache.getDataSourceName() + "' [" + target + "]";
+            case "unwrap":
+                if (((Class<?>) args[0]).isInstance(proxy)) {
+                    return proxy;
+                }
+                break;
+            case "isWrapperFor":
+                if (((Class<?>) args[0]).isInstance(proxy)) {
+                    return true;
+                }
+                break;
+            case "getTargetConnection":
+                return target;
+            case "prepareStatement":
+                if (closed) {
+                    throw new SQLException("Illegal operation: connection is closed");
+                }
+                return prepareStatement((Connection) proxy, method, args);
+            case "commit":
+            case "rollback":
+                dirty = false;
+                break;
+            case "setCatalog":
+            case "setSchema":
+                statements.clear();
+                break;
+            case "close":
+                close();
+                return null;
+            default:
+                break;
+        }
+
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    void markDirty() {
+        dirty = true;
+    }
+
+    void onStatementClosed(CachedStatementHandler statement) {
+        openStatements.remove(statement);
+    }
+
+    private PreparedStatement prepareStatement(Connection proxy, Method method, Object[] args) throws Throwable {
+        StatementKey key = new StatementKey(args);
+        PreparedStatement statement = statements.take(key);
+        if (statement == null) {
+            try {
+                statement = (PreparedStatement) method.invoke(statements.getConnection(), args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+
+        CachedStatementHandler handler = new CachedStatementHandler(this, proxy, statements, key, statement);
+        openStatements.add(handler);
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class}, handler);
+    }
+
+    private void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        try {
+            closeStatements();
+            if (dirty && !target.getAutoCommit()) {
+                target.rollback();
+            }
+        } finally {
+            if (!pooled) {
+                statements.clear();
+            }
+            target.close();
+        }
+    }
+
+    private void closeStatements() {
+        for (CachedStatementHandler statement : new ArrayList<>(openStatements)) {
+            try {
+                statement.close();
+            } catch (SQLException | RuntimeException e) {
+                logger.debug("Could not close cached statement", e);
+            }
+        }
+        openStatements.clear();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.statement;
+
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一个物理连接上缓存的PreparedStatement.<br/>
+ * 使用中的语句从缓存中移除，关闭时再放回，所以同一条sql同时打开多次时互不影响；超过容量时关闭最久没有使用的语句.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+class ConnectionStatements {
+    private final StatementCache cache;
+    private final Connection connection;
+    private final LinkedHashMap<StatementKey, PreparedStatement> statements;
+
+    ConnectionStatements(StatementCache cache, Connection connection) {
+        this.cache = cache;
+        this.connection = connection;
+        this.statements = new LinkedHashMap<StatementKey, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<StatementKey, PreparedStatement> eldest) {
+                if (size() <= cache.getSize()) {
+                    return false;
+                }
+
+                JdbcUtils.closeStatement(eldest.getValue());
+                cache.onEviction();
+                return true;
+            }
+        };
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * 从缓存中取出语句
+     *
+     * @param key 缓存键
+     * @return 语句，没有缓存时返回null
+     */
+    synchronized PreparedStatement take(StatementKey key) {
+        PreparedStatement statement = statements.remove(key);
+        if (statement != null && !isClosed(statement)) {
+            cache.onHit();
+            return statement;
+        }
+
+        cache.onMiss();
+        return null;
+    }
+
+    /**
+     * 语句使用完毕后放回缓存
+     *
+     * @param key       缓存键
+     * @param statement 语句
+     * @return 是否放回，已经缓存了同一条语句时返回false，需要关闭
+     */
+    synchronized boolean release(StatementKey key, PreparedStatement statement) {
+        if (statements.containsKey(key)) {
+            return false;
+        }
+
+        statements.put(key, statement);
+        return true;
+    }
+
+    synchronized int size() {
+        return statements.size();
+    }
+
+    /**
+     * 关闭所有缓存的语句
+     */
+    synchronized void clear() {
+        statements.values().forEach(JdbcUtils::closeStatement);
+        statements.clear();
+    }
+
+    boolean isStale() {
+        try {
+            return connection.isClosed();
+        } catch (SQLException | RuntimeException e) {
+            return true;
+        }
+    }
+
+    private boolean isClosed(PreparedStatement statement) {
+        try {
+            return statement.isClosed();
+        } catch (SQLException | RuntimeException e) {
+            return true;
+        }
+    }
+}
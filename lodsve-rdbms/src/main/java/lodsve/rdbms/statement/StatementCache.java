@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.statement;
+
+import lodsve.rdbms.properties.StatementCacheSetting;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个数据源的PreparedStatement缓存，与连接池无关.<br/>
+ * 语句在连接池借出的连接背后的物理连接上预编译，并按物理连接做LRU缓存，归还连接后再次借到同一个物理连接时可以直接复用；
+ * 取不到物理连接时(如非连接池的数据源)只在本次借出期间缓存.<br/>
+ * 物理连接被连接池关闭后，对应的缓存在之后借出连接时清理.<br/>
+ * 注意：缓存的语句绕过了连接池对语句的跟踪(归还连接时不会被连接池关闭，由借出的连接代理在关闭时放回缓存)，
+ * 也绕过了Druid的filter(stat、wall等)，需要这些功能的数据源不要开启缓存.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class StatementCache {
+    /**
+     * 清理已关闭物理连接的最小间隔，单位毫秒
+     */
+    private static final long SWEEP_INTERVAL = 1000;
+    /**
+     * dbcp的连接只能通过getInnermostDelegate取得物理连接
+     */
+    private static final String INNERMOST_DELEGATE_METHOD = "getInnermostDelegate";
+
+    private final String dataSourceName;
+    private final int size;
+    private final Map<Connection, ConnectionStatements> caches = new ConcurrentHashMap<>(16);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private volatile long lastSweep = System.currentTimeMillis();
+
+    public StatementCache(String dataSourceName, StatementCacheSetting setting) {
+        this.dataSourceName = dataSourceName;
+        this.size = setting.getSize() == null ? 0 : Math.max(setting.getSize(), 0);
+    }
+
+    /**
+     * 代理连接池借出的连接，prepareStatement优先使用缓存的语句
+     *
+     * @param connection 借出的连接
+     * @return 代理后的连接
+     */
+    public Connection wrap(Connection connection) {
+        sweep();
+
+        Connection physical = getPhysicalConnection(connection);
+        boolean pooled = physical != connection;
+        ConnectionStatements statements = pooled ? caches.computeIfAbsent(physical, c -> new ConnectionStatements(this, c)) :
+                new ConnectionStatements(this, connection);
+
+        return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+                new Class<?>[]{ConnectionProxy.class}, new CachingConnectionHandler(this, connection, statements, pooled));
+    }
+
+    public String getDataSourceName() {
+        return dataSourceName;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * 命中率
+     *
+     * @return 命中率，没有预编译过语句时返回0
+     */
+    public double getHitRatio() {
+        long hit = getHits();
+        long total = hit + getMisses();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    /**
+     * 当前缓存的语句个数
+     *
+     * @return 所有物理连接上缓存的语句个数
+     */
+    public int getCachedStatements() {
+        return caches.values().stream().mapToInt(ConnectionStatements::size).sum();
+    }
+
+    @Override
+    public String toString() {
+        return "StatementCache[" + dataSourceName + "] hits=" + getHits() + ", misses=" + getMisses() + ", evictions=" + getEvictions()
+                + ", cached=" + getCachedStatements();
+    }
+
+    void onHit() {
+        hits.increment();
+    }
+
+    void onMiss() {
+        misses.increment();
+    }
+
+    void onEviction() {
+        evictions.increment();
+    }
+
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        if (now - lastSweep < SWEEP_INTERVAL) {
+            return;
+        }
+        lastSweep = now;
+
+        Iterator<ConnectionStatements> iterator = caches.values().iterator();
+        while (iterator.hasNext()) {
+            ConnectionStatements statements = iterator.next();
+            if (statements.isStale()) {
+                iterator.remove();
+                statements.clear();
+            }
+        }
+    }
+
+    private static Connection getPhysicalConnection(Connection connection) {
+        try {
+            Connection physical = connection.unwrap(Connection.class);
+            if (physical != null && physical != connection) {
+                return physical;
+            }
+        } catch (SQLException | RuntimeException ignored) {
+            // 不支持unwrap
+        }
+
+        Method method = ReflectionUtils.findMethod(connection.getClass(), INNERMOST_DELEGATE_METHOD);
+        if (method != null) {
+            try {
+                Object delegate = method.invoke(connection);
+                if (delegate instanceof Connection) {
+                    return (Connection) delegate;
+                }
+            } catch (ReflectiveOperationException | RuntimeException ignored) {
+                // 不允许访问物理连接
+            }
+        }
+
+        return connection;
+    }
+}
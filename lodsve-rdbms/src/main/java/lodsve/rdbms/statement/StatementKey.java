@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.statement;
+
+import java.util.Arrays;
+
+/**
+ * PreparedStatement的缓存键，sql以及prepareStatement的其他参数(结果集类型、自增主键等)都相同才能复用.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+final class StatementKey {
+    private final Object[] args;
+    private final int hash;
+
+    StatementKey(Object[] args) {
+        this.args = args.clone();
+        this.hash = Arrays.deepHashCode(this.args);
+    }
+
+    String getSql() {
+        return (String) args[0];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof StatementKey)) {
+            return false;
+        }
+
+        StatementKey that = (StatementKey) o;
+        return hash == that.hash && Arrays.deepEquals(args, that.args);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.deepToString(args);
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.warmup;
+
+import lodsve.core.utils.StringUtils;
+import lodsve.rdbms.dynamic.DynamicDataSource;
+import lodsve.rdbms.exception.RdbmsException;
+import lodsve.rdbms.flyway.FlywayMigrationCoordinator;
+import lodsve.rdbms.properties.PoolSetting;
+import lodsve.rdbms.properties.WarmupSetting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 启动时并行预热{@link DynamicDataSource}中的所有数据源.<br/>
+ * 所有单例初始化之后、容器刷新完成之前执行：每个数据源同时借出initialSize(不超过maxActive)个连接并执行预热语句，
+ * 使连接池在接收请求之前就建立好连接；各数据源之间并行，总耗时取决于最慢的数据源.<br/>
+ * 启用flyway时先等待迁移完成(最多等待预热超时时间)，迁移未完成或失败时跳过预热，不在未迁移的库上执行预热语句；
+ * flyway在后台迁移时不阻塞容器刷新，在后台线程中等待迁移完成后再预热，预热失败只输出日志.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class DataSourceWarmup implements SmartInitializingSingleton {
+    private static final Logger logger = LoggerFactory.getLogger(DataSourceWarmup.class);
+    private static final int MAX_THREADS = 16;
+
+    private final DynamicDataSource dataSource;
+    private final WarmupSetting setting;
+    private final Map<String, PoolSetting> pools;
+    private volatile List<WarmupResult> results = Collections.emptyList();
+    private FlywayMigrationCoordinator migrationCoordinator;
+    private boolean backgroundMigration;
+
+    public DataSourceWarmup(DynamicDataSource dataSource, WarmupSetting setting, Map<String, PoolSetting> pools) {
+        this.dataSource = dataSource;
+        this.setting = setting == null ? new WarmupSetting() : setting;
+        this.pools = pools == null ? Collections.emptyMap() : pools;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (dataSource == null || !setting.isEnabled()) {
+            return;
+        }
+        if (migrationCoordinator != null && backgroundMigration) {
+            Thread thread = new Thread(this::warmupAfterMigration, "rdbms-warmup");
+            thread.setDaemon(true);
+            thread.start();
+            return;
+        }
+        if (!awaitMigration(getTimeout())) {
+            return;
+        }
+
+        List<String> failed = getFailed(warmup());
+        if (!failed.isEmpty() && setting.isFailFast()) {
+            String names = StringUtils.join(failed, ",");
+            throw new RdbmsException(108004, String.format("warm up data sources '%s' failed!", names), names);
+        }
+    }
+
+    /**
+     * 预热所有数据源
+     *
+     * @return 每个数据源的预热结果
+     */
+    public List<WarmupResult> warmup() {
+        Map<String, DataSource> dataSources = dataSource.getDataSources();
+        if (dataSources.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        int parallelism = setting.getParallelism() == null || setting.getParallelism() <= 0 ? dataSources.size() : setting.getParallelism();
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(Math.min(parallelism, dataSources.size()), MAX_THREADS), r -> {
+            Thread thread = new Thread(r, "rdbms-warmup-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long start = System.nanoTime();
+        Map<String, CompletableFuture<WarmupResult>> futures = new LinkedHashMap<>(dataSources.size());
+        dataSources.forEach((name, ds) -> futures.put(name, CompletableFuture.supplyAsync(() -> warmup(name, ds), executor)));
+
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(getTimeout());
+        List<WarmupResult> results = new ArrayList<>(futures.size());
+        try {
+            futures.forEach((name, future) -> results.add(await(name, future, start, deadline)));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        this.results = Collections.unmodifiableList(results);
+        if (logger.isInfoEnabled()) {
+            logger.info("warm up {} data sources in {}ms: {}", results.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), results);
+        }
+        return this.results;
+    }
+
+    /**
+     * 最近一次预热的结果
+     *
+     * @return 每个数据源的预热结果
+     */
+    public List<WarmupResult> getResults() {
+        return results;
+    }
+
+    public void setMigrationCoordinator(FlywayMigrationCoordinator migrationCoordinator) {
+        this.migrationCoordinator = migrationCoordinator;
+    }
+
+    public void setBackgroundMigration(boolean backgroundMigration) {
+        this.backgroundMigration = backgroundMigration;
+    }
+
+    private void warmupAfterMigration() {
+        if (!awaitMigration(Long.MAX_VALUE)) {
+            return;
+        }
+
+        List<String> failed = getFailed(warmup());
+        if (!failed.isEmpty()) {
+            logger.warn("warm up data sources '{}' failed!", StringUtils.join(failed, ","));
+        }
+    }
+
+    private List<String> getFailed(List<WarmupResult> results) {
+        return results.stream().filter(r -> !r.isReady()).map(WarmupResult::getDataSourceName).collect(Collectors.toList());
+    }
+
+    private boolean awaitMigration(long timeout) {
+        if (migrationCoordinator == null) {
+            return true;
+        }
+
+        try {
+            if (migrationCoordinator.awaitReady(timeout, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+            logger.warn("flyway migration is not finished in {}ms, skip warming up!", timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.warn("flyway migration failed, skip warming up!", e);
+        }
+        return false;
+    }
+
+    private long getTimeout() {
+        return setting.getTimeout() == null ? 30000L : setting.getTimeout();
+    }
+
+    private WarmupResult await(String name, CompletableFuture<WarmupResult> future, long start, long deadline) {
+        try {
+            return future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return new WarmupResult(name, false, 0, elapsedMillis(start), "timeout");
+        } catch (Exception e) {
+            return new WarmupResult(name, false, 0, elapsedMillis(start), e.getMessage());
+        }
+    }
+
+    private WarmupResult warmup(String name, DataSource ds) {
+        long start = System.nanoTime();
+        PoolSetting pool = pools.get(name);
+        int size = getSize(pool);
+        String statement = StringUtils.isNotBlank(setting.getPrimingStatement()) ? setting.getPrimingStatement() : (pool == null ? null : pool.getValidationQuery());
+
+        // 同时持有size个连接，连接池才会建立size个不同的物理连接
+        List<Connection> connections = new ArrayList<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                Connection connection = ds.getConnection();
+                connections.add(connection);
+                prime(connection, statement, pool);
+            }
+
+            return new WarmupResult(name, true, connections.size(), elapsedMillis(start), null);
+        } catch (SQLException | RuntimeException e) {
+            logger.warn("warm up data source '" + name + "' failed!", e);
+            return new WarmupResult(name, false, connections.size(), elapsedMillis(start), e.getMessage());
+        } finally {
+            connections.forEach(this::close);
+        }
+    }
+
+    private void prime(Connection connection, String statement, PoolSetting pool) throws SQLException {
+        if (StringUtils.isBlank(statement)) {
+            long timeout = pool == null || pool.getValidationTimeout() == null ? 3000L : pool.getValidationTimeout();
+            if (!connection.isValid((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(timeout)))) {
+                throw new SQLException("connection is not valid!");
+            }
+            return;
+        }
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(statement);
+        }
+    }
+
+    private int getSize(PoolSetting pool) {
+        if (pool == null) {
+            return 1;
+        }
+
+        int initialSize = pool.getInitialSize() == null ? 1 : pool.getInitialSize();
+        int maxActive = pool.getMaxActive() == null ? initialSize : pool.getMaxActive();
+        return Math.max(1, Math.min(initialSize, maxActive));
+    }
+
+    private void close(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.debug("close connection failed!", e);
+        }
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.warmup;
+
+/**
+ * 一个数据源的预热结果.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class WarmupResult {
+    private final String dataSourceName;
+    private final boolean ready;
+    private final int connections;
+    private final long elapsedMillis;
+    private final String error;
+
+    WarmupResult(String dataSourceName, boolean ready, int connections, long elapsedMillis, String error) {
+        this.dataSourceName = dataSourceName;
+        this.ready = ready;
+        this.connections = connections;
+        this.elapsedMillis = elapsedMillis;
+        this.error = error;
+    }
+
+    public String getDataSourceName() {
+        return dataSourceName;
+    }
+
+    /**
+     * 是否预热成功
+     *
+     * @return 预热成功返回true
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 成功建立的连接数
+     *
+     * @return 连接数
+     */
+    public int getConnections() {
+        return connections;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * 失败原因
+     *
+     * @return 失败原因，成功时为null
+     */
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[%s] %s, connections=%d, elapsed=%dms%s", dataSourceName, ready ? "ready" : "not ready", connections,
+                elapsedMillis, error == null ? "" : ", error=" + error);
+    }
+}
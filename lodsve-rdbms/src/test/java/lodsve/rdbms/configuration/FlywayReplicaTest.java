@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.configuration;
+
+import com.google.common.collect.ImmutableMap;
+import lodsve.rdbms.Constants;
+import lodsve.rdbms.flyway.FlywayMigrationCoordinator;
+import lodsve.rdbms.flyway.FlywayMigrationStrategy;
+import lodsve.rdbms.flyway.MigrationResult;
+import lodsve.rdbms.properties.FlywayProperties;
+import org.flywaydb.core.Flyway;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * .
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class FlywayReplicaTest {
+    private static final String LOCATION = "classpath:db/flyway";
+
+    @Test
+    public void testReplicaNotMigrated() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("primary", dataSource("replica_primary"));
+        BeanDefinition replica = dataSource("replica_replica");
+        replica.setAttribute(Constants.REPLICA_ATTRIBUTE_NAME, Boolean.TRUE);
+        beanFactory.registerBeanDefinition("replica", replica);
+
+        FlywayProperties flywayProperties = new FlywayProperties();
+        flywayProperties.setLocations(ImmutableMap.of("primary", LOCATION, "replica", LOCATION));
+
+        Map<String, DataSource> dataSources = beanFactory.getBeansOfType(DataSource.class);
+        Map<String, Flyway> flyways = new RdbmsConfiguration().new FlywayConfiguration((FlywayMigrationStrategy) null)
+                .createFlyways(dataSources, flywayProperties, beanFactory);
+        Assert.assertEquals(1, flyways.size());
+        Assert.assertTrue(flyways.containsKey("primary"));
+
+        List<MigrationResult> results = new FlywayMigrationCoordinator(flyways, null, 2).migrate();
+        Assert.assertEquals(1, results.size());
+        Assert.assertEquals(1, count(dataSources.get("primary"), "T_USER"));
+        Assert.assertEquals(0, count(dataSources.get("replica"), "T_USER"));
+        Assert.assertEquals(0, count(dataSources.get("replica"), "schema_version"));
+    }
+
+    private BeanDefinition dataSource(String name) {
+        return BeanDefinitionBuilder.genericBeanDefinition(DriverManagerDataSource.class)
+                .addConstructorArgValue("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1")
+                .addConstructorArgValue("sa")
+                .addConstructorArgValue("")
+                .getBeanDefinition();
+    }
+
+    private int count(DataSource dataSource, String table) {
+        return new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE UPPER(TABLE_NAME) = UPPER(?)",
+                Integer.class, table);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.dynamic;
+
+import lodsve.rdbms.annotations.SwitchDataSource;
+import lodsve.rdbms.exception.RdbmsException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+/**
+ * .
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class DynamicDataSourceAspectTest {
+    @After
+    public void clear() {
+        DataSourceHolder.getInstance().clear();
+    }
+
+    @Test
+    public void testClassLevelAndOverride() {
+        ReportService service = proxy(new ReportService());
+
+        Assert.assertEquals("report", service.current());
+        Assert.assertEquals("archive", service.archive());
+        Assert.assertNull(DataSourceHolder.getInstance().get());
+    }
+
+    @Test
+    public void testSpEL() {
+        TenantService service = proxy(new TenantService());
+
+        Assert.assertEquals("tenant_a", service.current("a"));
+        Assert.assertEquals("tenant_b", service.current("b"));
+        // 表达式结果为空时抛出异常，而不是使用默认数据源
+        try {
+            service.current(null);
+            Assert.fail("expects RdbmsException");
+        } catch (RdbmsException e) {
+            Assert.assertNull(DataSourceHolder.getInstance().get());
+        }
+    }
+
+    @Test
+    public void testSpELWithJdkProxy() {
+        AspectJProxyFactory factory = new AspectJProxyFactory(new DefaultTenantApi());
+        factory.setProxyTargetClass(false);
+        factory.addAspect(new DynamicDataSourceAspect());
+        TenantApi api = factory.getProxy();
+
+        Assert.assertFalse(api instanceof DefaultTenantApi);
+        // 接口方法没有参数名，需要使用实现类中的方法计算表达式
+        Assert.assertEquals("tenant_a", api.current("a"));
+        Assert.assertNull(DataSourceHolder.getInstance().get());
+    }
+
+    @Test
+    public void testNestedRestore() {
+        ReportService report = proxy(new ReportService());
+        TenantService service = proxy(new TenantService());
+
+        try (DataSourceHolder dsh = DataSourceHolder.getInstance()) {
+            dsh.push("outer");
+            Assert.assertEquals("report|tenant_x|report", report.withTenant(service, "x"));
+            Assert.assertEquals("outer", dsh.get());
+        }
+        Assert.assertNull(DataSourceHolder.getInstance().get());
+    }
+
+    @Test
+    public void testHolder() {
+        DataSourceHolder holder = DataSourceHolder.getInstance();
+
+        // 嵌套选择null使用默认数据源，返回后恢复外层
+        holder.push("outer");
+        holder.push(null);
+        Assert.assertNull(holder.get());
+        holder.close();
+        Assert.assertEquals("outer", holder.get());
+        holder.close();
+
+        // set只替换当前层
+        for (int i = 0; i < 10; i++) {
+            holder.set("legacy" + i);
+        }
+        Assert.assertEquals("legacy9", holder.get());
+        holder.close();
+        Assert.assertNull(holder.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(T target) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new DynamicDataSourceAspect());
+        return (T) factory.getProxy();
+    }
+
+    @SwitchDataSource("report")
+    public static class ReportService {
+        public String current() {
+            return DataSourceHolder.getInstance().get();
+        }
+
+        public String withTenant(TenantService service, String tenant) {
+            return current() + "|" + service.current(tenant) + "|" + current();
+        }
+
+        @SwitchDataSource("archive")
+        public String archive() {
+            return DataSourceHolder.getInstance().get();
+        }
+    }
+
+    public interface TenantApi {
+        String current(String tenantId);
+    }
+
+    public static class DefaultTenantApi implements TenantApi {
+        @Override
+        @SwitchDataSource(key = "'tenant_' + #tenantId")
+        public String current(String tenantId) {
+            return DataSourceHolder.getInstance().get();
+        }
+    }
+
+    public static class TenantService {
+        @SwitchDataSource(key = "#tenant == null ? null : 'tenant_' + #tenant")
+        public String current(String tenant) {
+            return DataSourceHolder.getInstance().get();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.dynamic;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import lodsve.rdbms.properties.LoadBalance;
+import lodsve.rdbms.properties.ReplicaSetting;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * .
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class ReadWriteSplittingTest {
+    private static final String QUERY = "SELECT name FROM t_node WHERE 1 = ?";
+
+    @Test
+    public void testRouting() {
+        DynamicDataSource dataSource = createDataSource(LoadBalance.ROUND_ROBIN, ImmutableMap.of("r1", 1, "r2", 1), "master", "r1", "r2");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        // 不在事务中的查询轮询从库
+        Set<String> nodes = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            nodes.add(jdbcTemplate.queryForObject(QUERY, String.class, 1));
+        }
+        Assert.assertEquals(new HashSet<>(Lists.newArrayList("r1", "r2")), nodes);
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        Assert.assertTrue(readOnly.execute(s -> jdbcTemplate.queryForObject(QUERY, String.class, 1)).startsWith("r"));
+
+        // 读写事务中的查询也使用主库
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+        Assert.assertEquals("master", readWrite.execute(s -> jdbcTemplate.queryForObject(QUERY, String.class, 1)));
+
+        // 加锁读使用主库
+        Assert.assertEquals("master", jdbcTemplate.queryForObject(QUERY + " FOR UPDATE", String.class, 1));
+
+        // 写操作使用主库
+        jdbcTemplate.update("INSERT INTO t_node VALUES (?)", "written");
+        Assert.assertEquals(Integer.valueOf(2), new JdbcTemplate(new DriverManagerDataSource(url("master"), "sa", "")).queryForObject("SELECT COUNT(*) FROM t_node", Integer.class));
+    }
+
+    @Test
+    public void testEjection() {
+        DynamicDataSource dataSource = createDataSource(LoadBalance.ROUND_ROBIN, ImmutableMap.of("bad", 1, "r1", 1), "master", "r1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals("r1", jdbcTemplate.queryForObject(QUERY, String.class, 1));
+        }
+    }
+
+    @Test
+    public void testLeastActive() throws Exception {
+        DynamicDataSource dataSource = createDataSource(LoadBalance.LEAST_ACTIVE, ImmutableMap.of("r1", 1, "r2", 1), "master", "r1", "r2");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement(QUERY)) {
+            ps.setInt(1, 1);
+            // r1被占用时使用r2
+            Assert.assertEquals("r2", jdbcTemplate.queryForObject(QUERY, String.class, 1));
+        }
+        Assert.assertEquals("r1", jdbcTemplate.queryForObject(QUERY, String.class, 1));
+    }
+
+    @Test
+    public void testReadStatement() {
+        Assert.assertTrue(ReadWriteConnectionHandler.isReadStatement("  select * from t_demo"));
+        Assert.assertTrue(ReadWriteConnectionHandler.isReadStatement("/* hint */ SELECT id FROM t_demo"));
+        Assert.assertTrue(ReadWriteConnectionHandler.isReadStatement("-- comment\nSELECT id FROM t_demo"));
+        Assert.assertFalse(ReadWriteConnectionHandler.isReadStatement("UPDATE t_demo SET name = ?"));
+        Assert.assertFalse(ReadWriteConnectionHandler.isReadStatement("SELECT id FROM t_demo FOR UPDATE"));
+        Assert.assertFalse(ReadWriteConnectionHandler.isReadStatement("SELECT seq_demo.NEXTVAL FROM dual"));
+        Assert.assertFalse(ReadWriteConnectionHandler.isReadStatement("SELECT * INTO t_copy FROM t_demo"));
+    }
+
+    private DynamicDataSource createDataSource(LoadBalance loadBalance, Map<String, Integer> replicas, String... nodes) {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        for (String node : nodes) {
+            beanFactory.registerSingleton(node, node(node));
+        }
+        if (replicas.containsKey("bad")) {
+            beanFactory.registerSingleton("bad", new DriverManagerDataSource("jdbc:unknown:bad"));
+        }
+
+        ReplicaSetting setting = new ReplicaSetting();
+        setting.setDataSources(replicas);
+        setting.setLoadBalance(loadBalance);
+        setting.setFailureThreshold(1);
+        setting.setEjectTime(60000L);
+
+        List<String> names = Lists.newArrayList(nodes);
+        names.addAll(replicas.keySet());
+        DynamicDataSource dataSource = new DynamicDataSource(names, "master", ImmutableMap.of("master", setting));
+        dataSource.setBeanFactory(beanFactory);
+        dataSource.afterPropertiesSet();
+        return dataSource;
+    }
+
+    private DriverManagerDataSource node(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url(name), "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS t_node");
+        jdbcTemplate.execute("CREATE TABLE t_node (name VARCHAR(20))");
+        jdbcTemplate.update("INSERT INTO t_node VALUES (?)", name);
+        return dataSource;
+    }
+
+    private String url(String name) {
+        return "jdbc:h2:mem:rw_" + name + ";DB_CLOSE_DELAY=-1";
+    }
+}
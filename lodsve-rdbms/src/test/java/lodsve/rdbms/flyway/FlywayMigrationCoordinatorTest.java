@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.flyway;
+
+import lodsve.rdbms.exception.RdbmsException;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * .
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class FlywayMigrationCoordinatorTest {
+    private static final String LOCATION = "classpath:db/flyway";
+    private static final String CHANGED_LOCATION = "classpath:db/flyway-changed";
+
+    @Test
+    public void testParallelMigrate() {
+        Map<String, Flyway> flyways = new LinkedHashMap<>();
+        for (int i = 0; i < 4; i++) {
+            flyways.put("db" + i, flyway("parallel_" + i, LOCATION));
+        }
+
+        FlywayMigrationCoordinator coordinator = new FlywayMigrationCoordinator(flyways, null, 2);
+        List<MigrationResult> results = coordinator.migrate();
+
+        Assert.assertEquals(4, results.size());
+        results.forEach(r -> {
+            Assert.assertEquals(MigrationResult.State.SUCCESS, r.getState());
+            Assert.assertEquals(2, r.getMigrations());
+        });
+        Assert.assertEquals("admin", new JdbcTemplate(dataSource("parallel_3")).queryForObject("SELECT name FROM t_user WHERE id = 1", String.class));
+        Assert.assertTrue(coordinator.isReady());
+
+        // 再次迁移没有需要执行的脚本
+        Assert.assertEquals(0, new FlywayMigrationCoordinator(flyways, null, 2).migrate().get(0).getMigrations());
+    }
+
+    @Test
+    public void testValidateFirst() {
+        flyway("changed", LOCATION).migrate();
+
+        Map<String, Flyway> flyways = new LinkedHashMap<>();
+        flyways.put("fresh", flyway("fresh", LOCATION));
+        flyways.put("changed", flyway("changed", CHANGED_LOCATION));
+        FlywayMigrationCoordinator coordinator = new FlywayMigrationCoordinator(flyways, null, 2);
+        try {
+            coordinator.migrate();
+            Assert.fail();
+        } catch (RdbmsException e) {
+            Assert.assertEquals(Integer.valueOf(108005), e.getCode());
+            Assert.assertTrue(e.getMessage().contains("[changed]"));
+            Assert.assertEquals(1, e.getSuppressed().length);
+        }
+
+        // 校验失败时任何数据源都不会迁移
+        Assert.assertEquals(0, flyway("fresh", LOCATION).info().applied().length);
+        Assert.assertFalse(coordinator.isReady());
+    }
+
+    @Test
+    public void testBackground() throws Exception {
+        Map<String, Flyway> flyways = new LinkedHashMap<>();
+        flyways.put("background", flyway("background", LOCATION));
+        FlywayMigrationCoordinator coordinator = new FlywayMigrationCoordinator(flyways, null, 1);
+
+        new FlywayMigrationInitializer(coordinator, true).afterPropertiesSet();
+        Assert.assertTrue(coordinator.awaitReady(30, TimeUnit.SECONDS));
+        Assert.assertEquals(MigrationResult.State.SUCCESS, coordinator.getResults().get(0).getState());
+    }
+
+    @Test
+    public void testValidatePending() {
+        Flyway partial = flyway("pending", LOCATION);
+        partial.setTarget(MigrationVersion.fromVersion("1"));
+        partial.migrate();
+
+        // 已执行的脚本校验通过，待执行的脚本不影响校验，校验后target恢复原值
+        Flyway flyway = flyway("pending", LOCATION);
+        Map<String, Flyway> flyways = new LinkedHashMap<>();
+        flyways.put("pending", flyway);
+        List<MigrationResult> results = new FlywayMigrationCoordinator(flyways, null, 1).migrate();
+        Assert.assertEquals(1, results.get(0).getMigrations());
+        Assert.assertEquals(MigrationVersion.LATEST, flyway.getTarget());
+    }
+
+    @Test
+    public void testDestroy() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        Map<String, Flyway> flyways = new LinkedHashMap<>();
+        flyways.put("blocked", flyway("blocked", LOCATION));
+        FlywayMigrationCoordinator coordinator = new FlywayMigrationCoordinator(flyways, f -> {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }, 1);
+        coordinator.setValidateFirst(false);
+
+        coordinator.migrateInBackground();
+        Assert.assertTrue(started.await(30, TimeUnit.SECONDS));
+        Assert.assertFalse(coordinator.isReady());
+
+        coordinator.destroy();
+        try {
+            coordinator.awaitReady(1, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (RdbmsException e) {
+            Assert.assertEquals(Integer.valueOf(108005), e.getCode());
+        }
+    }
+
+    private Flyway flyway(String name, String location) {
+        Flyway flyway = new Flyway();
+        flyway.setDataSource(dataSource(name));
+        flyway.setLocations(location);
+        return flyway;
+    }
+
+    private DriverManagerDataSource dataSource(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:flyway_" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+}
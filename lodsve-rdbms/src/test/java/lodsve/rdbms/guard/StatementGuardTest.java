@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.guard;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import lodsve.rdbms.dynamic.DynamicDataSource;
+import lodsve.rdbms.properties.GuardSetting;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.Statement;
+
+/**
+ * .
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class StatementGuardTest {
+    private DynamicDataSource dataSource;
+    private StatementGuard guard;
+
+    @Before
+    public void setUp() throws SQLException {
+        GuardSetting setting = new GuardSetting();
+        setting.setQueryTimeout(1);
+        setting.setMaxRows(3);
+
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("guarded", new DriverManagerDataSource("jdbc:h2:mem:guard;DB_CLOSE_DELAY=-1", "sa", ""));
+        dataSource = new DynamicDataSource(Lists.newArrayList("guarded"), "guarded");
+        dataSource.setGuards(ImmutableMap.of("guarded", setting));
+        dataSource.setBeanFactory(beanFactory);
+        dataSource.afterPropertiesSet();
+        guard = dataSource.getStatementGuard("guarded");
+
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS T_GUARD");
+            statement.execute("CREATE TABLE T_GUARD (ID INT PRIMARY KEY, NAME VARCHAR(20))");
+            for (int i = 1; i <= 5; i++) {
+                statement.executeUpdate("INSERT INTO T_GUARD VALUES (" + i + ", 'name" + i + "')");
+            }
+        }
+    }
+
+    @Test
+    public void testUnboundedWrite() throws SQLException {
+        Assert.assertTrue(StatementGuard.isUnboundedWrite("DELETE FROM T_GUARD"));
+        Assert.assertTrue(StatementGuard.isUnboundedWrite("/* purge */ update T_GUARD set NAME = 'where'"));
+        Assert.assertTrue(StatementGuard.isUnboundedWrite("UPDATE T_GUARD SET NAME = (SELECT NAME FROM T WHERE ID = 1)"));
+        Assert.assertTrue(StatementGuard.isUnboundedWrite("DELETE FROM T_GUARD WHERE 1 = 1"));
+        Assert.assertFalse(StatementGuard.isUnboundedWrite("DELETE FROM T_GUARD WHERE 1 = 1 AND ID = ?"));
+        Assert.assertFalse(StatementGuard.isUnboundedWrite("UPDATE T_GUARD SET NAME = ? WHERE ID = ?"));
+        Assert.assertFalse(StatementGuard.isUnboundedWrite("DELETE FROM T_LOG LIMIT 1000"));
+        Assert.assertFalse(StatementGuard.isUnboundedWrite("SELECT * FROM T_GUARD"));
+        Assert.assertNull(dataSource.getStatementGuard("other"));
+
+        try (Connection connection = dataSource.getConnection()) {
+            try {
+                connection.prepareStatement("DELETE FROM T_GUARD");
+                Assert.fail();
+            } catch (SQLSyntaxErrorException ignored) {
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("UPDATE T_GUARD SET NAME = 'x'");
+                Assert.fail();
+            } catch (SQLSyntaxErrorException ignored) {
+            }
+
+            try (PreparedStatement statement = connection.prepareStatement("UPDATE T_GUARD SET NAME = ? WHERE ID = ?")) {
+                statement.setString(1, "x");
+                statement.setInt(2, 1);
+                Assert.assertEquals(1, statement.executeUpdate());
+            }
+        }
+        Assert.assertEquals(2, guard.getViolationCount(GuardViolationType.UNBOUNDED_WRITE));
+    }
+
+    @Test
+    public void testMaxRows() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT * FROM T_GUARD ORDER BY ID")) {
+            Assert.assertEquals(1, statement.getQueryTimeout());
+            Assert.assertEquals(3, statement.getMaxRows());
+            Assert.assertEquals(3, count(statement.executeQuery()));
+            Assert.assertEquals(1, guard.getViolationCount(GuardViolationType.ROW_LIMIT));
+
+            // 显式设置的行数不超过maxRows时由数据库限制，不算违规
+            statement.setMaxRows(2);
+            Assert.assertEquals(2, count(statement.executeQuery()));
+            statement.setMaxRows(0);
+            Assert.assertEquals(3, statement.getMaxRows());
+            Assert.assertEquals(3, count(statement.executeQuery()));
+            Assert.assertEquals(2, guard.getViolationCount(GuardViolationType.ROW_LIMIT));
+        }
+    }
+
+    @Test
+    public void testQueryTimeout() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(0);
+            Assert.assertEquals(1, statement.getQueryTimeout());
+            statement.executeQuery("SELECT COUNT(*) FROM SYSTEM_RANGE(1, 100000) A, SYSTEM_RANGE(1, 100000) B");
+            Assert.fail();
+        } catch (SQLException e) {
+            Assert.assertEquals(1, guard.getViolationCount(GuardViolationType.TIMEOUT));
+        }
+    }
+
+    private int count(ResultSet resultSet) throws SQLException {
+        int rows = 0;
+        try (ResultSet rs = resultSet) {
+            while (rs.next()) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.metrics;
+
+import com.alibaba.druid.pool.GetConnectionTimeoutException;
+import com.google.common.collect.Lists;
+import com.zaxxer.hikari.HikariDataSource;
+import lodsve.core.event.EventPublisher;
+import lodsve.core.event.module.BaseEvent;
+import lodsve.rdbms.dynamic.DynamicDataSource;
+import lodsve.rdbms.properties.MetricsSetting;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+/**
+ * .
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class PoolMetricsTest {
+    @Test
+    public void testMetricsAndEvents() throws Exception {
+        HikariDataSource hikari = new HikariDataSource();
+        hikari.setJdbcUrl("jdbc:h2:mem:metrics;DB_CLOSE_DELAY=-1");
+        hikari.setUsername("sa");
+        hikari.setMaximumPoolSize(1);
+        hikari.setConnectionTimeout(250);
+
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("h2", hikari);
+        DynamicDataSource dataSource = new DynamicDataSource(Lists.newArrayList("h2"), "h2");
+        dataSource.setBeanFactory(beanFactory);
+        dataSource.afterPropertiesSet();
+
+        List<PoolSaturationEvent> events = new ArrayList<>();
+        MetricsSetting setting = new MetricsSetting();
+        setting.setEnabled(false);
+        PoolMetricsMonitor monitor = new PoolMetricsMonitor(dataSource, setting, new EventPublisher() {
+            @Override
+            public void publish(BaseEvent baseEvent) {
+                events.add((PoolSaturationEvent) baseEvent);
+            }
+        });
+
+        DataSourcePoolMetrics metrics = dataSource.getPoolMetrics("h2");
+        try (Connection ignored = dataSource.getConnection()) {
+            Assert.assertEquals(1, metrics.getNumActive());
+            Assert.assertEquals(1.0, metrics.getUtilization(), 0.0001);
+
+            try (Connection ignored2 = dataSource.getConnection()) {
+                Assert.fail();
+            } catch (SQLException e) {
+                Assert.assertEquals(1, metrics.getTimeoutCount());
+            }
+            monitor.check();
+            // 已经饱和时不重复发布
+            monitor.check();
+        }
+        monitor.check();
+
+        Assert.assertEquals(1, metrics.getBorrowLatency().getCount());
+        Assert.assertEquals(Lists.newArrayList(PoolEventType.SATURATED, PoolEventType.TIMEOUT, PoolEventType.RECOVERED),
+                events.stream().map(PoolSaturationEvent::getType).collect(Collectors.toList()));
+        Assert.assertEquals("h2", events.get(0).getDataSourceName());
+        Assert.assertEquals(1, events.get(1).getCount());
+
+        hikari.close();
+    }
+
+    @Test
+    public void testTimeoutTypes() {
+        DataSourcePoolMetrics metrics = new DataSourcePoolMetrics("fake", new DriverManagerDataSource());
+        List<SQLException> errors = Lists.newArrayList(new SQLTransientConnectionException("hikari"), new GetConnectionTimeoutException("druid"),
+                new SQLException("dbcp", new NoSuchElementException("Timeout waiting for idle object")), new SQLException("Connection timeout: refused"));
+        for (SQLException error : errors) {
+            InstrumentedDataSource dataSource = new InstrumentedDataSource(new DriverManagerDataSource() {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    throw error;
+                }
+            }, metrics);
+            try {
+                dataSource.getConnection();
+                Assert.fail();
+            } catch (SQLException e) {
+                Assert.assertSame(error, e);
+            }
+        }
+
+        // 只按异常类型判断，消息中包含timeout的其他异常不计入
+        Assert.assertEquals(3, metrics.getTimeoutCount());
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.pool;
+
+import com.google.common.collect.Maps;
+import com.zaxxer.hikari.HikariDataSource;
+import lodsve.rdbms.properties.PoolSetting;
+import lodsve.rdbms.properties.RdbmsProperties;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * .
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class HikariDataSourcePoolTest {
+    @Test
+    public void testBuild() throws Exception {
+        PoolSetting setting = new PoolSetting();
+        setting.setDriverClassName("org.h2.Driver");
+        setting.setUrl("jdbc:h2:mem:hikari;DB_CLOSE_DELAY=-1");
+        setting.setUsername("sa");
+        setting.setPassword("");
+        setting.setMaxActive(8);
+        setting.setMinIdle(2);
+        setting.setMaxWait(5000);
+        setting.setIdleTimeout(60000L);
+        setting.setMaxLifetime(600000L);
+        setting.setPrepStmtCacheSize(250);
+
+        RdbmsProperties properties = new RdbmsProperties();
+        properties.setDataSourceClass("com.zaxxer.hikari.HikariDataSource");
+        properties.setPool(Maps.newHashMap());
+        properties.getPool().put("hikari", setting);
+
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("hikari", new HikariDataSourcePool("hikari", properties).build());
+        HikariDataSource dataSource = beanFactory.getBean("hikari", HikariDataSource.class);
+
+        try {
+            Assert.assertEquals("hikari", dataSource.getPoolName());
+            Assert.assertEquals(8, dataSource.getMaximumPoolSize());
+            Assert.assertEquals(2, dataSource.getMinimumIdle());
+            Assert.assertEquals(5000, dataSource.getConnectionTimeout());
+            Assert.assertEquals(60000, dataSource.getIdleTimeout());
+            Assert.assertEquals(600000, dataSource.getMaxLifetime());
+            // removeAbandonedTimeout(秒)
+            Assert.assertEquals(180000, dataSource.getLeakDetectionThreshold());
+            Assert.assertEquals("250", dataSource.getDataSourceProperties().getProperty("prepStmtCacheSize"));
+
+            try (Connection conn = dataSource.getConnection();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT 1")) {
+                Assert.assertTrue(rs.next());
+                Assert.assertEquals(1, rs.getInt(1));
+            }
+        } finally {
+            beanFactory.destroySingletons();
+        }
+
+        Assert.assertTrue(dataSource.isClosed());
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.pool;
+
+import lodsve.rdbms.properties.PoolSetting;
+import lodsve.rdbms.properties.RdbmsProperties;
+import lodsve.rdbms.properties.ValidationStrategy;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+
+/**
+ * .
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class ValidationStrategyTest {
+    private final RdbmsProperties properties = new RdbmsProperties();
+
+    @Test
+    public void testDefault() {
+        PoolSetting setting = new PoolSetting();
+        Assert.assertEquals(ValidationStrategy.IDLE_INTERVAL, setting.getValidationStrategy());
+
+        Map<String, Object> druid = new DruidDataSourcePool("test", properties).getValidationProperties(setting);
+        Assert.assertEquals(false, druid.get("testOnBorrow"));
+        Assert.assertEquals(false, druid.get("testOnReturn"));
+        Assert.assertEquals(true, druid.get("testWhileIdle"));
+        Assert.assertEquals(30000L, druid.get("timeBetweenEvictionRunsMillis"));
+        Assert.assertEquals(3, druid.get("validationQueryTimeout"));
+
+        Map<String, Object> dbcp = new DbcpDataSourcePool("test", properties).getValidationProperties(setting);
+        Assert.assertEquals(false, dbcp.get("testOnBorrow"));
+        Assert.assertEquals(false, dbcp.get("testOnReturn"));
+        Assert.assertEquals(true, dbcp.get("testWhileIdle"));
+
+        Map<String, Object> hikari = new HikariDataSourcePool("test", properties).getValidationProperties(setting);
+        Assert.assertEquals(3000L, hikari.get("validationTimeout"));
+        Assert.assertNull(hikari.get("connectionTestQuery"));
+    }
+
+    @Test
+    public void testStrategies() {
+        PoolSetting setting = new PoolSetting();
+
+        setting.setValidationStrategy(ValidationStrategy.BORROW_AND_RETURN);
+        Assert.assertEquals(true, new DbcpDataSourcePool("test", properties).getValidationProperties(setting).get("testOnReturn"));
+        Assert.assertEquals("select 1", new HikariDataSourcePool("test", properties).getValidationProperties(setting).get("connectionTestQuery"));
+
+        setting.setValidationStrategy(ValidationStrategy.IS_VALID);
+        Map<String, Object> druid = new DruidDataSourcePool("test", properties).getValidationProperties(setting);
+        Assert.assertEquals(true, druid.get("testOnBorrow"));
+        Assert.assertEquals(false, druid.get("testOnReturn"));
+
+        setting.setValidationStrategy(ValidationStrategy.BACKGROUND);
+        druid = new DruidDataSourcePool("test", properties).getValidationProperties(setting);
+        Assert.assertEquals(true, druid.get("keepAlive"));
+        Assert.assertEquals(false, druid.get("testWhileIdle"));
+
+        setting.setValidationStrategy(ValidationStrategy.ON_ERROR);
+        druid = new DruidDataSourcePool("test", properties).getValidationProperties(setting);
+        Assert.assertEquals(false, druid.get("testOnBorrow"));
+        Assert.assertNull(druid.get("keepAlive"));
+        Assert.assertEquals(-1, new DbcpDataSourcePool("test", properties).getValidationProperties(setting).get("numTestsPerEvictionRun"));
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.sharding;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import lodsve.rdbms.dynamic.DynamicDataSource;
+import lodsve.rdbms.exception.RdbmsException;
+import lodsve.rdbms.properties.ShardingAlgorithmType;
+import lodsve.rdbms.properties.ShardingSetting;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * .
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class ShardingRouterTest {
+    private static final List<String> SHARDS = Lists.newArrayList("s0", "s1", "s2");
+
+    @Test
+    public void testAlgorithms() {
+        ShardingAlgorithm hashMod = new HashModShardingAlgorithm(SHARDS);
+        Assert.assertEquals("s2", hashMod.doSharding(5L));
+        Assert.assertEquals("s1", hashMod.doSharding(-2));
+        Assert.assertEquals(hashMod.doSharding("abc"), hashMod.doSharding("abc"));
+        // 同一个值的不同类型在同一个分片
+        Assert.assertEquals("s2", hashMod.doSharding("5"));
+        Assert.assertEquals("s2", hashMod.doSharding(new BigDecimal("5.00")));
+        Assert.assertEquals("s2", hashMod.doSharding(BigInteger.valueOf(5)));
+        // 非数值类型按toString()取模，与hashCode无关
+        Assert.assertEquals(SHARDS.get(Math.floorMod("ASC".hashCode(), SHARDS.size())), hashMod.doSharding(Status.ASC));
+        try {
+            hashMod.doSharding(new Object());
+            Assert.fail();
+        } catch (RdbmsException e) {
+            Assert.assertEquals(Integer.valueOf(108008), e.getCode());
+        }
+
+        ShardingAlgorithm range = new RangeShardingAlgorithm(SHARDS, Lists.newArrayList(100L, 200L));
+        Assert.assertEquals("s0", range.doSharding(99));
+        Assert.assertEquals("s1", range.doSharding(100));
+        Assert.assertEquals("s2", range.doSharding("1000"));
+
+        // 增加一个分片时，一致性哈希只有少部分数据需要迁移
+        ShardingAlgorithm before = new ConsistentHashShardingAlgorithm(SHARDS, 160);
+        ShardingAlgorithm after = new ConsistentHashShardingAlgorithm(Lists.newArrayList("s0", "s1", "s2", "s3"), 160);
+        long moved = IntStream.range(0, 10000).filter(i -> !before.doSharding(i).equals(after.doSharding(i))).count();
+        Assert.assertTrue(moved > 1000 && moved < 4000);
+        Assert.assertEquals(SHARDS.size(), IntStream.range(0, 1000).mapToObj(before::doSharding).distinct().count());
+    }
+
+    @Test
+    public void testRoute() {
+        ShardingRouter router = new ShardingRouter(ImmutableMap.of("t_order", setting(ShardingAlgorithmType.HASH_MOD)));
+
+        Assert.assertEquals("s1", router.route("t_order", 4L));
+        Assert.assertEquals("s1", router.route("t_order", ImmutableMap.of("userId", 4L)));
+        Assert.assertEquals("s1", router.route("t_order", new Order(7L, 4L)));
+
+        try {
+            router.route("t_order", new HashMap<>());
+            Assert.fail();
+        } catch (RdbmsException e) {
+            Assert.assertEquals(Integer.valueOf(108003), e.getCode());
+        }
+        try {
+            router.route("t_user", 1L);
+            Assert.fail();
+        } catch (RdbmsException e) {
+            Assert.assertEquals(Integer.valueOf(108002), e.getCode());
+        }
+    }
+
+    @Test
+    public void testExecuteAndScatter() {
+        ShardingRouter router = new ShardingRouter(ImmutableMap.of("t_order", setting(ShardingAlgorithmType.HASH_MOD)));
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(createDataSource());
+
+        for (long id = 1; id <= 30; id++) {
+            Order order = new Order(id, id % 7);
+            router.execute("t_order", order, () -> jdbcTemplate.update("INSERT INTO t_order VALUES (?, ?)", order.getId(), order.getUserId()));
+        }
+
+        // 同一用户的订单在同一个分片上
+        Assert.assertEquals(Integer.valueOf(4), router.execute("t_order", 3L, () -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM t_order WHERE user_id = ?", Integer.class, 3L)));
+        Assert.assertEquals(Integer.valueOf(0), router.execute("t_order", 4L, () -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM t_order WHERE user_id = ?", Integer.class, 3L)));
+
+        List<Long> all = router.scatter("t_order", ds -> jdbcTemplate.queryForList("SELECT id FROM t_order", Long.class));
+        Assert.assertEquals(30, all.size());
+
+        ExecutorService executor = Executors.newFixedThreadPool(SHARDS.size());
+        try {
+            for (ExecutorService e : Lists.newArrayList(null, executor)) {
+                router.setExecutor(e);
+                List<Long> page = router.scatter("t_order", Comparator.<Long>reverseOrder(), 5, 10,
+                        (ds, fetchSize) -> jdbcTemplate.queryForList("SELECT id FROM t_order ORDER BY id DESC LIMIT ?", Long.class, fetchSize));
+                Assert.assertEquals(descending(25, 16), page);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testInsideTransaction() {
+        ShardingRouter router = new ShardingRouter(ImmutableMap.of("t_order", setting(ShardingAlgorithmType.HASH_MOD)));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            router.scatter("t_order", ds -> Lists.newArrayList(ds));
+            Assert.fail();
+        } catch (RdbmsException e) {
+            Assert.assertEquals(Integer.valueOf(108006), e.getCode());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        Object key = new Object();
+        TransactionSynchronizationManager.bindResource(key, "connection");
+        try {
+            router.execute("t_order", 1L, () -> 1);
+            Assert.fail();
+        } catch (RdbmsException e) {
+            Assert.assertEquals(Integer.valueOf(108006), e.getCode());
+        } finally {
+            TransactionSynchronizationManager.unbindResource(key);
+        }
+
+        // 每个分片在单独的线程中执行
+        String caller = Thread.currentThread().getName();
+        Assert.assertFalse(router.scatter("t_order", ds -> Lists.newArrayList(Thread.currentThread().getName())).contains(caller));
+        router.destroy();
+    }
+
+    @Test
+    public void testDefaultExecutorBounded() throws Exception {
+        ShardingRouter router = new ShardingRouter(ImmutableMap.of("t_order", setting(ShardingAlgorithmType.HASH_MOD)));
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(callers.submit(() -> router.scatter("t_order", ds -> Lists.newArrayList(Thread.currentThread().getName()))));
+            }
+
+            Set<String> threads = new HashSet<>();
+            for (Future<List<String>> future : futures) {
+                threads.addAll(future.get(10, TimeUnit.SECONDS));
+            }
+            // 并发的跨分片查询共用与分片数相同的线程
+            Assert.assertEquals(SHARDS.size(), threads.size());
+        } finally {
+            callers.shutdown();
+            router.destroy();
+        }
+    }
+
+    private DynamicDataSource createDataSource() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        for (String shard : SHARDS) {
+            DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:sharding_" + shard + ";DB_CLOSE_DELAY=-1", "sa", "");
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            jdbcTemplate.execute("DROP TABLE IF EXISTS t_order");
+            jdbcTemplate.execute("CREATE TABLE t_order (id BIGINT PRIMARY KEY, user_id BIGINT)");
+            beanFactory.registerSingleton(shard, dataSource);
+        }
+
+        DynamicDataSource dataSource = new DynamicDataSource(SHARDS, "s0");
+        dataSource.setBeanFactory(beanFactory);
+        dataSource.afterPropertiesSet();
+        return dataSource;
+    }
+
+    private ShardingSetting setting(ShardingAlgorithmType algorithm) {
+        ShardingSetting setting = new ShardingSetting();
+        setting.setDataSources(SHARDS);
+        setting.setShardKey("userId");
+        setting.setAlgorithm(algorithm);
+        return setting;
+    }
+
+    private List<Long> descending(long from, long to) {
+        return LongStream.rangeClosed(to, from).boxed().sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+    }
+
+    enum Status {
+        ASC
+    }
+
+    public static class Order {
+        private final Long id;
+        private final Long userId;
+
+        Order(Long id, Long userId) {
+            this.id = id;
+            this.userId = userId;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.statement;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.zaxxer.hikari.HikariDataSource;
+import lodsve.rdbms.dynamic.DataSourceHolder;
+import lodsve.rdbms.dynamic.DynamicDataSource;
+import lodsve.rdbms.properties.StatementCacheSetting;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * .
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class StatementCacheTest {
+    private static final String SELECT = "SELECT NAME FROM T_CACHE WHERE ID = ?";
+
+    private HikariDataSource hikari;
+    private DynamicDataSource dataSource;
+
+    @Before
+    public void setUp() throws SQLException {
+        hikari = new HikariDataSource();
+        hikari.setJdbcUrl("jdbc:h2:mem:statement-cache;DB_CLOSE_DELAY=-1");
+        hikari.setUsername("sa");
+        hikari.setMaximumPoolSize(1);
+
+        StatementCacheSetting setting = new StatementCacheSetting();
+        setting.setSize(2);
+
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("hikari", hikari);
+        beanFactory.registerSingleton("unpooled", new DriverManagerDataSource("jdbc:h2:mem:statement-cache;DB_CLOSE_DELAY=-1", "sa", ""));
+        dataSource = new DynamicDataSource(Lists.newArrayList("hikari", "unpooled"), "hikari");
+        dataSource.setStatementCacheSettings(ImmutableMap.of("hikari", setting, "unpooled", setting));
+        dataSource.setBeanFactory(beanFactory);
+        dataSource.afterPropertiesSet();
+
+        try (Connection connection = hikari.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS T_CACHE");
+            statement.execute("CREATE TABLE T_CACHE (ID INT PRIMARY KEY, NAME VARCHAR(20))");
+            statement.execute("INSERT INTO T_CACHE VALUES (1, 'a'), (2, 'b')");
+        }
+    }
+
+    @After
+    public void tearDown() {
+        hikari.close();
+    }
+
+    @Test
+    public void testReuseAcrossBorrows() throws SQLException {
+        StatementCache cache = dataSource.getStatementCache("hikari");
+        try (Connection connection = dataSource.getConnection(); PreparedStatement statement = connection.prepareStatement(SELECT)) {
+            statement.setMaxRows(1);
+            statement.setInt(1, 1);
+            Assert.assertEquals("a", query(statement));
+        }
+        Assert.assertEquals(1, cache.getCachedStatements());
+
+        try (Connection connection = dataSource.getConnection(); PreparedStatement statement = connection.prepareStatement(SELECT)) {
+            // 属性已恢复
+            Assert.assertEquals(0, statement.getMaxRows());
+            Assert.assertSame(connection, statement.getConnection());
+            statement.setInt(1, 2);
+            Assert.assertEquals("b", query(statement));
+
+            // 同一条sql同时打开时不复用
+            try (PreparedStatement another = connection.prepareStatement(SELECT)) {
+                another.setInt(1, 1);
+                Assert.assertEquals("a", query(another));
+            }
+        }
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(2, cache.getMisses());
+        Assert.assertEquals(1, cache.getCachedStatements());
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.prepareStatement("SELECT 1").close();
+            connection.prepareStatement("SELECT 2").close();
+        }
+        Assert.assertEquals(1, cache.getEvictions());
+        Assert.assertEquals(2, cache.getCachedStatements());
+    }
+
+    @Test
+    public void testUnclosedStatementsReleased() throws SQLException {
+        StatementCache cache = dataSource.getStatementCache("hikari");
+        PreparedStatement leaked;
+        try (Connection connection = dataSource.getConnection()) {
+            leaked = connection.prepareStatement(SELECT);
+            leaked.setInt(1, 1);
+            Assert.assertEquals("a", query(leaked));
+        }
+        // 连接关闭时没有关闭的语句被放回缓存
+        Assert.assertTrue(leaked.isClosed());
+        Assert.assertEquals(1, cache.getCachedStatements());
+
+        try (Connection connection = dataSource.getConnection(); PreparedStatement statement = connection.prepareStatement(SELECT)) {
+            statement.setInt(1, 2);
+            Assert.assertEquals("b", query(statement));
+        }
+        Assert.assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testRollbackOnClose() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO T_CACHE VALUES (?, ?)")) {
+                statement.setInt(1, 3);
+                statement.setString(2, "c");
+                statement.executeUpdate();
+            }
+        }
+
+        try (Connection connection = dataSource.getConnection(); PreparedStatement statement = connection.prepareStatement(SELECT)) {
+            statement.setInt(1, 3);
+            Assert.assertNull(query(statement));
+        }
+    }
+
+    @Test
+    public void testUnpooled() throws SQLException {
+        StatementCache cache = dataSource.getStatementCache("unpooled");
+        DataSourceHolder.getInstance().set("unpooled");
+        try (Connection connection = dataSource.getConnection()) {
+            for (int i = 0; i < 3; i++) {
+                try (PreparedStatement statement = connection.prepareStatement(SELECT)) {
+                    statement.setInt(1, 1);
+                    Assert.assertEquals("a", query(statement));
+                }
+            }
+        } finally {
+            DataSourceHolder.getInstance().close();
+        }
+        Assert.assertEquals(2, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+    }
+
+    private String query(PreparedStatement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+}
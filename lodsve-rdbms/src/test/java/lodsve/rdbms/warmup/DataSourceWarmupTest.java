@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.rdbms.warmup;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.zaxxer.hikari.HikariDataSource;
+import lodsve.rdbms.dynamic.DynamicDataSource;
+import lodsve.rdbms.exception.RdbmsException;
+import lodsve.rdbms.flyway.FlywayMigrationCoordinator;
+import lodsve.rdbms.properties.PoolSetting;
+import lodsve.rdbms.properties.WarmupSetting;
+import org.flywaydb.core.Flyway;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+/**
+ * .
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class DataSourceWarmupTest {
+    @Test
+    public void testWarmup() {
+        HikariDataSource hikari = new HikariDataSource();
+        hikari.setJdbcUrl("jdbc:h2:mem:warmup;DB_CLOSE_DELAY=-1");
+        hikari.setUsername("sa");
+        hikari.setMaximumPoolSize(5);
+        hikari.setMinimumIdle(0);
+
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("hikari", hikari);
+        beanFactory.registerSingleton("bad", new DriverManagerDataSource("jdbc:unknown:bad"));
+        DynamicDataSource dataSource = new DynamicDataSource(Lists.newArrayList("hikari", "bad"), "hikari");
+        dataSource.setBeanFactory(beanFactory);
+        dataSource.afterPropertiesSet();
+
+        PoolSetting pool = new PoolSetting();
+        pool.setInitialSize(3);
+        pool.setValidationQuery("SELECT 1");
+        Map<String, PoolSetting> pools = ImmutableMap.of("hikari", pool);
+
+        WarmupSetting setting = new WarmupSetting();
+        DataSourceWarmup warmup = new DataSourceWarmup(dataSource, setting, pools);
+        warmup.afterSingletonsInstantiated();
+
+        Map<String, WarmupResult> results = warmup.getResults().stream().collect(Collectors.toMap(WarmupResult::getDataSourceName, r -> r));
+        Assert.assertTrue(results.get("hikari").isReady());
+        Assert.assertEquals(3, results.get("hikari").getConnections());
+        Assert.assertEquals(3, hikari.getHikariPoolMXBean().getTotalConnections());
+        Assert.assertEquals(0, hikari.getHikariPoolMXBean().getActiveConnections());
+        Assert.assertFalse(results.get("bad").isReady());
+        Assert.assertNotNull(results.get("bad").getError());
+
+        setting.setFailFast(true);
+        try {
+            new DataSourceWarmup(dataSource, setting, pools).afterSingletonsInstantiated();
+            Assert.fail();
+        } catch (RdbmsException e) {
+            Assert.assertEquals(Integer.valueOf(108004), e.getCode());
+        }
+
+        List<WarmupResult> ready = new DataSourceWarmup(dataSource, setting, pools).warmup().stream().filter(WarmupResult::isReady).collect(Collectors.toList());
+        Assert.assertEquals(1, ready.size());
+
+        hikari.close();
+    }
+
+    @Test
+    public void testAwaitMigration() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("h2", new DriverManagerDataSource("jdbc:h2:mem:warmup_flyway;DB_CLOSE_DELAY=-1", "sa", ""));
+        DynamicDataSource dataSource = new DynamicDataSource(Lists.newArrayList("h2"), "h2");
+        dataSource.setBeanFactory(beanFactory);
+        dataSource.afterPropertiesSet();
+
+        WarmupSetting setting = new WarmupSetting();
+        setting.setTimeout(1000L);
+
+        // 迁移还没有完成，跳过预热
+        FlywayMigrationCoordinator coordinator = new FlywayMigrationCoordinator(Collections.singletonMap("h2", new Flyway()), f -> {
+            throw new IllegalStateException("migrate failed!");
+        }, 1);
+        DataSourceWarmup warmup = new DataSourceWarmup(dataSource, setting, null);
+        warmup.setMigrationCoordinator(coordinator);
+        warmup.afterSingletonsInstantiated();
+        Assert.assertTrue(warmup.getResults().isEmpty());
+
+        // 迁移失败，跳过预热
+        coordinator.setValidateFirst(false);
+        coordinator.migrateInBackground();
+        coordinator.destroy();
+        warmup.afterSingletonsInstantiated();
+        Assert.assertTrue(warmup.getResults().isEmpty());
+
+        // 迁移完成后预热
+        FlywayMigrationCoordinator migrated = new FlywayMigrationCoordinator(Collections.emptyMap(), null, 1);
+        migrated.migrate();
+        warmup.setMigrationCoordinator(migrated);
+        warmup.afterSingletonsInstantiated();
+        Assert.assertTrue(warmup.getResults().get(0).isReady());
+    }
+
+    @Test
+    public void testBackgroundMigration() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        DriverManagerDataSource h2 = new DriverManagerDataSource("jdbc:h2:mem:warmup_background;DB_CLOSE_DELAY=-1", "sa", "");
+        // 先建立一次连接，避免加载驱动的耗时超过预热超时时间
+        h2.getConnection().close();
+        beanFactory.registerSingleton("h2", h2);
+        DynamicDataSource dataSource = new DynamicDataSource(Lists.newArrayList("h2"), "h2");
+        dataSource.setBeanFactory(beanFactory);
+        dataSource.afterPropertiesSet();
+
+        CountDownLatch latch = new CountDownLatch(1);
+        FlywayMigrationCoordinator coordinator = new FlywayMigrationCoordinator(Collections.singletonMap("h2", new Flyway()), f -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 1);
+        coordinator.setValidateFirst(false);
+        coordinator.migrateInBackground();
+
+        WarmupSetting setting = new WarmupSetting();
+        setting.setTimeout(500L);
+        DataSourceWarmup warmup = new DataSourceWarmup(dataSource, setting, null);
+        warmup.setMigrationCoordinator(coordinator);
+        warmup.setBackgroundMigration(true);
+
+        // 后台迁移时不等待迁移完成，也不因为超过预热超时时间而放弃预热
+        warmup.afterSingletonsInstantiated();
+        Assert.assertTrue(warmup.getResults().isEmpty());
+        Thread.sleep(800);
+        Assert.assertTrue(warmup.getResults().isEmpty());
+
+        latch.countDown();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (warmup.getResults().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Assert.assertTrue(warmup.getResults().get(0).isReady());
+    }
+}
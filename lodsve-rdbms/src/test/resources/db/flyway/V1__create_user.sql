@@ -0,0 +1 @@
+CREATE TABLE t_user (id BIGINT PRIMARY KEY, name VARCHAR(50));
@@ -0,0 +1 @@
+INSERT INTO t_user VALUES (1, 'admin');
@@ -48,4 +48,26 @@ public @interface EnableRedis {
      * @return 定时器使用的数据源
      */
     String timer() default "";
+
+    /**
+     * 分布式限流器{@link lodsve.redis.limiter.RedisRateLimiter}使用的数据源，如果为空，则表示不用限流器
+     *
+     * @return 限流器使用的数据源
+     */
+    String rateLimiter() default "";
+
+    /**
+     * 分布式锁{@link lodsve.redis.lock.RedisLockRegistry}使用的数据源，如果为空，则表示不用分布式锁
+     *
+     * @return 分布式锁使用的数据源
+     */
+    String lock() default "";
+
+    /**
+     * redis session{@link lodsve.redis.session.RedisSessionFilter}使用的数据源，如果为空，则表示不用redis保存session<br/>
+     * 需同时配置lodsve.redis.session.enabled=true
+     *
+     * @return redis session使用的数据源
+     */
+    String session() default "";
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.core.annotations;
+
+import lodsve.core.utils.StringUtils;
+import lodsve.redis.exception.RedisException;
+import lodsve.redis.limiter.RedisRateLimiter;
+import lodsve.redis.lock.RedisLockRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
+import org.springframework.core.annotation.AnnotationAttributes;
+import org.springframework.core.type.AnnotationMetadata;
+
+/**
+ * 注册分布式限流器、分布式锁、redis session过滤器.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class RedisDistributedBeanDefinitionRegistrar implements ImportBeanDefinitionRegistrar {
+    private static final String RATE_LIMITER_ATTRIBUTE_NAME = "rateLimiter";
+    private static final String LOCK_ATTRIBUTE_NAME = "lock";
+    private static final String SESSION_ATTRIBUTE_NAME = "session";
+    /**
+     * 依赖servlet api，使用类名注册，避免非web环境加载
+     */
+    private static final String SESSION_FILTER_CLASS_NAME = "lodsve.redis.session.RedisSessionFilter";
+
+    @Override
+    public void registerBeanDefinitions(AnnotationMetadata importingClassMetadata, BeanDefinitionRegistry registry) {
+        AnnotationAttributes attributes = AnnotationAttributes.fromMap(importingClassMetadata.getAnnotationAttributes(EnableRedis.class.getName(), false));
+
+        register(registry, attributes.getString(RATE_LIMITER_ATTRIBUTE_NAME), "redisRateLimiter", RedisRateLimiter.class.getName());
+        register(registry, attributes.getString(LOCK_ATTRIBUTE_NAME), "redisLockRegistry", RedisLockRegistry.class.getName());
+        register(registry, attributes.getString(SESSION_ATTRIBUTE_NAME), "redisSessionFilter", SESSION_FILTER_CLASS_NAME);
+    }
+
+    private void register(BeanDefinitionRegistry registry, String dataSource, String beanName, String beanClassName) {
+        if (StringUtils.isBlank(dataSource) || registry.containsBeanDefinition(beanName)) {
+            return;
+        }
+        if (!registry.containsBeanDefinition(dataSource)) {
+            throw new RedisException(103005, "can't find dataSource named '{}' for " + beanName + "!", dataSource);
+        }
+
+        BeanDefinitionBuilder builder = BeanDefinitionBuilder.genericBeanDefinition(beanClassName);
+        builder.addConstructorArgReference(dataSource);
+        registry.registerBeanDefinition(beanName, builder.getBeanDefinition());
+    }
+}
@@ -36,6 +36,7 @@ public class RedisImportSelector implements ImportSelector {
         List<String> imports = new ArrayList<>();
         imports.add(RedisBeanDefinitionRegistrar.class.getName());
         imports.add(RedisTimerBeanDefinitionRegistrar.class.getName());
+        imports.add(RedisDistributedBeanDefinitionRegistrar.class.getName());
 
         return imports.toArray(new String[imports.size()]);
     }
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.core.connection;
+
+import lodsve.redis.core.properties.AdaptiveSetting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 根据观察到的连接需求，定时在上下限之间调整连接池的maxIdle/minIdle.<br/>
+ * maxIdle取周期内峰值活跃连接数的1.25倍，minIdle取峰值的一半；调大立即生效，调小每次只回收差值的一半，避免抖动.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+class AdaptivePoolSizer {
+    private static final Logger logger = LoggerFactory.getLogger(AdaptivePoolSizer.class);
+
+    private final String dataSourceName;
+    private final InstrumentedJedisPool pool;
+    private final AdaptiveSetting setting;
+    private ScheduledExecutorService executor;
+
+    AdaptivePoolSizer(String dataSourceName, InstrumentedJedisPool pool, AdaptiveSetting setting) {
+        this.dataSourceName = dataSourceName;
+        this.pool = pool;
+        this.setting = setting;
+    }
+
+    void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "redis-pool-sizer-" + dataSourceName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = setting.getInterval();
+        executor.scheduleWithFixedDelay(this::resize, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    void resize() {
+        try {
+            int peak = pool.getAndResetPeakActive() + pool.getMetrics().getNumWaiters();
+            int currentMaxIdle = pool.getMetrics().getMaxIdle();
+            int currentMinIdle = pool.getMetrics().getMinIdle();
+
+            int maxIdle = clamp(next(currentMaxIdle, peak + (peak + 3) / 4), setting.getLowerBound(), setting.getUpperBound());
+            int minIdle = clamp(next(currentMinIdle, peak / 2), 0, maxIdle);
+            if (maxIdle == currentMaxIdle && minIdle == currentMinIdle) {
+                return;
+            }
+
+            pool.setIdle(minIdle, maxIdle);
+            if (logger.isDebugEnabled()) {
+                logger.debug("resize redis pool '{}': peak active {}, maxIdle {} -> {}, minIdle {} -> {}", dataSourceName,
+                        peak, currentMaxIdle, maxIdle, currentMinIdle, minIdle);
+            }
+        } catch (Exception e) {
+            logger.warn("resize redis pool '" + dataSourceName + "' failed!", e);
+        }
+    }
+
+    private static int next(int current, int target) {
+        return target >= current ? target : current - (current - target + 1) / 2;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
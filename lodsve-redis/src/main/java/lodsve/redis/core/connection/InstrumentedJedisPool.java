@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.core.connection;
+
+import lodsve.redis.core.metrics.RedisPoolMetrics;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.PooledObjectFactory;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 记录借用耗时、占用时长的JedisPool.<br/>
+ * 占用时长在连接归还到连接池(passivate)或者作为坏连接销毁时记录，不依赖Jedis中已废弃的returnResource系列方法.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+class InstrumentedJedisPool extends JedisPool {
+    private final RedisPoolMetrics metrics;
+    private final Map<Jedis, Long> borrowedAt = new ConcurrentHashMap<>(16);
+    private final AtomicInteger peakActive = new AtomicInteger();
+
+    InstrumentedJedisPool(String dataSourceName, GenericObjectPoolConfig poolConfig, String host, int port, int timeout, String password) {
+        super(poolConfig, host, port, timeout, password);
+        initPool(poolConfig, new HoldTimeRecordingFactory(internalPool.getFactory()));
+        this.metrics = new RedisPoolMetrics(dataSourceName, internalPool);
+    }
+
+    @Override
+    public Jedis getResource() {
+        long start = System.nanoTime();
+        Jedis jedis = super.getResource();
+        long now = System.nanoTime();
+
+        metrics.getBorrowLatency().record(now - start);
+        borrowedAt.put(jedis, now);
+        peakActive.accumulateAndGet(internalPool.getNumActive(), Math::max);
+
+        return jedis;
+    }
+
+    RedisPoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 获取上次调用以来的最大活跃连接数，并重新计数
+     *
+     * @return 最大活跃连接数
+     */
+    int getAndResetPeakActive() {
+        return peakActive.getAndSet(internalPool.getNumActive());
+    }
+
+    void setIdle(int minIdle, int maxIdle) {
+        // 先调大maxIdle，避免minIdle > maxIdle
+        internalPool.setMaxIdle(Math.max(maxIdle, internalPool.getMaxIdle()));
+        internalPool.setMinIdle(minIdle);
+        internalPool.setMaxIdle(maxIdle);
+    }
+
+    private void recordHoldTime(Jedis resource) {
+        Long start = borrowedAt.remove(resource);
+        if (start != null) {
+            metrics.getHoldTime().record(System.nanoTime() - start);
+        }
+    }
+
+    private class HoldTimeRecordingFactory implements PooledObjectFactory<Jedis> {
+        private final PooledObjectFactory<Jedis> delegate;
+
+        HoldTimeRecordingFactory(PooledObjectFactory<Jedis> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public PooledObject<Jedis> makeObject() throws Exception {
+            return delegate.makeObject();
+        }
+
+        @Override
+        public void destroyObject(PooledObject<Jedis> p) throws Exception {
+            // 坏连接不经过passivate，直接销毁
+            recordHoldTime(p.getObject());
+            delegate.destroyObject(p);
+        }
+
+        @Override
+        public boolean validateObject(PooledObject<Jedis> p) {
+            return delegate.validateObject(p);
+        }
+
+        @Override
+        public void activateObject(PooledObject<Jedis> p) throws Exception {
+            delegate.activateObject(p);
+        }
+
+        @Override
+        public void passivateObject(PooledObject<Jedis> p) throws Exception {
+            recordHoldTime(p.getObject());
+            delegate.passivateObject(p);
+        }
+    }
+}
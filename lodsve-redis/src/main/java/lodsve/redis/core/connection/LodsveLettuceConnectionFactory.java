@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.core.connection;
+
+import com.lambdaworks.redis.RedisAsyncConnection;
+import lodsve.core.utils.StringUtils;
+import lodsve.redis.core.properties.LettuceSetting;
+import lodsve.redis.core.properties.ProjectRedisSetting;
+import lodsve.redis.core.properties.RedisProperties;
+import lodsve.redis.exception.RedisException;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+/**
+ * 基于lettuce的redis数据源工厂.<br/>
+ * 与{@link LodsveRedisConnectionFactory}不同，默认所有线程共享同一个多路复用的原生连接，
+ * 不再受连接池maxTotal的限制；使用{@code RedisTemplate#executePipelined}时命令会以异步方式批量发送.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ * @see LodsveRedisConnectionFactory
+ */
+public class LodsveLettuceConnectionFactory extends LettuceConnectionFactory {
+    LodsveLettuceConnectionFactory(String dataSourceName, RedisProperties redisProperties) {
+        ProjectRedisSetting redisSetting = redisProperties.getProject().get(dataSourceName);
+        RedisUrl url = RedisUrl.parse(redisSetting.getUrl());
+
+        String password = redisSetting.getPassword();
+        if (StringUtils.isNotBlank(password)) {
+            setPassword(password);
+        }
+        setHostName(url.getHostName());
+        setPort(url.getPort());
+        setDatabase(url.getDatabase());
+        setTimeout(redisSetting.getTimeout());
+
+        LettuceSetting lettuce = redisProperties.getLettuce();
+        setShareNativeConnection(lettuce.isShareNativeConnection());
+        setValidateConnection(lettuce.isValidateConnection());
+        setShutdownTimeout(lettuce.getShutdownTimeout());
+    }
+
+    /**
+     * 获取共享的原生异步连接，可直接发送异步命令.<br/>
+     * 该连接由所有线程共享，不能关闭，也不能在其上执行事务或阻塞命令；直接返回工厂持有的原生连接，不会创建需要关闭的{@code LettuceConnection}
+     *
+     * @return 共享的异步连接
+     */
+    public RedisAsyncConnection<byte[], byte[]> getSharedAsyncConnection() {
+        if (!getShareNativeConnection()) {
+            throw new RedisException(103004, "native connection is not shared, please set lettuce.share-native-connection=true");
+        }
+
+        return getSharedConnection();
+    }
+}
@@ -18,12 +18,16 @@
 package lodsve.redis.core.connection;
 
 import lodsve.core.utils.StringUtils;
+import lodsve.redis.core.metrics.RedisPoolMetrics;
+import lodsve.redis.core.metrics.RedisPoolMetricsRegistry;
 import lodsve.redis.core.properties.PoolSetting;
 import lodsve.redis.core.properties.ProjectRedisSetting;
 import lodsve.redis.core.properties.RedisProperties;
-import lodsve.redis.exception.RedisException;
 import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.util.Pool;
 
 /**
  * 继承重写redis数据源的工厂,实现自定义的创建连接的方法.
@@ -32,33 +36,24 @@ import redis.clients.jedis.JedisPoolConfig;
  * @date 15/9/8 下午23:40
  */
 public class LodsveRedisConnectionFactory extends JedisConnectionFactory {
-    private static final String URL_PREFIX = "redis://";
+    private final String dataSourceName;
     private RedisProperties settings;
+    private InstrumentedJedisPool instrumentedPool;
+    private AdaptivePoolSizer poolSizer;
 
     LodsveRedisConnectionFactory(String dataSourceName, RedisProperties redisProperties) {
+        this.dataSourceName = dataSourceName;
         settings = redisProperties;
         ProjectRedisSetting redisSetting = settings.getProject().get(dataSourceName);
-
-        String url = redisSetting.getUrl();
-        if (StringUtils.isBlank(url)) {
-            throw new RedisException(103001, "url must not null");
-        }
-        if (!url.startsWith(URL_PREFIX)) {
-            throw new RedisException(103002, "url needs to start with " + URL_PREFIX, URL_PREFIX);
-        }
-
-        url = url.substring(URL_PREFIX.length());
-        String hostName = url.substring(0, url.indexOf(":"));
-        String port = url.substring(url.indexOf(":") + 1, url.indexOf("/"));
-        String dbIndex = url.substring(url.indexOf("/") + 1);
+        RedisUrl url = RedisUrl.parse(redisSetting.getUrl());
 
         String password = redisSetting.getPassword();
         if (StringUtils.isNotBlank(password)) {
             setPassword(redisSetting.getPassword());
         }
-        setHostName(hostName);
-        setPort(Integer.parseInt(port));
-        setDatabase(Integer.parseInt(dbIndex));
+        setHostName(url.getHostName());
+        setPort(url.getPort());
+        setDatabase(url.getDatabase());
         setPoolConfig(getJedisPoolConfig());
         setUsePool(true);
 
@@ -66,6 +61,55 @@ public class LodsveRedisConnectionFactory extends JedisConnectionFactory {
         setTimeout(timeout);
     }
 
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+
+        if (instrumentedPool == null) {
+            return;
+        }
+        RedisPoolMetricsRegistry.register(instrumentedPool.getMetrics());
+
+        PoolSetting props = settings.getPool();
+        if (props.getAdaptive().isEnabled()) {
+            poolSizer = new AdaptivePoolSizer(dataSourceName, instrumentedPool, props.getAdaptive());
+            poolSizer.start();
+        }
+    }
+
+    @Override
+    protected Pool<Jedis> createRedisPool() {
+        if (!settings.getPool().isMetricsEnabled()) {
+            return super.createRedisPool();
+        }
+
+        JedisShardInfo shardInfo = getShardInfo();
+        instrumentedPool = new InstrumentedJedisPool(dataSourceName, getPoolConfig(), shardInfo.getHost(), shardInfo.getPort(),
+                getTimeout(), shardInfo.getPassword());
+        return instrumentedPool;
+    }
+
+    @Override
+    public void destroy() {
+        if (poolSizer != null) {
+            poolSizer.stop();
+        }
+        if (instrumentedPool != null) {
+            RedisPoolMetricsRegistry.unregister(dataSourceName);
+        }
+
+        super.destroy();
+    }
+
+    /**
+     * 获取连接池统计
+     *
+     * @return 连接池统计，未开启统计时为null
+     */
+    public RedisPoolMetrics getPoolMetrics() {
+        return instrumentedPool == null ? null : instrumentedPool.getMetrics();
+    }
+
     private JedisPoolConfig getJedisPoolConfig() {
         JedisPoolConfig config = new JedisPoolConfig();
         PoolSetting props = settings.getPool();
@@ -18,6 +18,7 @@
 package lodsve.redis.core.connection;
 
 import lodsve.core.properties.relaxedbind.RelaxedBindFactory;
+import lodsve.redis.core.properties.RedisClientType;
 import lodsve.redis.core.properties.RedisProperties;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
@@ -39,7 +40,9 @@ public class RedisDataSourceBeanDefinitionFactory {
     }
 
     public BeanDefinition build() {
-        BeanDefinitionBuilder beanDefinitionBuilder = BeanDefinitionBuilder.genericBeanDefinition(LodsveRedisConnectionFactory.class);
+        Class<?> connectionFactoryClass = RedisClientType.LETTUCE == redisProperties.getClient() ?
+                LodsveLettuceConnectionFactory.class : LodsveRedisConnectionFactory.class;
+        BeanDefinitionBuilder beanDefinitionBuilder = BeanDefinitionBuilder.genericBeanDefinition(connectionFactoryClass);
 
         beanDefinitionBuilder.addConstructorArgValue(dataSourceName);
         beanDefinitionBuilder.addConstructorArgValue(redisProperties);
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.core.connection;
+
+import lodsve.core.utils.StringUtils;
+import lodsve.redis.exception.RedisException;
+
+/**
+ * 解析redis连接url(e.g: redis://ip:port/dbIndex).
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+final class RedisUrl {
+    private static final String URL_PREFIX = "redis://";
+
+    private final String hostName;
+    private final int port;
+    private final int database;
+
+    private RedisUrl(String hostName, int port, int database) {
+        this.hostName = hostName;
+        this.port = port;
+        this.database = database;
+    }
+
+    static RedisUrl parse(String url) {
+        if (StringUtils.isBlank(url)) {
+            throw new RedisException(103001, "url must not null");
+        }
+        if (!url.startsWith(URL_PREFIX)) {
+            throw new RedisException(103002, "url needs to start with " + URL_PREFIX, URL_PREFIX);
+        }
+
+        url = url.substring(URL_PREFIX.length());
+        String hostName = url.substring(0, url.indexOf(":"));
+        String port = url.substring(url.indexOf(":") + 1, url.indexOf("/"));
+        String dbIndex = url.substring(url.indexOf("/") + 1);
+
+        return new RedisUrl(hostName, Integer.parseInt(port), Integer.parseInt(dbIndex));
+    }
+
+    String getHostName() {
+        return hostName;
+    }
+
+    int getPort() {
+        return port;
+    }
+
+    int getDatabase() {
+        return database;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.core.metrics;
+
+import lodsve.core.metrics.LatencyHistogram;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+
+/**
+ * 单个redis数据源的连接池统计.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class RedisPoolMetrics {
+    private final String name;
+    private final GenericObjectPool<?> pool;
+    private final LatencyHistogram borrowLatency = new LatencyHistogram();
+    private final LatencyHistogram holdTime = new LatencyHistogram();
+
+    public RedisPoolMetrics(String name, GenericObjectPool<?> pool) {
+        this.name = name;
+        this.pool = pool;
+    }
+
+    /**
+     * 数据源名称
+     *
+     * @return 数据源名称
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 正在使用的连接数
+     *
+     * @return 正在使用的连接数
+     */
+    public int getNumActive() {
+        return pool.getNumActive();
+    }
+
+    /**
+     * 空闲的连接数
+     *
+     * @return 空闲的连接数
+     */
+    public int getNumIdle() {
+        return pool.getNumIdle();
+    }
+
+    /**
+     * 等待获取连接的线程数
+     *
+     * @return 等待获取连接的线程数
+     */
+    public int getNumWaiters() {
+        return pool.getNumWaiters();
+    }
+
+    /**
+     * 当前的maxIdle(开启自适应后会动态变化)
+     *
+     * @return maxIdle
+     */
+    public int getMaxIdle() {
+        return pool.getMaxIdle();
+    }
+
+    /**
+     * 当前的minIdle(开启自适应后会动态变化)
+     *
+     * @return minIdle
+     */
+    public int getMinIdle() {
+        return pool.getMinIdle();
+    }
+
+    /**
+     * 连接池最大连接数
+     *
+     * @return maxTotal
+     */
+    public int getMaxTotal() {
+        return pool.getMaxTotal();
+    }
+
+    /**
+     * 从连接池借用连接的耗时
+     *
+     * @return 耗时直方图
+     */
+    public LatencyHistogram getBorrowLatency() {
+        return borrowLatency;
+    }
+
+    /**
+     * 连接占用时长，即从借出连接到归还连接的时长，包含命令耗时和调用方在持有连接期间的处理耗时(RedisTemplate每次execute借还一次连接)
+     *
+     * @return 时长直方图
+     */
+    public LatencyHistogram getHoldTime() {
+        return holdTime;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[%s] active=%d, idle=%d, waiters=%d, maxIdle=%d, minIdle=%d, borrow={%s}, hold={%s}", name,
+                getNumActive(), getNumIdle(), getNumWaiters(), getMaxIdle(), getMinIdle(), borrowLatency, holdTime);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.core.metrics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按数据源名称保存所有redis连接池的统计.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class RedisPoolMetricsRegistry {
+    private static final Map<String, RedisPoolMetrics> METRICS = new ConcurrentHashMap<>(16);
+
+    private RedisPoolMetricsRegistry() {
+    }
+
+    public static void register(RedisPoolMetrics metrics) {
+        METRICS.put(metrics.getName(), metrics);
+    }
+
+    public static void unregister(String dataSourceName) {
+        METRICS.remove(dataSourceName);
+    }
+
+    /**
+     * 获取指定数据源的统计
+     *
+     * @param dataSourceName 数据源名称
+     * @return 统计，未开启统计时为null
+     */
+    public static RedisPoolMetrics get(String dataSourceName) {
+        return METRICS.get(dataSourceName);
+    }
+
+    /**
+     * 获取所有数据源的统计
+     *
+     * @return 所有统计
+     */
+    public static Collection<RedisPoolMetrics> getAll() {
+        return Collections.unmodifiableCollection(METRICS.values());
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.core.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 连接池自适应配置.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+@Setter
+@Getter
+public class AdaptiveSetting {
+    /**
+     * 是否根据连接需求自动调整maxIdle/minIdle
+     */
+    private boolean enabled = false;
+    /**
+     * maxIdle下限
+     */
+    private int lowerBound = 10;
+    /**
+     * maxIdle上限
+     */
+    private int upperBound = 200;
+    /**
+     * 调整周期(单位:毫秒)
+     */
+    private long interval = 30000;
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.core.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Lettuce Setting.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+@Setter
+@Getter
+public class LettuceSetting {
+    /**
+     * 是否所有线程共享一个原生连接(阻塞命令、事务等仍会使用独立连接)
+     */
+    private boolean shareNativeConnection = true;
+    /**
+     * 获取共享连接时是否校验连接可用
+     */
+    private boolean validateConnection = false;
+    /**
+     * 关闭客户端时的等待时长(单位:毫秒)
+     */
+    private long shutdownTimeout = 100;
+}
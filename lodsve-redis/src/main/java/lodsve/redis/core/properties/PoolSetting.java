@@ -36,4 +36,14 @@ public class PoolSetting {
     private boolean testOnBorrow = true;
     private boolean testOnReturn = true;
     private boolean testWhileIdle = true;
+    /**
+     * 是否统计连接池使用情况
+     *
+     * @see lodsve.redis.core.metrics.RedisPoolMetricsRegistry
+     */
+    private boolean metricsEnabled = true;
+    /**
+     * 连接池自适应配置，需开启统计
+     */
+    private AdaptiveSetting adaptive = new AdaptiveSetting();
 }
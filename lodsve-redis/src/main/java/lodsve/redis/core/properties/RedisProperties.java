@@ -33,6 +33,12 @@ import java.util.Map;
 @Getter
 @ConfigurationProperties(prefix = "lodsve.redis", locations = "${params.root}/framework/redis.properties")
 public class RedisProperties {
+    /**
+     * 使用的客户端，默认jedis
+     */
+    private RedisClientType client = RedisClientType.JEDIS;
     private PoolSetting pool;
+    private LettuceSetting lettuce;
+    private SessionSetting session;
     private Map<String, ProjectRedisSetting> project;
 }
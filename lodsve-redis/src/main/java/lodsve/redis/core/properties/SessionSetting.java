@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.core.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * redis session配置.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+@Setter
+@Getter
+public class SessionSetting {
+    /**
+     * 是否注册redis session过滤器，需同时配置{@link lodsve.redis.core.annotations.EnableRedis#session()}
+     */
+    private boolean enabled = false;
+    /**
+     * session过期时间(单位:秒)
+     */
+    private int maxInactiveInterval = 1800;
+    /**
+     * 保存session id的cookie名称
+     */
+    private String cookieName = "LODSVE_SESSION";
+    /**
+     * redis中session的key前缀
+     */
+    private String keyPrefix = "lodsve:session:";
+    /**
+     * session元数据(创建时间、最后访问时间等)在本地缓存的时间(单位:毫秒)，0表示不缓存
+     */
+    private long metadataCacheTtl = 1000;
+    /**
+     * 本地缓存的session元数据最大个数
+     */
+    private int metadataCacheSize = 10000;
+}
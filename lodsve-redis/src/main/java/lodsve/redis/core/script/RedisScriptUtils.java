@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.core.script;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * lua脚本工具类.<br/>
+ * {@link RedisTemplate#execute(RedisScript, java.util.List, Object...)}优先使用EVALSHA，脚本不存在时才退回EVAL，
+ * 启动时预先SCRIPT LOAD可以保证每次调用只发送脚本的sha1.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class RedisScriptUtils {
+    private static final Logger logger = LoggerFactory.getLogger(RedisScriptUtils.class);
+    private static final String SCRIPT_LOCATION = "META-INF/redis/script/";
+
+    private RedisScriptUtils() {
+    }
+
+    /**
+     * 加载classpath中{@value #SCRIPT_LOCATION}下的脚本
+     *
+     * @param name       脚本文件名
+     * @param resultType 返回值类型
+     * @param <T>        返回值类型
+     * @return 脚本
+     */
+    public static <T> RedisScript<T> load(String name, Class<T> resultType) {
+        DefaultRedisScript<T> script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource(SCRIPT_LOCATION + name)));
+        script.setResultType(resultType);
+
+        return script;
+    }
+
+    /**
+     * 将脚本预先加载到redis的脚本缓存中
+     *
+     * @param redisTemplate redisTemplate
+     * @param scripts       脚本
+     */
+    public static void preload(RedisTemplate<?, ?> redisTemplate, RedisScript<?>... scripts) {
+        for (RedisScript<?> script : scripts) {
+            try {
+                redisTemplate.execute((RedisCallback<String>) connection ->
+                        connection.scriptLoad(script.getScriptAsString().getBytes(StandardCharsets.UTF_8)));
+            } catch (Exception e) {
+                // 加载失败时，第一次执行会退回EVAL并由redis缓存
+                logger.warn("preload redis script '{}' failed!", script.getSha1(), e);
+            }
+        }
+    }
+}
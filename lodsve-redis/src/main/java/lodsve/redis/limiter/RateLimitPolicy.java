@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.limiter;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 限流策略.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public final class RateLimitPolicy {
+    /**
+     * 限流算法
+     */
+    public enum Algorithm {
+        /**
+         * 令牌桶，允许一定的突发流量
+         */
+        TOKEN_BUCKET,
+        /**
+         * 滑动窗口，严格限制任意窗口内的请求数
+         */
+        SLIDING_WINDOW
+    }
+
+    private final Algorithm algorithm;
+    private final long limit;
+    private final double permitsPerSecond;
+    private final long windowMillis;
+
+    private RateLimitPolicy(Algorithm algorithm, long limit, double permitsPerSecond, long windowMillis) {
+        this.algorithm = algorithm;
+        this.limit = limit;
+        this.permitsPerSecond = permitsPerSecond;
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * 令牌桶
+     *
+     * @param capacity         桶容量(允许的突发请求数)
+     * @param permitsPerSecond 每秒生成的令牌数
+     * @return 限流策略
+     */
+    public static RateLimitPolicy tokenBucket(long capacity, double permitsPerSecond) {
+        Assert.isTrue(capacity > 0, "capacity must be positive!");
+        Assert.isTrue(permitsPerSecond > 0, "permitsPerSecond must be positive!");
+        return new RateLimitPolicy(Algorithm.TOKEN_BUCKET, capacity, permitsPerSecond, 0);
+    }
+
+    /**
+     * 滑动窗口
+     *
+     * @param limit  窗口内允许的请求数
+     * @param window 窗口大小
+     * @param unit   窗口大小的单位
+     * @return 限流策略
+     */
+    public static RateLimitPolicy slidingWindow(long limit, long window, TimeUnit unit) {
+        Assert.isTrue(limit > 0, "limit must be positive!");
+        Assert.isTrue(window > 0, "window must be positive!");
+        return new RateLimitPolicy(Algorithm.SLIDING_WINDOW, limit, 0, unit.toMillis(window));
+    }
+
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.limiter;
+
+/**
+ * 限流结果.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public final class RateLimitResult {
+    private final boolean allowed;
+    private final long remaining;
+    private final long retryAfterMillis;
+
+    RateLimitResult(boolean allowed, long remaining, long retryAfterMillis) {
+        this.allowed = allowed;
+        this.remaining = remaining;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * 是否通过
+     *
+     * @return 是否通过
+     */
+    public boolean isAllowed() {
+        return allowed;
+    }
+
+    /**
+     * 剩余可用的次数(令牌数)
+     *
+     * @return 剩余次数
+     */
+    public long getRemaining() {
+        return remaining;
+    }
+
+    /**
+     * 被拒绝时，建议多久之后重试
+     *
+     * @return 毫秒数
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimitResult{allowed=" + allowed + ", remaining=" + remaining + ", retryAfterMillis=" + retryAfterMillis + "}";
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.limiter;
+
+import lodsve.redis.core.script.RedisScriptUtils;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.util.Assert;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于redis的分布式限流器.<br/>
+ * 每次判断只执行一次预加载的lua脚本(EVALSHA)，时间以redis服务器为准；某个key被拒绝后，在建议的重试时间之前，本地直接拒绝，不再访问redis.
+ * <pre>
+ *     RateLimitResult result = rateLimiter.tryAcquire("login:" + userId, RateLimitPolicy.tokenBucket(10, 1));
+ * </pre>
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class RedisRateLimiter implements InitializingBean {
+    private static final String KEY_PREFIX = "rateLimiter:";
+    private static final int MAX_LOCAL_EXHAUSTED_KEYS = 10000;
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisScript<List> tokenBucketScript = RedisScriptUtils.load("token_bucket.lua", List.class);
+    private final RedisScript<List> slidingWindowScript = RedisScriptUtils.load("sliding_window.lua", List.class);
+    /**
+     * key -> 本地拒绝截止时间
+     */
+    private final Map<String, Long> exhaustedUntil = new ConcurrentHashMap<>(16);
+
+    public RedisRateLimiter(RedisConnectionFactory connectionFactory) {
+        this.redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        RedisScriptUtils.preload(redisTemplate, tokenBucketScript, slidingWindowScript);
+    }
+
+    /**
+     * 申请一次
+     *
+     * @param key    限流key
+     * @param policy 限流策略
+     * @return 限流结果
+     */
+    public RateLimitResult tryAcquire(String key, RateLimitPolicy policy) {
+        return tryAcquire(key, policy, 1);
+    }
+
+    /**
+     * 申请多次
+     *
+     * @param key     限流key
+     * @param policy  限流策略
+     * @param permits 申请次数(令牌数)
+     * @return 限流结果
+     */
+    public RateLimitResult tryAcquire(String key, RateLimitPolicy policy, int permits) {
+        Assert.hasText(key, "key must not be empty!");
+        Assert.notNull(policy, "policy must not be null!");
+        Assert.isTrue(permits > 0, "permits must be positive!");
+
+        String redisKey = KEY_PREFIX + policy.getAlgorithm().name().toLowerCase() + ":" + key;
+        long now = System.currentTimeMillis();
+
+        Long until = exhaustedUntil.get(redisKey);
+        if (until != null) {
+            if (until > now) {
+                return new RateLimitResult(false, 0, until - now);
+            }
+            exhaustedUntil.remove(redisKey, until);
+        }
+
+        List<?> result;
+        if (RateLimitPolicy.Algorithm.TOKEN_BUCKET == policy.getAlgorithm()) {
+            result = redisTemplate.execute(tokenBucketScript, Collections.singletonList(redisKey), String.valueOf(policy.getLimit()),
+                    String.valueOf(policy.getPermitsPerSecond()), String.valueOf(permits));
+        } else {
+            result = redisTemplate.execute(slidingWindowScript, Collections.singletonList(redisKey), String.valueOf(policy.getLimit()),
+                    String.valueOf(policy.getWindowMillis()), String.valueOf(permits), UUID.randomUUID().toString());
+        }
+
+        RateLimitResult limitResult = new RateLimitResult(toLong(result.get(0)) == 1, toLong(result.get(1)), toLong(result.get(2)));
+        if (!limitResult.isAllowed() && limitResult.getRetryAfterMillis() > 0) {
+            markExhausted(redisKey, now + limitResult.getRetryAfterMillis());
+        }
+
+        return limitResult;
+    }
+
+    private void markExhausted(String redisKey, long until) {
+        if (exhaustedUntil.size() >= MAX_LOCAL_EXHAUSTED_KEYS) {
+            long now = System.currentTimeMillis();
+            exhaustedUntil.entrySet().removeIf(e -> e.getValue() <= now);
+        }
+
+        exhaustedUntil.put(redisKey, until);
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(String.valueOf(value));
+    }
+}
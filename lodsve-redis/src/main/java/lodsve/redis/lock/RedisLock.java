@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.lock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 分布式可重入锁，由{@link RedisLockRegistry#obtain(String)}获取.<br/>
+ * 等待锁时按锁的剩余时间轮询，最长间隔{@value #MAX_POLL_MILLIS}毫秒.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class RedisLock implements Lock {
+    private static final long MAX_POLL_MILLIS = 100;
+
+    private final RedisLockRegistry registry;
+    private final String key;
+
+    RedisLock(RedisLockRegistry registry, String key) {
+        this.registry = registry;
+        this.key = key;
+    }
+
+    @Override
+    public void lock() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                acquire(-1, Long.MAX_VALUE);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        acquire(-1, Long.MAX_VALUE);
+    }
+
+    @Override
+    public boolean tryLock() {
+        return registry.tryAcquire(key, -1) == 0;
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        return acquire(-1, unit.toMillis(time));
+    }
+
+    /**
+     * 尝试加锁，并指定租期，到期后自动释放(不会自动续期)
+     *
+     * @param waitTime  最长等待时间
+     * @param leaseTime 租期
+     * @param unit      时间单位
+     * @return 是否加锁成功
+     * @throws InterruptedException 等待时被中断
+     */
+    public boolean tryLock(long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException {
+        return acquire(unit.toMillis(leaseTime), unit.toMillis(waitTime));
+    }
+
+    @Override
+    public void unlock() {
+        registry.release(key);
+    }
+
+    /**
+     * 当前线程是否持有该锁
+     *
+     * @return 是否持有
+     */
+    public boolean isHeldByCurrentThread() {
+        return registry.isHeldByCurrentThread(key);
+    }
+
+    @Override
+    public Condition newCondition() {
+        throw new UnsupportedOperationException("RedisLock does not support conditions!");
+    }
+
+    private boolean acquire(long leaseMillis, long waitMillis) throws InterruptedException {
+        long deadline = waitMillis == Long.MAX_VALUE ? Long.MAX_VALUE : System.currentTimeMillis() + waitMillis;
+
+        while (true) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            long ttl = registry.tryAcquire(key, leaseMillis);
+            if (ttl == 0) {
+                return true;
+            }
+
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+
+            Thread.sleep(Math.max(1, Math.min(Math.min(ttl, MAX_POLL_MILLIS), remaining)));
+        }
+    }
+}
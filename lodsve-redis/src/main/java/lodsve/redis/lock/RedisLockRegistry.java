@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.lock;
+
+import lodsve.redis.core.script.RedisScriptUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.util.Assert;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于redis的分布式可重入锁.<br/>
+ * 加锁、解锁、续期各自只执行一次预加载的lua脚本(EVALSHA)；未指定租期时由看门狗每隔1/3租期自动续期，直到释放锁.
+ * <pre>
+ *     Lock lock = lockRegistry.obtain("order:" + orderId);
+ *     lock.lock();
+ *     try {
+ *         // ...
+ *     } finally {
+ *         lock.unlock();
+ *     }
+ * </pre>
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class RedisLockRegistry implements InitializingBean, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(RedisLockRegistry.class);
+    private static final String KEY_PREFIX = "lock:";
+    /**
+     * 看门狗默认租期(毫秒)
+     */
+    private static final long DEFAULT_LEASE_MILLIS = 30000;
+
+    private final StringRedisTemplate redisTemplate;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final RedisScript<Long> lockScript = RedisScriptUtils.load("lock.lua", Long.class);
+    private final RedisScript<Long> unlockScript = RedisScriptUtils.load("unlock.lua", Long.class);
+    private final RedisScript<Long> renewScript = RedisScriptUtils.load("renew.lua", Long.class);
+    /**
+     * 本进程中持有的锁，用于本地快速判断与看门狗续期
+     */
+    private final Map<String, LocalHold> holds = new ConcurrentHashMap<>(16);
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "redis-lock-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long leaseMillis = DEFAULT_LEASE_MILLIS;
+
+    public RedisLockRegistry(RedisConnectionFactory connectionFactory) {
+        this.redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        RedisScriptUtils.preload(redisTemplate, lockScript, unlockScript, renewScript);
+    }
+
+    @Override
+    public void destroy() {
+        watchdog.shutdownNow();
+    }
+
+    /**
+     * 获取锁对象，锁对象可以复用
+     *
+     * @param key 锁的key
+     * @return 锁
+     */
+    public RedisLock obtain(String key) {
+        Assert.hasText(key, "key must not be empty!");
+        return new RedisLock(this, KEY_PREFIX + key);
+    }
+
+    public void setLeaseMillis(long leaseMillis) {
+        Assert.isTrue(leaseMillis > 0, "leaseMillis must be positive!");
+        this.leaseMillis = leaseMillis;
+    }
+
+    long getLeaseMillis() {
+        return leaseMillis;
+    }
+
+    /**
+     * 尝试加锁
+     *
+     * @param key         锁key
+     * @param leaseMillis 租期，小于等于0时使用看门狗续期
+     * @return 0表示加锁成功，否则为锁剩余的毫秒数
+     */
+    long tryAcquire(String key, long leaseMillis) {
+        Thread current = Thread.currentThread();
+        long now = System.currentTimeMillis();
+        LocalHold hold = holds.get(key);
+        if (hold != null && hold.deadline <= now) {
+            // 指定租期的持有已到期，redis中的锁已自动释放，交由redis判断
+            removeHold(key, hold);
+            hold = null;
+        }
+        if (hold != null && hold.owner != current) {
+            // 本进程的其他线程持有，无需访问redis
+            return Math.max(1, (leaseMillis > 0 ? leaseMillis : this.leaseMillis) / 3);
+        }
+
+        boolean watch = leaseMillis <= 0;
+        long lease = watch ? this.leaseMillis : leaseMillis;
+        Long ttl = redisTemplate.execute(lockScript, Collections.singletonList(key), String.valueOf(lease), ownerId(current));
+        if (ttl == null || ttl != 0) {
+            return ttl == null ? 1 : ttl;
+        }
+
+        if (hold == null) {
+            hold = new LocalHold(current);
+            holds.put(key, hold);
+        }
+        hold.count++;
+        hold.lease = lease;
+        hold.deadline = watch ? Long.MAX_VALUE : now + lease;
+        if (watch && hold.renewal == null) {
+            hold.renewal = scheduleRenewal(key, current, lease);
+        }
+
+        return 0;
+    }
+
+    void release(String key) {
+        Thread current = Thread.currentThread();
+        LocalHold hold = holds.get(key);
+        if (hold != null && hold.owner != current) {
+            // 其他线程的持有不能被当前线程移除或减少
+            hold = null;
+        }
+
+        // 重入时剩余的持有仍按加锁时的租期续期，而不是注册器的默认租期
+        long lease = hold != null ? hold.lease : leaseMillis;
+        long now = System.currentTimeMillis();
+        Long result = redisTemplate.execute(unlockScript, Collections.singletonList(key), String.valueOf(lease), ownerId(current));
+        if (result == null || result < 0) {
+            removeHold(key, hold);
+            throw new IllegalMonitorStateException("current thread does not hold lock '" + key + "'!");
+        }
+
+        if (result == 1 || (hold != null && --hold.count <= 0)) {
+            removeHold(key, hold);
+        } else if (hold != null && hold.deadline != Long.MAX_VALUE) {
+            hold.deadline = now + lease;
+        }
+    }
+
+    boolean isHeldByCurrentThread(String key) {
+        LocalHold hold = holds.get(key);
+        return hold != null && hold.owner == Thread.currentThread();
+    }
+
+    private ScheduledFuture<?> scheduleRenewal(String key, Thread owner, long lease) {
+        String ownerId = ownerId(owner);
+        long period = Math.max(1, lease / 3);
+
+        return watchdog.scheduleAtFixedRate(() -> {
+            try {
+                Long renewed = redisTemplate.execute(renewScript, Collections.singletonList(key), String.valueOf(lease), ownerId);
+                if (renewed == null || renewed == 0) {
+                    logger.warn("lock '{}' is no longer held by '{}', stop renewing!", key, ownerId);
+                    removeHold(key, holds.get(key));
+                }
+            } catch (Exception e) {
+                logger.warn("renew lock '" + key + "' failed!", e);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private void removeHold(String key, LocalHold hold) {
+        if (hold == null) {
+            return;
+        }
+        if (hold.renewal != null) {
+            hold.renewal.cancel(false);
+        }
+
+        holds.remove(key, hold);
+    }
+
+    private String ownerId(Thread thread) {
+        return instanceId + ":" + thread.getId();
+    }
+
+    private static class LocalHold {
+        private final Thread owner;
+        private volatile int count;
+        private volatile long lease;
+        /**
+         * 指定租期时的本地到期时间，看门狗续期时为{@link Long#MAX_VALUE}
+         */
+        private volatile long deadline = Long.MAX_VALUE;
+        private volatile ScheduledFuture<?> renewal;
+
+        LocalHold(Thread owner) {
+            this.owner = owner;
+        }
+    }
+}
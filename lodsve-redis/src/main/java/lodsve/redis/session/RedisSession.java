@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.session;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionContext;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 保存在redis中的session.<br/>
+ * 属性在第一次访问时才从redis读取，修改只记录在本地，由{@link RedisSessionRepository#save(RedisSession)}在请求结束时统一写入.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class RedisSession implements HttpSession {
+    /**
+     * 表示属性在redis中不存在或已被删除
+     */
+    private static final Object NULL_VALUE = new Object();
+
+    private final RedisSessionRepository repository;
+    private final String id;
+    private final long creationTime;
+    private final boolean isNew;
+    private long lastAccessedTime;
+    private int maxInactiveInterval;
+    private boolean maxInactiveIntervalChanged;
+    private boolean invalidated;
+    private ServletContext servletContext;
+    /**
+     * 已从redis读取(或本地修改)的属性
+     */
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>(16);
+    /**
+     * 本次请求中修改过的属性
+     */
+    private final Map<String, Object> dirtyAttributes = new ConcurrentHashMap<>(16);
+    private volatile Set<String> attributeNames;
+
+    RedisSession(RedisSessionRepository repository, String id, long creationTime, long lastAccessedTime, int maxInactiveInterval, boolean isNew) {
+        this.repository = repository;
+        this.id = id;
+        this.creationTime = creationTime;
+        this.lastAccessedTime = lastAccessedTime;
+        this.maxInactiveInterval = maxInactiveInterval;
+        this.isNew = isNew;
+    }
+
+    @Override
+    public long getCreationTime() {
+        checkState();
+        return creationTime;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public long getLastAccessedTime() {
+        checkState();
+        return lastAccessedTime;
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return servletContext;
+    }
+
+    @Override
+    public void setMaxInactiveInterval(int interval) {
+        this.maxInactiveInterval = interval;
+        this.maxInactiveIntervalChanged = true;
+    }
+
+    @Override
+    public int getMaxInactiveInterval() {
+        return maxInactiveInterval;
+    }
+
+    @Override
+    @Deprecated
+    public HttpSessionContext getSessionContext() {
+        return null;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        checkState();
+
+        Object value = attributes.get(name);
+        if (value == null) {
+            Set<String> names = attributeNames;
+            if (isNew || (names != null && !names.contains(name))) {
+                return null;
+            }
+            value = repository.loadAttribute(id, name);
+            attributes.put(name, value == null ? NULL_VALUE : value);
+            return value;
+        }
+
+        return value == NULL_VALUE ? null : value;
+    }
+
+    @Override
+    @Deprecated
+    public Object getValue(String name) {
+        return getAttribute(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        checkState();
+
+        Set<String> names = new HashSet<>(isNew ? Collections.<String>emptySet() : loadAttributeNames());
+        for (Map.Entry<String, Object> entry : dirtyAttributes.entrySet()) {
+            if (entry.getValue() == NULL_VALUE) {
+                names.remove(entry.getKey());
+            } else {
+                names.add(entry.getKey());
+            }
+        }
+        return Collections.enumeration(names);
+    }
+
+    @Override
+    @Deprecated
+    public String[] getValueNames() {
+        return Collections.list(getAttributeNames()).toArray(new String[0]);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        checkState();
+
+        if (value == null) {
+            removeAttribute(name);
+            return;
+        }
+        attributes.put(name, value);
+        dirtyAttributes.put(name, value);
+    }
+
+    @Override
+    @Deprecated
+    public void putValue(String name, Object value) {
+        setAttribute(name, value);
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        checkState();
+
+        attributes.put(name, NULL_VALUE);
+        dirtyAttributes.put(name, NULL_VALUE);
+    }
+
+    @Override
+    @Deprecated
+    public void removeValue(String name) {
+        removeAttribute(name);
+    }
+
+    @Override
+    public void invalidate() {
+        checkState();
+
+        invalidated = true;
+        repository.delete(id);
+    }
+
+    @Override
+    public boolean isNew() {
+        checkState();
+        return isNew;
+    }
+
+    void setServletContext(ServletContext servletContext) {
+        this.servletContext = servletContext;
+    }
+
+    void setLastAccessedTime(long lastAccessedTime) {
+        this.lastAccessedTime = lastAccessedTime;
+    }
+
+    boolean isInvalidated() {
+        return invalidated;
+    }
+
+    boolean isMaxInactiveIntervalChanged() {
+        return maxInactiveIntervalChanged;
+    }
+
+    /**
+     * 本次请求中修改过的属性，值为null表示删除
+     *
+     * @return 修改过的属性
+     */
+    Map<String, Object> getDirtyAttributes() {
+        Map<String, Object> dirty = new HashMap<>(dirtyAttributes.size());
+        for (Map.Entry<String, Object> entry : dirtyAttributes.entrySet()) {
+            dirty.put(entry.getKey(), entry.getValue() == NULL_VALUE ? null : entry.getValue());
+        }
+        return dirty;
+    }
+
+    private Set<String> loadAttributeNames() {
+        Set<String> names = attributeNames;
+        if (names == null) {
+            names = repository.loadAttributeNames(id);
+            attributeNames = names;
+        }
+        return names;
+    }
+
+    private void checkState() {
+        if (invalidated) {
+            throw new IllegalStateException("session [" + id + "] has already been invalidated!");
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.session;
+
+import lodsve.core.properties.relaxedbind.RelaxedBindFactory;
+import lodsve.core.utils.StringUtils;
+import lodsve.redis.core.properties.RedisProperties;
+import lodsve.redis.core.properties.SessionSetting;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.io.IOException;
+
+/**
+ * 使用redis保存session的过滤器，由{@link RedisSessionInitializer}注册.<br/>
+ * session id通过cookie传递，请求结束时将session的变化写回redis.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class RedisSessionFilter extends OncePerRequestFilter {
+    private final RedisSessionRepository repository;
+    private final SessionSetting setting;
+
+    public RedisSessionFilter(RedisConnectionFactory connectionFactory) {
+        this(new RedisSessionRepository(connectionFactory, new RelaxedBindFactory.Builder<>(RedisProperties.class).build().getSession()));
+    }
+
+    public RedisSessionFilter(RedisSessionRepository repository) {
+        this.repository = repository;
+        this.setting = repository.getSetting();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        RedisSessionRequestWrapper wrappedRequest = new RedisSessionRequestWrapper(request, response);
+        try {
+            filterChain.doFilter(wrappedRequest, response);
+        } finally {
+            wrappedRequest.commitSession();
+        }
+    }
+
+    public RedisSessionRepository getRepository() {
+        return repository;
+    }
+
+    private class RedisSessionRequestWrapper extends HttpServletRequestWrapper {
+        private final HttpServletResponse response;
+        private RedisSession session;
+        private boolean requestedSessionResolved;
+        private String requestedSessionId;
+        private boolean requestedSessionLoaded;
+        private RedisSession requestedSession;
+
+        private RedisSessionRequestWrapper(HttpServletRequest request, HttpServletResponse response) {
+            super(request);
+            this.response = response;
+        }
+
+        @Override
+        public HttpSession getSession(boolean create) {
+            if (session != null && !session.isInvalidated()) {
+                return session;
+            }
+
+            if (session == null) {
+                RedisSession requested = getRequestedSession();
+                if (requested != null) {
+                    session = requested;
+                    return session;
+                }
+            }
+
+            if (!create) {
+                return null;
+            }
+
+            session = repository.createSession();
+            session.setServletContext(getServletContext());
+            writeCookie(session.getId(), -1);
+            return session;
+        }
+
+        @Override
+        public HttpSession getSession() {
+            return getSession(true);
+        }
+
+        @Override
+        public String getRequestedSessionId() {
+            resolveRequestedSessionId();
+            return requestedSessionId;
+        }
+
+        @Override
+        public boolean isRequestedSessionIdValid() {
+            RedisSession requested = getRequestedSession();
+            return requested != null && !requested.isInvalidated();
+        }
+
+        @Override
+        public boolean isRequestedSessionIdFromCookie() {
+            return getRequestedSessionId() != null;
+        }
+
+        @Override
+        public boolean isRequestedSessionIdFromURL() {
+            return false;
+        }
+
+        @Override
+        @Deprecated
+        public boolean isRequestedSessionIdFromUrl() {
+            return false;
+        }
+
+        private RedisSession getRequestedSession() {
+            if (requestedSessionLoaded) {
+                return requestedSession;
+            }
+            requestedSessionLoaded = true;
+
+            resolveRequestedSessionId();
+            if (requestedSessionId != null) {
+                requestedSession = repository.findById(requestedSessionId);
+                if (requestedSession != null) {
+                    requestedSession.setServletContext(getServletContext());
+                }
+            }
+            return requestedSession;
+        }
+
+        private void resolveRequestedSessionId() {
+            if (requestedSessionResolved) {
+                return;
+            }
+            requestedSessionResolved = true;
+
+            Cookie[] cookies = getCookies();
+            if (cookies == null) {
+                return;
+            }
+            for (Cookie cookie : cookies) {
+                if (setting.getCookieName().equals(cookie.getName()) && StringUtils.isNotBlank(cookie.getValue())) {
+                    requestedSessionId = cookie.getValue();
+                    return;
+                }
+            }
+        }
+
+        private void commitSession() {
+            if (session == null) {
+                return;
+            }
+
+            if (session.isInvalidated()) {
+                if (!response.isCommitted()) {
+                    writeCookie("", 0);
+                }
+                return;
+            }
+
+            session.setLastAccessedTime(System.currentTimeMillis());
+            repository.save(session);
+        }
+
+        private void writeCookie(String value, int maxAge) {
+            Cookie cookie = new Cookie(setting.getCookieName(), value);
+            String contextPath = getContextPath();
+            cookie.setPath(StringUtils.isNotBlank(contextPath) ? contextPath : "/");
+            cookie.setHttpOnly(true);
+            cookie.setSecure(isSecure());
+            cookie.setMaxAge(maxAge);
+            response.addCookie(cookie);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.session;
+
+import lodsve.core.properties.relaxedbind.RelaxedBindFactory;
+import lodsve.redis.core.properties.RedisProperties;
+import org.springframework.web.WebApplicationInitializer;
+import org.springframework.web.filter.DelegatingFilterProxy;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.FilterRegistration;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import java.util.EnumSet;
+
+/**
+ * 注册redis session过滤器，过滤器实例由{@link lodsve.redis.core.annotations.EnableRedis#session()}注册到spring容器中.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class RedisSessionInitializer implements WebApplicationInitializer {
+    public static final String FILTER_NAME = "redisSessionFilter";
+
+    @Override
+    public void onStartup(ServletContext servletContext) throws ServletException {
+        RedisProperties redisProperties = new RelaxedBindFactory.Builder<>(RedisProperties.class).build();
+        if (!redisProperties.getSession().isEnabled()) {
+            return;
+        }
+
+        FilterRegistration.Dynamic dynamic = servletContext.addFilter(FILTER_NAME, new DelegatingFilterProxy(FILTER_NAME));
+        dynamic.addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST, DispatcherType.ASYNC, DispatcherType.ERROR), false, "/*");
+        dynamic.setAsyncSupported(true);
+    }
+}
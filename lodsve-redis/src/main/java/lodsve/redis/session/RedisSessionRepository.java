@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.session;
+
+import lodsve.redis.core.properties.SessionSetting;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.util.Assert;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * session的redis存储.<br/>
+ * 每个session保存为一个hash：元数据字段以{@code meta:}开头，属性字段以{@code attr:}开头.
+ * <ul>
+ * <li>读取session时只读取元数据，属性在第一次访问时单独读取(HGET)；</li>
+ * <li>请求结束时只写入变化的属性，连同最后访问时间、过期时间在一次pipeline中提交；</li>
+ * <li>元数据在本地缓存很短的时间({@link SessionSetting#getMetadataCacheTtl()})，缓存命中时不访问redis，以减少同一个session并发请求时对redis的访问.</li>
+ * </ul>
+ * 所以其他节点使session失效后，本节点最多在缓存时间内仍能读到这个session；这期间写回的只有最后访问时间等字段，下次读取元数据时会被清理.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class RedisSessionRepository {
+    static final String CREATION_TIME_FIELD = "meta:creationTime";
+    static final String LAST_ACCESSED_TIME_FIELD = "meta:lastAccessedTime";
+    static final String MAX_INACTIVE_INTERVAL_FIELD = "meta:maxInactiveInterval";
+    static final String ATTRIBUTE_PREFIX = "attr:";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final SessionSetting setting;
+    private final RedisSerializer<String> stringSerializer = new StringRedisSerializer();
+    private final RedisSerializer<Object> valueSerializer = new JdkSerializationRedisSerializer();
+    /**
+     * session id -> 元数据
+     */
+    private final Map<String, CachedMetadata> metadataCache = new ConcurrentHashMap<>(16);
+
+    public RedisSessionRepository(RedisConnectionFactory connectionFactory, SessionSetting setting) {
+        Assert.notNull(connectionFactory, "connectionFactory must not be null!");
+        Assert.notNull(setting, "session setting must not be null!");
+
+        this.setting = setting;
+        this.redisTemplate = new RedisTemplate<>();
+        this.redisTemplate.setConnectionFactory(connectionFactory);
+        this.redisTemplate.setKeySerializer(stringSerializer);
+        this.redisTemplate.setHashKeySerializer(stringSerializer);
+        this.redisTemplate.setValueSerializer(valueSerializer);
+        this.redisTemplate.setHashValueSerializer(valueSerializer);
+        this.redisTemplate.afterPropertiesSet();
+    }
+
+    /**
+     * 新建一个session，在{@link #save(RedisSession)}之前不会写入redis
+     *
+     * @return session
+     */
+    public RedisSession createSession() {
+        long now = System.currentTimeMillis();
+        return new RedisSession(this, UUID.randomUUID().toString(), now, now, setting.getMaxInactiveInterval(), true);
+    }
+
+    /**
+     * 根据id获取session，只读取元数据
+     *
+     * @param id session id
+     * @return session，不存在或已过期则返回null
+     */
+    public RedisSession findById(String id) {
+        long now = System.currentTimeMillis();
+
+        CachedMetadata metadata = metadataCache.get(id);
+        if (metadata != null && metadata.cachedAt + setting.getMetadataCacheTtl() >= now && !metadata.isExpired(now)) {
+            return new RedisSession(this, id, metadata.creationTime, metadata.lastAccessedTime, metadata.maxInactiveInterval, false);
+        }
+
+        metadata = loadMetadata(id, now);
+        if (metadata == null) {
+            metadataCache.remove(id);
+            return null;
+        }
+        if (metadata.isExpired(now)) {
+            delete(id);
+            return null;
+        }
+        cacheMetadata(id, metadata);
+
+        return new RedisSession(this, id, metadata.creationTime, metadata.lastAccessedTime, metadata.maxInactiveInterval, false);
+    }
+
+    /**
+     * 保存session的变化，所有命令在一次pipeline中提交
+     *
+     * @param session session
+     */
+    public void save(final RedisSession session) {
+        final byte[] key = key(session.getId());
+        final Map<byte[], byte[]> changes = new HashMap<>(16);
+        final Set<String> removed = new HashSet<>();
+
+        changes.put(rawString(LAST_ACCESSED_TIME_FIELD), rawString(String.valueOf(session.getLastAccessedTime())));
+        if (session.isNew() || session.isMaxInactiveIntervalChanged()) {
+            changes.put(rawString(CREATION_TIME_FIELD), rawString(String.valueOf(session.getCreationTime())));
+            changes.put(rawString(MAX_INACTIVE_INTERVAL_FIELD), rawString(String.valueOf(session.getMaxInactiveInterval())));
+        }
+        for (Map.Entry<String, Object> entry : session.getDirtyAttributes().entrySet()) {
+            if (entry.getValue() == null) {
+                removed.add(entry.getKey());
+            } else {
+                changes.put(rawString(ATTRIBUTE_PREFIX + entry.getKey()), valueSerializer.serialize(entry.getValue()));
+            }
+        }
+
+        redisTemplate.executePipelined(new RedisCallback<Object>() {
+            @Override
+            public Object doInRedis(RedisConnection connection) {
+                connection.hMSet(key, changes);
+                if (!removed.isEmpty()) {
+                    byte[][] fields = new byte[removed.size()][];
+                    int i = 0;
+                    for (String name : removed) {
+                        fields[i++] = rawString(ATTRIBUTE_PREFIX + name);
+                    }
+                    connection.hDel(key, fields);
+                }
+                if (session.getMaxInactiveInterval() > 0) {
+                    connection.pExpire(key, TimeUnit.SECONDS.toMillis(session.getMaxInactiveInterval()));
+                } else {
+                    connection.persist(key);
+                }
+                return null;
+            }
+        });
+
+        cacheMetadata(session.getId(), new CachedMetadata(session.getCreationTime(), session.getLastAccessedTime(),
+                session.getMaxInactiveInterval(), System.currentTimeMillis()));
+    }
+
+    /**
+     * 删除session
+     *
+     * @param id session id
+     */
+    public void delete(String id) {
+        metadataCache.remove(id);
+        redisTemplate.delete(setting.getKeyPrefix() + id);
+    }
+
+    Object loadAttribute(String id, String name) {
+        return redisTemplate.opsForHash().get(setting.getKeyPrefix() + id, ATTRIBUTE_PREFIX + name);
+    }
+
+    Set<String> loadAttributeNames(String id) {
+        Set<Object> fields = redisTemplate.opsForHash().keys(setting.getKeyPrefix() + id);
+        Set<String> names = new HashSet<>(fields.size());
+        for (Object field : fields) {
+            String name = (String) field;
+            if (name.startsWith(ATTRIBUTE_PREFIX)) {
+                names.add(name.substring(ATTRIBUTE_PREFIX.length()));
+            }
+        }
+        return names;
+    }
+
+    SessionSetting getSetting() {
+        return setting;
+    }
+
+    private CachedMetadata loadMetadata(String id, long now) {
+        final byte[] key = key(id);
+        List<byte[]> values = redisTemplate.execute(new RedisCallback<List<byte[]>>() {
+            @Override
+            public List<byte[]> doInRedis(RedisConnection connection) {
+                return connection.hMGet(key, rawString(CREATION_TIME_FIELD), rawString(LAST_ACCESSED_TIME_FIELD),
+                        rawString(MAX_INACTIVE_INTERVAL_FIELD));
+            }
+        });
+
+        if (values == null || values.size() != 3 || values.stream().allMatch(Objects::isNull)) {
+            return null;
+        }
+        if (values.contains(null)) {
+            // 已被其他节点销毁，本节点在元数据缓存期间又写回了部分字段
+            redisTemplate.delete(setting.getKeyPrefix() + id);
+            return null;
+        }
+
+        return new CachedMetadata(Long.parseLong(stringSerializer.deserialize(values.get(0))),
+                Long.parseLong(stringSerializer.deserialize(values.get(1))),
+                Integer.parseInt(stringSerializer.deserialize(values.get(2))), now);
+    }
+
+    private void cacheMetadata(String id, CachedMetadata metadata) {
+        if (setting.getMetadataCacheTtl() <= 0) {
+            return;
+        }
+        if (metadataCache.size() >= setting.getMetadataCacheSize() && !metadataCache.containsKey(id)) {
+            metadataCache.clear();
+        }
+        metadataCache.put(id, metadata);
+    }
+
+    private byte[] key(String id) {
+        return rawString(setting.getKeyPrefix() + id);
+    }
+
+    private byte[] rawString(String value) {
+        return stringSerializer.serialize(value);
+    }
+
+    private static class CachedMetadata {
+        private final long creationTime;
+        private final long lastAccessedTime;
+        private final int maxInactiveInterval;
+        private final long cachedAt;
+
+        private CachedMetadata(long creationTime, long lastAccessedTime, int maxInactiveInterval, long cachedAt) {
+            this.creationTime = creationTime;
+            this.lastAccessedTime = lastAccessedTime;
+            this.maxInactiveInterval = maxInactiveInterval;
+            this.cachedAt = cachedAt;
+        }
+
+        private boolean isExpired(long now) {
+            return maxInactiveInterval > 0 && lastAccessedTime + TimeUnit.SECONDS.toMillis(maxInactiveInterval) < now;
+        }
+    }
+}
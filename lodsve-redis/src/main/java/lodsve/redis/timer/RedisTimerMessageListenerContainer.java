@@ -17,7 +17,7 @@
 
 package lodsve.redis.timer;
 
-import lodsve.redis.core.connection.LodsveRedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.listener.PatternTopic;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
@@ -28,7 +28,7 @@ import org.springframework.data.redis.listener.RedisMessageListenerContainer;
  * @date 2017/12/17 上午12:34
  */
 public class RedisTimerMessageListenerContainer extends RedisMessageListenerContainer {
-    public RedisTimerMessageListenerContainer(LodsveRedisConnectionFactory connectionFactory, RedisTimerListener listener) {
+    public RedisTimerMessageListenerContainer(RedisConnectionFactory connectionFactory, RedisTimerListener listener) {
         super.setConnectionFactory(connectionFactory);
         super.addMessageListener(listener, new PatternTopic("__keyevent@*:expired"));
     }
@@ -0,0 +1,29 @@
+--
+-- Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+--
+-- This program is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- This program is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with this program.  If not, see <http://www.gnu.org/licenses/>.
+--
+
+-- 获取可重入锁
+-- KEYS[1]: 锁key
+-- ARGV[1]: 租期(毫秒)
+-- ARGV[2]: 持有者标识
+-- return: 0表示获取成功，否则为锁剩余的毫秒数
+if redis.call('EXISTS', KEYS[1]) == 0 or redis.call('HEXISTS', KEYS[1], ARGV[2]) == 1 then
+    redis.call('HINCRBY', KEYS[1], ARGV[2], 1)
+    redis.call('PEXPIRE', KEYS[1], ARGV[1])
+    return 0
+end
+
+return math.max(1, redis.call('PTTL', KEYS[1]))
@@ -0,0 +1,28 @@
+--
+-- Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+--
+-- This program is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- This program is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with this program.  If not, see <http://www.gnu.org/licenses/>.
+--
+
+-- 续期可重入锁
+-- KEYS[1]: 锁key
+-- ARGV[1]: 租期(毫秒)
+-- ARGV[2]: 持有者标识
+-- return: 1表示续期成功，0表示已不再持有
+if redis.call('HEXISTS', KEYS[1], ARGV[2]) == 1 then
+    redis.call('PEXPIRE', KEYS[1], ARGV[1])
+    return 1
+end
+
+return 0
@@ -0,0 +1,51 @@
+--
+-- Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+--
+-- This program is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- This program is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with this program.  If not, see <http://www.gnu.org/licenses/>.
+--
+
+-- 滑动窗口限流
+-- KEYS[1]: 窗口key
+-- ARGV[1]: 窗口内允许的请求数
+-- ARGV[2]: 窗口大小(毫秒)
+-- ARGV[3]: 申请的次数
+-- ARGV[4]: 本次请求的唯一标识
+-- return: {是否通过(1/0), 剩余次数, 需等待的毫秒数}
+local limit = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+local requested = tonumber(ARGV[3])
+
+-- 使用redis服务器时间，避免各客户端时钟不一致；TIME是非确定性命令，需要按效果复制
+redis.replicate_commands()
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - window)
+local count = redis.call('ZCARD', KEYS[1])
+
+if count + requested <= limit then
+    for i = 1, requested do
+        redis.call('ZADD', KEYS[1], now, ARGV[4] .. ':' .. i)
+    end
+    redis.call('PEXPIRE', KEYS[1], window)
+    return {1, limit - count - requested, 0}
+end
+
+local retryAfter = window
+local oldest = redis.call('ZRANGE', KEYS[1], 0, 0, 'WITHSCORES')
+if oldest[2] then
+    retryAfter = tonumber(oldest[2]) + window - now
+end
+
+return {0, math.max(0, limit - count), math.max(1, retryAfter)}
@@ -0,0 +1,55 @@
+--
+-- Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+--
+-- This program is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- This program is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with this program.  If not, see <http://www.gnu.org/licenses/>.
+--
+
+-- 令牌桶限流
+-- KEYS[1]: 令牌桶key
+-- ARGV[1]: 桶容量
+-- ARGV[2]: 每秒生成的令牌数
+-- ARGV[3]: 申请的令牌数
+-- return: {是否通过(1/0), 剩余令牌数, 需等待的毫秒数}
+local capacity = tonumber(ARGV[1])
+local rate = tonumber(ARGV[2])
+local requested = tonumber(ARGV[3])
+
+-- 使用redis服务器时间，避免各客户端时钟不一致；TIME是非确定性命令，需要按效果复制
+redis.replicate_commands()
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'timestamp')
+local tokens = tonumber(bucket[1])
+local timestamp = tonumber(bucket[2])
+if tokens == nil or timestamp == nil then
+    tokens = capacity
+    timestamp = now
+end
+
+tokens = math.min(capacity, tokens + math.max(0, now - timestamp) * rate / 1000)
+
+local allowed = 0
+local retryAfter = 0
+if tokens >= requested then
+    tokens = tokens - requested
+    allowed = 1
+else
+    retryAfter = math.ceil((requested - tokens) * 1000 / rate)
+end
+
+redis.call('HMSET', KEYS[1], 'tokens', tokens, 'timestamp', math.max(now, timestamp))
+redis.call('PEXPIRE', KEYS[1], math.ceil(capacity * 1000 / rate) + 1000)
+
+return {allowed, math.floor(tokens), retryAfter}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisSentinelConnection;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 不依赖redis服务的连接工厂，记录每一次命令调用，命令的返回值由{@link #answer(String, Function)}指定.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class MockRedisConnectionFactory implements RedisConnectionFactory {
+    private final Map<String, Function<Object[], Object>> answers = new ConcurrentHashMap<>(16);
+    private final List<Invocation> invocations = new CopyOnWriteArrayList<>();
+
+    /**
+     * 指定命令的返回值
+     *
+     * @param method RedisConnection的方法名
+     * @param answer 根据参数计算返回值
+     * @return this
+     */
+    public MockRedisConnectionFactory answer(String method, Function<Object[], Object> answer) {
+        answers.put(method, answer);
+        return this;
+    }
+
+    /**
+     * 获取某个命令的所有调用参数
+     *
+     * @param method RedisConnection的方法名
+     * @return 调用参数
+     */
+    public List<Object[]> getInvocations(String method) {
+        return invocations.stream().filter(i -> i.method.equals(method)).map(i -> i.args).collect(Collectors.toList());
+    }
+
+    public void reset() {
+        invocations.clear();
+    }
+
+    @Override
+    public RedisConnection getConnection() {
+        return (RedisConnection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{RedisConnection.class}, (proxy, method, args) -> {
+            String name = method.getName();
+            if (method.getDeclaringClass() == Object.class) {
+                return "equals".equals(name) ? proxy == args[0] : "hashCode".equals(name) ? System.identityHashCode(proxy) : "MockRedisConnection";
+            }
+
+            Object[] arguments = args == null ? new Object[0] : args;
+            invocations.add(new Invocation(name, arguments));
+
+            Function<Object[], Object> answer = answers.get(name);
+            if (answer != null) {
+                return answer.apply(arguments);
+            }
+            if ("closePipeline".equals(name)) {
+                return Collections.emptyList();
+            }
+
+            Class<?> returnType = method.getReturnType();
+            if (returnType == boolean.class) {
+                return false;
+            }
+            if (returnType == long.class) {
+                return 0L;
+            }
+            if (returnType == int.class) {
+                return 0;
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public boolean getConvertPipelineAndTxResults() {
+        return true;
+    }
+
+    @Override
+    public RedisSentinelConnection getSentinelConnection() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public DataAccessException translateExceptionIfPossible(RuntimeException ex) {
+        return null;
+    }
+
+    /**
+     * 将EVAL/EVALSHA的keysAndArgs转成字符串
+     *
+     * @param keysAndArgs keys和args
+     * @return 字符串
+     */
+    public static List<String> toStrings(byte[][] keysAndArgs) {
+        List<String> values = new ArrayList<>(keysAndArgs.length);
+        for (byte[] value : keysAndArgs) {
+            values.add(new String(value, StandardCharsets.UTF_8));
+        }
+        return values;
+    }
+
+    private static class Invocation {
+        private final String method;
+        private final Object[] args;
+
+        private Invocation(String method, Object[] args) {
+            this.method = method;
+            this.args = args;
+        }
+    }
+}
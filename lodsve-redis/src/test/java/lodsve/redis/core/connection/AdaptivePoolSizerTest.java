@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.core.connection;
+
+import lodsve.redis.core.properties.AdaptiveSetting;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.Assert;
+import org.junit.Test;
+import redis.clients.jedis.Jedis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * .
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class AdaptivePoolSizerTest {
+    @Test
+    public void testResize() throws Exception {
+        try (SilentRedisServer server = new SilentRedisServer()) {
+            GenericObjectPoolConfig config = new GenericObjectPoolConfig();
+            config.setMaxTotal(30);
+            config.setMaxIdle(8);
+            config.setMinIdle(0);
+            InstrumentedJedisPool pool = new InstrumentedJedisPool("test", config, "localhost", server.getPort(), 50, null);
+
+            AdaptiveSetting setting = new AdaptiveSetting();
+            setting.setLowerBound(2);
+            setting.setUpperBound(16);
+            AdaptivePoolSizer sizer = new AdaptivePoolSizer("test", pool, setting);
+
+            // 调大立即生效：maxIdle为峰值的1.25倍，minIdle为峰值的一半
+            borrowAndReturn(pool, 10);
+            sizer.resize();
+            assertIdle(pool, 13, 5);
+
+            // 调小每次只回收差值的一半，maxIdle不低于下限
+            sizer.resize();
+            assertIdle(pool, 6, 2);
+            sizer.resize();
+            assertIdle(pool, 3, 1);
+            sizer.resize();
+            assertIdle(pool, 2, 0);
+
+            // maxIdle不超过上限
+            borrowAndReturn(pool, 20);
+            sizer.resize();
+            assertIdle(pool, 16, 10);
+
+            pool.destroy();
+        }
+    }
+
+    private void borrowAndReturn(InstrumentedJedisPool pool, int count) {
+        List<Jedis> borrowed = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            borrowed.add(pool.getResource());
+        }
+        borrowed.forEach(Jedis::close);
+    }
+
+    private void assertIdle(InstrumentedJedisPool pool, int maxIdle, int minIdle) {
+        Assert.assertEquals(maxIdle, pool.getMetrics().getMaxIdle());
+        Assert.assertEquals(minIdle, pool.getMetrics().getMinIdle());
+    }
+}
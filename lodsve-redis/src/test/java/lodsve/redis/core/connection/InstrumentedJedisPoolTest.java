@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.core.connection;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.Assert;
+import org.junit.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+/**
+ * .
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class InstrumentedJedisPoolTest {
+    @Test
+    public void testHoldTime() throws Exception {
+        try (SilentRedisServer server = new SilentRedisServer()) {
+            InstrumentedJedisPool pool = new InstrumentedJedisPool("test", new GenericObjectPoolConfig(), "localhost", server.getPort(), 50, null);
+
+            Jedis jedis = pool.getResource();
+            Thread.sleep(20);
+            jedis.close();
+
+            Assert.assertEquals(1, pool.getMetrics().getBorrowLatency().getCount());
+            Assert.assertEquals(1, pool.getMetrics().getHoldTime().getCount());
+            Assert.assertTrue(pool.getMetrics().getHoldTime().getPercentileNanos(100) >= 20_000_000L);
+            Assert.assertEquals(1, pool.getMetrics().getNumIdle());
+
+            // 坏连接直接销毁，同样记录占用时长
+            Jedis broken = pool.getResource();
+            broken.getClient().getSocket().close();
+            try {
+                broken.ping();
+                Assert.fail();
+            } catch (JedisConnectionException e) {
+                broken.close();
+            }
+            Assert.assertEquals(2, pool.getMetrics().getHoldTime().getCount());
+            Assert.assertEquals(0, pool.getMetrics().getNumActive());
+            Assert.assertEquals(0, pool.getMetrics().getNumIdle());
+
+            pool.destroy();
+        }
+    }
+}
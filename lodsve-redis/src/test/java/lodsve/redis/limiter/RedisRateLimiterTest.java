@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.limiter;
+
+import lodsve.redis.MockRedisConnectionFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * .
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class RedisRateLimiterTest {
+    @Test
+    public void testTokenBucket() {
+        MockRedisConnectionFactory connectionFactory = new MockRedisConnectionFactory();
+        connectionFactory.answer("evalSha", args -> Arrays.asList(1L, 9L, 0L));
+        RedisRateLimiter rateLimiter = new RedisRateLimiter(connectionFactory);
+
+        RateLimitResult result = rateLimiter.tryAcquire("login", RateLimitPolicy.tokenBucket(10, 2), 1);
+        Assert.assertTrue(result.isAllowed());
+        Assert.assertEquals(9, result.getRemaining());
+
+        List<Object[]> invocations = connectionFactory.getInvocations("evalSha");
+        Assert.assertEquals(1, invocations.size());
+        // 时间由脚本通过TIME从redis服务器获取，不再传入客户端时间
+        Assert.assertEquals(1, invocations.get(0)[2]);
+        Assert.assertEquals(Arrays.asList("rateLimiter:token_bucket:login", "10", "2.0", "1"),
+                MockRedisConnectionFactory.toStrings((byte[][]) invocations.get(0)[3]));
+    }
+
+    @Test
+    public void testSlidingWindow() {
+        MockRedisConnectionFactory connectionFactory = new MockRedisConnectionFactory();
+        connectionFactory.answer("evalSha", args -> Arrays.asList(1L, 4L, 0L));
+        RedisRateLimiter rateLimiter = new RedisRateLimiter(connectionFactory);
+
+        Assert.assertTrue(rateLimiter.tryAcquire("api", RateLimitPolicy.slidingWindow(5, 1, TimeUnit.SECONDS)).isAllowed());
+
+        List<String> keysAndArgs = MockRedisConnectionFactory.toStrings((byte[][]) connectionFactory.getInvocations("evalSha").get(0)[3]);
+        Assert.assertEquals(5, keysAndArgs.size());
+        Assert.assertEquals(Arrays.asList("rateLimiter:sliding_window:api", "5", "1000", "1"), keysAndArgs.subList(0, 4));
+    }
+
+    @Test
+    public void testLocalReject() {
+        MockRedisConnectionFactory connectionFactory = new MockRedisConnectionFactory();
+        connectionFactory.answer("evalSha", args -> Arrays.asList(0L, 0L, 60000L));
+        RedisRateLimiter rateLimiter = new RedisRateLimiter(connectionFactory);
+
+        Assert.assertFalse(rateLimiter.tryAcquire("login", RateLimitPolicy.tokenBucket(1, 1)).isAllowed());
+        RateLimitResult result = rateLimiter.tryAcquire("login", RateLimitPolicy.tokenBucket(1, 1));
+        Assert.assertFalse(result.isAllowed());
+        Assert.assertTrue(result.getRetryAfterMillis() > 0);
+
+        // 被拒绝后，在重试时间之前本地直接拒绝
+        Assert.assertEquals(1, connectionFactory.getInvocations("evalSha").size());
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.lock;
+
+import lodsve.redis.MockRedisConnectionFactory;
+import lodsve.redis.core.script.RedisScriptUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * .
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class RedisLockRegistryTest {
+    private static final String LOCK_SHA = RedisScriptUtils.load("lock.lua", Long.class).getSha1();
+    private static final String UNLOCK_SHA = RedisScriptUtils.load("unlock.lua", Long.class).getSha1();
+    private static final String RENEW_SHA = RedisScriptUtils.load("renew.lua", Long.class).getSha1();
+
+    @Test
+    public void testReentrantLease() throws Exception {
+        MockRedisConnectionFactory connectionFactory = mockConnectionFactory();
+        RedisLockRegistry registry = new RedisLockRegistry(connectionFactory);
+        try {
+            RedisLock lock = registry.obtain("order");
+            Assert.assertTrue(lock.tryLock(0, 5, TimeUnit.SECONDS));
+            Assert.assertTrue(lock.tryLock(0, 5, TimeUnit.SECONDS));
+
+            lock.unlock();
+            Assert.assertTrue(lock.isHeldByCurrentThread());
+            lock.unlock();
+            Assert.assertFalse(lock.isHeldByCurrentThread());
+
+            // 重入解锁时按加锁时的租期续期，而不是注册器的默认租期
+            Assert.assertEquals(2, leases(connectionFactory, UNLOCK_SHA).size());
+            for (String lease : leases(connectionFactory, UNLOCK_SHA)) {
+                Assert.assertEquals("5000", lease);
+            }
+        } finally {
+            registry.destroy();
+        }
+    }
+
+    @Test
+    public void testWatchdogLease() {
+        MockRedisConnectionFactory connectionFactory = mockConnectionFactory();
+        RedisLockRegistry registry = new RedisLockRegistry(connectionFactory);
+        registry.setLeaseMillis(9000);
+        try {
+            RedisLock lock = registry.obtain("order");
+            lock.lock();
+            lock.lock();
+            lock.unlock();
+            lock.unlock();
+
+            Assert.assertEquals("9000", leases(connectionFactory, LOCK_SHA).get(0));
+            for (String lease : leases(connectionFactory, UNLOCK_SHA)) {
+                Assert.assertEquals("9000", lease);
+            }
+        } finally {
+            registry.destroy();
+        }
+    }
+
+    @Test
+    public void testUnlockByOtherThread() throws Exception {
+        MockRedisConnectionFactory connectionFactory = mockConnectionFactory();
+        RedisLockRegistry registry = new RedisLockRegistry(connectionFactory);
+        registry.setLeaseMillis(300);
+        try {
+            RedisLock lock = registry.obtain("order");
+            lock.lock();
+
+            AtomicReference<Throwable> error = new AtomicReference<>();
+            Thread other = new Thread(() -> {
+                try {
+                    lock.unlock();
+                } catch (Throwable e) {
+                    error.set(e);
+                }
+            });
+            other.start();
+            other.join();
+            Assert.assertTrue(error.get() instanceof IllegalMonitorStateException);
+
+            // 其他线程解锁失败后，持有者的持有与看门狗续期都不受影响
+            Assert.assertTrue(lock.isHeldByCurrentThread());
+            int renewed = leases(connectionFactory, RENEW_SHA).size();
+            Thread.sleep(350);
+            Assert.assertTrue(leases(connectionFactory, RENEW_SHA).size() > renewed);
+
+            lock.unlock();
+            Assert.assertFalse(lock.isHeldByCurrentThread());
+        } finally {
+            registry.destroy();
+        }
+    }
+
+    @Test
+    public void testExpiredLease() throws Exception {
+        MockRedisConnectionFactory connectionFactory = mockConnectionFactory();
+        RedisLockRegistry registry = new RedisLockRegistry(connectionFactory);
+        try {
+            RedisLock lock = registry.obtain("order");
+            Assert.assertTrue(lock.tryLock(0, 100, TimeUnit.MILLISECONDS));
+
+            Assert.assertFalse(tryLockInOtherThread(lock));
+            Thread.sleep(150);
+            // 指定的租期到期后，其他线程可以加锁
+            Assert.assertTrue(tryLockInOtherThread(lock));
+            Assert.assertFalse(lock.isHeldByCurrentThread());
+        } finally {
+            registry.destroy();
+        }
+    }
+
+    @Test(expected = IllegalMonitorStateException.class)
+    public void testUnlockNotHeld() {
+        MockRedisConnectionFactory connectionFactory = mockConnectionFactory();
+        RedisLockRegistry registry = new RedisLockRegistry(connectionFactory);
+        try {
+            registry.obtain("order").unlock();
+        } finally {
+            registry.destroy();
+        }
+    }
+
+    /**
+     * 按lock.lua/unlock.lua/renew.lua的语义在内存中模拟一个锁
+     */
+    private MockRedisConnectionFactory mockConnectionFactory() {
+        String[] owner = new String[1];
+        AtomicInteger counter = new AtomicInteger();
+        AtomicLong expireAt = new AtomicLong();
+        return new MockRedisConnectionFactory().answer("evalSha", args -> {
+            synchronized (counter) {
+                List<String> keysAndArgs = MockRedisConnectionFactory.toStrings((byte[][]) args[3]);
+                long lease = Long.parseLong(keysAndArgs.get(1));
+                long now = System.currentTimeMillis();
+                if (expireAt.get() <= now) {
+                    owner[0] = null;
+                    counter.set(0);
+                }
+
+                boolean held = keysAndArgs.get(2).equals(owner[0]);
+                if (LOCK_SHA.equals(args[0])) {
+                    if (owner[0] != null && !held) {
+                        return expireAt.get() - now;
+                    }
+                    owner[0] = keysAndArgs.get(2);
+                    counter.incrementAndGet();
+                    expireAt.set(now + lease);
+                    return 0L;
+                }
+                if (UNLOCK_SHA.equals(args[0])) {
+                    if (!held) {
+                        return -1L;
+                    }
+                    if (counter.decrementAndGet() > 0) {
+                        expireAt.set(now + lease);
+                        return 0L;
+                    }
+                    owner[0] = null;
+                    expireAt.set(0);
+                    return 1L;
+                }
+                if (held) {
+                    expireAt.set(now + lease);
+                    return 1L;
+                }
+                return 0L;
+            }
+        });
+    }
+
+    private boolean tryLockInOtherThread(RedisLock lock) throws InterruptedException {
+        boolean[] locked = new boolean[1];
+        Thread other = new Thread(() -> locked[0] = lock.tryLock());
+        other.start();
+        other.join();
+        return locked[0];
+    }
+
+    private List<String> leases(MockRedisConnectionFactory connectionFactory, String sha) {
+        return connectionFactory.getInvocations("evalSha").stream().filter(args -> sha.equals(args[0]))
+                .map(args -> MockRedisConnectionFactory.toStrings((byte[][]) args[3]).get(1)).collect(Collectors.toList());
+    }
+}
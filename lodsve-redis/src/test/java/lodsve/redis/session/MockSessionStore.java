@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.session;
+
+import lodsve.redis.MockRedisConnectionFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 在内存中模拟redis的hash，供多个节点(多个{@link RedisSessionRepository})共享.
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+class MockSessionStore {
+    private final Map<String, Map<String, byte[]>> hashes = new ConcurrentHashMap<>(16);
+    private final MockRedisConnectionFactory connectionFactory = new MockRedisConnectionFactory();
+
+    @SuppressWarnings("unchecked")
+    MockSessionStore() {
+        connectionFactory.answer("hMSet", args -> {
+            Map<String, byte[]> hash = hashes.computeIfAbsent(string(args[0]), k -> new ConcurrentHashMap<>(16));
+            for (Map.Entry<byte[], byte[]> entry : ((Map<byte[], byte[]>) args[1]).entrySet()) {
+                hash.put(string(entry.getKey()), entry.getValue());
+            }
+            return null;
+        }).answer("hDel", args -> {
+            Map<String, byte[]> hash = hashes.getOrDefault(string(args[0]), Collections.emptyMap());
+            long count = 0;
+            for (byte[] field : (byte[][]) args[1]) {
+                count += hash.remove(string(field)) == null ? 0 : 1;
+            }
+            return count;
+        }).answer("hMGet", args -> {
+            Map<String, byte[]> hash = hashes.getOrDefault(string(args[0]), Collections.emptyMap());
+            List<byte[]> values = new ArrayList<>();
+            for (byte[] field : (byte[][]) args[1]) {
+                values.add(hash.get(string(field)));
+            }
+            return values;
+        }).answer("hGet", args -> hashes.getOrDefault(string(args[0]), Collections.emptyMap()).get(string(args[1])))
+                .answer("hKeys", args -> {
+                    Set<byte[]> fields = new HashSet<>();
+                    for (String field : hashes.getOrDefault(string(args[0]), Collections.emptyMap()).keySet()) {
+                        fields.add(field.getBytes(StandardCharsets.UTF_8));
+                    }
+                    return fields;
+                })
+                .answer("exists", args -> hashes.containsKey(string(args[0])))
+                .answer("del", args -> {
+                    long count = 0;
+                    for (byte[] key : (byte[][]) args[0]) {
+                        count += hashes.remove(string(key)) == null ? 0 : 1;
+                    }
+                    return count;
+                })
+                .answer("pExpire", args -> true)
+                .answer("persist", args -> true);
+    }
+
+    MockRedisConnectionFactory getConnectionFactory() {
+        return connectionFactory;
+    }
+
+    boolean exists(String key) {
+        return hashes.containsKey(key);
+    }
+
+    private static String string(Object value) {
+        return new String((byte[]) value, StandardCharsets.UTF_8);
+    }
+}
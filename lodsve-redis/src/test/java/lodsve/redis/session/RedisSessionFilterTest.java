@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.session;
+
+import lodsve.redis.core.properties.SessionSetting;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * .
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class RedisSessionFilterTest {
+    @Test
+    public void testSessionAcrossNodes() throws Exception {
+        MockSessionStore store = new MockSessionStore();
+        SessionSetting setting = new SessionSetting();
+        setting.setMetadataCacheTtl(200);
+        RedisSessionFilter node1 = new RedisSessionFilter(new RedisSessionRepository(store.getConnectionFactory(), setting));
+        RedisSessionFilter node2 = new RedisSessionFilter(new RedisSessionRepository(store.getConnectionFactory(), setting));
+
+        List<Cookie> cookies = new ArrayList<>();
+        node1.doFilterInternal(request(null), response(cookies), (req, res) ->
+                ((HttpServletRequest) req).getSession().setAttribute("user", "sunhao"));
+        Assert.assertEquals(1, cookies.size());
+        Cookie sessionCookie = cookies.get(0);
+        Assert.assertEquals(setting.getCookieName(), sessionCookie.getName());
+
+        Object[] user = new Object[1];
+        node2.doFilterInternal(request(sessionCookie), response(cookies), (req, res) -> {
+            HttpSession session = ((HttpServletRequest) req).getSession(false);
+            user[0] = session == null ? null : session.getAttribute("user");
+        });
+        Assert.assertEquals("sunhao", user[0]);
+
+        cookies.clear();
+        node1.doFilterInternal(request(sessionCookie), response(cookies), (req, res) ->
+                ((HttpServletRequest) req).getSession().invalidate());
+        Assert.assertEquals(1, cookies.size());
+        Assert.assertEquals(0, cookies.get(0).getMaxAge());
+
+        // 被其他节点销毁的session在本地缓存过期后不会复活
+        Thread.sleep(300);
+        FilterChain chain = (req, res) -> Assert.assertNull(((HttpServletRequest) req).getSession(false));
+        node2.doFilterInternal(request(sessionCookie), response(cookies), chain);
+        Assert.assertFalse(store.exists(setting.getKeyPrefix() + sessionCookie.getValue()));
+    }
+
+    private HttpServletRequest request(Cookie cookie) {
+        Map<String, Object> attributes = new HashMap<>(16);
+        return (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{HttpServletRequest.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getCookies":
+                    return cookie == null ? null : new Cookie[]{cookie};
+                case "getContextPath":
+                    return "";
+                case "getAttribute":
+                    return attributes.get((String) args[0]);
+                case "setAttribute":
+                    return attributes.put((String) args[0], args[1]);
+                case "isSecure":
+                    return false;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private HttpServletResponse response(List<Cookie> cookies) {
+        return (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{HttpServletResponse.class}, (proxy, method, args) -> {
+            if ("addCookie".equals(method.getName())) {
+                cookies.add((Cookie) args[0]);
+            }
+            return "isCommitted".equals(method.getName()) ? false : null;
+        });
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2019 Sun.Hao(https://www.crazy-coder.cn/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lodsve.redis.session;
+
+import lodsve.redis.core.properties.SessionSetting;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * .
+ *
+ * @author <a href="mailto:sunhao.java@gmail.com">sunhao(sunhao.java@gmail.com)</a>
+ */
+public class RedisSessionRepositoryTest {
+    @Test
+    public void testSaveAndFind() {
+        MockSessionStore store = new MockSessionStore();
+        RedisSessionRepository repository = new RedisSessionRepository(store.getConnectionFactory(), new SessionSetting());
+
+        RedisSession session = repository.createSession();
+        session.setAttribute("user", "sunhao");
+        repository.save(session);
+
+        RedisSession found = new RedisSessionRepository(store.getConnectionFactory(), new SessionSetting()).findById(session.getId());
+        Assert.assertNotNull(found);
+        Assert.assertFalse(found.isNew());
+        Assert.assertEquals(session.getCreationTime(), found.getCreationTime());
+        Assert.assertEquals("sunhao", found.getAttribute("user"));
+    }
+
+    @Test
+    public void testInvalidatedByOtherNode() throws Exception {
+        MockSessionStore store = new MockSessionStore();
+        SessionSetting setting = new SessionSetting();
+        setting.setMetadataCacheTtl(200);
+        RedisSessionRepository node1 = new RedisSessionRepository(store.getConnectionFactory(), setting);
+        RedisSessionRepository node2 = new RedisSessionRepository(store.getConnectionFactory(), setting);
+
+        RedisSession session = node1.createSession();
+        node1.save(session);
+        Assert.assertNotNull(node2.findById(session.getId()));
+
+        node1.findById(session.getId()).invalidate();
+        Assert.assertFalse(store.exists(setting.getKeyPrefix() + session.getId()));
+        Assert.assertNull(node1.findById(session.getId()));
+
+        // 缓存期间node2仍能读到session，写回的部分字段在缓存过期后被清理
+        RedisSession stale = node2.findById(session.getId());
+        Assert.assertNotNull(stale);
+        node2.save(stale);
+        Thread.sleep(300);
+        Assert.assertNull(node2.findById(session.getId()));
+        Assert.assertFalse(store.exists(setting.getKeyPrefix() + session.getId()));
+    }
+
+    @Test
+    public void testMetadataCacheHit() {
+        MockSessionStore store = new MockSessionStore();
+        SessionSetting setting = new SessionSetting();
+        setting.setMetadataCacheTtl(60000);
+        RedisSessionRepository repository = new RedisSessionRepository(store.getConnectionFactory(), setting);
+
+        RedisSession session = repository.createSession();
+        repository.save(session);
+        int before = store.getConnectionFactory().getInvocations("hMGet").size();
+
+        // 缓存命中时不访问redis
+        Assert.assertNotNull(repository.findById(session.getId()));
+        Assert.assertNotNull(repository.findById(session.getId()));
+        Assert.assertEquals(before, store.getConnectionFactory().getInvocations("hMGet").size());
+        Assert.assertTrue(store.getConnectionFactory().getInvocations("exists").isEmpty());
+    }
+
+    @Test
+    public void testExpired() {
+        MockSessionStore store = new MockSessionStore();
+        SessionSetting setting = new SessionSetting();
+        setting.setMaxInactiveInterval(1);
+        RedisSessionRepository repository = new RedisSessionRepository(store.getConnectionFactory(), setting);
+
+        RedisSession session = repository.createSession();
+        session.setLastAccessedTime(System.currentTimeMillis() - 5000);
+        repository.save(session);
+
+        Assert.assertNull(repository.findById(session.getId()));
+        Assert.assertFalse(store.exists(setting.getKeyPrefix() + session.getId()));
+    }
+}